@@ -0,0 +1,160 @@
+package com.rbkmoney.fraudbusters.benchmark;
+
+import com.rbkmoney.fraudbusters.constant.ClickhouseInsertFormat;
+import com.rbkmoney.fraudbusters.constant.EventSource;
+import com.rbkmoney.fraudbusters.domain.Event;
+import com.rbkmoney.fraudbusters.repository.impl.AggregationGeneralRepositoryImpl;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseBatchInserter;
+import com.rbkmoney.fraudbusters.repository.lookup.LookupTableRouter;
+import com.rbkmoney.fraudbusters.repository.rollup.RollupQueryRouter;
+import com.rbkmoney.fraudbusters.repository.setter.EventRowBinaryWriter;
+import com.rbkmoney.fraudbusters.util.ChInitializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.ClickHouseContainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of long windows on the raw table, on the lookup table ordered by email and through the hourly
+ * rollup. The synthetic dataset is {@code DAYS} days of {@code ROWS_PER_HOUR} rows per hour over {@code EMAILS}
+ * emails in a ClickHouse container.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseG1GC")
+@Threads(1)
+public class AggregationRouteBenchmark {
+
+    private static final int DAYS = 30;
+    private static final int ROWS_PER_HOUR = 2000;
+    private static final int EMAILS = 500;
+    private static final int CARD_TOKENS = 5000;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final String TABLE = EventSource.FRAUD_EVENTS_UNIQUE.getTable();
+    private static final String INSERT_ROW_BINARY = "INSERT INTO fraud.events_unique " +
+            " (timestamp, eventTimeHour, eventTime, ip, email, bin, fingerprint, shopId, partyId, resultStatus, amount, " +
+            "country, checkedRule, bankCountry, currency, invoiceId, maskedPan, bankName, cardToken, paymentId, checkedTemplate)" +
+            ClickhouseBatchInserter.ROW_BINARY_FORMAT;
+
+    @Param({"1440", "10080", "43200"})
+    public long windowMinutes;
+
+    private ClickHouseContainer clickHouseContainer;
+    private SingleConnectionDataSource dataSource;
+    private AggregationGeneralRepositoryImpl rawRepository;
+    private AggregationGeneralRepositoryImpl lookupRepository;
+    private AggregationGeneralRepositoryImpl rollupRepository;
+    private long from;
+    private long to;
+
+    @Setup
+    public void setup() throws SQLException {
+        clickHouseContainer = new ClickHouseContainer("yandex/clickhouse-server:19.17");
+        clickHouseContainer.start();
+        try (Connection connection = ChInitializer.getSystemConn(clickHouseContainer)) {
+            ChInitializer.execAllInFile(connection, "sql/db_init.sql");
+            ChInitializer.execAllInFile(connection, "sql/V3__create_events_unique_hourly.sql");
+            ChInitializer.execAllInFile(connection, "sql/V4__create_events_unique_lookup.sql");
+        }
+        dataSource = new SingleConnectionDataSource(ChInitializer.getSystemConn(clickHouseContainer), true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        to = Instant.now().toEpochMilli();
+        from = to - TimeUnit.MINUTES.toMillis(windowMinutes);
+        insertDataset(new ClickhouseBatchInserter(jdbcTemplate, ClickhouseInsertFormat.ROW_BINARY));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        rawRepository = new AggregationGeneralRepositoryImpl(jdbcTemplate, new RollupQueryRouter(false, 1, 0),
+                new LookupTableRouter(false, 0, meterRegistry));
+        lookupRepository = new AggregationGeneralRepositoryImpl(jdbcTemplate, new RollupQueryRouter(false, 1, 0),
+                new LookupTableRouter(true, 0, meterRegistry));
+        rollupRepository = new AggregationGeneralRepositoryImpl(jdbcTemplate, new RollupQueryRouter(true, 1, 0),
+                new LookupTableRouter(true, 0, meterRegistry));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+        clickHouseContainer.stop();
+    }
+
+    @Benchmark
+    public Integer countRaw() {
+        return rawRepository.countOperationByField(TABLE, "email", email(7), from, to);
+    }
+
+    @Benchmark
+    public Integer countLookup() {
+        return lookupRepository.countOperationByField(TABLE, "email", email(7), from, to);
+    }
+
+    @Benchmark
+    public Integer countRollup() {
+        return rollupRepository.countOperationByField(TABLE, "email", email(7), from, to);
+    }
+
+    @Benchmark
+    public Integer uniqRaw() {
+        return rawRepository.uniqCountOperation(TABLE, "email", email(7), "cardToken", from, to);
+    }
+
+    @Benchmark
+    public Integer uniqLookup() {
+        return lookupRepository.uniqCountOperation(TABLE, "email", email(7), "cardToken", from, to);
+    }
+
+    @Benchmark
+    public Integer uniqRollup() {
+        return rollupRepository.uniqCountOperation(TABLE, "email", email(7), "cardToken", from, to);
+    }
+
+    private void insertDataset(ClickhouseBatchInserter inserter) {
+        Random random = new Random(42);
+        long currentHour = to - to % HOUR_MILLIS;
+        for (int hour = 0; hour < DAYS * 24; hour++) {
+            long hourStart = currentHour - hour * HOUR_MILLIS;
+            List<Event> events = new ArrayList<>(ROWS_PER_HOUR);
+            for (int i = 0; i < ROWS_PER_HOUR; i++) {
+                events.add(createEvent(hourStart + random.nextInt((int) HOUR_MILLIS), random));
+            }
+            inserter.insertRowBinary(INSERT_ROW_BINARY, events, new EventRowBinaryWriter());
+        }
+    }
+
+    private Event createEvent(long eventTime, Random random) {
+        Instant instant = Instant.ofEpochMilli(eventTime);
+        Event event = new Event();
+        event.setTimestamp(instant.atZone(ZoneOffset.UTC).toLocalDate());
+        event.setEventTimeHour(instant.truncatedTo(ChronoUnit.HOURS).toEpochMilli());
+        event.setEventTime(instant.getEpochSecond());
+        event.setEmail(email(random.nextInt(EMAILS)));
+        event.setCardToken("card_" + random.nextInt(CARD_TOKENS));
+        event.setIp("10.0." + random.nextInt(256) + "." + random.nextInt(256));
+        event.setFingerprint("fingerprint_" + random.nextInt(CARD_TOKENS));
+        event.setBin("424242");
+        event.setPartyId("party_" + random.nextInt(10));
+        event.setShopId("shop_" + random.nextInt(100));
+        event.setResultStatus(random.nextInt(10) == 0 ? "DECLINE" : "ACCEPT");
+        event.setAmount((long) random.nextInt(100_000));
+        return event;
+    }
+
+    private static String email(int id) {
+        return "user_" + id + "@mail.ru";
+    }
+
+}
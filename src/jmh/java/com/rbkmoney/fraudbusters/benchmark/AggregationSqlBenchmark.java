@@ -0,0 +1,98 @@
+package com.rbkmoney.fraudbusters.benchmark;
+
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.repository.util.AggregationFunction;
+import com.rbkmoney.fraudbusters.repository.util.AggregationQueryCache;
+import com.rbkmoney.fraudbusters.repository.util.AggregationUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Compares the cached aggregation SQL and the presized parameter list with the previous
+ * String.format/StringBuilder query building and stream based parameter collection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseG1GC")
+public class AggregationSqlBenchmark {
+
+    private static final String TABLE = "fraud.events_unique";
+    private static final String FIELD_NAME = "email";
+    private static final String STATUS = "DECLINE";
+
+    private List<FieldModel> fieldModels;
+    private long from;
+    private long to;
+
+    @Setup
+    public void setup() {
+        fieldModels = List.of(new FieldModel("shopId", "shop_1"), new FieldModel("partyId", "party_1"));
+        to = Instant.now().toEpochMilli();
+        from = to - TimeUnit.DAYS.toMillis(1);
+    }
+
+    @Benchmark
+    public void formatBuilder(Blackhole blackhole) {
+        StringBuilder sql = new StringBuilder(String.format("select %1$s, count() as cnt " +
+                "from %2$s " +
+                "where timestamp >= ? " +
+                "and timestamp <= ? " +
+                "and eventTime >= ? " +
+                "and eventTime <= ? " +
+                "and %1$s = ? and resultStatus != ? ", FIELD_NAME, TABLE));
+        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", FIELD_NAME));
+        blackhole.consume(appendGroupingFields(fieldModels, sql, sqlGroupBy).toString());
+        blackhole.consume(streamParams(from, to, fieldModels, "value", STATUS).toArray());
+    }
+
+    @Benchmark
+    public void cachedSql(Blackhole blackhole) {
+        blackhole.consume(AggregationQueryCache.getSql(AggregationFunction.COUNT, TABLE, FIELD_NAME, " and resultStatus != ?",
+                fieldModels));
+        blackhole.consume(AggregationUtil.generateParams(from, to, fieldModels, "value", STATUS).toArray());
+    }
+
+    private static StringBuilder appendGroupingFields(List<FieldModel> fieldModels, StringBuilder sql, StringBuilder sqlGroupBy) {
+        for (FieldModel fieldModel : fieldModels) {
+            sql.append(" and ").append(fieldModel.getName()).append("=? ");
+            sqlGroupBy.append(", ").append(fieldModel.getName());
+        }
+        return sql.append(sqlGroupBy.toString());
+    }
+
+    private static ArrayList<Object> streamParams(Long from, Long to, List<FieldModel> fieldModels, Object... values) {
+        Instant instantFrom = Instant.ofEpochMilli(from);
+        LocalDate dateFrom = instantFrom.atZone(UTC).toLocalDate();
+        Instant instantTo = Instant.ofEpochMilli(to);
+        LocalDate dateTo = instantTo.atZone(UTC).toLocalDate();
+        Object[] args = new Object[values.length + 4];
+        args[0] = dateFrom;
+        args[1] = dateTo;
+        args[2] = instantFrom.getEpochSecond();
+        args[3] = instantTo.getEpochSecond();
+        System.arraycopy(values, 0, args, 4, values.length);
+        ArrayList<Object> objects = new ArrayList<>();
+        Arrays.stream(args)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(() -> objects));
+        fieldModels.stream()
+                .map(FieldModel::getValue)
+                .collect(Collectors.toCollection(() -> objects));
+        return objects;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.rbkmoney.fraudbusters.benchmark;
+
+import com.rbkmoney.fraudbusters.constant.ClickhouseInsertFormat;
+import com.rbkmoney.fraudbusters.domain.Event;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseBatchInserter;
+import com.rbkmoney.fraudbusters.repository.setter.EventBatchPreparedStatementSetter;
+import com.rbkmoney.fraudbusters.repository.setter.EventRowBinaryWriter;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.clickhouse.ClickHouseDataSource;
+import ru.yandex.clickhouse.settings.ClickHouseConnectionSettings;
+import ru.yandex.clickhouse.settings.ClickHouseQueryParam;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second sent by the driver VALUES path and the RowBinary path to a local HTTP stub that drains the body.
+ * The stub runs on other threads, cpuNanos / rows in the secondary results is the client CPU spent per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseG1GC")
+@Threads(1)
+public class EventInsertBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final String INSERT_COLUMNS = "INSERT INTO fraud.events_unique " +
+            " (timestamp, eventTimeHour, eventTime, ip, email, bin, fingerprint, shopId, partyId, resultStatus, amount, " +
+            "country, checkedRule, bankCountry, currency, invoiceId, maskedPan, bankName, cardToken, paymentId, checkedTemplate)";
+    private static final String INSERT = INSERT_COLUMNS +
+            " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ROW_BINARY = INSERT_COLUMNS + ClickhouseBatchInserter.ROW_BINARY_FORMAT;
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    @Param({"false", "true"})
+    public boolean lz4;
+
+    private final EventRowBinaryWriter rowBinaryWriter = new EventRowBinaryWriter();
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private SingleConnectionDataSource dataSource;
+    private ClickhouseBatchInserter valuesInserter;
+    private ClickhouseBatchInserter rowBinaryInserter;
+    private List<Event> events;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CpuCounters {
+
+        public long cpuNanos;
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            cpuNanos = 0;
+            rows = 0;
+        }
+
+    }
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        serverExecutor = Executors.newFixedThreadPool(2);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        Properties info = new Properties();
+        info.setProperty(ClickHouseConnectionSettings.USE_SERVER_TIME_ZONE.getKey(), "false");
+        info.setProperty(ClickHouseConnectionSettings.USE_TIME_ZONE.getKey(), "UTC");
+        info.setProperty(ClickHouseQueryParam.DECOMPRESS.getKey(), String.valueOf(lz4));
+        ClickHouseDataSource clickHouseDataSource = new ClickHouseDataSource(
+                "jdbc:clickhouse://127.0.0.1:" + server.getAddress().getPort() + "/default", info);
+        dataSource = new SingleConnectionDataSource(clickHouseDataSource.getConnection(), true);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        valuesInserter = new ClickhouseBatchInserter(jdbcTemplate, ClickhouseInsertFormat.VALUES);
+        rowBinaryInserter = new ClickhouseBatchInserter(jdbcTemplate, ClickhouseInsertFormat.ROW_BINARY);
+        events = createEvents();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void values(CpuCounters counters) {
+        long start = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        valuesInserter.insert(events, INSERT, new EventBatchPreparedStatementSetter(events), INSERT_ROW_BINARY, rowBinaryWriter);
+        counters.cpuNanos += THREAD_MX_BEAN.getCurrentThreadCpuTime() - start;
+        counters.rows += ROWS;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowBinary(CpuCounters counters) {
+        long start = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+        rowBinaryInserter.insert(events, INSERT, new EventBatchPreparedStatementSetter(events), INSERT_ROW_BINARY, rowBinaryWriter);
+        counters.cpuNanos += THREAD_MX_BEAN.getCurrentThreadCpuTime() - start;
+        counters.rows += ROWS;
+    }
+
+    private List<Event> createEvents() {
+        List<Event> result = new ArrayList<>(ROWS);
+        long eventTime = 1588761208000L;
+        for (int i = 0; i < ROWS; i++) {
+            Event event = new Event();
+            event.setTimestamp(LocalDate.of(2020, 5, 6));
+            event.setEventTimeHour(eventTime - eventTime % 3_600_000L);
+            event.setEventTime(eventTime + i);
+            event.setIp("123.123.123." + i % 256);
+            event.setEmail("test_" + i + "@mail.ru");
+            event.setBin("424242");
+            event.setFingerprint("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx");
+            event.setShopId("2035728");
+            event.setPartyId("cc2ad5d8-a1fb-4f34-a7d0-5fcdc1a0f6a6");
+            event.setResultStatus("ACCEPT");
+            event.setAmount(10500L + i);
+            event.setCountry("RUS");
+            event.setCheckedRule("rule_" + i % 10);
+            event.setBankCountry("RUS");
+            event.setCurrency("RUB");
+            event.setInvoiceId("1FQmsJeJHWK" + i);
+            event.setMaskedPan("4242");
+            event.setBankName("SBERBANK OF RUSSIA");
+            event.setCardToken("477bba133c182267fe5f086924abdc5db71f77bfc27f01f2843f2cdc69d89f05");
+            event.setPaymentId("1");
+            event.setCheckedTemplate("template");
+            result.add(event);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,203 @@
+package com.rbkmoney.fraudbusters.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.rbkmoney.damsel.domain.RiskScore;
+import com.rbkmoney.damsel.geo_ip.GeoIpServiceSrv;
+import com.rbkmoney.damsel.proxy_inspector.Context;
+import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.constant.TemplateLevel;
+import com.rbkmoney.fraudbusters.converter.CheckedResultToRiskScoreConverter;
+import com.rbkmoney.fraudbusters.converter.ContextToFraudRequestConverter;
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.FraudRequest;
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.payment.CountryByIpResolver;
+import com.rbkmoney.fraudbusters.fraud.payment.PaymentContextParserImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.aggregator.CountAggregatorImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.aggregator.SumAggregatorImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.aggregator.UniqueValueAggregatorImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentInListFinderImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.resolver.CountryResolverImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.payment.resolver.PaymentModelFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.wblist.RowInfoCache;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudbusters.repository.impl.ChargebackRepository;
+import com.rbkmoney.fraudbusters.repository.impl.RefundRepository;
+import com.rbkmoney.fraudbusters.repository.util.AggregationUtil;
+import com.rbkmoney.fraudbusters.serde.FraudResultSerializer;
+import com.rbkmoney.fraudbusters.stream.RuleApplierImpl;
+import com.rbkmoney.fraudbusters.stream.TemplateVisitorImpl;
+import com.rbkmoney.fraudbusters.template.chain.TemplateChainIndex;
+import com.rbkmoney.fraudbusters.template.pool.GroupPoolImpl;
+import com.rbkmoney.fraudbusters.template.pool.GroupReferencePoolImpl;
+import com.rbkmoney.fraudbusters.template.pool.Pool;
+import com.rbkmoney.fraudbusters.template.pool.ReferencePoolImpl;
+import com.rbkmoney.fraudbusters.template.pool.TemplatePoolImpl;
+import com.rbkmoney.fraudbusters.util.BeanUtil;
+import com.rbkmoney.fraudbusters.util.FileUtil;
+import com.rbkmoney.fraudo.payment.factory.FraudVisitorFactoryImpl;
+import com.rbkmoney.fraudo.payment.resolver.PaymentGroupResolver;
+import com.rbkmoney.fraudo.payment.resolver.PaymentTimeWindowResolver;
+import com.rbkmoney.fraudo.payment.visitor.impl.FirstFindVisitorImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Components of one payment inspection: context conversion, field resolving, query parameters, template chain
+ * lookup, rule evaluation over the global, party group and shop templates of src/test/resources/templates and
+ * result encoding, then the whole path as {@code FraudInspectorHandler} runs it without the publisher queue.
+ * Repositories, wb-list and geo ip clients are stubs returning empty answers, so every rule is evaluated and
+ * the score covers the service code only. Run commands are in the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseG1GC")
+@Threads(1)
+public class InspectionPathBenchmark {
+
+    private static final String GLOBAL_TEMPLATE = "templates/payment_global.frd";
+    private static final String SHOP_TEMPLATE = "templates/payment_shop.frd";
+    private static final String GROUP_ID = "group";
+    private static final String TOPIC = "result";
+    private static final List<PaymentCheckedField> GROUP_BY = List.of(PaymentCheckedField.PARTY_ID,
+            PaymentCheckedField.SHOP_ID);
+
+    private final ContextToFraudRequestConverter requestConverter = new ContextToFraudRequestConverter();
+    private final CheckedResultToRiskScoreConverter riskScoreConverter = new CheckedResultToRiskScoreConverter();
+    private final DBPaymentFieldResolver dbPaymentFieldResolver = new DBPaymentFieldResolver();
+    private final FraudResultSerializer serializer = new FraudResultSerializer();
+
+    private TemplateVisitorImpl templateVisitor;
+    private TemplateChainIndex templateChainIndex;
+    private Context context;
+    private FraudRequest fraudRequest;
+    private PaymentModel paymentModel;
+    private FraudResult fraudResult;
+    private List<FieldModel> fieldModels;
+    private long from;
+    private long to;
+
+    @Setup
+    public void setup() throws Exception {
+        ((Logger) LoggerFactory.getLogger("com.rbkmoney")).setLevel(Level.WARN);
+
+        PaymentRepository paymentRepository = stub(PaymentRepository.class);
+        RefundRepository refundRepository = stub(RefundRepository.class);
+        ChargebackRepository chargebackRepository = stub(ChargebackRepository.class);
+        PaymentModelFieldResolver fieldResolver = new PaymentModelFieldResolver();
+        WbListServiceSrv.Iface wbListServiceSrv = stub(WbListServiceSrv.Iface.class);
+        FirstFindVisitorImpl<PaymentModel, PaymentCheckedField> visitor = new FraudVisitorFactoryImpl().createVisitor(
+                new CountAggregatorImpl(dbPaymentFieldResolver, paymentRepository, refundRepository, chargebackRepository),
+                new SumAggregatorImpl(dbPaymentFieldResolver, paymentRepository, refundRepository, chargebackRepository),
+                new UniqueValueAggregatorImpl(dbPaymentFieldResolver, paymentRepository),
+                new CountryResolverImpl(new CountryByIpResolver(stub(GeoIpServiceSrv.Iface.class))),
+                new PaymentInListFinderImpl(wbListServiceSrv, dbPaymentFieldResolver, paymentRepository, null,
+                        new RowInfoCache(wbListServiceSrv, new SimpleMeterRegistry(), 0, 0, 0), new SimpleMeterRegistry()),
+                fieldResolver,
+                new PaymentGroupResolver<>(fieldResolver),
+                new PaymentTimeWindowResolver());
+
+        context = BeanUtil.createContext();
+        fraudRequest = requestConverter.convert(context);
+        paymentModel = fraudRequest.getFraudModel();
+
+        PaymentContextParserImpl parser = new PaymentContextParserImpl();
+        ParserRuleContext global = parser.parse(FileUtil.getFile(GLOBAL_TEMPLATE));
+        ParserRuleContext shop = parser.parse(FileUtil.getFile(SHOP_TEMPLATE));
+
+        Pool<ParserRuleContext> templatePool = new TemplatePoolImpl();
+        templatePool.add("global", global);
+        templatePool.add("group_first", shop);
+        templatePool.add("group_second", global);
+        templatePool.add("shop", shop);
+        Pool<String> referencePool = new ReferencePoolImpl();
+        referencePool.add(TemplateLevel.GLOBAL.name(), "global");
+        referencePool.add(paymentModel.getPartyId() + "_" + paymentModel.getShopId(), "shop");
+        Pool<String> groupReferencePool = new GroupReferencePoolImpl();
+        groupReferencePool.add(paymentModel.getPartyId(), GROUP_ID);
+        Pool<List<String>> groupPool = new GroupPoolImpl();
+        groupPool.add(GROUP_ID, List.of("group_first", "group_second"));
+
+        templateVisitor = new TemplateVisitorImpl(new RuleApplierImpl<>(visitor, templatePool), groupPool,
+                referencePool, groupReferencePool, new SimpleMeterRegistry());
+        templateChainIndex = new TemplateChainIndex(referencePool, groupReferencePool, groupPool);
+
+        fraudResult = new FraudResult(fraudRequest, templateVisitor.visit(paymentModel));
+        fieldModels = dbPaymentFieldResolver.resolveListFields(paymentModel, GROUP_BY);
+        to = Instant.now().toEpochMilli();
+        from = to - TimeUnit.DAYS.toMillis(1);
+    }
+
+    @Benchmark
+    public FraudRequest convertContext() {
+        return requestConverter.convert(context);
+    }
+
+    @Benchmark
+    public List<FieldModel> resolveFields() {
+        return dbPaymentFieldResolver.resolveListFields(paymentModel, GROUP_BY);
+    }
+
+    @Benchmark
+    public ArrayList<Object> buildQueryParams() {
+        return AggregationUtil.generateParams(from, to, fieldModels, paymentModel.getEmail());
+    }
+
+    @Benchmark
+    public Object resolveTemplateChain() {
+        return templateChainIndex.resolve(paymentModel.getPartyId(), paymentModel.getShopId());
+    }
+
+    @Benchmark
+    public CheckedResultModel visitTemplates() {
+        InspectionMemoContext.open();
+        try {
+            return templateVisitor.visit(paymentModel);
+        } finally {
+            InspectionMemoContext.clear();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeResult() {
+        return serializer.serialize(TOPIC, fraudResult);
+    }
+
+    @Benchmark
+    public RiskScore inspect(Blackhole blackhole) {
+        InspectionMemoContext.open();
+        try {
+            FraudRequest request = requestConverter.convert(context);
+            FraudResult result = new FraudResult(request, templateVisitor.visit(request.getFraudModel()));
+            blackhole.consume(serializer.serialize(TOPIC, result));
+            return riskScoreConverter.convert(result.getResultModel());
+        } finally {
+            InspectionMemoContext.clear();
+        }
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return mock(type, withSettings().stubOnly());
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.rbkmoney.fraudbusters.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.FraudRequest;
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.domain.Metadata;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.serde.FraudResultDeserializer;
+import com.rbkmoney.fraudbusters.serde.FraudResultSerializer;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import com.rbkmoney.fraudo.model.ResultModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares JSON and binary result encoding. Payload sizes are printed once on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseG1GC")
+public class ResultSerdeBenchmark {
+
+    private static final String TOPIC = "result";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FraudResultSerializer serializer = new FraudResultSerializer();
+    private final FraudResultDeserializer deserializer = new FraudResultDeserializer();
+
+    private FraudResult fraudResult;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        PaymentModel paymentModel = new PaymentModel();
+        paymentModel.setIp("123.123.123.123");
+        paymentModel.setEmail("test@mail.ru");
+        paymentModel.setFingerprint("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx");
+        paymentModel.setAmount(10500L);
+        paymentModel.setCurrency("RUB");
+        paymentModel.setBin("424242");
+        paymentModel.setPan("4242");
+        paymentModel.setBinCountryCode("RUS");
+        paymentModel.setCardToken("477bba133c182267fe5f086924abdc5db71f77bfc27f01f2843f2cdc69d89f05");
+        paymentModel.setShopId("2035728");
+        paymentModel.setPartyId("cc2ad5d8-a1fb-4f34-a7d0-5fcdc1a0f6a6");
+
+        Metadata metadata = new Metadata();
+        metadata.setTimestamp(1588761208000L);
+        metadata.setCurrency("RUB");
+        metadata.setInvoiceId("1FQmsJeJHWK");
+        metadata.setPaymentId("1");
+        metadata.setMaskedPan("4242");
+        metadata.setBankName("SBERBANK OF RUSSIA");
+
+        FraudRequest fraudRequest = new FraudRequest();
+        fraudRequest.setFraudModel(paymentModel);
+        fraudRequest.setMetadata(metadata);
+
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate("default_template");
+        checkedResultModel.setResultModel(new ResultModel(ResultStatus.ACCEPT, "rule_7", List.of("notify_count")));
+
+        fraudResult = new FraudResult(fraudRequest, checkedResultModel);
+        json = objectMapper.writeValueAsBytes(fraudResult);
+        binary = serializer.serialize(TOPIC, fraudResult);
+        System.out.printf("%nFraudResult payload size json: %d binary: %d%n", json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws Exception {
+        return objectMapper.writeValueAsBytes(fraudResult);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return serializer.serialize(TOPIC, fraudResult);
+    }
+
+    @Benchmark
+    public FraudResult deserializeJson() {
+        return deserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public FraudResult deserializeBinary() {
+        return deserializer.deserialize(TOPIC, binary);
+    }
+
+}
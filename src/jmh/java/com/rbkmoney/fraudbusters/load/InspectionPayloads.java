@@ -0,0 +1,71 @@
+package com.rbkmoney.fraudbusters.load;
+
+import com.rbkmoney.damsel.domain.CustomerPayer;
+import com.rbkmoney.damsel.proxy_inspector.Context;
+import com.rbkmoney.fraudbusters.util.BeanUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Inspection requests to replay. Recorded payloads are thrift binary encoded contexts, one per file, with the
+ * {@code .payment} or {@code .p2p} extension. Synthetic payloads spread the keys over {@code keys} parties,
+ * emails and cards, so aggregates and list lookups hit different rows.
+ */
+@Slf4j
+public class InspectionPayloads {
+
+    public static final String PAYMENT_EXTENSION = ".payment";
+    public static final String P2P_EXTENSION = ".p2p";
+
+    public static List<Context> syntheticPayments(int size, int keys, Random random) {
+        List<Context> contexts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Context context = BeanUtil.createContext("party_" + random.nextInt(keys));
+            CustomerPayer customer = context.getPayment().getPayment().getPayer().getCustomer();
+            customer.getContactInfo().setEmail("user_" + random.nextInt(keys) + "@mail.ru");
+            customer.getPaymentTool().getBankCard().setToken("card_" + random.nextInt(keys));
+            contexts.add(context);
+        }
+        return contexts;
+    }
+
+    public static List<com.rbkmoney.damsel.p2p_insp.Context> syntheticP2P(int size, int keys, Random random) {
+        List<com.rbkmoney.damsel.p2p_insp.Context> contexts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            contexts.add(BeanUtil.createP2PContext("identity_" + random.nextInt(keys), "transfer_" + i));
+        }
+        return contexts;
+    }
+
+    public static <T extends TBase<?, ?>> List<T> recorded(Path dir, String extension, Supplier<T> factory)
+            throws IOException, TException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dir)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(extension))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        TDeserializer deserializer = new TDeserializer();
+        List<T> contexts = new ArrayList<>(files.size());
+        for (Path file : files) {
+            T context = factory.get();
+            deserializer.deserialize(context, Files.readAllBytes(file));
+            contexts.add(context);
+        }
+        log.info("InspectionPayloads recorded dir: {} extension: {} size: {}", dir, extension, contexts.size());
+        return contexts;
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.rbkmoney.fraudbusters.load;
+
+import com.rbkmoney.damsel.fraudbusters.*;
+import com.rbkmoney.damsel.geo_ip.GeoIpServiceSrv;
+import com.rbkmoney.damsel.proxy_inspector.Context;
+import com.rbkmoney.damsel.proxy_inspector.InspectorProxySrv;
+import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.FraudBustersApplication;
+import com.rbkmoney.fraudbusters.util.ChInitializer;
+import com.rbkmoney.fraudbusters.util.FileUtil;
+import com.rbkmoney.fraudbusters.util.ReferenceKeyGenerator;
+import com.rbkmoney.kafka.common.serialization.ThriftSerializer;
+import com.rbkmoney.woody.thrift.impl.http.THSpawnClientBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.ClickHouseContainer;
+import org.testcontainers.containers.KafkaContainer;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Replays payment and p2p inspections against {@code /fraud_inspector/v1} and {@code /fraud_p2p_inspector/v1} at
+ * each rate of {@code load.rps} and prints throughput and latency percentiles per rate. The rate where the achieved
+ * throughput stops following the offered one, or p99 bends up, is the saturation point of the node.
+ * <p>
+ * Without {@code load.target} the service is started in this JVM on a ClickHouse and a Kafka container, with
+ * wb-list and geo ip stand-ins answering after {@code load.wblist.latency} and {@code load.geoip.latency} ms,
+ * and the templates of src/test/resources/templates as global references. With {@code load.target} the requests
+ * go to a running node, which then has to be deployed next to its own dependencies.
+ * <p>
+ * Settings are system properties, see the README for the run command:
+ * <ul>
+ * <li>{@code load.rps} comma separated rates, default 100,200,400</li>
+ * <li>{@code load.concurrency} client threads, default 64</li>
+ * <li>{@code load.warmup} and {@code load.duration} seconds per rate, default 10 and 30</li>
+ * <li>{@code load.p2p.share} share of p2p requests from 0 to 1, default 0.2</li>
+ * <li>{@code load.payloads.dir} recorded payloads, synthetic ones over {@code load.keys} keys otherwise</li>
+ * <li>{@code load.histogram.dir} where to write the .hgrm percentile distribution of every rate</li>
+ * </ul>
+ */
+@Slf4j
+public class InspectorLoadTest {
+
+    private static final String PAYMENT_PATH = "/fraud_inspector/v1";
+    private static final String P2P_PATH = "/fraud_p2p_inspector/v1";
+    private static final String GEO_IP_PATH = "/v1/columbus";
+    private static final String WB_LIST_PATH = "/v1/wb_list";
+    private static final String PAYMENT_TEMPLATE = "templates/payment_global.frd";
+    private static final String P2P_TEMPLATE = "templates/p2p_global.frd";
+    private static final int SYNTHETIC_PAYLOADS = 10_000;
+    private static final int NETWORK_TIMEOUT_MILLIS = 30_000;
+    private static final List<String> P2P_RESULT_SCOPES = List.of("fraud");
+    private static final List<String> TOPICS = List.of("template", "template_reference", "group_list",
+            "group_reference", "template_p2p", "template_p2p_reference", "group_p2p_list", "group_p2p_reference",
+            "event_sink", "aggregated_event_sink", "result", "p2p_result", "wb-list-event-sink");
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> rates = new ArrayList<>();
+        for (String rate : System.getProperty("load.rps", "100,200,400").split(",")) {
+            rates.add(Integer.parseInt(rate.trim()));
+        }
+        LoadGenerator loadGenerator = new LoadGenerator(Integer.getInteger("load.concurrency", 64),
+                Long.getLong("load.warmup", 10), Long.getLong("load.duration", 30));
+        double p2pShare = Double.parseDouble(System.getProperty("load.p2p.share", "0.2"));
+
+        List<Context> payments;
+        List<com.rbkmoney.damsel.p2p_insp.Context> p2p;
+        String payloadsDir = System.getProperty("load.payloads.dir");
+        if (payloadsDir != null) {
+            payments = InspectionPayloads.recorded(Paths.get(payloadsDir), InspectionPayloads.PAYMENT_EXTENSION,
+                    Context::new);
+            p2p = InspectionPayloads.recorded(Paths.get(payloadsDir), InspectionPayloads.P2P_EXTENSION,
+                    com.rbkmoney.damsel.p2p_insp.Context::new);
+        } else {
+            Random random = new Random(42);
+            int keys = Integer.getInteger("load.keys", 1000);
+            payments = InspectionPayloads.syntheticPayments(SYNTHETIC_PAYLOADS, keys, random);
+            p2p = InspectionPayloads.syntheticP2P(SYNTHETIC_PAYLOADS, keys, random);
+        }
+
+        String target = System.getProperty("load.target");
+        try (LocalStack localStack = target == null ? new LocalStack().start() : null) {
+            String baseUrl = target != null ? target : localStack.getBaseUrl();
+            InspectorProxySrv.Iface paymentClient = new THSpawnClientBuilder()
+                    .withAddress(new URI(baseUrl + PAYMENT_PATH))
+                    .withNetworkTimeout(NETWORK_TIMEOUT_MILLIS)
+                    .build(InspectorProxySrv.Iface.class);
+            com.rbkmoney.damsel.p2p_insp.InspectorProxySrv.Iface p2pClient = new THSpawnClientBuilder()
+                    .withAddress(new URI(baseUrl + P2P_PATH))
+                    .withNetworkTimeout(NETWORK_TIMEOUT_MILLIS)
+                    .build(com.rbkmoney.damsel.p2p_insp.InspectorProxySrv.Iface.class);
+
+            List<LoadReport> reports = new ArrayList<>();
+            for (int rps : rates) {
+                reports.add(loadGenerator.run("inspect", rps, () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    if (!p2p.isEmpty() && (payments.isEmpty() || random.nextDouble() < p2pShare)) {
+                        return p2pClient.inspectTransfer(p2p.get(random.nextInt(p2p.size())), P2P_RESULT_SCOPES);
+                    }
+                    return paymentClient.inspectPayment(payments.get(random.nextInt(payments.size())));
+                }));
+            }
+
+            System.out.printf("%nInspection load against %s%n", baseUrl);
+            String histogramDir = System.getProperty("load.histogram.dir");
+            for (LoadReport report : reports) {
+                report.print(System.out);
+                if (histogramDir != null) {
+                    Path dir = Files.createDirectories(Paths.get(histogramDir));
+                    report.writeDistribution(dir);
+                }
+            }
+        }
+    }
+
+    private static class LocalStack implements AutoCloseable {
+
+        private final ClickHouseContainer clickHouseContainer = new ClickHouseContainer("yandex/clickhouse-server:19.17");
+        private final KafkaContainer kafkaContainer = new KafkaContainer("5.0.1").withEmbeddedZookeeper();
+        private LatencyStubServer stubServer;
+        private ConfigurableApplicationContext application;
+
+        LocalStack start() throws Exception {
+            clickHouseContainer.start();
+            kafkaContainer.start();
+            ChInitializer.initAllScripts(clickHouseContainer);
+            createTopics();
+            stubServer = new LatencyStubServer()
+                    .addService(GEO_IP_PATH, GeoIpServiceSrv.Iface.class, Long.getLong("load.geoip.latency", 5),
+                            Map.of("getLocationIsoCode", "RUS"))
+                    .addService(WB_LIST_PATH, WbListServiceSrv.Iface.class, Long.getLong("load.wblist.latency", 2),
+                            Map.of())
+                    .start();
+            produceTemplates();
+
+            application = new SpringApplicationBuilder(FraudBustersApplication.class)
+                    .profiles("full-prod")
+                    .properties(
+                            "server.port=0",
+                            "kafka.bootstrap.servers=" + kafkaContainer.getBootstrapServers(),
+                            "clickhouse.db.url=" + clickHouseContainer.getJdbcUrl(),
+                            "clickhouse.db.user=" + clickHouseContainer.getUsername(),
+                            "clickhouse.db.password=" + clickHouseContainer.getPassword(),
+                            "geo.ip.service.url=" + stubServer.url(GEO_IP_PATH),
+                            "wb.list.service.url=" + stubServer.url(WB_LIST_PATH),
+                            "logging.level.com.rbkmoney=WARN",
+                            "logging.level.com.rbkmoney.fraudbusters.load=INFO")
+                    .run();
+            log.info("LocalStack started, waiting for the templates to load");
+            TimeUnit.SECONDS.sleep(Long.getLong("load.template.wait", 10));
+            return this;
+        }
+
+        String getBaseUrl() {
+            return "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+
+        private void createTopics() throws Exception {
+            Properties props = new Properties();
+            props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers());
+            try (AdminClient adminClient = AdminClient.create(props)) {
+                adminClient.createTopics(TOPICS.stream()
+                        .map(topic -> new NewTopic(topic, 1, (short) 1))
+                        .collect(Collectors.toList()))
+                        .all()
+                        .get();
+            }
+        }
+
+        private void produceTemplates() throws Exception {
+            Properties props = new Properties();
+            props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaContainer.getBootstrapServers());
+            props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+            props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ThriftSerializer.class.getName());
+            try (Producer<String, Command> producer = new KafkaProducer<>(props)) {
+                String paymentTemplateId = "load_payment_global";
+                producer.send(new ProducerRecord<>("template", paymentTemplateId,
+                        templateCommand(paymentTemplateId, FileUtil.getFile(PAYMENT_TEMPLATE)))).get();
+                TemplateReference reference = new TemplateReference()
+                        .setTemplateId(paymentTemplateId)
+                        .setIsGlobal(true);
+                producer.send(new ProducerRecord<>("template_reference", ReferenceKeyGenerator.generateTemplateKey(reference),
+                        new Command()
+                                .setCommandType(CommandType.CREATE)
+                                .setCommandBody(CommandBody.reference(reference)))).get();
+
+                String p2pTemplateId = "load_p2p_global";
+                producer.send(new ProducerRecord<>("template_p2p", p2pTemplateId,
+                        templateCommand(p2pTemplateId, FileUtil.getFile(P2P_TEMPLATE)))).get();
+                P2PReference p2pReference = new P2PReference()
+                        .setTemplateId(p2pTemplateId)
+                        .setIsGlobal(true);
+                producer.send(new ProducerRecord<>("template_p2p_reference",
+                        ReferenceKeyGenerator.generateP2PTemplateKey(p2pReference),
+                        new Command()
+                                .setCommandType(CommandType.CREATE)
+                                .setCommandBody(CommandBody.p2p_reference(p2pReference)))).get();
+            }
+        }
+
+        private static Command templateCommand(String id, String template) {
+            return new Command()
+                    .setCommandType(CommandType.CREATE)
+                    .setCommandBody(CommandBody.template(new Template()
+                            .setId(id)
+                            .setTemplate(template.getBytes())));
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (application != null) {
+                application.close();
+            }
+            if (stubServer != null) {
+                stubServer.close();
+            }
+            kafkaContainer.stop();
+            clickHouseContainer.stop();
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.rbkmoney.fraudbusters.load;
+
+import com.rbkmoney.woody.thrift.impl.http.THServiceBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Woody stand-ins for the external thrift services on an embedded Tomcat. Every call sleeps for the configured
+ * latency and returns the given answer for the method name, or an empty value of the method return type.
+ */
+@Slf4j
+public class LatencyStubServer implements AutoCloseable {
+
+    private final Tomcat tomcat = new Tomcat();
+    private final Context context;
+
+    public LatencyStubServer() throws IOException {
+        tomcat.setBaseDir(Files.createTempDirectory("load-stubs").toString());
+        tomcat.setPort(0);
+        context = tomcat.addContext("", null);
+    }
+
+    public <T> LatencyStubServer addService(String path, Class<T> iface, long latencyMillis, Map<String, Object> answers) {
+        T handler = iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return objectMethod(proxy, method, args, path);
+                    }
+                    if (latencyMillis > 0) {
+                        Thread.sleep(latencyMillis);
+                    }
+                    return answers.containsKey(method.getName())
+                            ? answers.get(method.getName())
+                            : emptyValue(method.getReturnType());
+                }));
+        Tomcat.addServlet(context, path, new THServiceBuilder().build(iface, handler));
+        context.addServletMappingDecoded(path, path);
+        log.info("LatencyStubServer add service: {} path: {} latency: {} ms", iface.getName(), path, latencyMillis);
+        return this;
+    }
+
+    public LatencyStubServer start() throws LifecycleException {
+        tomcat.getConnector();
+        tomcat.start();
+        return this;
+    }
+
+    public String url(String path) {
+        return "http://localhost:" + tomcat.getConnector().getLocalPort() + path;
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args, String path) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "LatencyStub(" + path + ")";
+        }
+    }
+
+    private static Object emptyValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0D;
+        } else if (Map.class.isAssignableFrom(type)) {
+            return new HashMap<>();
+        } else if (List.class.isAssignableFrom(type)) {
+            return new ArrayList<>();
+        } else if (Set.class.isAssignableFrom(type)) {
+            return new HashSet<>();
+        }
+        return null;
+    }
+
+}
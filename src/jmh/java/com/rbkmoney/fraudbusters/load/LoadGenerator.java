@@ -0,0 +1,103 @@
+package com.rbkmoney.fraudbusters.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open model load: calls are started at a fixed rate whatever the response time, and run on {@code concurrency}
+ * threads. Latency is measured from the time a call was due to start, so the time spent queued behind slow calls
+ * is part of it and saturation shows in the percentiles instead of lowering the offered rate.
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int concurrency;
+    private final long warmupNanos;
+    private final long durationNanos;
+
+    public LoadGenerator(int concurrency, long warmupSeconds, long durationSeconds) {
+        this.concurrency = concurrency;
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    }
+
+    public LoadReport run(String name, int rps, Callable<?> call) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "load-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Recorder intervalRecorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        Recorder measuredRecorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        AtomicLong errors = new AtomicLong();
+        AtomicLong lastCompletion = new AtomicLong();
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        long nextReport = start + REPORT_INTERVAL_NANOS;
+        Histogram interval = null;
+        log.info("LoadGenerator {} start rps: {} concurrency: {}", name, rps, concurrency);
+        for (long due = start; due < end; due += intervalNanos) {
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                LockSupport.parkNanos(due - now);
+            }
+            long intendedStart = due;
+            boolean measured = due >= measureFrom;
+            workers.execute(() -> {
+                try {
+                    call.call();
+                    long completedAt = System.nanoTime();
+                    long latency = Math.min(completedAt - intendedStart, HIGHEST_TRACKABLE_NANOS);
+                    intervalRecorder.recordValue(latency);
+                    if (measured) {
+                        measuredRecorder.recordValue(latency);
+                        lastCompletion.accumulateAndGet(completedAt, Math::max);
+                    }
+                } catch (Exception e) {
+                    if (measured) {
+                        errors.incrementAndGet();
+                    }
+                    log.debug("LoadGenerator {} call failed e: ", name, e);
+                }
+            });
+            if (now >= nextReport) {
+                interval = intervalRecorder.getIntervalHistogram(interval);
+                logInterval(name, now < measureFrom, interval);
+                nextReport += REPORT_INTERVAL_NANOS;
+            }
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn("LoadGenerator {} calls still running after the run, dropped", name);
+            workers.shutdownNow();
+        }
+        Histogram total = measuredRecorder.getIntervalHistogram();
+        long elapsedNanos = Math.max(lastCompletion.get(), end) - measureFrom;
+        return new LoadReport(name, rps, concurrency, total, errors.get(), elapsedNanos);
+    }
+
+    private static void logInterval(String name, boolean warmup, Histogram interval) {
+        log.info("LoadGenerator {}{} ops: {} p50: {} ms p99: {} ms max: {} ms", name, warmup ? " warmup" : "",
+                interval.getTotalCount(),
+                interval.getValueAtPercentile(50) / NANOS_IN_MILLI,
+                interval.getValueAtPercentile(99) / NANOS_IN_MILLI,
+                interval.getMaxValue() / NANOS_IN_MILLI);
+    }
+
+}
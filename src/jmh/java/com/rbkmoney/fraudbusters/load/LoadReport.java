@@ -0,0 +1,46 @@
+package com.rbkmoney.fraudbusters.load;
+
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@Data
+public class LoadReport {
+
+    private static final double NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String name;
+    private final int offeredRps;
+    private final int concurrency;
+    private final Histogram histogram;
+    private final long errors;
+    private final long elapsedNanos;
+
+    public double getAchievedRps() {
+        return histogram.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-8s offered: %6d rps achieved: %9.1f rps errors: %6d", name, offeredRps, getAchievedRps(), errors);
+        for (double percentile : PERCENTILES) {
+            out.printf(" p%s: %8.2f ms", percentile, histogram.getValueAtPercentile(percentile) / NANOS_IN_MILLI);
+        }
+        out.printf(" max: %8.2f ms%n", histogram.getMaxValue() / NANOS_IN_MILLI);
+    }
+
+    /**
+     * Writes the percentile distribution in milliseconds, readable by the HdrHistogram plotter.
+     */
+    public void writeDistribution(Path dir) throws FileNotFoundException {
+        Path file = dir.resolve(name + "-" + offeredRps + "rps.hgrm");
+        try (PrintStream out = new PrintStream(file.toFile())) {
+            histogram.outputPercentileDistribution(out, NANOS_IN_MILLI);
+        }
+    }
+
+}
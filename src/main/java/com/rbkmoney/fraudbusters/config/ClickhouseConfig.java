@@ -1,16 +1,32 @@
 package com.rbkmoney.fraudbusters.config;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import com.rbkmoney.fraudbusters.constant.ClickhouseInsertFormat;
+import com.rbkmoney.fraudbusters.repository.jdbc.CircuitBreakingJdbcTemplate;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseBatchInserter;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseCircuitBreaker;
+import com.rbkmoney.fraudbusters.repository.lookup.LookupTableRouter;
+import com.rbkmoney.fraudbusters.repository.rollup.RollupQueryRouter;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.clickhouse.ClickHouseDataSource;
+import ru.yandex.clickhouse.settings.ClickHouseConnectionSettings;
 import ru.yandex.clickhouse.settings.ClickHouseQueryParam;
 
-import javax.sql.DataSource;
 import java.util.Properties;
 
+/**
+ * Inspection queries and inserts use separate pools, so a slow insert can not take the connections
+ * needed by fraud checks. Pool size bounds the concurrent queries per path, acquire timeout bounds
+ * the wait in the pool queue and max_execution_time bounds the query on the server side.
+ */
 @Configuration
 public class ClickhouseConfig {
 
@@ -29,20 +45,129 @@ public class ClickhouseConfig {
     @Value("${clickhouse.db.compress}")
     private String compress;
 
+    @Value("${clickhouse.db.read.pool.size:32}")
+    private int readPoolSize;
+
+    @Value("${clickhouse.db.read.acquire.timeout:250}")
+    private long readAcquireTimeout;
+
+    @Value("${clickhouse.db.read.socket.timeout:2000}")
+    private String readSocketTimeout;
+
+    @Value("${clickhouse.db.read.max.execution.time:2}")
+    private String readMaxExecutionTime;
+
+    @Value("${clickhouse.db.write.pool.size:4}")
+    private int writePoolSize;
+
+    @Value("${clickhouse.db.write.acquire.timeout:30000}")
+    private long writeAcquireTimeout;
+
+    @Value("${clickhouse.db.write.socket.timeout:60000}")
+    private String writeSocketTimeout;
+
+    @Value("${clickhouse.db.write.max.execution.time:60}")
+    private String writeMaxExecutionTime;
+
+    @Value("${clickhouse.db.write.lz4:false}")
+    private String writeLz4;
+
+    @Value("${clickhouse.db.insert.format:VALUES}")
+    private ClickhouseInsertFormat insertFormat;
+
+    @Value("${clickhouse.db.rollup.enable:false}")
+    private boolean rollupEnable;
+
+    @Value("${clickhouse.db.rollup.min.closed.hours:2}")
+    private long rollupMinClosedHours;
+
+    @Value("${clickhouse.db.rollup.since:0}")
+    private long rollupSince;
+
+    @Value("${clickhouse.db.lookup.enable:false}")
+    private boolean lookupEnable;
+
+    @Value("${clickhouse.db.lookup.since:0}")
+    private long lookupSince;
+
+    @Value("${clickhouse.db.circuit.failure.rate.threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${clickhouse.db.circuit.window.size:20}")
+    private int circuitWindowSize;
+
+    @Value("${clickhouse.db.circuit.open.duration:5000}")
+    private long circuitOpenDuration;
+
+    @Bean
+    public HikariDataSource clickHouseReadDataSource(ObjectProvider<MeterRegistry> meterRegistry) {
+        return createPool("clickhouse-read", readPoolSize, readAcquireTimeout,
+                createDataSource(readSocketTimeout, readMaxExecutionTime, "false"), meterRegistry.getIfAvailable());
+    }
+
     @Bean
-    public ClickHouseDataSource clickHouseDataSource() {
+    public HikariDataSource clickHouseWriteDataSource(ObjectProvider<MeterRegistry> meterRegistry) {
+        return createPool("clickhouse-write", writePoolSize, writeAcquireTimeout,
+                createDataSource(writeSocketTimeout, writeMaxExecutionTime, writeLz4), meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public ClickhouseCircuitBreaker clickhouseCircuitBreaker(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ClickhouseCircuitBreaker(failureRateThreshold, circuitWindowSize, circuitOpenDuration,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(HikariDataSource clickHouseReadDataSource,
+                                     ClickhouseCircuitBreaker clickhouseCircuitBreaker) {
+        return new CircuitBreakingJdbcTemplate(clickHouseReadDataSource, clickhouseCircuitBreaker);
+    }
+
+    @Bean
+    public JdbcTemplate writeJdbcTemplate(HikariDataSource clickHouseWriteDataSource) {
+        return new JdbcTemplate(clickHouseWriteDataSource);
+    }
+
+    @Bean
+    public ClickhouseBatchInserter clickhouseBatchInserter(JdbcTemplate writeJdbcTemplate) {
+        return new ClickhouseBatchInserter(writeJdbcTemplate, insertFormat);
+    }
+
+    @Bean
+    public RollupQueryRouter rollupQueryRouter() {
+        return new RollupQueryRouter(rollupEnable, rollupMinClosedHours, rollupSince);
+    }
+
+    @Bean
+    public LookupTableRouter lookupTableRouter(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new LookupTableRouter(lookupEnable, lookupSince, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    private ClickHouseDataSource createDataSource(String socketTimeout, String maxExecutionTime, String decompress) {
         Properties info = new Properties();
         info.setProperty(ClickHouseQueryParam.USER.getKey(), user);
         info.setProperty(ClickHouseQueryParam.PASSWORD.getKey(), password);
         info.setProperty(ClickHouseQueryParam.COMPRESS.getKey(), compress);
         info.setProperty(ClickHouseQueryParam.CONNECT_TIMEOUT.getKey(), connectionTimeout);
+        info.setProperty(ClickHouseQueryParam.MAX_EXECUTION_TIME.getKey(), maxExecutionTime);
+        info.setProperty(ClickHouseQueryParam.DECOMPRESS.getKey(), decompress);
+        info.setProperty(ClickHouseConnectionSettings.SOCKET_TIMEOUT.getKey(), socketTimeout);
         return new ClickHouseDataSource(dbUrl, info);
     }
 
-    @Bean
-    @Autowired
-    public JdbcTemplate jdbcTemplate(DataSource clickHouseDataSource) {
-        return new JdbcTemplate(clickHouseDataSource);
+    private HikariDataSource createPool(String poolName, int poolSize, long acquireTimeout,
+                                        ClickHouseDataSource dataSource, MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDataSource(dataSource);
+        config.setMaximumPoolSize(poolSize);
+        config.setConnectionTimeout(acquireTimeout);
+        config.setConnectionTestQuery("SELECT 1");
+        config.setInitializationFailTimeout(-1);
+        if (meterRegistry != null) {
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        }
+        return new HikariDataSource(config);
     }
 
 }
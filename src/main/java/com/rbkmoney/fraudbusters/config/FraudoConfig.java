@@ -1,6 +1,7 @@
 package com.rbkmoney.fraudbusters.config;
 
 import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.config.properties.GreyListCacheProperties;
 import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
@@ -20,6 +21,10 @@ import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentInListFinderImpl;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.CountryResolverImpl;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.PaymentModelFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.wblist.RowInfoCache;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
+import com.rbkmoney.fraudbusters.fraud.window.WindowCounterEngine;
+import com.rbkmoney.fraudbusters.fraud.window.WindowedPaymentRepository;
 import com.rbkmoney.fraudbusters.repository.PaymentRepository;
 import com.rbkmoney.fraudbusters.repository.impl.ChargebackRepository;
 import com.rbkmoney.fraudbusters.repository.impl.RefundRepository;
@@ -40,6 +45,7 @@ import com.rbkmoney.fraudo.payment.resolver.PaymentTimeWindowResolver;
 import com.rbkmoney.fraudo.payment.visitor.impl.FirstFindVisitorImpl;
 import com.rbkmoney.fraudo.resolver.CountryResolver;
 import com.rbkmoney.fraudo.resolver.FieldResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -50,8 +56,11 @@ public class FraudoConfig {
     public CountPaymentAggregator<PaymentModel, PaymentCheckedField> countAggregator(PaymentRepository paymentRepository,
                                                                                      RefundRepository refundRepository,
                                                                                      ChargebackRepository chargebackRepository,
-                                                                                     DBPaymentFieldResolver dbPaymentFieldResolver) {
-        return new CountAggregatorImpl(dbPaymentFieldResolver, paymentRepository, refundRepository, chargebackRepository);
+                                                                                     DBPaymentFieldResolver dbPaymentFieldResolver,
+                                                                                     WindowCounterEngine windowCounterEngine,
+                                                                                     MeterRegistry meterRegistry) {
+        return new CountAggregatorImpl(dbPaymentFieldResolver, WindowedPaymentRepository.wrap(paymentRepository, windowCounterEngine, meterRegistry),
+                refundRepository, chargebackRepository);
     }
 
     @Bean
@@ -64,8 +73,11 @@ public class FraudoConfig {
     public SumPaymentAggregator<PaymentModel, PaymentCheckedField> sumAggregator(PaymentRepository paymentRepository,
                                                                                  RefundRepository refundRepository,
                                                                                  ChargebackRepository chargebackRepository,
-                                                                                 DBPaymentFieldResolver dbPaymentFieldResolver) {
-        return new SumAggregatorImpl(dbPaymentFieldResolver, paymentRepository, refundRepository, chargebackRepository);
+                                                                                 DBPaymentFieldResolver dbPaymentFieldResolver,
+                                                                                 WindowCounterEngine windowCounterEngine,
+                                                                                 MeterRegistry meterRegistry) {
+        return new SumAggregatorImpl(dbPaymentFieldResolver, WindowedPaymentRepository.wrap(paymentRepository, windowCounterEngine, meterRegistry),
+                refundRepository, chargebackRepository);
     }
 
     @Bean
@@ -76,8 +88,11 @@ public class FraudoConfig {
 
     @Bean
     public UniqueValueAggregator<PaymentModel, PaymentCheckedField> uniqueValueAggregator(PaymentRepository paymentRepository,
-                                                                                          DBPaymentFieldResolver dbPaymentFieldResolver) {
-        return new UniqueValueAggregatorImpl(dbPaymentFieldResolver, paymentRepository);
+                                                                                          DBPaymentFieldResolver dbPaymentFieldResolver,
+                                                                                          WindowCounterEngine windowCounterEngine,
+                                                                                          MeterRegistry meterRegistry) {
+        return new UniqueValueAggregatorImpl(dbPaymentFieldResolver,
+                WindowedPaymentRepository.wrap(paymentRepository, windowCounterEngine, meterRegistry));
     }
 
     @Bean
@@ -105,18 +120,33 @@ public class FraudoConfig {
         return new P2PModelFieldResolver();
     }
 
+    @Bean
+    public RowInfoCache rowInfoCache(WbListServiceSrv.Iface wbListServiceSrv, MeterRegistry meterRegistry,
+                                     GreyListCacheProperties greyListCacheProperties) {
+        return new RowInfoCache(wbListServiceSrv, meterRegistry, greyListCacheProperties.getMaxSize(),
+                greyListCacheProperties.getMissTtlMillis(), greyListCacheProperties.getMaxTtlMillis());
+    }
+
     @Bean
     public InListFinder<PaymentModel, PaymentCheckedField> paymentInListFinder(WbListServiceSrv.Iface wbListServiceSrv,
                                                                                PaymentRepository paymentRepository,
-                                                                               DBPaymentFieldResolver dbPaymentFieldResolver) {
-        return new PaymentInListFinderImpl(wbListServiceSrv, dbPaymentFieldResolver, paymentRepository);
+                                                                               DBPaymentFieldResolver dbPaymentFieldResolver,
+                                                                               WbListIndex wbListIndex,
+                                                                               RowInfoCache rowInfoCache,
+                                                                               MeterRegistry meterRegistry) {
+        return new PaymentInListFinderImpl(wbListServiceSrv, dbPaymentFieldResolver, paymentRepository, wbListIndex,
+                rowInfoCache, meterRegistry);
     }
 
     @Bean
     public InListFinder<P2PModel, P2PCheckedField> p2pInListFinder(WbListServiceSrv.Iface wbListServiceSrv,
                                                                    EventP2PRepository eventP2PRepository,
-                                                                   DbP2pFieldResolver dbP2pFieldResolver) {
-        return new P2pInListFinderImpl(wbListServiceSrv, dbP2pFieldResolver, eventP2PRepository);
+                                                                   DbP2pFieldResolver dbP2pFieldResolver,
+                                                                   WbListIndex wbListIndex,
+                                                                   RowInfoCache rowInfoCache,
+                                                                   MeterRegistry meterRegistry) {
+        return new P2pInListFinderImpl(wbListServiceSrv, dbP2pFieldResolver, eventP2PRepository, wbListIndex,
+                rowInfoCache, meterRegistry);
     }
 
     @Bean
@@ -1,12 +1,19 @@
 package com.rbkmoney.fraudbusters.config;
 
 import com.rbkmoney.damsel.fraudbusters.Command;
+import com.rbkmoney.damsel.wb_list.Event;
 import com.rbkmoney.fraudbusters.config.properties.KafkaSslProperties;
+import com.rbkmoney.fraudbusters.config.properties.WbListReplicaProperties;
 import com.rbkmoney.fraudbusters.domain.FraudResult;
 import com.rbkmoney.fraudbusters.domain.ScoresResult;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.fraud.window.WindowCounterEngine;
+import com.rbkmoney.fraudbusters.fraud.window.WindowCounterSeekListener;
 import com.rbkmoney.fraudbusters.serde.*;
 import com.rbkmoney.fraudbusters.service.ConsumerGroupIdService;
+import com.rbkmoney.fraudbusters.service.pipeline.InsertAccumulatorRebalanceListener;
+import com.rbkmoney.fraudbusters.template.snapshot.PoolSnapshotSeekListener;
+import com.rbkmoney.fraudbusters.template.snapshot.PoolSnapshotService;
 import com.rbkmoney.fraudbusters.util.SslKafkaUtils;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -18,7 +25,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.LoggingErrorHandler;
+import org.springframework.kafka.listener.SeekToCurrentBatchErrorHandler;
 import org.springframework.retry.RetryPolicy;
 import org.springframework.retry.backoff.BackOffPolicy;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
@@ -48,6 +57,8 @@ public class KafkaConfig {
 
     private static final String EARLIEST = "earliest";
     private static final String RESULT_AGGREGATOR = "result-aggregator";
+    private static final String WINDOW_COUNTER = "window-counter";
+    private static final String WB_LIST_REPLICA = "wb-list-replica";
 
     @Value("${kafka.max.poll.records}")
     private String maxPollRecords;
@@ -66,6 +77,11 @@ public class KafkaConfig {
 
     private final ConsumerGroupIdService consumerGroupIdService;
     private final KafkaSslProperties kafkaSslProperties;
+    private final WbListReplicaProperties wbListReplicaProperties;
+    private final PoolSnapshotService poolSnapshotService;
+    private final WindowCounterEngine windowCounterEngine;
+    private final InsertAccumulatorRebalanceListener paymentAccumulatorRebalanceListener;
+    private final InsertAccumulatorRebalanceListener p2pAccumulatorRebalanceListener;
 
     @Bean
     public ConsumerFactory<String, Command> templateListenerFactory() {
@@ -180,6 +196,8 @@ public class KafkaConfig {
         factory.setConcurrency(1);
         factory.setRetryTemplate(retryTemplate());
         factory.setErrorHandler(new LoggingErrorHandler());
+        factory.setRecordInterceptor(poolSnapshotService);
+        factory.getContainerProperties().setConsumerRebalanceListener(new PoolSnapshotSeekListener(poolSnapshotService));
         return factory;
     }
 
@@ -211,11 +229,15 @@ public class KafkaConfig {
         String consumerGroup = consumerGroupIdService.generateGroupId(RESULT_AGGREGATOR);
         final Map<String, Object> props = createDefaultProperties(consumerGroup);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         DefaultKafkaConsumerFactory<String, FraudResult> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
                 new StringDeserializer(), new FraudResultDeserializer());
         factory.setConsumerFactory(consumerFactory);
         factory.setConcurrency(listenResultConcurrency);
         factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setBatchErrorHandler(new SeekToCurrentBatchErrorHandler());
+        factory.getContainerProperties().setConsumerRebalanceListener(paymentAccumulatorRebalanceListener);
         return factory;
     }
 
@@ -225,11 +247,45 @@ public class KafkaConfig {
         String consumerGroup = consumerGroupIdService.generateGroupId(RESULT_AGGREGATOR);
         final Map<String, Object> props = createDefaultProperties(consumerGroup);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         DefaultKafkaConsumerFactory<String, ScoresResult<P2PModel>> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
                 new StringDeserializer(), new P2PResultDeserializer());
         factory.setConsumerFactory(consumerFactory);
         factory.setConcurrency(listenResultConcurrency);
         factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setBatchErrorHandler(new SeekToCurrentBatchErrorHandler());
+        factory.getContainerProperties().setConsumerRebalanceListener(p2pAccumulatorRebalanceListener);
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, FraudResult> windowCounterListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, FraudResult> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        String consumerGroup = consumerGroupIdService.generateRandomGroupId(WINDOW_COUNTER);
+        final Map<String, Object> props = createDefaultProperties(consumerGroup);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        DefaultKafkaConsumerFactory<String, FraudResult> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new FraudResultDeserializer());
+        factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(1);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setConsumerRebalanceListener(new WindowCounterSeekListener(windowCounterEngine));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Event> wbListEventListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, Event> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        String consumerGroup = consumerGroupIdService.generateRandomGroupId(WB_LIST_REPLICA);
+        final Map<String, Object> props = createDefaultProperties(consumerGroup);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        DefaultKafkaConsumerFactory<String, Event> consumerFactory = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new WbListEventDeserializer());
+        factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(1);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setIdleEventInterval(wbListReplicaProperties.getIdleEventIntervalMillis());
         return factory;
     }
 
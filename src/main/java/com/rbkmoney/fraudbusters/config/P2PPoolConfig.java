@@ -4,8 +4,12 @@ import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfiler;
+import com.rbkmoney.fraudbusters.stream.ParseTreeRuleSplitter;
 import com.rbkmoney.fraudbusters.stream.RuleApplierImpl;
+import com.rbkmoney.fraudbusters.stream.TemplateRuleSplitter;
 import com.rbkmoney.fraudbusters.template.pool.*;
+import com.rbkmoney.fraudo.FraudoP2PParser;
 import com.rbkmoney.fraudo.p2p.visitor.impl.FirstFindP2PVisitorImpl;
 import com.rbkmoney.fraudo.payment.visitor.impl.FirstFindVisitorImpl;
 import org.antlr.v4.runtime.ParserRuleContext;
@@ -37,9 +41,16 @@ public class P2PPoolConfig {
         return new TemplatePoolImpl();
     }
 
+    @Bean
+    public TemplateRuleSplitter p2pRuleSplitter() {
+        return new ParseTreeRuleSplitter(() -> new FraudoP2PParser.ParseContext(null, -1));
+    }
+
     @Bean
     public RuleApplierImpl<P2PModel> ruleP2PApplier(FirstFindP2PVisitorImpl<P2PModel, P2PCheckedField> p2pRuleVisitor,
-                                                    Pool<ParserRuleContext> templateP2PPoolImpl) {
-        return new RuleApplierImpl<>(p2pRuleVisitor, templateP2PPoolImpl);
+                                                    Pool<ParserRuleContext> templateP2PPoolImpl,
+                                                    RuleProfiler ruleProfiler,
+                                                    TemplateRuleSplitter p2pRuleSplitter) {
+        return new RuleApplierImpl<>(p2pRuleVisitor, templateP2PPoolImpl, ruleProfiler, p2pRuleSplitter);
     }
 }
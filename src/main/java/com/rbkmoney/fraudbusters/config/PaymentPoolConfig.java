@@ -1,15 +1,37 @@
 package com.rbkmoney.fraudbusters.config;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.config.properties.PrefetchProperties;
+import com.rbkmoney.fraudbusters.fraud.batch.*;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.payment.CountryByIpResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfiler;
+import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
+import com.rbkmoney.fraudbusters.fraud.window.WindowCounterEngine;
+import com.rbkmoney.fraudbusters.fraud.window.WindowedPaymentRepository;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudbusters.stream.ParseTreeRuleSplitter;
 import com.rbkmoney.fraudbusters.stream.RuleApplierImpl;
+import com.rbkmoney.fraudbusters.stream.TemplateRuleSplitter;
 import com.rbkmoney.fraudbusters.template.pool.*;
+import com.rbkmoney.fraudo.FraudoPaymentParser;
 import com.rbkmoney.fraudo.payment.visitor.impl.FirstFindVisitorImpl;
+import com.rbkmoney.fraudo.resolver.FieldResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class PaymentPoolConfig {
@@ -34,10 +56,54 @@ public class PaymentPoolConfig {
         return new TemplatePoolImpl();
     }
 
+    @Bean
+    public TemplateRuleSplitter paymentRuleSplitter() {
+        return new ParseTreeRuleSplitter(() -> new FraudoPaymentParser.ParseContext(null, -1));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService prefetchExecutor(PrefetchProperties prefetchProperties) {
+        return new ThreadPoolExecutor(prefetchProperties.getThreads(), prefetchProperties.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(prefetchProperties.getQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("prefetch-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
     @Bean
     public RuleApplierImpl<PaymentModel> ruleApplier(FirstFindVisitorImpl<PaymentModel, PaymentCheckedField> paymentRuleVisitor,
-                                                     Pool<ParserRuleContext> templatePoolImpl) {
-        return new RuleApplierImpl<>(paymentRuleVisitor, templatePoolImpl);
+                                                     Pool<ParserRuleContext> templatePoolImpl,
+                                                     PaymentRepository paymentRepository,
+                                                     DBPaymentFieldResolver dbPaymentFieldResolver,
+                                                     FieldResolver<PaymentModel, PaymentCheckedField> paymentModelFieldResolver,
+                                                     WbListServiceSrv.Iface wbListServiceSrv,
+                                                     WbListIndex wbListIndex,
+                                                     CountryByIpResolver countryByIpResolver,
+                                                     ExecutorService prefetchExecutor,
+                                                     PrefetchProperties prefetchProperties,
+                                                     RuleProfiler ruleProfiler,
+                                                     TemplateRuleSplitter paymentRuleSplitter,
+                                                     WindowCounterEngine windowCounterEngine,
+                                                     MeterRegistry meterRegistry,
+                                                     @Value("${aggregate.batch.enable}") boolean aggregateBatchEnable) {
+        PaymentAggregateQueryResolver queryResolver = new PaymentAggregateQueryResolver(
+                new TemplateAggregateCollector(), dbPaymentFieldResolver);
+        PaymentRepository aggregationRepository = WindowedPaymentRepository.wrap(paymentRepository, windowCounterEngine,
+                meterRegistry);
+        if (prefetchProperties.isEnable()) {
+            AggregationBatchRepository batchRepository = aggregateBatchEnable && aggregationRepository instanceof AggregationBatchRepository
+                    ? (AggregationBatchRepository) aggregationRepository
+                    : null;
+            return new RuleApplierImpl<>(paymentRuleVisitor, templatePoolImpl, new ParallelPaymentPrefetcher(queryResolver,
+                    new TemplateLookupCollector(), paymentModelFieldResolver, aggregationRepository, batchRepository, wbListServiceSrv,
+                    wbListIndex, countryByIpResolver, prefetchExecutor, prefetchProperties.getDeadlineMillis()), ruleProfiler,
+                    paymentRuleSplitter);
+        }
+        if (aggregateBatchEnable && aggregationRepository instanceof AggregationBatchRepository) {
+            return new RuleApplierImpl<>(paymentRuleVisitor, templatePoolImpl, new PaymentAggregatePrefetcher(
+                    queryResolver, (AggregationBatchRepository) aggregationRepository), ruleProfiler, paymentRuleSplitter);
+        }
+        return new RuleApplierImpl<>(paymentRuleVisitor, templatePoolImpl, ruleProfiler, paymentRuleSplitter);
     }
 
 }
@@ -0,0 +1,24 @@
+package com.rbkmoney.fraudbusters.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rbkmoney.fraudbusters.config.properties.PreloadProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PreloadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService preloadExecutor(PreloadProperties preloadProperties) {
+        return new ThreadPoolExecutor(preloadProperties.getThreads(), preloadProperties.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("preload-%d").setDaemon(true).build());
+    }
+
+}
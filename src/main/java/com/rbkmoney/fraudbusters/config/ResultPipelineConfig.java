@@ -0,0 +1,108 @@
+package com.rbkmoney.fraudbusters.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rbkmoney.damsel.geo_ip.GeoIpServiceSrv;
+import com.rbkmoney.fraudbusters.config.properties.ResultAccumulatorProperties;
+import com.rbkmoney.fraudbusters.config.properties.ResultPipelineProperties;
+import com.rbkmoney.fraudbusters.domain.Event;
+import com.rbkmoney.fraudbusters.domain.EventP2P;
+import com.rbkmoney.fraudbusters.repository.Repository;
+import com.rbkmoney.fraudbusters.repository.impl.p2p.EventP2PRepository;
+import com.rbkmoney.fraudbusters.service.pipeline.GeoIpBatchResolver;
+import com.rbkmoney.fraudbusters.service.pipeline.InsertAccumulator;
+import com.rbkmoney.fraudbusters.service.pipeline.InsertAccumulatorRebalanceListener;
+import com.rbkmoney.fraudbusters.service.pipeline.PipelineStageMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ResultPipelineConfig {
+
+    @Value("${kafka.listen.result.concurrency}")
+    private int listenResultConcurrency;
+
+    @Value("${kafka.max.poll.records}")
+    private int maxPollRecords;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService geoIpExecutor(ResultPipelineProperties resultPipelineProperties) {
+        return new ThreadPoolExecutor(resultPipelineProperties.getThreads(), resultPipelineProperties.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(resultPipelineProperties.getQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("geo-ip-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService referenceExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("default-reference-%d").setDaemon(true).build());
+    }
+
+    @Bean
+    public GeoIpBatchResolver geoIpBatchResolver(GeoIpServiceSrv.Iface geoIpServiceSrv,
+                                                 ExecutorService geoIpExecutor,
+                                                 ResultPipelineProperties resultPipelineProperties) {
+        return new GeoIpBatchResolver(geoIpServiceSrv, geoIpExecutor, resultPipelineProperties.getTimeoutMillis(),
+                resultPipelineProperties.getCacheSize(), resultPipelineProperties.getCacheExpireMinutes());
+    }
+
+    @Bean
+    public PipelineStageMetrics paymentPipelineMetrics(MeterRegistry meterRegistry) {
+        return new PipelineStageMetrics(meterRegistry, "payment");
+    }
+
+    @Bean
+    public PipelineStageMetrics p2pPipelineMetrics(MeterRegistry meterRegistry) {
+        return new PipelineStageMetrics(meterRegistry, "p2p");
+    }
+
+    @Bean(destroyMethod = "close")
+    public InsertAccumulator<Event> paymentInsertAccumulator(Repository<Event> repository,
+                                                             ResultAccumulatorProperties resultAccumulatorProperties,
+                                                             MeterRegistry meterRegistry) {
+        return new InsertAccumulator<>("payment", repository::insertBatch,
+                blockRows(resultAccumulatorProperties), Integer.MAX_VALUE,
+                resultAccumulatorProperties.getLingerMillis(),
+                new ThreadFactoryBuilder().setNameFormat("insert-accumulator-payment").setDaemon(true).build(),
+                meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public InsertAccumulator<EventP2P> p2pInsertAccumulator(EventP2PRepository eventP2PRepository,
+                                                            ResultAccumulatorProperties resultAccumulatorProperties,
+                                                            MeterRegistry meterRegistry) {
+        return new InsertAccumulator<>("p2p", eventP2PRepository::insertBatch,
+                blockRows(resultAccumulatorProperties), Integer.MAX_VALUE,
+                resultAccumulatorProperties.getLingerMillis(),
+                new ThreadFactoryBuilder().setNameFormat("insert-accumulator-p2p").setDaemon(true).build(),
+                meterRegistry);
+    }
+
+    @Bean
+    public InsertAccumulatorRebalanceListener paymentAccumulatorRebalanceListener(
+            InsertAccumulator<Event> paymentInsertAccumulator) {
+        return new InsertAccumulatorRebalanceListener(paymentInsertAccumulator);
+    }
+
+    @Bean
+    public InsertAccumulatorRebalanceListener p2pAccumulatorRebalanceListener(
+            InsertAccumulator<EventP2P> p2pInsertAccumulator) {
+        return new InsertAccumulatorRebalanceListener(p2pInsertAccumulator);
+    }
+
+    private int blockRows(ResultAccumulatorProperties resultAccumulatorProperties) {
+        int maxRows = resultAccumulatorProperties.getMaxRows();
+        return maxRows > 0 ? maxRows : listenResultConcurrency * maxPollRecords;
+    }
+
+}
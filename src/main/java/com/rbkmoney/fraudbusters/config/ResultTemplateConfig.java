@@ -1,10 +1,18 @@
 package com.rbkmoney.fraudbusters.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rbkmoney.fraudbusters.config.properties.KafkaSslProperties;
+import com.rbkmoney.fraudbusters.config.properties.ResultPublisherProperties;
 import com.rbkmoney.fraudbusters.domain.FraudResult;
 import com.rbkmoney.fraudbusters.domain.ScoresResult;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.serde.FraudResultSerializer;
+import com.rbkmoney.fraudbusters.serde.P2PResultSerializer;
+import com.rbkmoney.fraudbusters.service.publisher.OverflowPolicy;
+import com.rbkmoney.fraudbusters.service.publisher.ResultPublisher;
+import com.rbkmoney.fraudbusters.service.publisher.ResultSpillFile;
 import com.rbkmoney.fraudbusters.util.SslKafkaUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
@@ -15,6 +23,7 @@ import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,25 +34,69 @@ public class ResultTemplateConfig {
     @Value("${kafka.bootstrap.servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.topic.result}")
+    private String resultTopic;
+
+    @Value("${kafka.topic.p2p.result}")
+    private String p2pResultTopic;
+
+    @Value("${kafka.result.binary-format}")
+    private boolean binaryFormat;
+
     private final KafkaSslProperties kafkaSslProperties;
+    private final ResultPublisherProperties resultPublisherProperties;
 
-    private Map<String, Object> producerResultConfigs() {
+    private Map<String, Object> producerResultConfigs(Class<?> binarySerializer) {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, binaryFormat ? binarySerializer : JsonSerializer.class);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, resultPublisherProperties.getLingerMs());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, resultPublisherProperties.getBatchSize());
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, resultPublisherProperties.getCompressionType());
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, resultPublisherProperties.getMaxBlockMs());
         props.putAll(SslKafkaUtils.sslConfigure(kafkaSslProperties));
         return props;
     }
 
     @Bean
     public KafkaTemplate<String, FraudResult> kafkaFraudResultTemplate() {
-        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerResultConfigs()));
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerResultConfigs(FraudResultSerializer.class)));
     }
 
     @Bean
     public KafkaTemplate<String, ScoresResult<P2PModel>> p2PModelKafkaTemplate() {
-        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerResultConfigs()));
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerResultConfigs(P2PResultSerializer.class)));
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ResultPublisher<FraudResult> fraudResultPublisher(KafkaTemplate<String, FraudResult> kafkaFraudResultTemplate,
+                                                             MeterRegistry meterRegistry) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return createPublisher(resultTopic, kafkaFraudResultTemplate, new ResultSpillFile<>(
+                Paths.get(resultPublisherProperties.getSpillDir(), resultTopic), objectMapper,
+                objectMapper.constructType(FraudResult.class)), meterRegistry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ResultPublisher<ScoresResult<P2PModel>> p2pResultPublisher(KafkaTemplate<String, ScoresResult<P2PModel>> p2PModelKafkaTemplate,
+                                                                      MeterRegistry meterRegistry) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return createPublisher(p2pResultTopic, p2PModelKafkaTemplate, new ResultSpillFile<>(
+                Paths.get(resultPublisherProperties.getSpillDir(), p2pResultTopic), objectMapper,
+                objectMapper.getTypeFactory().constructParametricType(ScoresResult.class, P2PModel.class)), meterRegistry);
+    }
+
+    private <T> ResultPublisher<T> createPublisher(String topic, KafkaTemplate<String, T> kafkaTemplate,
+                                                   ResultSpillFile<T> spillFile, MeterRegistry meterRegistry) {
+        return new ResultPublisher<>(topic, kafkaTemplate,
+                resultPublisherProperties.getQueueCapacity(),
+                resultPublisherProperties.getOverflowPolicy(),
+                resultPublisherProperties.getBlockTimeoutMillis(),
+                resultPublisherProperties.getDrainBatchSize(),
+                resultPublisherProperties.getShutdownTimeoutMillis(),
+                resultPublisherProperties.getOverflowPolicy() == OverflowPolicy.SPILL ? spillFile : null,
+                meterRegistry);
     }
 
 }
@@ -12,4 +12,6 @@ import org.springframework.stereotype.Component;
 public class DefaultTemplateProperties {
     private boolean enable;
     private int countToCheckDays;
+    private long warmUpRetryMillis = 1000L;
+    private long warmUpMaxRetryMillis = 60000L;
 }
@@ -0,0 +1,16 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "grey.list.cache")
+public class GreyListCacheProperties {
+    private long maxSize = 10000;
+    private long missTtlMillis = 30000;
+    private long maxTtlMillis = 300000;
+}
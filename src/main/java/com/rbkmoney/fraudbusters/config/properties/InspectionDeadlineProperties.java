@@ -0,0 +1,17 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "inspection.deadline")
+public class InspectionDeadlineProperties {
+    private boolean enable;
+    private long budgetMillis = 500;
+    private int neutralCount = 0;
+    private long neutralSum = 0;
+}
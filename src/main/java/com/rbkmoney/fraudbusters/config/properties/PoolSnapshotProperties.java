@@ -0,0 +1,16 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "pool.snapshot")
+public class PoolSnapshotProperties {
+    private boolean enable;
+    private String path = "tmp/pool-snapshot/pools.bin";
+    private long intervalMillis = 60000;
+}
@@ -0,0 +1,17 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "prefetch.parallel")
+public class PrefetchProperties {
+    private boolean enable;
+    private int threads = 16;
+    private int queueSize = 256;
+    private long deadlineMillis = 300;
+}
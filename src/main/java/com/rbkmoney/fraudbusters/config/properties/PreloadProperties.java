@@ -0,0 +1,17 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "preload")
+public class PreloadProperties {
+    private boolean blocking = true;
+    private int threads = 8;
+    private long pollTimeoutMillis = 100;
+    private long timeoutSeconds = 160;
+}
@@ -0,0 +1,19 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "result.accumulator")
+public class ResultAccumulatorProperties {
+    private boolean enable;
+    /**
+     * Rows per insert block, 0 derives it from the listener concurrency and max.poll.records.
+     */
+    private int maxRows;
+    private long lingerMillis = 200;
+}
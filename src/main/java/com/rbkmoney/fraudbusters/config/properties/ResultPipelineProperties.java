@@ -0,0 +1,18 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "result.pipeline.geo")
+public class ResultPipelineProperties {
+    private int threads = 8;
+    private int queueSize = 512;
+    private long timeoutMillis = 2000;
+    private long cacheSize = 10000;
+    private long cacheExpireMinutes = 60;
+}
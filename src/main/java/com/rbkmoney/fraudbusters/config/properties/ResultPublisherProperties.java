@@ -0,0 +1,24 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import com.rbkmoney.fraudbusters.service.publisher.OverflowPolicy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "kafka.result.publisher")
+public class ResultPublisherProperties {
+    private int queueCapacity = 10000;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private long blockTimeoutMillis = 50;
+    private int drainBatchSize = 500;
+    private long shutdownTimeoutMillis = 5000;
+    private String spillDir = "tmp/result-spill/";
+    private int lingerMs = 5;
+    private int batchSize = 65536;
+    private String compressionType = "lz4";
+    private long maxBlockMs = 60000;
+}
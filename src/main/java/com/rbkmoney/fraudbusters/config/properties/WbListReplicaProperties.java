@@ -0,0 +1,17 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "wb.list.replica")
+public class WbListReplicaProperties {
+    private boolean enable;
+    private boolean strict = true;
+    private long maxLagMillis = 10000;
+    private long idleEventIntervalMillis = 1000;
+}
@@ -0,0 +1,16 @@
+package com.rbkmoney.fraudbusters.config.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "window.counter")
+public class WindowCounterProperties {
+    private boolean enable;
+    private long horizonMinutes = 60;
+    private long bucketSeconds = 10;
+}
@@ -0,0 +1,8 @@
+package com.rbkmoney.fraudbusters.constant;
+
+public enum ClickhouseInsertFormat {
+
+    VALUES,
+    ROW_BINARY
+
+}
@@ -21,6 +21,10 @@ public class FraudResultToEventConverter implements BatchConverter<FraudResult,
 
     @Override
     public Event convert(FraudResult fraudResult) {
+        return convert(fraudResult, getCountryCode(fraudResult.getFraudRequest().getFraudModel().getIp()));
+    }
+
+    public Event convert(FraudResult fraudResult, String country) {
         Event event = new Event();
         PaymentModel paymentModel = fraudResult.getFraudRequest().getFraudModel();
         event.setAmount(paymentModel.getAmount());
@@ -33,10 +37,8 @@ public class FraudResultToEventConverter implements BatchConverter<FraudResult,
         event.setEventTimeHour(timeProperties.getEventTimeHour());
 
         event.setFingerprint(paymentModel.getFingerprint());
-        String ip = paymentModel.getIp();
-        String country = getCountryCode(ip);
         event.setCountry(country);
-        event.setIp(ip);
+        event.setIp(paymentModel.getIp());
         event.setPartyId(paymentModel.getPartyId());
         CheckedResultModel resultModel = fraudResult.getResultModel();
         event.setCheckedTemplate(resultModel.getCheckedTemplate());
@@ -12,5 +12,6 @@ public class CheckedResultModel {
 
     private ResultModel resultModel;
     private String checkedTemplate;
+    private Boolean degraded;
 
 }
@@ -0,0 +1,25 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateCall {
+
+    private AggregateCallType type;
+    private PaymentCheckedField field;
+    private PaymentCheckedField onField;
+    private String errorCode;
+    private Long startWindowTime;
+    private Long endWindowTime;
+    private List<PaymentCheckedField> groupByFields;
+
+}
@@ -0,0 +1,37 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@RequiredArgsConstructor
+public enum AggregateCallType {
+
+    COUNT("count", false, false),
+    COUNT_SUCCESS("countSuccess", false, false),
+    COUNT_ERROR("countError", true, false),
+    SUM("sum", false, false),
+    SUM_SUCCESS("sumSuccess", false, false),
+    SUM_ERROR("sumError", true, false),
+    UNIQUE("unique", false, true);
+
+    private static final Map<String, AggregateCallType> functionMap = new HashMap<>();
+
+    static {
+        for (AggregateCallType value : AggregateCallType.values()) {
+            functionMap.put(value.function, value);
+        }
+    }
+
+    private final String function;
+    private final boolean withErrorCode;
+    private final boolean withOnField;
+
+    public static AggregateCallType getByFunction(String function) {
+        return functionMap.get(function);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class CallLiterals {
+
+    private final List<String> strings = new ArrayList<>();
+    private final List<Long> integers = new ArrayList<>();
+
+}
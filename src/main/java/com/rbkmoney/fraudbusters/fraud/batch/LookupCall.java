@@ -0,0 +1,15 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class LookupCall {
+
+    private LookupCallType type;
+    private List<String> fields;
+
+}
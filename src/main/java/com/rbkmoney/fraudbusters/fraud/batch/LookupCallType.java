@@ -0,0 +1,31 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@RequiredArgsConstructor
+public enum LookupCallType {
+
+    IN_WHITE_LIST("inWhiteList"),
+    IN_BLACK_LIST("inBlackList"),
+    COUNTRY_BY("countryBy");
+
+    private static final Map<String, LookupCallType> functionMap = new HashMap<>();
+
+    static {
+        for (LookupCallType value : LookupCallType.values()) {
+            functionMap.put(value.function, value);
+        }
+    }
+
+    private final String function;
+
+    public static LookupCallType getByFunction(String function) {
+        return functionMap.get(function);
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.damsel.wb_list.ListType;
+import com.rbkmoney.damsel.wb_list.Row;
+import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.CountryMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.memo.ListMemoKey;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import com.rbkmoney.fraudbusters.fraud.payment.CountryByIpResolver;
+import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentRowFactory;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudbusters.stream.TemplatePrefetcher;
+import com.rbkmoney.fraudo.model.Pair;
+import com.rbkmoney.fraudo.resolver.FieldResolver;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the independent lookups of a template (aggregates, wb-list checks and geo resolving)
+ * concurrently before the template is evaluated. Results are put into {@link InspectionMemoContext}
+ * on the inspecting thread. Aggregates go in one batch query when {@link AggregationBatchRepository}
+ * is given, otherwise one query each. The prefetch waits no longer than what is left of the inspection
+ * deadline; a lookup that fails, misses the deadline or is rejected by a saturated executor is evaluated
+ * by the rule function itself, as without prefetching. Calls are counted in {@link RuleProfileContext} on the
+ * inspecting thread once a task has run; skipped, rejected and cancelled tasks are not counted. A template
+ * with a single lookup is prefetched the same way, so the inspecting thread never waits past the deadline.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ParallelPaymentPrefetcher implements TemplatePrefetcher<PaymentModel> {
+
+    private final PaymentAggregateQueryResolver paymentAggregateQueryResolver;
+    private final TemplateLookupCollector templateLookupCollector;
+    private final FieldResolver<PaymentModel, PaymentCheckedField> paymentModelFieldResolver;
+    private final PaymentRepository paymentRepository;
+    private final AggregationBatchRepository aggregationBatchRepository;
+    private final WbListServiceSrv.Iface wbListServiceSrv;
+    private final WbListIndex wbListIndex;
+    private final CountryByIpResolver countryByIpResolver;
+    private final ExecutorService prefetchExecutor;
+    private final long deadlineMillis;
+
+    @Override
+    public void prefetch(ParserRuleContext parseContext, PaymentModel model) {
+        if (!InspectionMemoContext.isOpen() || InspectionDeadline.isExhausted()) {
+            return;
+        }
+        List<PrefetchTask> tasks = new ArrayList<>();
+        addAggregateTasks(tasks, paymentAggregateQueryResolver.resolve(parseContext, model));
+        addLookupTasks(tasks, templateLookupCollector.collect(parseContext), model);
+        if (tasks.isEmpty()) {
+            return;
+        }
+        long deadlineNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(InspectionDeadline.remainingMillis(deadlineMillis));
+        List<PrefetchTask> submitted = new ArrayList<>(tasks.size());
+        List<Future<Map<Object, Object>>> futures = new ArrayList<>(tasks.size());
+        for (PrefetchTask task : tasks) {
+            try {
+                futures.add(prefetchExecutor.submit(task.getCall()));
+                submitted.add(task);
+            } catch (RejectedExecutionException e) {
+                log.debug("ParallelPaymentPrefetcher executor saturated, skip prefetch task");
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            putResult(submitted.get(i), futures.get(i), deadlineNanos);
+        }
+        log.debug("ParallelPaymentPrefetcher prefetched tasks: {} of: {}", futures.size(), tasks.size());
+    }
+
+    private void addAggregateTasks(List<PrefetchTask> tasks, Map<AggregateMemoKey, AggregateQuery> queries) {
+        if (queries.isEmpty()) {
+            return;
+        }
+        if (aggregationBatchRepository != null) {
+            tasks.add(new PrefetchTask(RuleProfileContext::recordDbQuery, () -> {
+                List<AggregateMemoKey> keys = new ArrayList<>(queries.keySet());
+                List<Number> results = aggregationBatchRepository.aggregateBatch(new ArrayList<>(queries.values()));
+                Map<Object, Object> values = new HashMap<>();
+                for (int i = 0; i < keys.size(); i++) {
+                    values.put(keys.get(i), results.get(i));
+                }
+                return values;
+            }));
+            return;
+        }
+        queries.forEach((memoKey, query) -> tasks.add(singletonTask(memoKey, singleQuery(query))));
+    }
+
+    private Callable<Object> singleQuery(AggregateQuery query) {
+        String fieldName = query.getFieldName();
+        String value = query.getValue();
+        Long from = query.getFrom();
+        Long to = query.getTo();
+        List<FieldModel> groupByFields = query.getGroupByFields();
+        StatusFilter statusFilter = query.getStatusFilter() != null ? query.getStatusFilter() : StatusFilter.ALL;
+        switch (query.getType()) {
+            case SUM:
+                switch (statusFilter) {
+                    case SUCCESS:
+                        return () -> paymentRepository.sumOperationSuccessWithGroupBy(fieldName, value, from, to, groupByFields);
+                    case DECLINE:
+                        return () -> paymentRepository.sumOperationErrorWithGroupBy(fieldName, value, from, to, groupByFields,
+                                query.getErrorCode());
+                    default:
+                        return () -> paymentRepository.sumOperationByFieldWithGroupBy(fieldName, value, from, to, groupByFields);
+                }
+            case UNIQ:
+                return () -> paymentRepository.uniqCountOperationWithGroupBy(fieldName, value, query.getOnFieldName(), from, to,
+                        groupByFields);
+            default:
+                switch (statusFilter) {
+                    case SUCCESS:
+                        return () -> paymentRepository.countOperationSuccessWithGroupBy(fieldName, value, from, to, groupByFields);
+                    case DECLINE:
+                        return () -> paymentRepository.countOperationErrorWithGroupBy(fieldName, value, from, to, groupByFields,
+                                query.getErrorCode());
+                    default:
+                        return () -> paymentRepository.countOperationByFieldWithGroupBy(fieldName, value, from, to, groupByFields);
+                }
+        }
+    }
+
+    private void addLookupTasks(List<PrefetchTask> tasks, List<LookupCall> calls, PaymentModel model) {
+        Map<Object, Callable<Object>> lookups = new HashMap<>();
+        for (LookupCall call : calls) {
+            try {
+                switch (call.getType()) {
+                    case IN_WHITE_LIST:
+                        addListLookup(lookups, ListType.white, call, model);
+                        break;
+                    case IN_BLACK_LIST:
+                        addListLookup(lookups, ListType.black, call, model);
+                        break;
+                    case COUNTRY_BY:
+                        if (PaymentCheckedField.getByValue(call.getFields().get(0)) == PaymentCheckedField.IP && !StringUtils.isEmpty(model.getIp())) {
+                            String ip = model.getIp();
+                            lookups.putIfAbsent(new CountryMemoKey(ip), () -> countryByIpResolver.resolveCountry(ip));
+                        }
+                        break;
+                    default:
+                }
+            } catch (Exception e) {
+                log.debug("ParallelPaymentPrefetcher skip lookup: {} e: ", call, e);
+            }
+        }
+        lookups.forEach((memoKey, call) -> {
+            if (!InspectionMemoContext.contains(memoKey)) {
+                tasks.add(singletonTask(memoKey, call));
+            }
+        });
+    }
+
+    private void addListLookup(Map<Object, Callable<Object>> lookups, ListType listType, LookupCall call, PaymentModel model) {
+        List<Pair<PaymentCheckedField, String>> fields = new ArrayList<>();
+        for (String fieldName : call.getFields()) {
+            fields.add(new Pair<>(paymentModelFieldResolver.resolveName(fieldName),
+                    paymentModelFieldResolver.resolveValue(fieldName, model)));
+        }
+        List<Row> rows = PaymentRowFactory.createRows(listType, model, fields);
+        if (!rows.isEmpty() && !wbListIndex.isServing()) {
+            lookups.putIfAbsent(new ListMemoKey(rows), () -> wbListServiceSrv.isAnyExist(rows));
+        }
+    }
+
+    private PrefetchTask singletonTask(Object memoKey, Callable<Object> call) {
+        return new PrefetchTask(() -> InspectionMemoContext.recordCall(memoKey), () -> {
+            Map<Object, Object> result = new HashMap<>();
+            result.put(memoKey, call.call());
+            return result;
+        });
+    }
+
+    private void putResult(PrefetchTask task, Future<Map<Object, Object>> future, long deadlineNanos) {
+        try {
+            Map<Object, Object> values = future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+            task.getRecordCalls().run();
+            values.forEach(InspectionMemoContext::put);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.debug("ParallelPaymentPrefetcher task missed deadline: {}", deadlineMillis);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            task.getRecordCalls().run();
+            log.warn("ParallelPaymentPrefetcher task error, fallback to single call e: ", e.getCause());
+        } catch (Exception e) {
+            log.warn("ParallelPaymentPrefetcher task error, fallback to single call e: ", e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PrefetchTask {
+
+        private final Runnable recordCalls;
+        private final Callable<Map<Object, Object>> call;
+
+    }
+
+}
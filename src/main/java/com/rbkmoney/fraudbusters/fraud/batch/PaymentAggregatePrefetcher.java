@@ -0,0 +1,58 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
+import com.rbkmoney.fraudbusters.stream.TemplatePrefetcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves every aggregate of a template against the current payment and evaluates them
+ * in one round trip. Results are put into {@link InspectionMemoContext}, so the aggregators
+ * read them instead of querying one by one. Anything not prefetched falls back to the
+ * per-call path.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentAggregatePrefetcher implements TemplatePrefetcher<PaymentModel> {
+
+    private final PaymentAggregateQueryResolver paymentAggregateQueryResolver;
+    private final AggregationBatchRepository aggregationBatchRepository;
+
+    @Override
+    public void prefetch(ParserRuleContext parseContext, PaymentModel model) {
+        if (!InspectionMemoContext.isOpen() || InspectionDeadline.isExhausted()) {
+            return;
+        }
+        Map<AggregateMemoKey, AggregateQuery> queries = paymentAggregateQueryResolver.resolve(parseContext, model);
+        if (queries.isEmpty()) {
+            return;
+        }
+        try {
+            List<AggregateMemoKey> keys = new ArrayList<>(queries.keySet());
+            List<Number> results;
+            try {
+                results = aggregationBatchRepository.aggregateBatch(new ArrayList<>(queries.values()));
+            } finally {
+                RuleProfileContext.recordDbQuery();
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                InspectionMemoContext.put(keys.get(i), results.get(i));
+            }
+            log.debug("PaymentAggregatePrefetcher prefetched: {}", keys.size());
+        } catch (Exception e) {
+            log.warn("PaymentAggregatePrefetcher error when prefetch, fallback to single queries e: ", e);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.util.TimestampUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the aggregate calls of a template against the current payment into queries keyed
+ * by the memo key the aggregators use. Calls already memoized are skipped.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentAggregateQueryResolver {
+
+    private final TemplateAggregateCollector templateAggregateCollector;
+    private final DBPaymentFieldResolver dbPaymentFieldResolver;
+
+    public Map<AggregateMemoKey, AggregateQuery> resolve(ParserRuleContext parseContext, PaymentModel model) {
+        Map<AggregateMemoKey, AggregateQuery> queries = new LinkedHashMap<>();
+        List<AggregateCall> calls = templateAggregateCollector.collect(parseContext);
+        if (calls.isEmpty()) {
+            return queries;
+        }
+        Instant now = Instant.now();
+        for (AggregateCall call : calls) {
+            try {
+                FieldModel resolve = dbPaymentFieldResolver.resolve(call.getField(), model);
+                if (StringUtils.isEmpty(resolve.getValue())) {
+                    continue;
+                }
+                List<FieldModel> groupByFields = dbPaymentFieldResolver.resolveListFields(model, call.getGroupByFields());
+                String onFieldName = call.getOnField() != null ? dbPaymentFieldResolver.resolve(call.getOnField()) : null;
+                AggregateMemoKey memoKey = new AggregateMemoKey(memoFunction(call, onFieldName), AggregateMemoKey.PAYMENT_SOURCE,
+                        resolve.getName(), resolve.getValue(), call.getStartWindowTime(), call.getEndWindowTime(), groupByFields);
+                if (InspectionMemoContext.contains(memoKey) || queries.containsKey(memoKey)) {
+                    continue;
+                }
+                queries.put(memoKey, AggregateQuery.builder()
+                        .type(queryType(call.getType()))
+                        .statusFilter(statusFilter(call.getType()))
+                        .fieldName(resolve.getName())
+                        .value(resolve.getValue())
+                        .onFieldName(onFieldName)
+                        .errorCode(call.getErrorCode())
+                        .from(TimestampUtil.generateTimestampMinusMinutesMillis(now, call.getStartWindowTime()))
+                        .to(TimestampUtil.generateTimestampMinusMinutesMillis(now, call.getEndWindowTime()))
+                        .groupByFields(groupByFields)
+                        .build());
+            } catch (Exception e) {
+                log.debug("PaymentAggregateQueryResolver skip call: {} e: ", call, e);
+            }
+        }
+        return queries;
+    }
+
+    private String memoFunction(AggregateCall call, String onFieldName) {
+        switch (call.getType()) {
+            case COUNT_SUCCESS:
+                return AggregateMemoKey.COUNT_SUCCESS;
+            case COUNT_ERROR:
+                return AggregateMemoKey.COUNT_ERROR + call.getErrorCode();
+            case SUM:
+                return AggregateMemoKey.SUM;
+            case SUM_SUCCESS:
+                return AggregateMemoKey.SUM_SUCCESS;
+            case SUM_ERROR:
+                return AggregateMemoKey.SUM_ERROR + call.getErrorCode();
+            case UNIQUE:
+                return AggregateMemoKey.UNIQ + onFieldName;
+            default:
+                return AggregateMemoKey.COUNT;
+        }
+    }
+
+    private AggregateQuery.Type queryType(AggregateCallType type) {
+        switch (type) {
+            case SUM:
+            case SUM_SUCCESS:
+            case SUM_ERROR:
+                return AggregateQuery.Type.SUM;
+            case UNIQUE:
+                return AggregateQuery.Type.UNIQ;
+            default:
+                return AggregateQuery.Type.COUNT;
+        }
+    }
+
+    private StatusFilter statusFilter(AggregateCallType type) {
+        switch (type) {
+            case COUNT_SUCCESS:
+            case SUM_SUCCESS:
+                return StatusFilter.SUCCESS;
+            case COUNT_ERROR:
+            case SUM_ERROR:
+                return StatusFilter.DECLINE;
+            default:
+                return StatusFilter.ALL;
+        }
+    }
+
+}
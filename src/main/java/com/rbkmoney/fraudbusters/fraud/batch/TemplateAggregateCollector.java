@@ -0,0 +1,82 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the aggregate function calls of a parsed template. Results are cached per parsed template.
+ */
+@Slf4j
+public class TemplateAggregateCollector {
+
+    private static final Set<String> FUNCTIONS = Arrays.stream(AggregateCallType.values())
+            .map(AggregateCallType::getFunction)
+            .collect(Collectors.toSet());
+
+    private final Map<ParserRuleContext, List<AggregateCall>> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public List<AggregateCall> collect(ParserRuleContext parseContext) {
+        return cache.computeIfAbsent(parseContext, this::walk);
+    }
+
+    private List<AggregateCall> walk(ParserRuleContext parseContext) {
+        List<AggregateCall> calls = new ArrayList<>();
+        TemplateCallWalker.walk(parseContext, FUNCTIONS, (function, literals) -> {
+            AggregateCall call = toCall(AggregateCallType.getByFunction(function), literals);
+            if (call != null) {
+                calls.add(call);
+            }
+        });
+        log.debug("TemplateAggregateCollector collected calls: {}", calls);
+        return Collections.unmodifiableList(calls);
+    }
+
+    private AggregateCall toCall(AggregateCallType type, CallLiterals literals) {
+        List<String> strings = literals.getStrings();
+        List<Long> integers = literals.getIntegers();
+        int fixedStrings = type.isWithErrorCode() || type.isWithOnField() ? 2 : 1;
+        if (strings.size() < fixedStrings || integers.isEmpty() || integers.size() > 2) {
+            return null;
+        }
+        PaymentCheckedField field = PaymentCheckedField.getByValue(strings.get(0));
+        if (field == null) {
+            return null;
+        }
+        List<PaymentCheckedField> groupByFields = new ArrayList<>();
+        for (String groupBy : strings.subList(fixedStrings, strings.size())) {
+            PaymentCheckedField groupByField = PaymentCheckedField.getByValue(groupBy);
+            if (groupByField == null) {
+                return null;
+            }
+            groupByFields.add(groupByField);
+        }
+        AggregateCall.AggregateCallBuilder builder = AggregateCall.builder()
+                .type(type)
+                .field(field)
+                .startWindowTime(integers.get(0))
+                .endWindowTime(integers.size() > 1 ? integers.get(1) : null)
+                .groupByFields(groupByFields);
+        if (type.isWithErrorCode()) {
+            builder.errorCode(strings.get(1));
+        }
+        if (type.isWithOnField()) {
+            PaymentCheckedField onField = PaymentCheckedField.getByValue(strings.get(1));
+            if (onField == null) {
+                return null;
+            }
+            builder.onField(onField);
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Finds function calls in a parsed template by their function token and extracts their
+ * string and integer literal arguments, so callers do not depend on the concrete grammar rule classes.
+ */
+public class TemplateCallWalker {
+
+    private static final char QUOTE = '"';
+    private static final String LEFT_PAREN = "(";
+    private static final String RIGHT_PAREN = ")";
+
+    public static void walk(ParseTree tree, Set<String> functions, BiConsumer<String, CallLiterals> consumer) {
+        if (tree instanceof ParserRuleContext && tree.getChildCount() > 0 && tree.getChild(0) instanceof TerminalNode) {
+            String function = tree.getChild(0).getText();
+            if (functions.contains(function)) {
+                consumer.accept(function, collectLiterals(tree));
+                return;
+            }
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            walk(tree.getChild(i), functions, consumer);
+        }
+    }
+
+    private static CallLiterals collectLiterals(ParseTree tree) {
+        CallLiterals literals = new CallLiterals();
+        List<String> terminals = new ArrayList<>();
+        collectTerminals(tree, terminals);
+        int depth = 0;
+        for (String text : terminals) {
+            if (LEFT_PAREN.equals(text)) {
+                depth++;
+            } else if (RIGHT_PAREN.equals(text)) {
+                if (--depth == 0) {
+                    break;
+                }
+            } else if (depth > 0) {
+                if (text.length() >= 2 && text.charAt(0) == QUOTE && text.charAt(text.length() - 1) == QUOTE) {
+                    literals.getStrings().add(text.substring(1, text.length() - 1));
+                } else if (!text.isEmpty() && text.chars().allMatch(Character::isDigit)) {
+                    literals.getIntegers().add(Long.parseLong(text));
+                }
+            }
+        }
+        return literals;
+    }
+
+    private static void collectTerminals(ParseTree tree, List<String> terminals) {
+        if (tree instanceof TerminalNode) {
+            terminals.add(tree.getText());
+            return;
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collectTerminals(tree.getChild(i), terminals);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the wb-list and geo lookups of a parsed template. Results are cached per parsed template.
+ */
+@Slf4j
+public class TemplateLookupCollector {
+
+    private static final Set<String> FUNCTIONS = Arrays.stream(LookupCallType.values())
+            .map(LookupCallType::getFunction)
+            .collect(Collectors.toSet());
+
+    private final Map<ParserRuleContext, List<LookupCall>> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public List<LookupCall> collect(ParserRuleContext parseContext) {
+        return cache.computeIfAbsent(parseContext, this::walk);
+    }
+
+    private List<LookupCall> walk(ParserRuleContext parseContext) {
+        List<LookupCall> calls = new ArrayList<>();
+        TemplateCallWalker.walk(parseContext, FUNCTIONS, (function, literals) -> {
+            List<String> fields = literals.getStrings();
+            if (!fields.isEmpty() && fields.stream().map(PaymentCheckedField::getByValue).allMatch(Objects::nonNull)) {
+                calls.add(new LookupCall(LookupCallType.getByFunction(function), List.copyOf(fields)));
+            }
+        });
+        log.debug("TemplateLookupCollector collected calls: {}", calls);
+        return Collections.unmodifiableList(calls);
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.rbkmoney.fraudbusters.fraud.deadline;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Time left for one inspection and the neutral values its aggregates answer with once the time is spent.
+ * List lookups always answer "not listed".
+ */
+@Getter
+@RequiredArgsConstructor
+public class InspectionBudget {
+
+    private final long deadlineNanos;
+    private final int neutralCount;
+    private final long neutralSum;
+    private final Consumer<String> degradedListener;
+
+    private int degradedCalls;
+
+    public long remainingMillis() {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExhausted() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public boolean isDegraded() {
+        return degradedCalls > 0;
+    }
+
+    public void degrade(String function) {
+        degradedCalls++;
+        degradedListener.accept(function);
+    }
+
+}
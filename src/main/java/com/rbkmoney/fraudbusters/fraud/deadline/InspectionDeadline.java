@@ -0,0 +1,105 @@
+package com.rbkmoney.fraudbusters.fraud.deadline;
+
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.net.SocketTimeoutException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+/**
+ * Binds the {@link InspectionBudget} of the current inspection to the inspecting thread. I/O-bound rule functions
+ * run through {@link #call}: while the budget lasts the call is made, once it is spent the call is skipped, the
+ * function answers with its neutral value and the inspection is marked as degraded. A call that is cut off by the
+ * query timeout derived from the budget ({@link #queryTimeoutSeconds()}) is degraded the same way. Without a bound
+ * budget every call is made and timeouts are rethrown.
+ */
+@Slf4j
+public final class InspectionDeadline {
+
+    private static final int CLICKHOUSE_TIMEOUT_EXCEEDED = 159;
+
+    private static final ThreadLocal<InspectionBudget> CONTEXT = new ThreadLocal<>();
+
+    private InspectionDeadline() {
+    }
+
+    public static InspectionBudget start(InspectionBudget budget) {
+        InspectionBudget previous = CONTEXT.get();
+        CONTEXT.set(budget);
+        return previous;
+    }
+
+    public static void stop(InspectionBudget previous) {
+        if (previous == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(previous);
+        }
+    }
+
+    public static long remainingMillis(long limitMillis) {
+        InspectionBudget budget = CONTEXT.get();
+        return budget != null ? Math.min(limitMillis, budget.remainingMillis()) : limitMillis;
+    }
+
+    public static boolean isExhausted() {
+        InspectionBudget budget = CONTEXT.get();
+        return budget != null && budget.isExhausted();
+    }
+
+    /**
+     * Query timeout bounding a read made now by the remaining budget, 0 without a bound budget. JDBC timeouts
+     * are whole seconds, so the remaining time is rounded up.
+     */
+    public static int queryTimeoutSeconds() {
+        InspectionBudget budget = CONTEXT.get();
+        if (budget == null) {
+            return 0;
+        }
+        return (int) Math.max(1L, (budget.remainingMillis() + 999) / 1000);
+    }
+
+    public static int degradedCalls() {
+        InspectionBudget budget = CONTEXT.get();
+        return budget != null ? budget.getDegradedCalls() : 0;
+    }
+
+    public static <R> R call(String function, Function<InspectionBudget, R> neutral, Callable<R> call) throws Exception {
+        InspectionBudget budget = CONTEXT.get();
+        if (budget == null) {
+            return call.call();
+        }
+        if (!budget.isExhausted()) {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                if (!isTimeout(e)) {
+                    throw e;
+                }
+                log.warn("InspectionDeadline call timed out, degrade function: {} e: {}", function, e.getMessage());
+            }
+        } else {
+            log.debug("InspectionDeadline budget exhausted, degrade function: {}", function);
+        }
+        budget.degrade(function);
+        RuleProfileContext.recordDegradedCall();
+        return neutral.apply(budget);
+    }
+
+    static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof QueryTimeoutException
+                    || cause instanceof SQLTimeoutException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof SQLException && ((SQLException) cause).getErrorCode() == CLICKHOUSE_TIMEOUT_EXCEEDED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.rbkmoney.fraudbusters.fraud.deadline;
+
+import com.rbkmoney.fraudbusters.config.properties.InspectionDeadlineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the budget of each inspection from {@link InspectionDeadlineProperties} and counts degraded
+ * inspections and rule function calls.
+ */
+@RequiredArgsConstructor
+public class InspectionDeadlinePolicy {
+
+    public static final String DEGRADED_INSPECTIONS = "inspection.deadline.degraded";
+    public static final String DEGRADED_CALLS = "inspection.deadline.degraded.calls";
+
+    private final InspectionDeadlineProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> degradedCalls = new ConcurrentHashMap<>();
+    private final Map<String, Counter> degradedInspections = new ConcurrentHashMap<>();
+
+    public InspectionBudget newBudget() {
+        if (!properties.isEnable()) {
+            return null;
+        }
+        return new InspectionBudget(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getBudgetMillis()),
+                properties.getNeutralCount(), properties.getNeutralSum(), this::recordDegradedCall);
+    }
+
+    public void recordDegradedInspection(String pipeline) {
+        degradedInspections.computeIfAbsent(pipeline,
+                key -> meterRegistry.counter(DEGRADED_INSPECTIONS, "pipeline", key))
+                .increment();
+    }
+
+    private void recordDegradedCall(String function) {
+        degradedCalls.computeIfAbsent(function,
+                key -> meterRegistry.counter(DEGRADED_CALLS, "function", key))
+                .increment();
+    }
+
+}
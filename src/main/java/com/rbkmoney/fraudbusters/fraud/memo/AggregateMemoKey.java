@@ -0,0 +1,33 @@
+package com.rbkmoney.fraudbusters.fraud.memo;
+
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AggregateMemoKey {
+
+    public static final String PAYMENT_SOURCE = "payment";
+    public static final String REFUND_SOURCE = "refund";
+    public static final String CHARGEBACK_SOURCE = "chargeback";
+
+    public static final String COUNT = "count";
+    public static final String COUNT_SUCCESS = "countSuccess";
+    public static final String COUNT_ERROR = "countError:";
+    public static final String SUM = "sum";
+    public static final String SUM_SUCCESS = "sumSuccess";
+    public static final String SUM_ERROR = "sumError:";
+    public static final String UNIQ = "uniq:";
+
+    private String function;
+    private String source;
+    private String field;
+    private String value;
+    private Long startWindowTime;
+    private Long endWindowTime;
+    private List<FieldModel> groupByFields;
+
+}
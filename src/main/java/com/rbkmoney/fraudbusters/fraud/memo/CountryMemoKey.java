@@ -0,0 +1,12 @@
+package com.rbkmoney.fraudbusters.fraud.memo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CountryMemoKey {
+
+    private String ip;
+
+}
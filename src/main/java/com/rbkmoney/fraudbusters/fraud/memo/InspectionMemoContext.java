@@ -0,0 +1,87 @@
+package com.rbkmoney.fraudbusters.fraud.memo;
+
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Memoizes rule function results for the duration of one inspection: {@link AggregateMemoKey} for aggregates,
+ * {@link ListMemoKey} for wb-list checks and {@link CountryMemoKey} for geo resolving. The context is bound to the
+ * inspecting thread: it is opened by the inspection entry point (or by the rule applier when called outside of it)
+ * and must be cleared when the inspection ends. A call is counted in {@link RuleProfileContext} once it has been
+ * made: memo hits are not counted, and neither are calls answered with a neutral value by
+ * {@link InspectionDeadline}, which are counted as degraded instead.
+ */
+@Slf4j
+public final class InspectionMemoContext {
+
+    private static final ThreadLocal<Map<Object, Object>> CONTEXT = new ThreadLocal<>();
+
+    private InspectionMemoContext() {
+    }
+
+    public static boolean open() {
+        if (CONTEXT.get() != null) {
+            return false;
+        }
+        CONTEXT.set(new HashMap<>());
+        return true;
+    }
+
+    public static void clear() {
+        CONTEXT.remove();
+    }
+
+    public static boolean isOpen() {
+        return CONTEXT.get() != null;
+    }
+
+    public static boolean contains(Object key) {
+        Map<Object, Object> memo = CONTEXT.get();
+        return memo != null && memo.containsKey(key);
+    }
+
+    public static void put(Object key, Object value) {
+        Map<Object, Object> memo = CONTEXT.get();
+        if (memo != null) {
+            memo.put(key, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <R> R computeIfAbsent(Object key, Callable<R> callable) throws Exception {
+        Map<Object, Object> memo = CONTEXT.get();
+        if (memo == null) {
+            return callAndRecord(key, callable);
+        }
+        if (memo.containsKey(key)) {
+            log.debug("InspectionMemoContext hit key: {}", key);
+            return (R) memo.get(key);
+        }
+        R result = callAndRecord(key, callable);
+        memo.put(key, result);
+        return result;
+    }
+
+    private static <R> R callAndRecord(Object key, Callable<R> callable) throws Exception {
+        int degradedCalls = InspectionDeadline.degradedCalls();
+        R result = callable.call();
+        if (InspectionDeadline.degradedCalls() == degradedCalls) {
+            recordCall(key);
+        }
+        return result;
+    }
+
+    public static void recordCall(Object key) {
+        if (key instanceof AggregateMemoKey) {
+            RuleProfileContext.recordDbQuery();
+        } else if (key instanceof ListMemoKey) {
+            RuleProfileContext.recordListCall();
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.rbkmoney.fraudbusters.fraud.memo;
+
+import com.rbkmoney.damsel.wb_list.Row;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ListMemoKey {
+
+    private List<Row> rows;
+
+}
@@ -0,0 +1,32 @@
+package com.rbkmoney.fraudbusters.fraud.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateQuery {
+
+    public enum Type {
+        COUNT,
+        SUM,
+        UNIQ
+    }
+
+    private Type type;
+    private StatusFilter statusFilter;
+    private String fieldName;
+    private String value;
+    private String onFieldName;
+    private String errorCode;
+    private Long from;
+    private Long to;
+    private List<FieldModel> groupByFields;
+
+}
@@ -0,0 +1,12 @@
+package com.rbkmoney.fraudbusters.fraud.model;
+
+/**
+ * Result status an aggregate is taken over: every result, successful ones or declined ones.
+ */
+public enum StatusFilter {
+
+    ALL,
+    SUCCESS,
+    DECLINE
+
+}
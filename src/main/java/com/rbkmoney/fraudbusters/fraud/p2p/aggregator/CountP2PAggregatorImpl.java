@@ -4,9 +4,12 @@ import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.AggregateGroupingFunction;
 import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
 import com.rbkmoney.fraudbusters.fraud.p2p.resolver.DbP2pFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
 import com.rbkmoney.fraudbusters.repository.impl.p2p.EventP2PRepository;
 import com.rbkmoney.fraudbusters.util.TimestampUtil;
 import com.rbkmoney.fraudo.aggregator.CountAggregator;
@@ -23,6 +26,7 @@ import java.util.List;
 public class CountP2PAggregatorImpl implements CountAggregator<P2PModel, P2PCheckedField> {
 
     private static final int CURRENT_ONE = 1;
+    private static final String COUNT = "count";
     private final EventP2PRepository eventP2PRepository;
     private final DbP2pFieldResolver dbP2pFieldResolver;
 
@@ -40,10 +44,13 @@ public class CountP2PAggregatorImpl implements CountAggregator<P2PModel, P2PChec
             FieldModel resolve = dbP2pFieldResolver.resolve(checkedField, p2pModel);
             List<FieldModel> eventFields = dbP2pFieldResolver.resolveListFields(p2pModel, list);
 
-            Integer count = aggregateFunction.accept(resolve.getName(), resolve.getValue(),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
-                    eventFields);
+            Integer count = InspectionDeadline.call(COUNT, InspectionBudget::getNeutralCount, () -> {
+                RuleProfileContext.recordDbQuery();
+                return aggregateFunction.accept(resolve.getName(), resolve.getValue(),
+                        TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                        TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
+                        eventFields);
+            });
 
             log.debug("CountAggregatorImpl field: {} value: {}  count: {}", resolve.getName(), resolve.getValue(), count);
             return count + CURRENT_ONE;
@@ -3,9 +3,12 @@ package com.rbkmoney.fraudbusters.fraud.p2p.aggregator;
 import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
 import com.rbkmoney.fraudbusters.fraud.p2p.resolver.DbP2pFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
 import com.rbkmoney.fraudbusters.repository.AggregationRepository;
 import com.rbkmoney.fraudbusters.util.TimestampUtil;
 import com.rbkmoney.fraudo.aggregator.UniqueValueAggregator;
@@ -21,6 +24,7 @@ import java.util.List;
 public class P2PUniqueValueAggregatorImpl implements UniqueValueAggregator<P2PModel, P2PCheckedField> {
 
     private static final int CURRENT_ONE = 1;
+    private static final String UNIQ = "uniq";
     private final AggregationRepository eventP2PRepository;
     private final DbP2pFieldResolver dbP2pFieldResolver;
 
@@ -35,11 +39,14 @@ public class P2PUniqueValueAggregatorImpl implements UniqueValueAggregator<P2PMo
             Instant now = Instant.now();
             FieldModel resolve = dbP2pFieldResolver.resolve(countField, payoutModel);
             List<FieldModel> fieldModels = dbP2pFieldResolver.resolveListFields(payoutModel, list);
-            Integer uniqCountOperation = eventP2PRepository.uniqCountOperationWithGroupBy(resolve.getName(), resolve.getValue(),
-                    dbP2pFieldResolver.resolve(onField),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
-                    fieldModels);
+            Integer uniqCountOperation = InspectionDeadline.call(UNIQ, InspectionBudget::getNeutralCount, () -> {
+                RuleProfileContext.recordDbQuery();
+                return eventP2PRepository.uniqCountOperationWithGroupBy(resolve.getName(), resolve.getValue(),
+                        dbP2pFieldResolver.resolve(onField),
+                        TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                        TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
+                        fieldModels);
+            });
             return uniqCountOperation + CURRENT_ONE;
         } catch (Exception e) {
             log.warn("UniqueValueAggregatorImpl error when getCount e: ", e);
@@ -4,9 +4,12 @@ import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.AggregateGroupingFunction;
 import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
 import com.rbkmoney.fraudbusters.fraud.p2p.resolver.DbP2pFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
 import com.rbkmoney.fraudbusters.repository.AggregationRepository;
 import com.rbkmoney.fraudbusters.util.TimestampUtil;
 import com.rbkmoney.fraudo.aggregator.SumAggregator;
@@ -22,6 +25,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SumP2PAggregatorImpl implements SumAggregator<P2PModel, P2PCheckedField> {
 
+    private static final String SUM = "sum";
+
     private final AggregationRepository eventP2PRepository;
     private final DbP2pFieldResolver dbPaymentFieldResolver;
 
@@ -38,10 +43,13 @@ public class SumP2PAggregatorImpl implements SumAggregator<P2PModel, P2PCheckedF
             Instant now = Instant.now();
             FieldModel resolve = dbPaymentFieldResolver.resolve(checkedField, p2pModel);
             List<FieldModel> eventFields = dbPaymentFieldResolver.resolveListFields(p2pModel, list);
-            Long sum = aggregateFunction.accept(resolve.getName(), resolve.getValue(),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
-                    eventFields);
+            Long sum = InspectionDeadline.call(SUM, InspectionBudget::getNeutralSum, () -> {
+                RuleProfileContext.recordDbQuery();
+                return aggregateFunction.accept(resolve.getName(), resolve.getValue(),
+                        TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                        TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
+                        eventFields);
+            });
             double resultSum = (double) checkedLong(sum) + checkedLong(p2pModel.getAmount());
             log.debug("SumAggregatorImpl field: {} value: {}  sum: {}", resolve.getName(), resolve.getValue(), resultSum);
             return resultSum;
@@ -4,97 +4,157 @@ import com.rbkmoney.damsel.wb_list.*;
 import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
 import com.rbkmoney.fraudbusters.fraud.p2p.resolver.DbP2pFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import com.rbkmoney.fraudbusters.fraud.wblist.GreyListHit;
+import com.rbkmoney.fraudbusters.fraud.wblist.RowInfoCache;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
 import com.rbkmoney.fraudbusters.repository.impl.p2p.EventP2PRepository;
-import com.rbkmoney.fraudbusters.util.TimestampUtil;
 import com.rbkmoney.fraudo.finder.InListFinder;
 import com.rbkmoney.fraudo.model.Pair;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.util.StringUtils;
 
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
-@RequiredArgsConstructor
 public class P2pInListFinderImpl implements InListFinder<P2PModel, P2PCheckedField> {
 
+    private static final String IN_BLACK_LIST = "inBlackList";
+    private static final String IN_WHITE_LIST = "inWhiteList";
+    private static final String IN_GREY_LIST = "inGreyList";
+    private static final String IN_LIST = "inList";
+
     private final WbListServiceSrv.Iface wbListServiceSrv;
     private final DbP2pFieldResolver dbP2pFieldResolver;
     private final EventP2PRepository eventP2PRepository;
+    private final WbListIndex wbListIndex;
+    private final RowInfoCache rowInfoCache;
+    private final Timer batchCountTimer;
+    private final Timer singleCountTimer;
 
-    private static final int CURRENT_ONE = 1;
+    public P2pInListFinderImpl(WbListServiceSrv.Iface wbListServiceSrv, DbP2pFieldResolver dbP2pFieldResolver,
+                               EventP2PRepository eventP2PRepository, WbListIndex wbListIndex, RowInfoCache rowInfoCache,
+                               MeterRegistry meterRegistry) {
+        this.wbListServiceSrv = wbListServiceSrv;
+        this.dbP2pFieldResolver = dbP2pFieldResolver;
+        this.eventP2PRepository = eventP2PRepository;
+        this.wbListIndex = wbListIndex;
+        this.rowInfoCache = rowInfoCache;
+        this.batchCountTimer = meterRegistry.timer(RowInfoCache.COUNT_TIMER, "mode", "batch", "type", "p2p");
+        this.singleCountTimer = meterRegistry.timer(RowInfoCache.COUNT_TIMER, "mode", "single", "type", "p2p");
+    }
 
     @Override
     @BasicMetric(value = "findInBlackList", extraTags = "p2p")
     public Boolean findInBlackList(List<Pair<P2PCheckedField, String>> fields, P2PModel model) {
-        return checkInList(fields, model, ListType.black);
+        return checkInList(fields, model, ListType.black, IN_BLACK_LIST);
     }
 
     @Override
     @BasicMetric(value = "findInWhiteList", extraTags = "p2p")
     public Boolean findInWhiteList(List<Pair<P2PCheckedField, String>> fields, P2PModel model) {
-        return checkInList(fields, model, ListType.white);
+        return checkInList(fields, model, ListType.white, IN_WHITE_LIST);
     }
 
     @Override
     @BasicMetric(value = "findInGreyList", extraTags = "p2p")
     public Boolean findInGreyList(List<Pair<P2PCheckedField, String>> fields, P2PModel model) {
         try {
-            return fields.stream()
-                    .anyMatch(entry ->
-                            !StringUtils.isEmpty(entry.getSecond())
-                                    && findInList(model.getIdentityId(), entry.getFirst(), entry.getSecond()));
+            return InspectionDeadline.call(IN_GREY_LIST, budget -> false, () -> checkInGreyList(fields, model));
         } catch (Exception e) {
             log.warn("InListFinderImpl error when findInList e: ", e);
             throw new RuleFunctionException(e);
         }
     }
 
-    public Boolean findInList(String identityId, P2PCheckedField field, String value) {
-        try {
-            if (!StringUtils.isEmpty(value)) {
-                Row row = createRow(ListType.grey, identityId, field, value);
-                Result result = wbListServiceSrv.getRowInfo(row);
-                if (result.getRowInfo() != null && result.getRowInfo().isSetCountInfo()) {
-                    RowInfo rowInfo = result.getRowInfo();
-                    String startCountTime = rowInfo.getCountInfo().getStartCountTime();
-                    String ttl = rowInfo.getCountInfo().getTimeToLive();
-                    String resolveField = dbP2pFieldResolver.resolve(field);
-                    Long to = TimestampUtil.generateTimestampWithParse(ttl);
-                    Long from = TimestampUtil.generateTimestampWithParse(startCountTime);
-                    if (Instant.now().getEpochSecond() > to || from >= to) {
-                        return false;
-                    }
-                    int currentCount = eventP2PRepository.countOperationByField(resolveField, value, from, to);
-                    return currentCount + CURRENT_ONE <= rowInfo.getCountInfo().getCount();
+    private Boolean checkInGreyList(List<Pair<P2PCheckedField, String>> fields, P2PModel model) throws Exception {
+        List<GreyListHit> hits = new ArrayList<>();
+        for (Pair<P2PCheckedField, String> entry : fields) {
+            if (entry.getFirst() != null && !StringUtils.isEmpty(entry.getSecond())) {
+                Row row = createRow(ListType.grey, model.getIdentityId(), entry.getFirst(), entry.getSecond());
+                CountInfo countInfo = rowInfoCache.getCountInfo(row);
+                GreyListHit hit = countInfo != null
+                        ? GreyListHit.of(dbP2pFieldResolver.resolve(entry.getFirst()), entry.getSecond(), countInfo)
+                        : null;
+                if (hit != null) {
+                    hits.add(hit);
                 }
             }
+        }
+        if (hits.isEmpty()) {
             return false;
-        } catch (Exception e) {
-            log.warn("InListFinderImpl error when findInList e: ", e);
-            throw new RuleFunctionException(e);
         }
+        List<Integer> counts = countHits(hits);
+        for (int i = 0; i < hits.size(); i++) {
+            if (hits.get(i).isAllowed(counts.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Integer> countHits(List<GreyListHit> hits) {
+        long start = System.nanoTime();
+        List<Integer> counts = new ArrayList<>(hits.size());
+        if (hits.size() > 1) {
+            List<AggregateQuery> queries = new ArrayList<>(hits.size());
+            for (GreyListHit hit : hits) {
+                queries.add(AggregateQuery.builder()
+                        .type(AggregateQuery.Type.COUNT)
+                        .statusFilter(StatusFilter.ALL)
+                        .fieldName(hit.getFieldName())
+                        .value(hit.getValue())
+                        .from(hit.getFrom())
+                        .to(hit.getTo())
+                        .build());
+            }
+            RuleProfileContext.recordDbQuery();
+            for (Number count : eventP2PRepository.aggregateBatch(queries)) {
+                counts.add(count != null ? count.intValue() : 0);
+            }
+            batchCountTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } else {
+            GreyListHit hit = hits.get(0);
+            RuleProfileContext.recordDbQuery();
+            counts.add(eventP2PRepository.countOperationByField(hit.getFieldName(), hit.getValue(), hit.getFrom(), hit.getTo()));
+            singleCountTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return counts;
     }
 
     @Override
     @BasicMetric("findInNamingList")
     public Boolean findInList(String name, List<Pair<P2PCheckedField, String>> fields, P2PModel model) {
-        return checkInList(fields, model, ListType.naming);
+        return checkInList(fields, model, ListType.naming, IN_LIST);
     }
 
     @NotNull
-    private Boolean checkInList(List<Pair<P2PCheckedField, String>> fields, P2PModel model, ListType white) {
+    private Boolean checkInList(List<Pair<P2PCheckedField, String>> fields, P2PModel model, ListType white, String function) {
         try {
             String identityId = model.getIdentityId();
             List<Row> rows = fields.stream()
                     .map(entry -> createRow(white, identityId, entry.getFirst(), entry.getSecond()))
                     .collect(Collectors.toList());
-            return wbListServiceSrv.isAnyExist(rows);
+            Optional<Boolean> local = wbListIndex != null ? wbListIndex.isAnyExist(rows) : Optional.empty();
+            if (local.isPresent()) {
+                return local.get();
+            }
+            return InspectionDeadline.call(function, budget -> false, () -> {
+                RuleProfileContext.recordListCall();
+                return wbListServiceSrv.isAnyExist(rows);
+            });
         } catch (Exception e) {
             log.warn("InListFinderImpl error when findInList e: ", e);
             throw new RuleFunctionException(e);
@@ -3,16 +3,18 @@ package com.rbkmoney.fraudbusters.fraud.p2p.resolver;
 import com.rbkmoney.fraudbusters.constant.ClickhouseUtilsValue;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.constant.P2PCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
 import com.rbkmoney.fraudbusters.fraud.payment.CountryByIpResolver;
 import com.rbkmoney.fraudo.resolver.CountryResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.thrift.TException;
 
 @Slf4j
 @RequiredArgsConstructor
 public class CountryP2PResolverImpl implements CountryResolver<P2PCheckedField> {
 
+    private static final String COUNTRY_BY = "countryBy";
+
     private final CountryByIpResolver countryByIpResolver;
 
     @Override
@@ -20,7 +22,7 @@ public class CountryP2PResolverImpl implements CountryResolver<P2PCheckedField>
         try {
             String location = null;
             if (P2PCheckedField.IP == checkedField) {
-                location = countryByIpResolver.resolveCountry(fieldValue);
+                location = InspectionDeadline.call(COUNTRY_BY, budget -> null, () -> countryByIpResolver.resolveCountry(fieldValue));
             } else if (P2PCheckedField.COUNTRY_BANK == checkedField) {
                 location = fieldValue;
             }
@@ -29,7 +31,7 @@ public class CountryP2PResolverImpl implements CountryResolver<P2PCheckedField>
             }
             log.debug("CountryResolverImpl resolve ip: {} country_id: {}", fieldValue, location);
             return location;
-        } catch (TException e) {
+        } catch (Exception e) {
             log.warn("CountryResolverImpl error when resolveCountry e: ", e);
             throw new RuleFunctionException(e);
         }
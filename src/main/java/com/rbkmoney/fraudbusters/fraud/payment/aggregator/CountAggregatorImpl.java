@@ -4,6 +4,10 @@ import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.AggregateGroupingFunction;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
@@ -35,13 +39,15 @@ public class CountAggregatorImpl implements CountPaymentAggregator<PaymentModel,
     @Override
     @BasicMetric("count")
     public Integer count(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getCount(checkedField, paymentModel, timeWindow, list, paymentRepository::countOperationByFieldWithGroupBy);
+        return getCount(AggregateMemoKey.COUNT, AggregateMemoKey.PAYMENT_SOURCE, checkedField, paymentModel, timeWindow, list,
+                paymentRepository::countOperationByFieldWithGroupBy);
     }
 
     @Override
     @BasicMetric("countSuccess")
     public Integer countSuccess(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getCount(checkedField, paymentModel, timeWindow, list, paymentRepository::countOperationSuccessWithGroupBy);
+        return getCount(AggregateMemoKey.COUNT_SUCCESS, AggregateMemoKey.PAYMENT_SOURCE, checkedField, paymentModel, timeWindow, list,
+                paymentRepository::countOperationSuccessWithGroupBy);
     }
 
     @Override
@@ -55,10 +61,14 @@ public class CountAggregatorImpl implements CountPaymentAggregator<PaymentModel,
             if (StringUtils.isEmpty(resolve.getValue())) {
                 return CURRENT_ONE;
             }
-            Integer count = paymentRepository.countOperationErrorWithGroupBy(resolve.getName(), resolve.getValue(),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
-                    eventFields, errorCode);
+            AggregateMemoKey memoKey = new AggregateMemoKey(AggregateMemoKey.COUNT_ERROR + errorCode, AggregateMemoKey.PAYMENT_SOURCE,
+                    resolve.getName(), resolve.getValue(), timeWindow.getStartWindowTime(), timeWindow.getEndWindowTime(), eventFields);
+            Integer count = InspectionMemoContext.computeIfAbsent(memoKey, () ->
+                    InspectionDeadline.call("countError", InspectionBudget::getNeutralCount, () ->
+                            paymentRepository.countOperationErrorWithGroupBy(resolve.getName(), resolve.getValue(),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()),
+                                    eventFields, errorCode)));
 
             log.debug("CountAggregatorImpl field: {} value: {}  countError: {}", resolve.getName(), resolve.getValue(), count);
             return count + CURRENT_ONE;
@@ -71,24 +81,29 @@ public class CountAggregatorImpl implements CountPaymentAggregator<PaymentModel,
     @Override
     @BasicMetric("countChargeback")
     public Integer countChargeback(PaymentCheckedField paymentCheckedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getCount(paymentCheckedField, paymentModel, timeWindow, list, chargebackRepository::countOperationByFieldWithGroupBy, false);
+        return getCount(AggregateMemoKey.COUNT, AggregateMemoKey.CHARGEBACK_SOURCE, paymentCheckedField, paymentModel, timeWindow, list,
+                chargebackRepository::countOperationByFieldWithGroupBy, false);
     }
 
     @Override
     @BasicMetric("countRefund")
     public Integer countRefund(PaymentCheckedField paymentCheckedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getCount(paymentCheckedField, paymentModel, timeWindow, list, refundRepository::countOperationByFieldWithGroupBy, false);
+        return getCount(AggregateMemoKey.COUNT, AggregateMemoKey.REFUND_SOURCE, paymentCheckedField, paymentModel, timeWindow, list,
+                refundRepository::countOperationByFieldWithGroupBy, false);
     }
 
     @NotNull
-    private Integer getCount(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list,
+    private Integer getCount(String function, String source, PaymentCheckedField checkedField, PaymentModel paymentModel,
+                             TimeWindow timeWindow, List<PaymentCheckedField> list,
                              AggregateGroupingFunction<String, String, Long, Long, List<FieldModel>, Integer> aggregateFunction) {
-        return getCount(checkedField, paymentModel, timeWindow, list, aggregateFunction, true);
+        return getCount(function, source, checkedField, paymentModel, timeWindow, list, aggregateFunction, true);
     }
 
     @NotNull
-    private Integer getCount(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list,
-                             AggregateGroupingFunction<String, String, Long, Long, List<FieldModel>, Integer> aggregateFunction, boolean withCurrent) {
+    private Integer getCount(String function, String source, PaymentCheckedField checkedField, PaymentModel paymentModel,
+                             TimeWindow timeWindow, List<PaymentCheckedField> list,
+                             AggregateGroupingFunction<String, String, Long, Long, List<FieldModel>, Integer> aggregateFunction,
+                             boolean withCurrent) {
         try {
             Instant now = Instant.now();
             FieldModel resolve = dbPaymentFieldResolver.resolve(checkedField, paymentModel);
@@ -98,9 +113,13 @@ public class CountAggregatorImpl implements CountPaymentAggregator<PaymentModel,
                 return withCurrent ? CURRENT_ONE : 0;
             }
 
-            Integer count = aggregateFunction.accept(resolve.getName(), resolve.getValue(),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), eventFields);
+            AggregateMemoKey memoKey = new AggregateMemoKey(function, source, resolve.getName(), resolve.getValue(),
+                    timeWindow.getStartWindowTime(), timeWindow.getEndWindowTime(), eventFields);
+            Integer count = InspectionMemoContext.computeIfAbsent(memoKey, () ->
+                    InspectionDeadline.call(function, InspectionBudget::getNeutralCount, () ->
+                            aggregateFunction.accept(resolve.getName(), resolve.getValue(),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), eventFields)));
 
             log.debug("CountAggregatorImpl field: {} value: {}  count: {}", resolve.getName(), resolve.getValue(), count);
             return withCurrent ? count + CURRENT_ONE : count;
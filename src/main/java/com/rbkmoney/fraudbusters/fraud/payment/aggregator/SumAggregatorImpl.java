@@ -4,6 +4,10 @@ import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.AggregateGroupingFunction;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
@@ -32,12 +36,14 @@ public class SumAggregatorImpl implements SumPaymentAggregator<PaymentModel, Pay
 
     @Override
     public Double sum(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getSum(checkedField, paymentModel, timeWindow, list, paymentRepository::sumOperationByFieldWithGroupBy);
+        return getSum(AggregateMemoKey.SUM, AggregateMemoKey.PAYMENT_SOURCE, checkedField, paymentModel, timeWindow, list,
+                paymentRepository::sumOperationByFieldWithGroupBy);
     }
 
     @Override
     public Double sumSuccess(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getSum(checkedField, paymentModel, timeWindow, list, paymentRepository::sumOperationSuccessWithGroupBy);
+        return getSum(AggregateMemoKey.SUM_SUCCESS, AggregateMemoKey.PAYMENT_SOURCE, checkedField, paymentModel, timeWindow, list,
+                paymentRepository::sumOperationSuccessWithGroupBy);
     }
 
     @Override
@@ -50,9 +56,13 @@ public class SumAggregatorImpl implements SumPaymentAggregator<PaymentModel, Pay
                 return Double.valueOf(checkedLong(paymentModel.getAmount()));
             }
             List<FieldModel> eventFields = dbPaymentFieldResolver.resolveListFields(paymentModel, list);
-            Long sum = paymentRepository.sumOperationErrorWithGroupBy(resolve.getName(), resolve.getValue(),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), eventFields, errorCode);
+            AggregateMemoKey memoKey = new AggregateMemoKey(AggregateMemoKey.SUM_ERROR + errorCode, AggregateMemoKey.PAYMENT_SOURCE,
+                    resolve.getName(), resolve.getValue(), timeWindow.getStartWindowTime(), timeWindow.getEndWindowTime(), eventFields);
+            Long sum = InspectionMemoContext.computeIfAbsent(memoKey, () ->
+                    InspectionDeadline.call("sumError", InspectionBudget::getNeutralSum, () ->
+                            paymentRepository.sumOperationErrorWithGroupBy(resolve.getName(), resolve.getValue(),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), eventFields, errorCode)));
             double resultSum = (double) checkedLong(sum) + checkedLong(paymentModel.getAmount());
             log.debug("SumAggregatorImpl field: {} value: {}  sumError: {}", resolve.getName(), resolve.getValue(), resultSum);
             return resultSum;
@@ -64,24 +74,29 @@ public class SumAggregatorImpl implements SumPaymentAggregator<PaymentModel, Pay
 
     @Override
     public Double sumChargeback(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getSum(checkedField, paymentModel, timeWindow, list, chargebackRepository::sumOperationByFieldWithGroupBy, false);
+        return getSum(AggregateMemoKey.SUM, AggregateMemoKey.CHARGEBACK_SOURCE, checkedField, paymentModel, timeWindow, list,
+                chargebackRepository::sumOperationByFieldWithGroupBy, false);
     }
 
     @Override
     public Double sumRefund(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list) {
-        return getSum(checkedField, paymentModel, timeWindow, list, refundRepository::sumOperationByFieldWithGroupBy, false);
+        return getSum(AggregateMemoKey.SUM, AggregateMemoKey.REFUND_SOURCE, checkedField, paymentModel, timeWindow, list,
+                refundRepository::sumOperationByFieldWithGroupBy, false);
     }
 
     @NotNull
-    private Double getSum(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list,
+    private Double getSum(String function, String source, PaymentCheckedField checkedField, PaymentModel paymentModel,
+                          TimeWindow timeWindow, List<PaymentCheckedField> list,
                           AggregateGroupingFunction<String, String, Long, Long, List<FieldModel>, Long> aggregateFunction) {
-        return getSum(checkedField, paymentModel, timeWindow, list, aggregateFunction, true);
+        return getSum(function, source, checkedField, paymentModel, timeWindow, list, aggregateFunction, true);
     }
 
     @NotNull
     @BasicMetric("getSumWindowed")
-    private Double getSum(PaymentCheckedField checkedField, PaymentModel paymentModel, TimeWindow timeWindow, List<PaymentCheckedField> list,
-                          AggregateGroupingFunction<String, String, Long, Long, List<FieldModel>, Long> aggregateFunction, boolean withCurrent) {
+    private Double getSum(String function, String source, PaymentCheckedField checkedField, PaymentModel paymentModel,
+                          TimeWindow timeWindow, List<PaymentCheckedField> list,
+                          AggregateGroupingFunction<String, String, Long, Long, List<FieldModel>, Long> aggregateFunction,
+                          boolean withCurrent) {
         try {
             Instant now = Instant.now();
             FieldModel resolve = dbPaymentFieldResolver.resolve(checkedField, paymentModel);
@@ -89,9 +104,13 @@ public class SumAggregatorImpl implements SumPaymentAggregator<PaymentModel, Pay
                 return Double.valueOf(checkedLong(paymentModel.getAmount()));
             }
             List<FieldModel> eventFields = dbPaymentFieldResolver.resolveListFields(paymentModel, list);
-            Long sum = aggregateFunction.accept(resolve.getName(), resolve.getValue(),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), eventFields);
+            AggregateMemoKey memoKey = new AggregateMemoKey(function, source, resolve.getName(), resolve.getValue(),
+                    timeWindow.getStartWindowTime(), timeWindow.getEndWindowTime(), eventFields);
+            Long sum = InspectionMemoContext.computeIfAbsent(memoKey, () ->
+                    InspectionDeadline.call(function, InspectionBudget::getNeutralSum, () ->
+                            aggregateFunction.accept(resolve.getName(), resolve.getValue(),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), eventFields)));
             double resultSum = withCurrent ? (double) checkedLong(sum) + checkedLong(paymentModel.getAmount()) : checkedLong(sum);
             log.debug("SumAggregatorImpl field: {} value: {}  sum: {}", resolve.getName(), resolve.getValue(), resultSum);
             return resultSum;
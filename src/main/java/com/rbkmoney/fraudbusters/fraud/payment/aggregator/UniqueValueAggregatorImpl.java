@@ -3,6 +3,10 @@ package com.rbkmoney.fraudbusters.fraud.payment.aggregator;
 import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
@@ -40,10 +44,14 @@ public class UniqueValueAggregatorImpl implements UniqueValueAggregator<PaymentM
                 return CURRENT_ONE;
             }
             List<FieldModel> fieldModels = dbPaymentFieldResolver.resolveListFields(payoutModel, list);
-            Integer uniqCountOperation = paymentRepository.uniqCountOperationWithGroupBy(resolve.getName(), resolve.getValue(),
-                    dbPaymentFieldResolver.resolve(onField),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
-                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), fieldModels);
+            String onFieldName = dbPaymentFieldResolver.resolve(onField);
+            AggregateMemoKey memoKey = new AggregateMemoKey(AggregateMemoKey.UNIQ + onFieldName, AggregateMemoKey.PAYMENT_SOURCE,
+                    resolve.getName(), resolve.getValue(), timeWindow.getStartWindowTime(), timeWindow.getEndWindowTime(), fieldModels);
+            Integer uniqCountOperation = InspectionMemoContext.computeIfAbsent(memoKey, () ->
+                    InspectionDeadline.call("uniq", InspectionBudget::getNeutralCount, () ->
+                            paymentRepository.uniqCountOperationWithGroupBy(resolve.getName(), resolve.getValue(), onFieldName,
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getStartWindowTime()),
+                                    TimestampUtil.generateTimestampMinusMinutesMillis(now, timeWindow.getEndWindowTime()), fieldModels)));
             return uniqCountOperation + CURRENT_ONE;
         } catch (Exception e) {
             log.warn("UniqueValueAggregatorImpl error when getCount e: ", e);
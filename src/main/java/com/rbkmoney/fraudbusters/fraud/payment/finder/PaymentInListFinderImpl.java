@@ -4,107 +4,159 @@ import com.rbkmoney.damsel.wb_list.*;
 import com.rbkmoney.fraudbusters.aspect.BasicMetric;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.memo.ListMemoKey;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import com.rbkmoney.fraudbusters.fraud.wblist.GreyListHit;
+import com.rbkmoney.fraudbusters.fraud.wblist.RowInfoCache;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
 import com.rbkmoney.fraudbusters.repository.AggregationRepository;
 import com.rbkmoney.fraudbusters.repository.PaymentRepository;
-import com.rbkmoney.fraudbusters.util.TimestampUtil;
 import com.rbkmoney.fraudo.finder.InListFinder;
 import com.rbkmoney.fraudo.model.Pair;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
-@RequiredArgsConstructor
 public class PaymentInListFinderImpl implements InListFinder<PaymentModel, PaymentCheckedField> {
 
+    private static final String IN_BLACK_LIST = "inBlackList";
+    private static final String IN_WHITE_LIST = "inWhiteList";
+    private static final String IN_GREY_LIST = "inGreyList";
+    private static final String IN_LIST = "inList";
+
     private final WbListServiceSrv.Iface wbListServiceSrv;
     private final DBPaymentFieldResolver dbPaymentFieldResolver;
     private final PaymentRepository paymentRepository;
+    private final WbListIndex wbListIndex;
+    private final RowInfoCache rowInfoCache;
+    private final Timer batchCountTimer;
+    private final Timer singleCountTimer;
 
-    private static final int CURRENT_ONE = 1;
+    public PaymentInListFinderImpl(WbListServiceSrv.Iface wbListServiceSrv, DBPaymentFieldResolver dbPaymentFieldResolver,
+                                   PaymentRepository paymentRepository, WbListIndex wbListIndex, RowInfoCache rowInfoCache,
+                                   MeterRegistry meterRegistry) {
+        this.wbListServiceSrv = wbListServiceSrv;
+        this.dbPaymentFieldResolver = dbPaymentFieldResolver;
+        this.paymentRepository = paymentRepository;
+        this.wbListIndex = wbListIndex;
+        this.rowInfoCache = rowInfoCache;
+        this.batchCountTimer = meterRegistry.timer(RowInfoCache.COUNT_TIMER, "mode", "batch", "type", "payment");
+        this.singleCountTimer = meterRegistry.timer(RowInfoCache.COUNT_TIMER, "mode", "single", "type", "payment");
+    }
 
     @Override
     @BasicMetric("findInBlackList")
     public Boolean findInBlackList(List<Pair<PaymentCheckedField, String>> fields, PaymentModel model) {
-        return checkInList(fields, model, ListType.black);
+        return checkInList(fields, model, ListType.black, IN_BLACK_LIST);
     }
 
     @Override
     @BasicMetric("findInWhiteList")
     public Boolean findInWhiteList(List<Pair<PaymentCheckedField, String>> fields, PaymentModel model) {
-        return checkInList(fields, model, ListType.white);
+        return checkInList(fields, model, ListType.white, IN_WHITE_LIST);
     }
 
     @Override
     @BasicMetric("findInGreyList")
     public Boolean findInGreyList(List<Pair<PaymentCheckedField, String>> fields, PaymentModel model) {
         try {
-            return fields.stream()
-                    .anyMatch(entry ->
-                            !StringUtils.isEmpty(entry.getSecond())
-                                    && findInList(model.getPartyId(), model.getShopId(), entry.getFirst(), entry.getSecond()));
+            return InspectionDeadline.call(IN_GREY_LIST, budget -> false, () -> checkInGreyList(fields, model));
         } catch (Exception e) {
             log.warn("InListFinderImpl error when findInList e: ", e);
             throw new RuleFunctionException(e);
         }
     }
 
-    public Boolean findInList(String partyId, String shopId, PaymentCheckedField field, String value) {
-        try {
-            if (!StringUtils.isEmpty(value)) {
-                Row row = createRow(ListType.grey, partyId, shopId, field, value);
-                Result result = wbListServiceSrv.getRowInfo(row);
-                if (result.getRowInfo() != null && result.getRowInfo().isSetCountInfo()) {
-                    String resolveField = dbPaymentFieldResolver.resolve(field);
-                    return сountLessThanWbList(value, result, resolveField);
+    private Boolean checkInGreyList(List<Pair<PaymentCheckedField, String>> fields, PaymentModel model) throws Exception {
+        List<GreyListHit> hits = new ArrayList<>();
+        for (Pair<PaymentCheckedField, String> entry : fields) {
+            if (entry.getFirst() != null && !StringUtils.isEmpty(entry.getSecond())) {
+                Row row = PaymentRowFactory.createRow(ListType.grey, model.getPartyId(), model.getShopId(),
+                        entry.getFirst(), entry.getSecond());
+                CountInfo countInfo = rowInfoCache.getCountInfo(row);
+                GreyListHit hit = countInfo != null
+                        ? GreyListHit.of(dbPaymentFieldResolver.resolve(entry.getFirst()), entry.getSecond(), countInfo)
+                        : null;
+                if (hit != null) {
+                    hits.add(hit);
                 }
             }
+        }
+        if (hits.isEmpty()) {
             return false;
-        } catch (Exception e) {
-            log.warn("InListFinderImpl error when findInList e: ", e);
-            throw new RuleFunctionException(e);
         }
+        List<Integer> counts = countHits(hits);
+        for (int i = 0; i < hits.size(); i++) {
+            if (hits.get(i).isAllowed(counts.get(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    @NotNull
-    private Boolean сountLessThanWbList(String value, Result result, String resolveField) {
-        RowInfo rowInfo = result.getRowInfo();
-        String startCountTime = rowInfo.getCountInfo().getStartCountTime();
-        String ttl = rowInfo.getCountInfo().getTimeToLive();
-        Long to = TimestampUtil.generateTimestampWithParse(ttl);
-        Long from = TimestampUtil.generateTimestampWithParse(startCountTime);
-        if (Instant.now().getEpochSecond() > to || from >= to) {
-            return false;
+    private List<Integer> countHits(List<GreyListHit> hits) {
+        long start = System.nanoTime();
+        List<Integer> counts = new ArrayList<>(hits.size());
+        if (hits.size() > 1 && paymentRepository instanceof AggregationBatchRepository) {
+            List<AggregateQuery> queries = new ArrayList<>(hits.size());
+            for (GreyListHit hit : hits) {
+                queries.add(AggregateQuery.builder()
+                        .type(AggregateQuery.Type.COUNT)
+                        .statusFilter(StatusFilter.ALL)
+                        .fieldName(hit.getFieldName())
+                        .value(hit.getValue())
+                        .from(hit.getFrom())
+                        .to(hit.getTo())
+                        .build());
+            }
+            RuleProfileContext.recordDbQuery();
+            for (Number count : ((AggregationBatchRepository) paymentRepository).aggregateBatch(queries)) {
+                counts.add(count != null ? count.intValue() : 0);
+            }
+            batchCountTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } else {
+            for (GreyListHit hit : hits) {
+                RuleProfileContext.recordDbQuery();
+                counts.add(paymentRepository.countOperationByField(hit.getFieldName(), hit.getValue(), hit.getFrom(), hit.getTo()));
+            }
+            singleCountTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
-        int currentCount = paymentRepository.countOperationByField(resolveField, value, from, to);
-        return currentCount + CURRENT_ONE <= rowInfo.getCountInfo().getCount();
+        return counts;
     }
 
     @Override
     @BasicMetric("findInNamingList")
     public Boolean findInList(String name, List<Pair<PaymentCheckedField, String>> fields, PaymentModel model) {
-        return checkInList(fields, model, ListType.naming);
+        return checkInList(fields, model, ListType.naming, IN_LIST);
     }
 
     @NotNull
-    private Boolean checkInList(List<Pair<PaymentCheckedField, String>> fields, PaymentModel model, ListType white) {
+    private Boolean checkInList(List<Pair<PaymentCheckedField, String>> fields, PaymentModel model, ListType white, String function) {
         try {
-            String partyId = model.getPartyId();
-            String shopId = model.getShopId();
-            List<Row> rows = fields.stream()
-                    .filter(entry -> entry.getFirst() != null && !StringUtils.isEmpty(entry.getSecond()))
-                    .map(entry -> createRow(white, partyId, shopId, entry.getFirst(), entry.getSecond()))
-                    .collect(Collectors.toList());
+            List<Row> rows = PaymentRowFactory.createRows(white, model, fields);
             if (!CollectionUtils.isEmpty(rows)) {
-                return wbListServiceSrv.isAnyExist(rows);
+                Optional<Boolean> local = wbListIndex != null ? wbListIndex.isAnyExist(rows) : Optional.empty();
+                if (local.isPresent()) {
+                    return local.get();
+                }
+                return InspectionMemoContext.computeIfAbsent(new ListMemoKey(rows), () ->
+                        InspectionDeadline.call(function, budget -> false, () -> wbListServiceSrv.isAnyExist(rows)));
             }
             return false;
         } catch (Exception e) {
@@ -112,14 +164,4 @@ public class PaymentInListFinderImpl implements InListFinder<PaymentModel, Payme
             throw new RuleFunctionException(e);
         }
     }
-
-    private Row createRow(ListType listType, String partyId, String shopId, PaymentCheckedField field, String value) {
-        return new Row()
-                .setId(IdInfo.payment_id(new PaymentId()
-                        .setPartyId(partyId)
-                        .setShopId(shopId)))
-                .setListType(listType)
-                .setListName(field.name())
-                .setValue(value);
-    }
 }
@@ -0,0 +1,36 @@
+package com.rbkmoney.fraudbusters.fraud.payment.finder;
+
+import com.rbkmoney.damsel.wb_list.IdInfo;
+import com.rbkmoney.damsel.wb_list.ListType;
+import com.rbkmoney.damsel.wb_list.PaymentId;
+import com.rbkmoney.damsel.wb_list.Row;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudo.model.Pair;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PaymentRowFactory {
+
+    public static List<Row> createRows(ListType listType, PaymentModel model, List<Pair<PaymentCheckedField, String>> fields) {
+        String partyId = model.getPartyId();
+        String shopId = model.getShopId();
+        return fields.stream()
+                .filter(entry -> entry.getFirst() != null && !StringUtils.isEmpty(entry.getSecond()))
+                .map(entry -> createRow(listType, partyId, shopId, entry.getFirst(), entry.getSecond()))
+                .collect(Collectors.toList());
+    }
+
+    public static Row createRow(ListType listType, String partyId, String shopId, PaymentCheckedField field, String value) {
+        return new Row()
+                .setId(IdInfo.payment_id(new PaymentId()
+                        .setPartyId(partyId)
+                        .setShopId(shopId)))
+                .setListType(listType)
+                .setListName(field.name())
+                .setValue(value);
+    }
+
+}
@@ -3,16 +3,19 @@ package com.rbkmoney.fraudbusters.fraud.payment.resolver;
 import com.rbkmoney.fraudbusters.constant.ClickhouseUtilsValue;
 import com.rbkmoney.fraudbusters.exception.RuleFunctionException;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.CountryMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
 import com.rbkmoney.fraudbusters.fraud.payment.CountryByIpResolver;
 import com.rbkmoney.fraudo.resolver.CountryResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.thrift.TException;
 
 @Slf4j
 @RequiredArgsConstructor
 public class CountryResolverImpl implements CountryResolver<PaymentCheckedField> {
 
+    private static final String COUNTRY_BY = "countryBy";
 
     private final CountryByIpResolver countryByIpResolver;
 
@@ -21,7 +24,8 @@ public class CountryResolverImpl implements CountryResolver<PaymentCheckedField>
         try {
             String location = null;
             if (PaymentCheckedField.IP.equals(checkedField)) {
-                location = countryByIpResolver.resolveCountry(fieldValue);
+                location = InspectionMemoContext.computeIfAbsent(new CountryMemoKey(fieldValue),
+                        () -> InspectionDeadline.call(COUNTRY_BY, budget -> null, () -> countryByIpResolver.resolveCountry(fieldValue)));
             } else if (PaymentCheckedField.COUNTRY_BANK.equals(checkedField)) {
                 location = fieldValue;
             }
@@ -30,7 +34,7 @@ public class CountryResolverImpl implements CountryResolver<PaymentCheckedField>
             }
             log.debug("CountryResolverImpl resolve ip: {} country_id: {}", fieldValue, location);
             return location;
-        } catch (TException e) {
+        } catch (Exception e) {
             log.warn("CountryResolverImpl error when resolveCountry e: ", e);
             throw new RuleFunctionException(e);
         }
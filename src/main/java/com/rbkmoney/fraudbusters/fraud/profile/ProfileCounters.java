@@ -0,0 +1,12 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+import lombok.Data;
+
+@Data
+public class ProfileCounters {
+
+    private int dbQueries;
+    private int listCalls;
+    private int degradedCalls;
+
+}
@@ -0,0 +1,22 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class RuleProfile {
+
+    private String template;
+    private String rule;
+    private long count;
+    private double totalMillis;
+    private double avgMillis;
+    private double maxMillis;
+    private long dbQueries;
+    private long listCalls;
+    private Map<String, Long> outcomes;
+
+}
@@ -0,0 +1,51 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+/**
+ * Counts the external calls (ClickHouse queries and wb-list calls) made by the inspecting thread
+ * while one template is applied, and the calls skipped because the inspection deadline was spent.
+ */
+public final class RuleProfileContext {
+
+    private static final ThreadLocal<ProfileCounters> CONTEXT = new ThreadLocal<>();
+
+    private RuleProfileContext() {
+    }
+
+    public static ProfileCounters start() {
+        ProfileCounters previous = CONTEXT.get();
+        CONTEXT.set(new ProfileCounters());
+        return previous;
+    }
+
+    public static ProfileCounters stop(ProfileCounters previous) {
+        ProfileCounters counters = CONTEXT.get();
+        if (previous == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(previous);
+        }
+        return counters != null ? counters : new ProfileCounters();
+    }
+
+    public static void recordDbQuery() {
+        ProfileCounters counters = CONTEXT.get();
+        if (counters != null) {
+            counters.setDbQueries(counters.getDbQueries() + 1);
+        }
+    }
+
+    public static void recordDegradedCall() {
+        ProfileCounters counters = CONTEXT.get();
+        if (counters != null) {
+            counters.setDegradedCalls(counters.getDegradedCalls() + 1);
+        }
+    }
+
+    public static void recordListCall() {
+        ProfileCounters counters = CONTEXT.get();
+        if (counters != null) {
+            counters.setListCalls(counters.getListCalls() + 1);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Lists the most expensive template rules by accumulated wall time.
+ */
+@Component
+@RequiredArgsConstructor
+@Endpoint(id = "ruleprofile")
+public class RuleProfileEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final RuleProfilerImpl ruleProfiler;
+
+    @ReadOperation
+    public List<RuleProfile> top(@Nullable Integer limit) {
+        return ruleProfiler.top(limit != null && limit > 0 ? limit : DEFAULT_LIMIT);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        ruleProfiler.reset();
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@RequiredArgsConstructor
+class RuleProfileStats {
+
+    private static final double NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String template;
+    private final String rule;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder dbQueries = new LongAdder();
+    private final LongAdder listCalls = new LongAdder();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    void add(String outcome, long elapsedNanos, ProfileCounters counters) {
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        dbQueries.add(counters.getDbQueries());
+        listCalls.add(counters.getListCalls());
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    RuleProfile toProfile() {
+        long calls = count.sum();
+        long total = totalNanos.sum();
+        Map<String, Long> outcomeCounts = new TreeMap<>();
+        outcomes.forEach((outcome, adder) -> outcomeCounts.put(outcome, adder.sum()));
+        return new RuleProfile(template, rule, calls, total / NANOS_IN_MILLI,
+                calls == 0 ? 0 : total / NANOS_IN_MILLI / calls, maxNanos.get() / NANOS_IN_MILLI,
+                dbQueries.sum(), listCalls.sum(), outcomeCounts);
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+public interface RuleProfiler {
+
+    RuleProfiler NOOP = (templateKey, rule, outcome, elapsedNanos, counters) -> {
+    };
+
+    void record(String templateKey, String rule, String outcome, long elapsedNanos, ProfileCounters counters);
+
+}
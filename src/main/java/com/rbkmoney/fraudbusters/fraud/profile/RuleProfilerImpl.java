@@ -0,0 +1,86 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Accumulates wall time, external calls and outcomes per template and rule. Values are
+ * exported as Micrometer meters and kept in memory for the {@link RuleProfileEndpoint}. Meters are resolved once
+ * per template, rule and outcome and reused for every evaluation.
+ */
+@Component
+@RequiredArgsConstructor
+public class RuleProfilerImpl implements RuleProfiler {
+
+    public static final String TIMER = "rule.profile.timer";
+    public static final String DB_QUERIES = "rule.profile.db.queries";
+    public static final String LIST_CALLS = "rule.profile.list.calls";
+    public static final String DEGRADED = "rule.profile.degraded";
+
+    private static final String KEY_SEPARATOR = "\u0000";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, RuleProfileStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, RuleMeters> meters = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(String templateKey, String rule, String outcome, long elapsedNanos, ProfileCounters counters) {
+        String ruleKey = templateKey + KEY_SEPARATOR + rule;
+        meters.computeIfAbsent(ruleKey + KEY_SEPARATOR + outcome,
+                key -> new RuleMeters(meterRegistry, Tags.of("template", templateKey, "rule", rule, "outcome", outcome)))
+                .record(elapsedNanos, counters);
+        stats.computeIfAbsent(ruleKey, key -> new RuleProfileStats(templateKey, rule))
+                .add(outcome, elapsedNanos, counters);
+    }
+
+    public List<RuleProfile> top(int limit) {
+        return stats.values().stream()
+                .sorted(Comparator.comparingLong(RuleProfileStats::totalNanos).reversed())
+                .limit(limit)
+                .map(RuleProfileStats::toProfile)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private static class RuleMeters {
+
+        private final Timer timer;
+        private final DistributionSummary dbQueries;
+        private final DistributionSummary listCalls;
+        private final Counter degraded;
+
+        RuleMeters(MeterRegistry meterRegistry, Tags tags) {
+            timer = Timer.builder(TIMER).tags(tags).register(meterRegistry);
+            dbQueries = DistributionSummary.builder(DB_QUERIES).tags(tags).register(meterRegistry);
+            listCalls = DistributionSummary.builder(LIST_CALLS).tags(tags).register(meterRegistry);
+            degraded = meterRegistry.counter(DEGRADED, tags);
+        }
+
+        void record(long elapsedNanos, ProfileCounters counters) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            dbQueries.record(counters.getDbQueries());
+            listCalls.record(counters.getListCalls());
+            if (counters.getDegradedCalls() > 0) {
+                degraded.increment();
+            }
+        }
+
+    }
+
+}
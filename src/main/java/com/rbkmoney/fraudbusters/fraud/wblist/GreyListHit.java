@@ -0,0 +1,38 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.rbkmoney.damsel.wb_list.CountInfo;
+import com.rbkmoney.fraudbusters.util.TimestampUtil;
+import lombok.Data;
+
+/**
+ * A grey list row with an active count window: the value is allowed while fewer than
+ * {@code limit} operations happened in the window.
+ */
+@Data
+public class GreyListHit {
+
+    private static final int CURRENT_ONE = 1;
+
+    private final String fieldName;
+    private final String value;
+    private final Long from;
+    private final Long to;
+    private final long limit;
+
+    /**
+     * @return the hit or null when the count window is already over or empty
+     */
+    public static GreyListHit of(String fieldName, String value, CountInfo countInfo) {
+        Long to = TimestampUtil.generateTimestampWithParse(countInfo.getTimeToLive());
+        Long from = TimestampUtil.generateTimestampWithParse(countInfo.getStartCountTime());
+        if (System.currentTimeMillis() > to || from >= to) {
+            return null;
+        }
+        return new GreyListHit(fieldName, value, from, to, countInfo.getCount());
+    }
+
+    public boolean isAllowed(int currentCount) {
+        return currentCount + CURRENT_ONE <= limit;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.rbkmoney.damsel.wb_list.ListType;
+import lombok.Data;
+
+@Data
+public class ListKey {
+
+    private final ListType listType;
+    private final String listName;
+    private final String partyId;
+    private final String shopId;
+    private final String identityId;
+
+}
@@ -0,0 +1,82 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.rbkmoney.damsel.wb_list.CountInfo;
+import com.rbkmoney.damsel.wb_list.Result;
+import com.rbkmoney.damsel.wb_list.Row;
+import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import com.rbkmoney.fraudbusters.util.TimestampUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Data;
+import org.apache.thrift.TException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches grey list count info per row. An entry with count info lives until the row's own
+ * time to live, capped by {@code maxTtlMillis}; a row without count info is cached for
+ * {@code missTtlMillis}.
+ */
+public class RowInfoCache {
+
+    public static final String CACHE_COUNTER = "grey.list.row.info.cache";
+    public static final String RPC_TIMER = "grey.list.row.info.timer";
+    public static final String COUNT_TIMER = "grey.list.count.timer";
+
+    private final WbListServiceSrv.Iface wbListServiceSrv;
+    private final long missTtlMillis;
+    private final long maxTtlMillis;
+    private final Cache<Row, CachedRowInfo> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rpcTimer;
+
+    public RowInfoCache(WbListServiceSrv.Iface wbListServiceSrv, MeterRegistry meterRegistry,
+                        long maxSize, long missTtlMillis, long maxTtlMillis) {
+        this.wbListServiceSrv = wbListServiceSrv;
+        this.missTtlMillis = missTtlMillis;
+        this.maxTtlMillis = maxTtlMillis;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Math.max(missTtlMillis, maxTtlMillis), TimeUnit.MILLISECONDS)
+                .build();
+        this.hits = meterRegistry.counter(CACHE_COUNTER, "result", "hit");
+        this.misses = meterRegistry.counter(CACHE_COUNTER, "result", "miss");
+        this.rpcTimer = meterRegistry.timer(RPC_TIMER);
+    }
+
+    public CountInfo getCountInfo(Row row) throws TException {
+        long now = System.currentTimeMillis();
+        CachedRowInfo cached = cache.getIfPresent(row);
+        if (cached != null && cached.getExpiresAt() > now) {
+            hits.increment();
+            return cached.getCountInfo();
+        }
+        misses.increment();
+        RuleProfileContext.recordListCall();
+        long start = System.nanoTime();
+        Result result = wbListServiceSrv.getRowInfo(row);
+        rpcTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        CountInfo countInfo = result.getRowInfo() != null && result.getRowInfo().isSetCountInfo()
+                ? result.getRowInfo().getCountInfo()
+                : null;
+        long expiresAt = countInfo != null
+                ? Math.min(now + maxTtlMillis, TimestampUtil.generateTimestampWithParse(countInfo.getTimeToLive()))
+                : now + missTtlMillis;
+        if (expiresAt > now) {
+            cache.put(row, new CachedRowInfo(countInfo, expiresAt));
+        }
+        return countInfo;
+    }
+
+    @Data
+    private static class CachedRowInfo {
+        private final CountInfo countInfo;
+        private final long expiresAt;
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.rbkmoney.damsel.wb_list.Event;
+import com.rbkmoney.damsel.wb_list.IdInfo;
+import com.rbkmoney.damsel.wb_list.ListType;
+import com.rbkmoney.damsel.wb_list.Row;
+import com.rbkmoney.fraudbusters.config.properties.WbListReplicaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process replica of the black, white and naming lists, fed by the wb-list event sink.
+ * A row matches when its value is listed for the exact scope, the party wide scope or globally,
+ * like in the list service. Lookups return empty until the topic is known to keep every row
+ * (see {@link WbListTopicChecker}) and the replica has caught up with it, and in strict mode also
+ * while the replica lags more than {@code maxLagMillis}; callers then ask the list service instead.
+ */
+@Slf4j
+@Component
+public class WbListIndex {
+
+    public static final String LAG = "wb.list.replica.lag";
+
+    private final WbListReplicaProperties properties;
+    private final ConcurrentHashMap<ListKey, Set<String>> lists = new ConcurrentHashMap<>();
+
+    private volatile boolean sourceComplete;
+    private volatile boolean ready;
+    private volatile long observedLagMillis;
+    private volatile long observedAt;
+
+    public WbListIndex(WbListReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        meterRegistry.gauge(LAG, this, index -> index.observedAt == 0 ? Double.NaN : index.lagMillis());
+    }
+
+    public void apply(Event event) {
+        Row row = event.getRow();
+        if (row == null || row.getListType() == ListType.grey || row.getValue() == null) {
+            return;
+        }
+        ListKey key = createKey(row);
+        switch (event.getEventType()) {
+            case CREATED:
+                lists.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(row.getValue());
+                break;
+            case DELETED:
+                lists.computeIfPresent(key, (k, values) -> {
+                    values.remove(row.getValue());
+                    return values.isEmpty() ? null : values;
+                });
+                break;
+            default:
+                log.warn("WbListIndex unknown event type: {}", event.getEventType());
+        }
+    }
+
+    public void onBatch(long lastRecordTimestamp) {
+        long now = System.currentTimeMillis();
+        observedLagMillis = Math.max(0, now - lastRecordTimestamp);
+        observedAt = now;
+    }
+
+    public void onSourceComplete() {
+        sourceComplete = true;
+    }
+
+    public void onIdle() {
+        observedLagMillis = 0;
+        observedAt = System.currentTimeMillis();
+        if (!ready && sourceComplete) {
+            ready = true;
+            log.info("WbListIndex caught up lists: {}", lists.size());
+        }
+    }
+
+    public long lagMillis() {
+        long at = observedAt;
+        return at == 0 ? Long.MAX_VALUE : observedLagMillis + (System.currentTimeMillis() - at);
+    }
+
+    public boolean isServing() {
+        return properties.isEnable() && ready
+                && (!properties.isStrict() || lagMillis() <= properties.getMaxLagMillis());
+    }
+
+    public Optional<Boolean> isAnyExist(List<Row> rows) {
+        if (!isServing()) {
+            return Optional.empty();
+        }
+        for (Row row : rows) {
+            if (contains(row)) {
+                return Optional.of(true);
+            }
+        }
+        return Optional.of(false);
+    }
+
+    public int size() {
+        return lists.size();
+    }
+
+    private boolean contains(Row row) {
+        ListKey key = createKey(row);
+        if (contains(key, row.getValue())) {
+            return true;
+        }
+        if (key.getShopId() != null && contains(new ListKey(key.getListType(), key.getListName(),
+                key.getPartyId(), null, null), row.getValue())) {
+            return true;
+        }
+        return (key.getPartyId() != null || key.getIdentityId() != null)
+                && contains(new ListKey(key.getListType(), key.getListName(), null, null, null), row.getValue());
+    }
+
+    private boolean contains(ListKey key, String value) {
+        Set<String> values = lists.get(key);
+        return values != null && values.contains(value);
+    }
+
+    private ListKey createKey(Row row) {
+        IdInfo id = row.getId();
+        if (id != null && id.isSetPaymentId()) {
+            return new ListKey(row.getListType(), row.getListName(),
+                    id.getPaymentId().getPartyId(), id.getPaymentId().getShopId(), null);
+        }
+        if (id != null && id.isSetP2pId()) {
+            return new ListKey(row.getListType(), row.getListName(), null, null, id.getP2pId().getIdentityId());
+        }
+        return new ListKey(row.getListType(), row.getListName(), null, null, null);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.rbkmoney.fraudbusters.config.properties.KafkaSslProperties;
+import com.rbkmoney.fraudbusters.util.SslKafkaUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the wb-list event sink keeps every list row: only a topic compacted without time or size
+ * based deletion still holds the events of rows created long ago.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(value = "wb.list.replica.enable", havingValue = "true")
+public class WbListTopicChecker {
+
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    private final KafkaSslProperties kafkaSslProperties;
+
+    @Value("${kafka.bootstrap.servers}")
+    private String bootstrapServers;
+
+    @Value("${kafka.topic.wblist.event.sink}")
+    private String topic;
+
+    /**
+     * @return whether the topic is compacted only, or empty if its config could not be read
+     */
+    public Optional<Boolean> isCompacted() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.putAll(SslKafkaUtils.sslConfigure(kafkaSslProperties));
+        ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topic);
+        try (AdminClient adminClient = AdminClient.create(props)) {
+            Config config = adminClient.describeConfigs(List.of(resource)).all()
+                    .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .get(resource);
+            ConfigEntry cleanupPolicy = config.get(TopicConfig.CLEANUP_POLICY_CONFIG);
+            boolean compacted = cleanupPolicy != null
+                    && TopicConfig.CLEANUP_POLICY_COMPACT.equals(cleanupPolicy.value().trim());
+            if (!compacted) {
+                log.error("WbListTopicChecker topic: {} cleanup.policy: {} is not compact, the replica will not serve",
+                        topic, cleanupPolicy != null ? cleanupPolicy.value() : null);
+            }
+            return Optional.of(compacted);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (Exception e) {
+            log.warn("WbListTopicChecker can't describe topic: {}", topic, e);
+            return Optional.empty();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Distinct counter: exact for small cardinalities, switches to HyperLogLog registers
+ * once the number of distinct hashes exceeds {@link #SPARSE_LIMIT}.
+ */
+public class UniqSketch {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final int SPARSE_LIMIT = 128;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private Set<Long> sparse = new HashSet<>();
+    private byte[] registers;
+
+    public static long hash(String value) {
+        return HASH_FUNCTION.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        if (registers != null) {
+            addToRegisters(hash);
+            return;
+        }
+        sparse.add(hash);
+        if (sparse.size() > SPARSE_LIMIT) {
+            toDense();
+        }
+    }
+
+    public void merge(UniqSketch other) {
+        if (other.registers == null) {
+            other.sparse.forEach(this::addHash);
+            return;
+        }
+        if (registers == null) {
+            toDense();
+        }
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        if (registers == null) {
+            return sparse.size();
+        }
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private void toDense() {
+        registers = new byte[REGISTERS];
+        sparse.forEach(this::addToRegisters);
+        sparse = null;
+    }
+
+    private void addToRegisters(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+public class WindowBucket {
+
+    private long count;
+    private long sum;
+    private long declineCount;
+    private long declineSum;
+    private final Map<String, UniqSketch> uniqByField = new HashMap<>();
+
+    public void add(long amount, boolean declined, Map<String, String> fields) {
+        count++;
+        sum += amount;
+        if (declined) {
+            declineCount++;
+            declineSum += amount;
+        }
+        fields.forEach((field, value) -> uniqByField.computeIfAbsent(field, f -> new UniqSketch()).add(value));
+    }
+
+    public long count(StatusFilter statusFilter) {
+        switch (statusFilter) {
+            case SUCCESS:
+                return count - declineCount;
+            case DECLINE:
+                return declineCount;
+            default:
+                return count;
+        }
+    }
+
+    public long sum(StatusFilter statusFilter) {
+        switch (statusFilter) {
+            case SUCCESS:
+                return sum - declineSum;
+            case DECLINE:
+                return declineSum;
+            default:
+                return sum;
+        }
+    }
+
+}
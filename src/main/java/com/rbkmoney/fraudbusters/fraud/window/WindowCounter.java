@@ -0,0 +1,53 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+public class WindowCounter {
+
+    private final NavigableMap<Long, WindowBucket> buckets = new TreeMap<>();
+
+    public synchronized void add(long bucketIndex, long amount, boolean declined, Map<String, String> fields) {
+        buckets.computeIfAbsent(bucketIndex, index -> new WindowBucket())
+                .add(amount, declined, fields);
+    }
+
+    public synchronized long count(long fromIndex, long toIndex, StatusFilter statusFilter) {
+        long result = 0;
+        for (WindowBucket bucket : buckets.subMap(fromIndex, true, toIndex, true).values()) {
+            result += bucket.count(statusFilter);
+        }
+        return result;
+    }
+
+    public synchronized long sum(long fromIndex, long toIndex, StatusFilter statusFilter) {
+        long result = 0;
+        for (WindowBucket bucket : buckets.subMap(fromIndex, true, toIndex, true).values()) {
+            result += bucket.sum(statusFilter);
+        }
+        return result;
+    }
+
+    public synchronized long uniq(long fromIndex, long toIndex, String countField) {
+        UniqSketch result = new UniqSketch();
+        for (WindowBucket bucket : buckets.subMap(fromIndex, true, toIndex, true).values()) {
+            UniqSketch sketch = bucket.getUniqByField().get(countField);
+            if (sketch != null) {
+                result.merge(sketch);
+            }
+        }
+        return result.estimate();
+    }
+
+    /**
+     * @return true if the counter has no buckets left after eviction
+     */
+    public synchronized boolean evictBefore(long bucketIndex) {
+        buckets.headMap(bucketIndex, false).clear();
+        return buckets.isEmpty();
+    }
+
+}
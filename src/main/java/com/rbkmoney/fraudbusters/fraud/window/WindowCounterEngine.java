@@ -0,0 +1,136 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import com.rbkmoney.fraudbusters.config.properties.WindowCounterProperties;
+import com.rbkmoney.fraudbusters.constant.EventField;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-bucketed counters over the result stream. Answers are bucket-granular: a bucket
+ * that intersects the requested window is counted as a whole. Only {@link #MIRRORED_FIELDS}
+ * are counted, and nothing is answered until every assigned partition is read up to the end
+ * offset it had when it was assigned.
+ */
+@Slf4j
+@Component
+public class WindowCounterEngine {
+
+    public static final Set<String> MIRRORED_FIELDS = Set.of(EventField.ip.name(), EventField.email.name(),
+            EventField.bin.name(), EventField.fingerprint.name(), EventField.partyId.name(), EventField.shopId.name(),
+            EventField.cardToken.name(), EventField.maskedPan.name());
+
+    private static final String KEY_DELIMITER = "\u0000";
+
+    private final Map<String, WindowCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> pendingEndOffsets = new ConcurrentHashMap<>();
+    private final WindowCounterProperties properties;
+    private final long bucketMillis;
+    private final long horizonMillis;
+
+    private volatile long coveredSince = Long.MAX_VALUE;
+    private volatile boolean ready;
+
+    public WindowCounterEngine(WindowCounterProperties properties) {
+        this.properties = properties;
+        this.bucketMillis = properties.getBucketSeconds() * 1000;
+        this.horizonMillis = properties.getHorizonMinutes() * 60 * 1000;
+    }
+
+    public boolean isEnable() {
+        return properties.isEnable();
+    }
+
+    public long startFeeding() {
+        long seekTimestamp = System.currentTimeMillis() - horizonMillis;
+        ready = false;
+        coveredSince = seekTimestamp;
+        counters.clear();
+        pendingEndOffsets.clear();
+        log.info("WindowCounterEngine start feeding from: {}", seekTimestamp);
+        return seekTimestamp;
+    }
+
+    /**
+     * @param endOffsets end offset of each assigned partition that still has records to read
+     */
+    public void catchUpTo(Map<Integer, Long> endOffsets) {
+        pendingEndOffsets.putAll(endOffsets);
+        checkCaughtUp();
+    }
+
+    public void onConsumed(int partition, long offset) {
+        if (ready) {
+            return;
+        }
+        pendingEndOffsets.computeIfPresent(partition, (p, endOffset) -> offset + 1 >= endOffset ? null : endOffset);
+        checkCaughtUp();
+    }
+
+    public void add(long timestamp, long amount, boolean declined, Map<String, String> fields) {
+        long bucketIndex = timestamp / bucketMillis;
+        fields.forEach((field, value) -> counters.compute(key(field, value), (key, counter) -> {
+            WindowCounter windowCounter = counter != null ? counter : new WindowCounter();
+            windowCounter.add(bucketIndex, amount, declined, fields);
+            return windowCounter;
+        }));
+    }
+
+    public Optional<Integer> count(String field, String value, Long from, Long to, StatusFilter statusFilter) {
+        if (!canAnswer(field, from, to)) {
+            return Optional.empty();
+        }
+        WindowCounter counter = counters.get(key(field, value));
+        return Optional.of(counter != null ? (int) counter.count(from / bucketMillis, to / bucketMillis, statusFilter) : 0);
+    }
+
+    public Optional<Long> sum(String field, String value, Long from, Long to, StatusFilter statusFilter) {
+        if (!canAnswer(field, from, to)) {
+            return Optional.empty();
+        }
+        WindowCounter counter = counters.get(key(field, value));
+        return Optional.of(counter != null ? counter.sum(from / bucketMillis, to / bucketMillis, statusFilter) : 0L);
+    }
+
+    public Optional<Integer> uniq(String field, String value, String countField, Long from, Long to) {
+        if (!canAnswer(field, from, to) || !MIRRORED_FIELDS.contains(countField)) {
+            return Optional.empty();
+        }
+        WindowCounter counter = counters.get(key(field, value));
+        return Optional.of(counter != null ? (int) counter.uniq(from / bucketMillis, to / bucketMillis, countField) : 0);
+    }
+
+    @Scheduled(fixedDelayString = "${window.counter.evict.interval:10000}")
+    public void evictExpired() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        long thresholdIndex = (System.currentTimeMillis() - horizonMillis) / bucketMillis - 1;
+        counters.keySet().forEach(key -> counters.computeIfPresent(key,
+                (k, counter) -> counter.evictBefore(thresholdIndex) ? null : counter));
+    }
+
+    private void checkCaughtUp() {
+        if (!ready && pendingEndOffsets.isEmpty()) {
+            ready = true;
+            log.info("WindowCounterEngine caught up, covered since: {}", coveredSince);
+        }
+    }
+
+    private boolean canAnswer(String field, Long from, Long to) {
+        return ready && MIRRORED_FIELDS.contains(field) && from != null && to != null
+                && from >= coveredSince
+                && from >= System.currentTimeMillis() - horizonMillis;
+    }
+
+    private static String key(String field, String value) {
+        return field + KEY_DELIMITER + value;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts the window counter listener at the beginning of the horizon and hands the end offsets
+ * of the assigned partitions to {@link WindowCounterEngine}, which answers once all of them are read.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class WindowCounterSeekListener implements ConsumerAwareRebalanceListener {
+
+    private final WindowCounterEngine windowCounterEngine;
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        long seekTimestamp = windowCounterEngine.startFeeding();
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            timestamps.put(partition, seekTimestamp);
+        }
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+        Map<Integer, Long> pendingEndOffsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            long endOffset = endOffsets.get(partition);
+            OffsetAndTimestamp offset = offsets.get(partition);
+            long position = offset != null ? offset.offset() : endOffset;
+            consumer.seek(partition, position);
+            if (position < endOffset) {
+                pendingEndOffsets.put(partition.partition(), endOffset);
+            }
+        }
+        log.info("WindowCounterSeekListener seek partitions: {} to: {} end offsets: {}", partitions, seekTimestamp,
+                pendingEndOffsets);
+        windowCounterEngine.catchUpTo(pendingEndOffsets);
+    }
+
+}
@@ -0,0 +1,200 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudbusters.repository.impl.FraudResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Serves ungrouped aggregates from {@link WindowCounterEngine} and falls back to the
+ * delegate repository for grouped queries, windows beyond the horizon and cold starts.
+ * The counters are fed from the result topic, so they only mirror {@link FraudResultRepository}
+ * (fraud.events_unique): success is {@code resultStatus != DECLINE}, error is {@code resultStatus = DECLINE}
+ * and the error code is ignored, as by that repository. Batched aggregates are answered the same way, only the
+ * queries the counters can't answer go to the delegate in one batch.
+ */
+@Slf4j
+public class WindowedPaymentRepository implements PaymentRepository, AggregationBatchRepository {
+
+    private final FraudResultRepository delegate;
+    private final WindowCounterEngine windowCounterEngine;
+    private final Counter hitCounter;
+    private final Counter fallbackCounter;
+
+    public WindowedPaymentRepository(FraudResultRepository delegate, WindowCounterEngine windowCounterEngine,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.windowCounterEngine = windowCounterEngine;
+        this.hitCounter = meterRegistry.counter("window.counter.hit");
+        this.fallbackCounter = meterRegistry.counter("window.counter.fallback");
+    }
+
+    /**
+     * Wraps the aggregation repository with the window counters when they are enabled and can mirror it.
+     */
+    public static PaymentRepository wrap(PaymentRepository paymentRepository, WindowCounterEngine windowCounterEngine,
+                                         MeterRegistry meterRegistry) {
+        if (!windowCounterEngine.isEnable()) {
+            return paymentRepository;
+        }
+        if (!(paymentRepository instanceof FraudResultRepository)) {
+            log.warn("Window counters mirror fraud.events_unique and are not used with repository: {}",
+                    paymentRepository.getClass().getSimpleName());
+            return paymentRepository;
+        }
+        return new WindowedPaymentRepository((FraudResultRepository) paymentRepository, windowCounterEngine, meterRegistry);
+    }
+
+    @Override
+    public List<Number> aggregateBatch(List<AggregateQuery> queries) {
+        List<Number> results = new ArrayList<>(queries.size());
+        List<Integer> missedIndexes = new ArrayList<>();
+        List<AggregateQuery> missed = new ArrayList<>();
+        for (AggregateQuery query : queries) {
+            Optional<? extends Number> windowResult = isGrouped(query.getGroupByFields())
+                    ? Optional.empty()
+                    : windowResult(query);
+            if (windowResult.isPresent()) {
+                hitCounter.increment();
+                results.add(windowResult.get());
+            } else {
+                missedIndexes.add(results.size());
+                missed.add(query);
+                results.add(null);
+            }
+        }
+        if (!missed.isEmpty()) {
+            fallbackCounter.increment(missed.size());
+            List<Number> delegateResults = delegate.aggregateBatch(missed);
+            for (int i = 0; i < missedIndexes.size(); i++) {
+                results.set(missedIndexes.get(i), delegateResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    private Optional<? extends Number> windowResult(AggregateQuery query) {
+        switch (query.getType()) {
+            case SUM:
+                return windowCounterEngine.sum(query.getFieldName(), query.getValue(), query.getFrom(), query.getTo(),
+                        query.getStatusFilter());
+            case UNIQ:
+                return windowCounterEngine.uniq(query.getFieldName(), query.getValue(), query.getOnFieldName(),
+                        query.getFrom(), query.getTo());
+            default:
+                return windowCounterEngine.count(query.getFieldName(), query.getValue(), query.getFrom(), query.getTo(),
+                        query.getStatusFilter());
+        }
+    }
+
+    @Override
+    public Integer countOperationByField(String fieldName, String value, Long from, Long to) {
+        return answer(windowCounterEngine.count(fieldName, value, from, to, StatusFilter.ALL),
+                () -> delegate.countOperationByField(fieldName, value, from, to));
+    }
+
+    @Override
+    public Integer countOperationByFieldWithGroupBy(String fieldName, String value, Long from, Long to,
+                                                    List<FieldModel> fieldModels) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.countOperationByFieldWithGroupBy(fieldName, value, from, to, fieldModels));
+        }
+        return answer(windowCounterEngine.count(fieldName, value, from, to, StatusFilter.ALL),
+                () -> delegate.countOperationByFieldWithGroupBy(fieldName, value, from, to, fieldModels));
+    }
+
+    @Override
+    public Long sumOperationByFieldWithGroupBy(String fieldName, String value, Long from, Long to,
+                                               List<FieldModel> fieldModels) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.sumOperationByFieldWithGroupBy(fieldName, value, from, to, fieldModels));
+        }
+        return answer(windowCounterEngine.sum(fieldName, value, from, to, StatusFilter.ALL),
+                () -> delegate.sumOperationByFieldWithGroupBy(fieldName, value, from, to, fieldModels));
+    }
+
+    @Override
+    public Integer uniqCountOperation(String fieldNameBy, String value, String fieldNameCount, Long from, Long to) {
+        return answer(windowCounterEngine.uniq(fieldNameBy, value, fieldNameCount, from, to),
+                () -> delegate.uniqCountOperation(fieldNameBy, value, fieldNameCount, from, to));
+    }
+
+    @Override
+    public Integer uniqCountOperationWithGroupBy(String fieldNameBy, String value, String fieldNameCount, Long from,
+                                                 Long to, List<FieldModel> fieldModels) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.uniqCountOperationWithGroupBy(fieldNameBy, value, fieldNameCount, from, to,
+                    fieldModels));
+        }
+        return answer(windowCounterEngine.uniq(fieldNameBy, value, fieldNameCount, from, to),
+                () -> delegate.uniqCountOperationWithGroupBy(fieldNameBy, value, fieldNameCount, from, to, fieldModels));
+    }
+
+    @Override
+    public Integer countOperationSuccessWithGroupBy(String fieldName, String value, Long from, Long to,
+                                                    List<FieldModel> fieldModels) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.countOperationSuccessWithGroupBy(fieldName, value, from, to, fieldModels));
+        }
+        return answer(windowCounterEngine.count(fieldName, value, from, to, StatusFilter.SUCCESS),
+                () -> delegate.countOperationSuccessWithGroupBy(fieldName, value, from, to, fieldModels));
+    }
+
+    @Override
+    public Integer countOperationErrorWithGroupBy(String fieldName, String value, Long from, Long to,
+                                                  List<FieldModel> fieldModels, String errorCode) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.countOperationErrorWithGroupBy(fieldName, value, from, to, fieldModels, errorCode));
+        }
+        return answer(windowCounterEngine.count(fieldName, value, from, to, StatusFilter.DECLINE),
+                () -> delegate.countOperationErrorWithGroupBy(fieldName, value, from, to, fieldModels, errorCode));
+    }
+
+    @Override
+    public Long sumOperationSuccessWithGroupBy(String fieldName, String value, Long from, Long to,
+                                               List<FieldModel> fieldModels) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.sumOperationSuccessWithGroupBy(fieldName, value, from, to, fieldModels));
+        }
+        return answer(windowCounterEngine.sum(fieldName, value, from, to, StatusFilter.SUCCESS),
+                () -> delegate.sumOperationSuccessWithGroupBy(fieldName, value, from, to, fieldModels));
+    }
+
+    @Override
+    public Long sumOperationErrorWithGroupBy(String fieldName, String value, Long from, Long to,
+                                             List<FieldModel> fieldModels, String errorCode) {
+        if (isGrouped(fieldModels)) {
+            return fallback(() -> delegate.sumOperationErrorWithGroupBy(fieldName, value, from, to, fieldModels, errorCode));
+        }
+        return answer(windowCounterEngine.sum(fieldName, value, from, to, StatusFilter.DECLINE),
+                () -> delegate.sumOperationErrorWithGroupBy(fieldName, value, from, to, fieldModels, errorCode));
+    }
+
+    private <R> R answer(Optional<R> windowResult, Supplier<R> fallback) {
+        if (windowResult.isPresent()) {
+            hitCounter.increment();
+            return windowResult.get();
+        }
+        return fallback(fallback);
+    }
+
+    private <R> R fallback(Supplier<R> fallback) {
+        fallbackCounter.increment();
+        return fallback.get();
+    }
+
+    private static boolean isGrouped(List<FieldModel> fieldModels) {
+        return fieldModels != null && !fieldModels.isEmpty();
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.rbkmoney.fraudbusters.listener;
 
 import com.rbkmoney.damsel.fraudbusters.Command;
+import com.rbkmoney.fraudbusters.config.properties.PreloadProperties;
 import com.rbkmoney.fraudbusters.exception.StartException;
 import com.rbkmoney.fraudbusters.listener.p2p.GroupP2PListener;
 import com.rbkmoney.fraudbusters.listener.p2p.GroupReferenceP2PListener;
@@ -10,13 +11,14 @@ import com.rbkmoney.fraudbusters.listener.payment.GroupListener;
 import com.rbkmoney.fraudbusters.listener.payment.GroupReferenceListener;
 import com.rbkmoney.fraudbusters.listener.payment.TemplateListener;
 import com.rbkmoney.fraudbusters.listener.payment.TemplateReferenceListener;
+import com.rbkmoney.fraudbusters.listener.preload.CommandTopicPreloader;
+import com.rbkmoney.fraudbusters.listener.preload.PreloadTracker;
 import com.rbkmoney.fraudbusters.template.pool.Pool;
-import com.rbkmoney.kafka.common.loader.PreloadListener;
-import com.rbkmoney.kafka.common.loader.PreloadListenerImpl;
+import com.rbkmoney.fraudbusters.template.snapshot.PoolSnapshotService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.antlr.v4.runtime.ParserRuleContext;
-import org.apache.kafka.clients.consumer.Consumer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
@@ -28,15 +30,17 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class StartupListener implements ApplicationListener<ContextRefreshedEvent> {
 
-    private static final long PRELOAD_TIMEOUT = 20L;
     private static final int COUNT_PRELOAD_TASKS = 8;
 
+    public static final String STARTUP_TIMER = "startup.preload.time";
+
     private final ConsumerFactory<String, Command> templateListenerFactory;
     private final ConsumerFactory<String, Command> groupListenerFactory;
     private final ConsumerFactory<String, Command> referenceListenerFactory;
@@ -60,7 +64,13 @@ public class StartupListener implements ApplicationListener<ContextRefreshedEven
     private final Pool<ParserRuleContext> templatePoolImpl;
     private final Pool<ParserRuleContext> templateP2PPoolImpl;
 
-    private final PreloadListener<String, Command> preloadListener = new PreloadListenerImpl<>();
+    private final PoolSnapshotService poolSnapshotService;
+    private final CommandTopicPreloader commandTopicPreloader;
+    private final PreloadTracker preloadTracker;
+    private final PreloadProperties preloadProperties;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean started = new AtomicBoolean();
 
     @Value("${kafka.topic.template}")
     private String topicTemplate;
@@ -88,10 +98,23 @@ public class StartupListener implements ApplicationListener<ContextRefreshedEven
 
     @Override
     public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        if (preloadProperties.isBlocking()) {
+            preloadAll();
+        } else {
+            Thread thread = new Thread(this::preloadAll, "startup-preload");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void preloadAll() {
+        ExecutorService executorService = Executors.newFixedThreadPool(COUNT_PRELOAD_TASKS);
         try {
             long startPreloadTime = System.currentTimeMillis();
 
-            ExecutorService executorService = Executors.newFixedThreadPool(COUNT_PRELOAD_TASKS);
             CountDownLatch latch = new CountDownLatch(COUNT_PRELOAD_TASKS);
             List<Runnable> tasks = List.of(
                     () -> waitPreLoad(latch, templateListenerFactory, topicTemplate, templateListener),
@@ -106,27 +129,43 @@ public class StartupListener implements ApplicationListener<ContextRefreshedEven
             );
 
             tasks.forEach(executorService::submit);
-            long timeout = PRELOAD_TIMEOUT * COUNT_PRELOAD_TASKS;
+            long timeout = preloadProperties.getTimeoutSeconds();
             boolean await = latch.await(timeout, TimeUnit.SECONDS);
 
             if (!await) {
+                preloadTracker.fail("Cant load all rules by timeout: " + timeout);
                 throw new StartException("Cant load all rules by timeout: " + timeout);
             }
+            if (preloadTracker.getError() != null) {
+                throw new StartException(preloadTracker.getError());
+            }
+            preloadTracker.complete();
+
+            long preloadTime = System.currentTimeMillis() - startPreloadTime;
+            meterRegistry.timer(STARTUP_TIMER, "snapshot", String.valueOf(poolSnapshotService.isRestored()))
+                    .record(preloadTime, TimeUnit.MILLISECONDS);
+            poolSnapshotService.write();
 
-            log.info("StartupListener start stream preloadTime: {} ms", System.currentTimeMillis() - startPreloadTime);
+            log.info("StartupListener start stream preloadTime: {} ms", preloadTime);
             log.info("StartupListener load pool payment template size: {} templates: {}", templatePoolImpl.size(), templatePoolImpl);
             log.info("StartupListener load pool p2p template size: {} templates: {}", templateP2PPoolImpl.size(), templateP2PPoolImpl);
         } catch (InterruptedException e) {
             log.error("StartupListener onApplicationEvent e: ", e);
             Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
         }
     }
 
     private void waitPreLoad(CountDownLatch latch, ConsumerFactory<String, Command> groupListenerFactory, String topic, CommandListener listener) {
-        Consumer<String, Command> consumer = groupListenerFactory.createConsumer();
-        preloadListener.preloadToLastOffsetInPartition(consumer, topic, 0, listener::listen);
-        consumer.close();
-        latch.countDown();
+        try {
+            commandTopicPreloader.preload(groupListenerFactory, topic, listener);
+        } catch (RuntimeException e) {
+            log.error("StartupListener preload topic: {} e: ", topic, e);
+            preloadTracker.fail("Cant load topic: " + topic);
+        } finally {
+            latch.countDown();
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.rbkmoney.fraudbusters.listener;
+
+import com.rbkmoney.damsel.wb_list.Event;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListTopicChecker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(value = "wb.list.replica.enable", havingValue = "true")
+public class WbListEventListener {
+
+    public static final String LISTENER_ID = "wb-list-replica";
+
+    private final WbListIndex wbListIndex;
+    private final WbListTopicChecker wbListTopicChecker;
+
+    private volatile Boolean topicCompacted;
+
+    @KafkaListener(id = LISTENER_ID, topics = "${kafka.topic.wblist.event.sink}",
+            containerFactory = "wbListEventListenerContainerFactory")
+    public void listen(List<ConsumerRecord<String, Event>> batch) {
+        log.debug("WbListEventListener listen size: {}", batch.size());
+        long lastTimestamp = 0;
+        for (ConsumerRecord<String, Event> record : batch) {
+            if (record.value() != null) {
+                wbListIndex.apply(record.value());
+            }
+            lastTimestamp = Math.max(lastTimestamp, record.timestamp());
+        }
+        wbListIndex.onBatch(lastTimestamp);
+    }
+
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (topicCompacted == null) {
+            wbListTopicChecker.isCompacted().ifPresent(compacted -> {
+                topicCompacted = compacted;
+                if (compacted) {
+                    wbListIndex.onSourceComplete();
+                }
+            });
+        }
+        wbListIndex.onIdle();
+    }
+
+}
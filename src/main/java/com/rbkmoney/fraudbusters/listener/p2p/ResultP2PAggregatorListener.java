@@ -1,10 +1,14 @@
 package com.rbkmoney.fraudbusters.listener.p2p;
 
 import com.rbkmoney.fraudbusters.config.KafkaConfig;
+import com.rbkmoney.fraudbusters.config.properties.ResultAccumulatorProperties;
 import com.rbkmoney.fraudbusters.converter.ScoresResultToEventConverter;
+import com.rbkmoney.fraudbusters.domain.EventP2P;
 import com.rbkmoney.fraudbusters.domain.ScoresResult;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
 import com.rbkmoney.fraudbusters.repository.impl.p2p.EventP2PRepository;
+import com.rbkmoney.fraudbusters.service.pipeline.InsertAccumulator;
+import com.rbkmoney.fraudbusters.service.pipeline.PipelineStageMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -19,12 +23,24 @@ public class ResultP2PAggregatorListener {
 
     private final EventP2PRepository eventP2PRepository;
     private final ScoresResultToEventConverter scoresResultToEventConverter;
+    private final PipelineStageMetrics p2pPipelineMetrics;
+    private final InsertAccumulator<EventP2P> p2pInsertAccumulator;
+    private final ResultAccumulatorProperties resultAccumulatorProperties;
 
     @KafkaListener(topics = "${kafka.topic.p2p.result}", containerFactory = "kafkaListenerP2PResultContainerFactory")
     public void listen(List<ScoresResult<P2PModel>> batch) throws InterruptedException {
         try {
-            log.info("ResultAggregatorListener listen result: {}", batch);
-            eventP2PRepository.insertBatch(scoresResultToEventConverter.convertBatch(batch));
+            log.info("ResultAggregatorListener listen result size: {}", batch.size());
+            Long oldestTimestamp = findOldestTimestamp(batch);
+            List<EventP2P> events = p2pPipelineMetrics.call("convert", batch.size(), oldestTimestamp,
+                    () -> scoresResultToEventConverter.convertBatch(batch));
+            long start = System.nanoTime();
+            if (resultAccumulatorProperties.isEnable()) {
+                p2pInsertAccumulator.add(events);
+            } else {
+                eventP2PRepository.insertBatch(events);
+            }
+            p2pPipelineMetrics.finish("insert", events.size(), oldestTimestamp, start);
         } catch (Exception e) {
             log.warn("Error when ResultP2PAggregatorListener listen e: ", e);
             Thread.sleep(KafkaConfig.THROTTLING_TIMEOUT);
@@ -32,4 +48,16 @@ public class ResultP2PAggregatorListener {
         }
     }
 
+    private Long findOldestTimestamp(List<ScoresResult<P2PModel>> batch) {
+        Long oldest = null;
+        for (ScoresResult<P2PModel> scoresResult : batch) {
+            P2PModel request = scoresResult.getRequest();
+            if (request != null && request.getTimestamp() != null
+                    && (oldest == null || request.getTimestamp() < oldest)) {
+                oldest = request.getTimestamp();
+            }
+        }
+        return oldest;
+    }
+
 }
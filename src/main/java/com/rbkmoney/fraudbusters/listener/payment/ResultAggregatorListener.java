@@ -2,11 +2,17 @@ package com.rbkmoney.fraudbusters.listener.payment;
 
 import com.rbkmoney.fraudbusters.config.KafkaConfig;
 import com.rbkmoney.fraudbusters.config.properties.DefaultTemplateProperties;
+import com.rbkmoney.fraudbusters.config.properties.ResultAccumulatorProperties;
+import com.rbkmoney.fraudbusters.constant.ClickhouseUtilsValue;
 import com.rbkmoney.fraudbusters.converter.FraudResultToEventConverter;
 import com.rbkmoney.fraudbusters.domain.Event;
 import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.domain.Metadata;
 import com.rbkmoney.fraudbusters.repository.Repository;
-import com.rbkmoney.fraudbusters.service.FraudManagementService;
+import com.rbkmoney.fraudbusters.service.KnownShopService;
+import com.rbkmoney.fraudbusters.service.pipeline.GeoIpBatchResolver;
+import com.rbkmoney.fraudbusters.service.pipeline.InsertAccumulator;
+import com.rbkmoney.fraudbusters.service.pipeline.PipelineStageMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
@@ -14,8 +20,15 @@ import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Aggregates payment results in stages: geo enrichment of the distinct ips of the batch,
+ * conversion to events, default references for new shops and the ClickHouse insert. With the accumulator
+ * enabled the insert waits for the shared block of all consumer threads to be written.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -23,25 +36,72 @@ public class ResultAggregatorListener {
 
     private final Repository<Event> repository;
     private final FraudResultToEventConverter fraudResultToEventConverter;
-    private final FraudManagementService fraudManagementService;
+    private final KnownShopService knownShopService;
     private final DefaultTemplateProperties defaultTemplateProperties;
+    private final GeoIpBatchResolver geoIpBatchResolver;
+    private final PipelineStageMetrics paymentPipelineMetrics;
+    private final InsertAccumulator<Event> paymentInsertAccumulator;
+    private final ResultAccumulatorProperties resultAccumulatorProperties;
 
     @KafkaListener(topics = "${kafka.topic.result}", containerFactory = "kafkaListenerContainerFactory")
     public void listen(List<FraudResult> batch, @Header(KafkaHeaders.RECEIVED_PARTITION_ID) Integer partition,
                        @Header(KafkaHeaders.OFFSET) Long offset) throws InterruptedException {
         try {
             log.info("ResultAggregatorListener listen result size: {} partition: {} offset: {}", batch.size(), partition, offset);
-            List<Event> events = fraudResultToEventConverter.convertBatch(batch);
+            Long oldestTimestamp = findOldestTimestamp(batch);
+
+            long start = System.nanoTime();
+            Map<String, String> countries = geoIpBatchResolver.resolve(collectIps(batch));
+            paymentPipelineMetrics.finish("enrich", batch.size(), oldestTimestamp, start);
+
+            List<Event> events = paymentPipelineMetrics.call("convert", batch.size(), oldestTimestamp,
+                    () -> convert(batch, countries));
             if (defaultTemplateProperties.isEnable()) {
-                events.stream()
-                        .filter(e -> fraudManagementService.isNewShop(e.getPartyId(), e.getShopId()))
-                        .forEach(e -> fraudManagementService.createDefaultReference(e.getPartyId(), e.getShopId()));
+                paymentPipelineMetrics.record("reference", events.size(), oldestTimestamp,
+                        () -> knownShopService.registerShops(events));
             }
-            repository.insertBatch(events);
+            start = System.nanoTime();
+            if (resultAccumulatorProperties.isEnable()) {
+                paymentInsertAccumulator.add(events);
+            } else {
+                repository.insertBatch(events);
+            }
+            paymentPipelineMetrics.finish("insert", events.size(), oldestTimestamp, start);
         } catch (Exception e) {
             log.warn("Error when ResultAggregatorListener listen e: ", e);
             Thread.sleep(KafkaConfig.THROTTLING_TIMEOUT);
             throw e;
         }
     }
+
+    private List<String> collectIps(List<FraudResult> batch) {
+        List<String> ips = new ArrayList<>(batch.size());
+        for (FraudResult fraudResult : batch) {
+            ips.add(fraudResult.getFraudRequest().getFraudModel().getIp());
+        }
+        return ips;
+    }
+
+    private List<Event> convert(List<FraudResult> batch, Map<String, String> countries) {
+        List<Event> events = new ArrayList<>(batch.size());
+        for (FraudResult fraudResult : batch) {
+            String country = countries.get(fraudResult.getFraudRequest().getFraudModel().getIp());
+            events.add(fraudResultToEventConverter.convert(fraudResult,
+                    country != null ? country : ClickhouseUtilsValue.UNKNOWN));
+        }
+        return events;
+    }
+
+    private Long findOldestTimestamp(List<FraudResult> batch) {
+        Long oldest = null;
+        for (FraudResult fraudResult : batch) {
+            Metadata metadata = fraudResult.getFraudRequest().getMetadata();
+            if (metadata != null && metadata.getTimestamp() != null
+                    && (oldest == null || metadata.getTimestamp() < oldest)) {
+                oldest = metadata.getTimestamp();
+            }
+        }
+        return oldest;
+    }
+
 }
@@ -0,0 +1,76 @@
+package com.rbkmoney.fraudbusters.listener.payment;
+
+import com.rbkmoney.fraudbusters.constant.EventField;
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.domain.Metadata;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.window.WindowCounterEngine;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(value = "window.counter.enable", havingValue = "true")
+public class WindowCounterListener {
+
+    private final WindowCounterEngine windowCounterEngine;
+
+    @KafkaListener(topics = "${kafka.topic.result}", containerFactory = "windowCounterListenerContainerFactory")
+    public void listen(List<ConsumerRecord<String, FraudResult>> batch) {
+        log.debug("WindowCounterListener listen result size: {}", batch.size());
+        for (ConsumerRecord<String, FraudResult> record : batch) {
+            FraudResult fraudResult = record.value();
+            if (fraudResult != null && fraudResult.getFraudRequest() != null
+                    && fraudResult.getFraudRequest().getFraudModel() != null) {
+                PaymentModel paymentModel = fraudResult.getFraudRequest().getFraudModel();
+                windowCounterEngine.add(record.timestamp(),
+                        paymentModel.getAmount() != null ? paymentModel.getAmount() : 0L,
+                        isDeclined(fraudResult),
+                        resolveFields(paymentModel, fraudResult.getFraudRequest().getMetadata()));
+            }
+            windowCounterEngine.onConsumed(record.partition(), record.offset());
+        }
+    }
+
+    private boolean isDeclined(FraudResult fraudResult) {
+        return fraudResult.getResultModel() != null
+                && fraudResult.getResultModel().getResultModel() != null
+                && ResultStatus.DECLINE == fraudResult.getResultModel().getResultModel().getResultStatus();
+    }
+
+    /**
+     * Must put only, and all of, {@link WindowCounterEngine#MIRRORED_FIELDS}.
+     */
+    private Map<String, String> resolveFields(PaymentModel paymentModel, Metadata metadata) {
+        Map<String, String> fields = new HashMap<>();
+        putIfNotEmpty(fields, EventField.ip, paymentModel.getIp());
+        putIfNotEmpty(fields, EventField.email, paymentModel.getEmail());
+        putIfNotEmpty(fields, EventField.bin, paymentModel.getBin());
+        putIfNotEmpty(fields, EventField.fingerprint, paymentModel.getFingerprint());
+        putIfNotEmpty(fields, EventField.partyId, paymentModel.getPartyId());
+        putIfNotEmpty(fields, EventField.shopId, paymentModel.getShopId());
+        putIfNotEmpty(fields, EventField.cardToken, paymentModel.getCardToken());
+        if (metadata != null) {
+            putIfNotEmpty(fields, EventField.maskedPan, metadata.getMaskedPan());
+        }
+        return fields;
+    }
+
+    private void putIfNotEmpty(Map<String, String> fields, EventField field, String value) {
+        if (!StringUtils.isEmpty(value)) {
+            fields.put(field.name(), value);
+        }
+    }
+
+}
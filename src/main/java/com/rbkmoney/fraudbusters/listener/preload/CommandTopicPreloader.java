@@ -0,0 +1,143 @@
+package com.rbkmoney.fraudbusters.listener.preload;
+
+import com.rbkmoney.damsel.fraudbusters.Command;
+import com.rbkmoney.fraudbusters.config.properties.PreloadProperties;
+import com.rbkmoney.fraudbusters.exception.StartException;
+import com.rbkmoney.fraudbusters.listener.CommandListener;
+import com.rbkmoney.fraudbusters.template.snapshot.PoolSnapshotService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Reads all partitions of a command topic up to the end offsets seen at start.
+ * Every polled batch is split into lanes by record key, lanes are applied in parallel and
+ * records of one key stay in one lane, so the commands of a key are applied in order.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CommandTopicPreloader {
+
+    private final PoolSnapshotService poolSnapshotService;
+    private final PreloadTracker preloadTracker;
+    private final PreloadProperties preloadProperties;
+    private final ExecutorService preloadExecutor;
+
+    public void preload(ConsumerFactory<String, Command> consumerFactory, String topic, CommandListener listener) {
+        try (Consumer<String, Command> consumer = consumerFactory.createConsumer()) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(PartitionInfo::partition)
+                    .map(partition -> new TopicPartition(topic, partition))
+                    .collect(Collectors.toList());
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            int restored = 0;
+            for (TopicPartition partition : partitions) {
+                restored += seek(consumer, partition, beginningOffsets.get(partition), endOffsets.get(partition), listener);
+            }
+
+            PreloadTracker.TopicProgress progress = preloadTracker.topic(topic);
+            progress.start(lag(consumer, partitions, endOffsets));
+            int replayed = 0;
+            long lag;
+            while ((lag = lag(consumer, partitions, endOffsets)) > 0) {
+                progress.update(lag);
+                ConsumerRecords<String, Command> records = consumer.poll(Duration.ofMillis(preloadProperties.getPollTimeoutMillis()));
+                List<Map.Entry<String, Command>> commands = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, Command> record : records) {
+                    commands.add(new AbstractMap.SimpleImmutableEntry<>(record.key(), record.value()));
+                }
+                apply(commands, listener);
+                records.forEach(poolSnapshotService::record);
+                replayed += commands.size();
+            }
+            progress.update(0);
+            log.info("CommandTopicPreloader preload topic: {} partitions: {} restored: {} replayed: {}",
+                    topic, partitions.size(), restored, replayed);
+        }
+    }
+
+    private int seek(Consumer<String, Command> consumer, TopicPartition partition, long beginningOffset,
+                     long endOffset, CommandListener listener) {
+        Long snapshotOffset = poolSnapshotService.nextOffset(partition);
+        if (snapshotOffset != null && snapshotOffset >= beginningOffset && snapshotOffset <= endOffset) {
+            List<Map.Entry<String, Command>> commands = new ArrayList<>(poolSnapshotService.commands(partition).entrySet());
+            apply(commands, listener);
+            consumer.seek(partition, snapshotOffset);
+            return commands.size();
+        }
+        if (snapshotOffset != null) {
+            log.warn("CommandTopicPreloader snapshot offset: {} is out of range [{}, {}] for partition: {}, replay from beginning",
+                    snapshotOffset, beginningOffset, endOffset, partition);
+            poolSnapshotService.reset(partition);
+        }
+        consumer.seekToBeginning(List.of(partition));
+        return 0;
+    }
+
+    private long lag(Consumer<String, Command> consumer, List<TopicPartition> partitions, Map<TopicPartition, Long> endOffsets) {
+        long lag = 0;
+        for (TopicPartition partition : partitions) {
+            lag += Math.max(endOffsets.get(partition) - consumer.position(partition), 0);
+        }
+        return lag;
+    }
+
+    void apply(List<Map.Entry<String, Command>> commands, CommandListener listener) {
+        int lanes = Math.min(preloadProperties.getThreads(), commands.size());
+        if (lanes <= 1) {
+            commands.forEach(command -> listener.listen(command.getValue()));
+            return;
+        }
+        List<List<Command>> byLane = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, Command> command : commands) {
+            byLane.get(lane(command.getKey(), lanes)).add(command.getValue());
+        }
+        List<Future<?>> futures = new ArrayList<>(lanes);
+        for (List<Command> lane : byLane) {
+            if (!lane.isEmpty()) {
+                futures.add(preloadExecutor.submit(() -> lane.forEach(listener::listen)));
+            }
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new StartException("Can't apply preloaded commands", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StartException("Preload interrupted", e);
+        }
+    }
+
+    private int lane(String key, int lanes) {
+        if (key == null) {
+            return 0;
+        }
+        return Math.floorMod(key.hashCode(), lanes);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.rbkmoney.fraudbusters.listener.preload;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class PreloadHealthIndicator implements HealthIndicator {
+
+    private final PreloadTracker preloadTracker;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = preloadTracker.isReady() ? Health.up() : Health.down();
+        if (preloadTracker.getError() != null) {
+            builder.withDetail("error", preloadTracker.getError());
+        }
+        return builder.withDetail("lag", preloadTracker.lags()).build();
+    }
+
+}
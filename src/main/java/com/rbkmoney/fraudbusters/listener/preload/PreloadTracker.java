@@ -0,0 +1,95 @@
+package com.rbkmoney.fraudbusters.listener.preload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preload progress of the command topics, the node is ready once every topic is read up to its end offsets.
+ */
+@Component
+@RequiredArgsConstructor
+public class PreloadTracker {
+
+    public static final String PROGRESS = "startup.preload.progress";
+    public static final String LAG = "startup.preload.lag";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, TopicProgress> topics = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+    private volatile String error;
+
+    public TopicProgress topic(String topic) {
+        return topics.computeIfAbsent(topic, this::register);
+    }
+
+    public void complete() {
+        error = null;
+        ready = true;
+    }
+
+    public void fail(String message) {
+        error = message;
+        ready = false;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Map<String, Long> lags() {
+        Map<String, Long> lags = new TreeMap<>();
+        topics.forEach((topic, progress) -> lags.put(topic, progress.getLag()));
+        return lags;
+    }
+
+    private TopicProgress register(String topic) {
+        TopicProgress progress = new TopicProgress();
+        Tags tags = Tags.of("topic", topic);
+        meterRegistry.gauge(PROGRESS, tags, progress, TopicProgress::getProgress);
+        meterRegistry.gauge(LAG, tags, progress, TopicProgress::getLag);
+        return progress;
+    }
+
+    public static class TopicProgress {
+
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong lag = new AtomicLong(-1);
+
+        public void start(long records) {
+            total.set(records);
+            lag.set(records);
+        }
+
+        public void update(long remaining) {
+            lag.set(Math.max(remaining, 0));
+        }
+
+        public long getLag() {
+            return lag.get();
+        }
+
+        public double getProgress() {
+            long currentLag = lag.get();
+            if (currentLag < 0) {
+                return 0;
+            }
+            long records = total.get();
+            return records == 0 ? 1 : (double) (records - Math.min(currentLag, records)) / records;
+        }
+
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.rbkmoney.fraudbusters.repository;
+
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+
+import java.util.List;
+
+public interface AggregationBatchRepository {
+
+    /**
+     * @return one value per query in the same order: Integer for count and uniq, Long for sum
+     */
+    List<Number> aggregateBatch(List<AggregateQuery> queries);
+
+}
@@ -1,5 +1,6 @@
 package com.rbkmoney.fraudbusters.repository;
 
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 
 import java.util.List;
@@ -19,4 +20,11 @@ public interface AggregationGeneralRepository {
     Integer uniqCountOperationWithGroupBy(String table, String fieldNameBy, String value, String fieldNameCount,
                                           Long from, Long to, List<FieldModel> fieldModels);
 
+    /**
+     * Evaluates all queries over the table in one scan.
+     *
+     * @return one value per query in the same order: Integer for count and uniq, Long for sum
+     */
+    List<Number> aggregateBatch(String table, List<AggregateQuery> queries);
+
 }
@@ -0,0 +1,31 @@
+package com.rbkmoney.fraudbusters.repository.extractor;
+
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class BatchAggregateExtractor implements ResultSetExtractor<List<Number>> {
+
+    private final List<AggregateQuery> queries;
+
+    @Override
+    public List<Number> extractData(ResultSet rs) throws SQLException, DataAccessException {
+        List<Number> result = new ArrayList<>(queries.size());
+        boolean hasRow = rs.next();
+        for (int i = 0; i < queries.size(); i++) {
+            if (queries.get(i).getType() == AggregateQuery.Type.SUM) {
+                result.add(hasRow ? rs.getLong(i + 1) : 0L);
+            } else {
+                result.add(hasRow ? rs.getInt(i + 1) : 0);
+            }
+        }
+        return result;
+    }
+}
@@ -1,17 +1,34 @@
 package com.rbkmoney.fraudbusters.repository.impl;
 
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
 import com.rbkmoney.fraudbusters.repository.AggregationGeneralRepository;
+import com.rbkmoney.fraudbusters.repository.extractor.BatchAggregateExtractor;
 import com.rbkmoney.fraudbusters.repository.extractor.CountExtractor;
 import com.rbkmoney.fraudbusters.repository.extractor.SumExtractor;
+import com.rbkmoney.fraudbusters.repository.lookup.LookupTableRouter;
+import com.rbkmoney.fraudbusters.repository.rollup.RollupQueryRouter;
+import com.rbkmoney.fraudbusters.repository.util.AggregationFunction;
+import com.rbkmoney.fraudbusters.repository.util.AggregationQueryCache;
 import com.rbkmoney.fraudbusters.repository.util.AggregationUtil;
+import com.rbkmoney.fraudo.constant.ResultStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.time.ZoneOffset.UTC;
 
 @Slf4j
 @Service
@@ -19,18 +36,18 @@ import java.util.List;
 public class AggregationGeneralRepositoryImpl implements AggregationGeneralRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final RollupQueryRouter rollupQueryRouter;
+    private final LookupTableRouter lookupTableRouter;
 
     @Override
     public Integer countOperationByField(String table, String fieldName, String value, Long from, Long to) {
-        String sql = String.format(
-                "select %1$s, count() as cnt " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? " +
-                        "group by %1$s", fieldName, table);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.COUNT, null, table, fieldName,
+                StatusFilter.ALL, null, value, from, to);
+        if (routed != null) {
+            return query("countOperationByField", fieldName, routed, new CountExtractor());
+        }
+        String source = lookupTableRouter.route(table, fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, source, fieldName, null, null);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, value);
         log.debug("AggregationGeneralRepositoryImpl countOperationByField sql: {} params: {}", sql, params);
         return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
@@ -39,55 +56,42 @@ public class AggregationGeneralRepositoryImpl implements AggregationGeneralRepos
     @Override
     public Integer countOperationByFieldWithGroupBy(String table, String fieldName, String value, Long from, Long to,
                                                     List<FieldModel> fieldModels) {
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.COUNT, null, table, fieldName,
+                StatusFilter.ALL, fieldModels, value, from, to);
+        if (routed != null) {
+            return query("countOperationByFieldWithGroupBy", fieldName, routed, new CountExtractor());
+        }
+        String source = lookupTableRouter.route(table, fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, source, fieldName, null, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value);
-
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, count() as cnt " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? ", fieldName, table));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format(" group by %1$s ", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
-        String sqlResult = resultSql.toString();
-        log.debug("AggregationGeneralRepositoryImpl countOperationByFieldWithGroupBy sql: {} params: {}", sqlResult, params);
-        return jdbcTemplate.query(sqlResult, params.toArray(), new CountExtractor());
+        log.debug("AggregationGeneralRepositoryImpl countOperationByFieldWithGroupBy sql: {} params: {}", sql, params);
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
     @Override
     public Long sumOperationByFieldWithGroupBy(String table, String fieldName, String value, Long from, Long to,
                                                List<FieldModel> fieldModels) {
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.SUM, null, table, fieldName,
+                StatusFilter.ALL, fieldModels, value, from, to);
+        if (routed != null) {
+            return query("sumOperationByFieldWithGroupBy", fieldName, routed, new SumExtractor());
+        }
+        String source = lookupTableRouter.route(table, fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.SUM, source, fieldName, null, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value);
-
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, sum(amount) as sum " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? ", fieldName, table));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
-
-        String sqlResult = resultSql.toString();
-        log.debug("AggregationGeneralRepositoryImpl sumOperationByFieldWithGroupBy sql: {} params: {}", sqlResult, params);
-        return jdbcTemplate.query(sqlResult, params.toArray(), new SumExtractor());
+        log.debug("AggregationGeneralRepositoryImpl sumOperationByFieldWithGroupBy sql: {} params: {}", sql, params);
+        return jdbcTemplate.query(sql, params.toArray(), new SumExtractor());
     }
 
     @Override
     public Integer uniqCountOperation(String table, String fieldNameBy, String value, String fieldNameCount, Long from, Long to) {
-        String sql = String.format(
-                "select %1$s, uniq(%2$s) as cnt " +
-                        "from %3$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? " +
-                        "group by %1$s", fieldNameBy, fieldNameCount, table);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.UNIQ, fieldNameCount, table,
+                fieldNameBy, StatusFilter.ALL, null, value, from, to);
+        if (routed != null) {
+            return query("uniqCountOperation", fieldNameBy, routed, new CountExtractor());
+        }
+        String source = lookupTableRouter.route(table, fieldNameBy, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.UNIQ, fieldNameCount, source, fieldNameBy, null, null);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, value);
         log.debug("AggregationGeneralRepositoryImpl uniqCountOperation sql: {} params: {}", sql, params);
         return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
@@ -96,20 +100,139 @@ public class AggregationGeneralRepositoryImpl implements AggregationGeneralRepos
     @Override
     public Integer uniqCountOperationWithGroupBy(String table, String fieldNameBy, String value, String fieldNameCount,
                                                  Long from, Long to, List<FieldModel> fieldModels) {
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, uniq(%2$s) as cnt " +
-                        "from %3$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? ", fieldNameBy, fieldNameCount, table));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldNameBy));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.UNIQ, fieldNameCount, table,
+                fieldNameBy, StatusFilter.ALL, fieldModels, value, from, to);
+        if (routed != null) {
+            return query("uniqCountOperationWithGroupBy", fieldNameBy, routed, new CountExtractor());
+        }
+        String source = lookupTableRouter.route(table, fieldNameBy, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.UNIQ, fieldNameCount, source, fieldNameBy, null, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value);
-        String sqlResult = resultSql.toString();
-        log.debug("AggregationGeneralRepositoryImpl uniqCountOperationWithGroupBy sql: {} params: {}", sqlResult, params);
-        return jdbcTemplate.query(sqlResult, params.toArray(), new CountExtractor());
+        log.debug("AggregationGeneralRepositoryImpl uniqCountOperationWithGroupBy sql: {} params: {}", sql, params);
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
+    }
+
+    /**
+     * Answers rollup eligible queries one by one through {@link RollupQueryRouter} and merges the others into
+     * one query per source table and window, so every query reads the table and time range it would read alone.
+     */
+    @Override
+    public List<Number> aggregateBatch(String table, List<AggregateQuery> queries) {
+        if (queries == null || queries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Number> results = new ArrayList<>(queries.size());
+        Map<String, List<Integer>> batches = new LinkedHashMap<>();
+        Map<String, String> batchSources = new HashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            AggregateQuery query = queries.get(i);
+            RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(function(query), query.getOnFieldName(),
+                    table, query.getFieldName(), query.getStatusFilter(), query.getGroupByFields(), query.getValue(),
+                    query.getFrom(), query.getTo());
+            if (routed != null) {
+                results.add(query("aggregateBatch", query.getFieldName(), routed,
+                        query.getType() == AggregateQuery.Type.SUM ? new SumExtractor() : new CountExtractor()));
+                continue;
+            }
+            results.add(null);
+            String source = lookupTableRouter.route(table, query.getFieldName(), query.getFrom());
+            String batchKey = source + ":" + query.getFrom() + ":" + query.getTo();
+            batchSources.putIfAbsent(batchKey, source);
+            batches.computeIfAbsent(batchKey, key -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> batch : batches.entrySet()) {
+            List<AggregateQuery> batchQueries = new ArrayList<>(batch.getValue().size());
+            for (Integer index : batch.getValue()) {
+                batchQueries.add(queries.get(index));
+            }
+            List<Number> batchResults = queryBatch(batchSources.get(batch.getKey()), batchQueries);
+            for (int i = 0; i < batchResults.size(); i++) {
+                results.set(batch.getValue().get(i), batchResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    private List<Number> queryBatch(String source, List<AggregateQuery> queries) {
+        StringBuilder sql = new StringBuilder("select ");
+        List<Object> params = new ArrayList<>();
+        Set<FieldModel> keyFields = new LinkedHashSet<>();
+        for (int i = 0; i < queries.size(); i++) {
+            AggregateQuery query = queries.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            appendBatchAggregate(sql, params, query);
+            sql.append(" as a").append(i);
+            keyFields.add(new FieldModel(query.getFieldName(), query.getValue()));
+        }
+        sql.append(" from ").append(source)
+                .append(" where timestamp >= ? and timestamp <= ? and eventTime >= ? and eventTime <= ? and (");
+        Instant instantFrom = Instant.ofEpochMilli(queries.get(0).getFrom());
+        Instant instantTo = Instant.ofEpochMilli(queries.get(0).getTo());
+        params.add(instantFrom.atZone(UTC).toLocalDate());
+        params.add(instantTo.atZone(UTC).toLocalDate());
+        params.add(instantFrom.getEpochSecond());
+        params.add(instantTo.getEpochSecond());
+        String keySeparator = "";
+        for (FieldModel keyField : keyFields) {
+            sql.append(keySeparator).append(keyField.getName()).append(" = ?");
+            params.add(keyField.getValue());
+            keySeparator = " or ";
+        }
+        sql.append(")");
+        String resultSql = sql.toString();
+        log.debug("AggregationGeneralRepositoryImpl aggregateBatch sql: {} params: {}", resultSql, params);
+        return jdbcTemplate.query(resultSql, params.toArray(), new BatchAggregateExtractor(queries));
+    }
+
+    private AggregationFunction function(AggregateQuery query) {
+        switch (query.getType()) {
+            case SUM:
+                return AggregationFunction.SUM;
+            case UNIQ:
+                return AggregationFunction.UNIQ;
+            default:
+                return AggregationFunction.COUNT;
+        }
+    }
+
+    private <T> T query(String operation, String fieldName, RollupQueryRouter.RoutedQuery routed,
+                        ResultSetExtractor<T> extractor) {
+        lookupTableRouter.recordRollup(fieldName);
+        log.debug("AggregationGeneralRepositoryImpl {} rollup sql: {} params: {}", operation, routed.getSql(), routed.getParams());
+        return jdbcTemplate.query(routed.getSql(), routed.getParams(), extractor);
+    }
+
+    private void appendBatchAggregate(StringBuilder sql, List<Object> params, AggregateQuery query) {
+        switch (query.getType()) {
+            case SUM:
+                sql.append("sumIf(amount, ");
+                break;
+            case UNIQ:
+                sql.append("uniqIf(").append(query.getOnFieldName()).append(", ");
+                break;
+            default:
+                sql.append("countIf(");
+        }
+        sql.append(query.getFieldName()).append(" = ? and eventTime >= ? and eventTime <= ?");
+        params.add(query.getValue());
+        params.add(Instant.ofEpochMilli(query.getFrom()).getEpochSecond());
+        params.add(Instant.ofEpochMilli(query.getTo()).getEpochSecond());
+        if (query.getGroupByFields() != null) {
+            for (FieldModel fieldModel : query.getGroupByFields()) {
+                sql.append(" and ").append(fieldModel.getName()).append(" = ?");
+                params.add(fieldModel.getValue());
+            }
+        }
+        if (query.getStatusFilter() == StatusFilter.SUCCESS) {
+            sql.append(" and resultStatus != ?");
+            params.add(ResultStatus.DECLINE.name());
+        } else if (query.getStatusFilter() == StatusFilter.DECLINE) {
+            sql.append(" and resultStatus = ?");
+            params.add(ResultStatus.DECLINE.name());
+        }
+        sql.append(")");
     }
 
 }
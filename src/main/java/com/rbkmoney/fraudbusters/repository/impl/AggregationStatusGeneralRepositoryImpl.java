@@ -4,6 +4,8 @@ import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.repository.AggregationStatusGeneralRepository;
 import com.rbkmoney.fraudbusters.repository.extractor.CountExtractor;
 import com.rbkmoney.fraudbusters.repository.extractor.SumExtractor;
+import com.rbkmoney.fraudbusters.repository.util.AggregationFunction;
+import com.rbkmoney.fraudbusters.repository.util.AggregationQueryCache;
 import com.rbkmoney.fraudbusters.repository.util.AggregationUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,19 +20,13 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AggregationStatusGeneralRepositoryImpl implements AggregationStatusGeneralRepository {
 
+    private static final String STATUS_CONDITION = " and status = ?";
+
     private final JdbcTemplate jdbcTemplate;
 
     @Override
     public Integer countOperationByField(String table, String fieldName, String value, Long from, Long to, String status) {
-        String sql = String.format(
-                "select %1$s, count() as cnt " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? " +
-                        "group by %1$s", fieldName, table);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, table, fieldName, STATUS_CONDITION, null);
         ArrayList<Object> params = AggregationUtil.generateStatusParams(from, to, value, status);
         log.debug("AggregationGeneralRepositoryImpl countOperationByField sql: {} params: {}", sql, params);
         return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
@@ -39,56 +35,25 @@ public class AggregationStatusGeneralRepositoryImpl implements AggregationStatus
     @Override
     public Integer countOperationByFieldWithGroupBy(String table, String fieldName, String value, Long from, Long to,
                                                     List<FieldModel> fieldModels, String status) {
-        ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, status, value);
-
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, count() as cnt " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? and status = ? " +
-                        "and %1$s = ? ", fieldName, table));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format(" group by %1$s ", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
-        String sqlResult = resultSql.toString();
-        log.debug("AggregationGeneralRepositoryImpl countOperationByFieldWithGroupBy sql: {} params: {}", sqlResult, params);
-        return jdbcTemplate.query(sqlResult, params.toArray(), new CountExtractor());
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, table, fieldName, STATUS_CONDITION, fieldModels);
+        ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, status);
+        log.debug("AggregationGeneralRepositoryImpl countOperationByFieldWithGroupBy sql: {} params: {}", sql, params);
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
     @Override
     public Long sumOperationByFieldWithGroupBy(String table, String fieldName, String value, Long from, Long to,
                                                List<FieldModel> fieldModels, String status) {
-        ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, status, value);
-
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, sum(amount) as sum " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? and status = ? " +
-                        "and %1$s = ? ", fieldName, table));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
-
-        String sqlResult = resultSql.toString();
-        log.debug("AggregationGeneralRepositoryImpl sumOperationByFieldWithGroupBy sql: {} params: {}", sqlResult, params);
-        return jdbcTemplate.query(sqlResult, params.toArray(), new SumExtractor());
+        String sql = AggregationQueryCache.getSql(AggregationFunction.SUM, table, fieldName, STATUS_CONDITION, fieldModels);
+        ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, status);
+        log.debug("AggregationGeneralRepositoryImpl sumOperationByFieldWithGroupBy sql: {} params: {}", sql, params);
+        return jdbcTemplate.query(sql, params.toArray(), new SumExtractor());
     }
 
     @Override
     public Integer uniqCountOperation(String table, String fieldNameBy, String value, String fieldNameCount,
                                       Long from, Long to, String status) {
-        String sql = String.format(
-                "select %1$s, uniq(%2$s) as cnt " +
-                        "from %3$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? " +
-                        "group by %1$s", fieldNameBy, fieldNameCount, table);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.UNIQ, fieldNameCount, table, fieldNameBy, STATUS_CONDITION, null);
         ArrayList<Object> params = AggregationUtil.generateStatusParams(from, to, value, status);
         log.debug("AggregationGeneralRepositoryImpl uniqCountOperation sql: {} params: {}", sql, params);
         return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
@@ -97,20 +62,11 @@ public class AggregationStatusGeneralRepositoryImpl implements AggregationStatus
     @Override
     public Integer uniqCountOperationWithGroupBy(String table, String fieldNameBy, String value, String fieldNameCount,
                                                  Long from, Long to, List<FieldModel> fieldModels, String status) {
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, uniq(%2$s) as cnt " +
-                        "from %3$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? ", fieldNameBy, fieldNameCount, table));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldNameBy));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.UNIQ, fieldNameCount, table, fieldNameBy, STATUS_CONDITION,
+                fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, status);
-        String sqlResult = resultSql.toString();
-        log.debug("AggregationGeneralRepositoryImpl uniqCountOperationWithGroupBy sql: {} params: {}", sqlResult, params);
-        return jdbcTemplate.query(sqlResult, params.toArray(), new CountExtractor());
+        log.debug("AggregationGeneralRepositoryImpl uniqCountOperationWithGroupBy sql: {} params: {}", sql, params);
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
 }
@@ -24,7 +24,7 @@ import java.util.Map;
 public class ChargebackRepository implements Repository<Chargeback>, AggregationRepository {
 
     private final AggregationStatusGeneralRepositoryImpl aggregationStatusGeneralRepository;
-    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate writeJdbcTemplate;
 
     private static final String INSERT = String.format(
             "INSERT INTO %1S (%2S) VALUES (%3S)",
@@ -37,7 +37,7 @@ public class ChargebackRepository implements Repository<Chargeback>, Aggregation
         log.debug("ChargebackRepository insert chargeback: {}", chargeback);
         if (chargeback != null) {
             Map<String, Object> parameters = ChargebackParametersGenerator.generateParamsByFraudModel(chargeback);
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
+            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(writeJdbcTemplate.getDataSource())
                     .withTableName(EventSource.ANALYTIC_EVENTS_SINK_CHARGEBACK.getTable());
             simpleJdbcInsert.setColumnNames(Lists.newArrayList(parameters.keySet()));
             simpleJdbcInsert.execute(parameters);
@@ -4,45 +4,71 @@ import com.google.common.collect.Lists;
 import com.rbkmoney.fraudbusters.constant.ClickhouseSchemeNames;
 import com.rbkmoney.fraudbusters.constant.EventSource;
 import com.rbkmoney.fraudbusters.domain.Event;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
 import com.rbkmoney.fraudbusters.repository.AggregationGeneralRepository;
 import com.rbkmoney.fraudbusters.repository.PaymentRepository;
 import com.rbkmoney.fraudbusters.repository.Repository;
 import com.rbkmoney.fraudbusters.repository.extractor.CountExtractor;
 import com.rbkmoney.fraudbusters.repository.extractor.SumExtractor;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseBatchInserter;
+import com.rbkmoney.fraudbusters.repository.lookup.LookupTableRouter;
+import com.rbkmoney.fraudbusters.repository.rollup.RollupQueryRouter;
 import com.rbkmoney.fraudbusters.repository.setter.EventBatchPreparedStatementSetter;
 import com.rbkmoney.fraudbusters.repository.setter.EventParametersGenerator;
+import com.rbkmoney.fraudbusters.repository.setter.EventRowBinaryWriter;
+import com.rbkmoney.fraudbusters.repository.util.AggregationFunction;
+import com.rbkmoney.fraudbusters.repository.util.AggregationQueryCache;
 import com.rbkmoney.fraudbusters.repository.util.AggregationUtil;
 import com.rbkmoney.fraudo.constant.ResultStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static java.time.ZoneOffset.UTC;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class FraudResultRepository implements Repository<Event>, PaymentRepository {
+public class FraudResultRepository implements Repository<Event>, PaymentRepository, AggregationBatchRepository {
 
     private final AggregationGeneralRepository aggregationGeneralRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate writeJdbcTemplate;
+    private final ClickhouseBatchInserter clickhouseBatchInserter;
+    private final RollupQueryRouter rollupQueryRouter;
+    private final LookupTableRouter lookupTableRouter;
 
-    private static final String INSERT = "INSERT INTO fraud.events_unique " +
+    private static final String INSERT_COLUMNS = "INSERT INTO fraud.events_unique " +
             " (timestamp, eventTimeHour, eventTime, ip, email, bin, fingerprint, shopId, partyId, resultStatus, amount, " +
-            "country, checkedRule, bankCountry, currency, invoiceId, maskedPan, bankName, cardToken, paymentId, checkedTemplate)" +
+            "country, checkedRule, bankCountry, currency, invoiceId, maskedPan, bankName, cardToken, paymentId, checkedTemplate)";
+    private static final String INSERT = INSERT_COLUMNS +
             " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ROW_BINARY = INSERT_COLUMNS + ClickhouseBatchInserter.ROW_BINARY_FORMAT;
+    private static final EventRowBinaryWriter ROW_BINARY_WRITER = new EventRowBinaryWriter();
+
+    private static final String NOT_DECLINED_CONDITION = " and resultStatus != ?";
+    private static final String DECLINED_CONDITION = " and resultStatus = ?";
+    private static final String SELECT_DISTINCT_SHOPS = "select distinct partyId, shopId from fraud.events_unique " +
+            "where timestamp >= ? and timestamp <= ?";
 
     @Override
     public void insert(Event value) {
         log.debug("EventRepository insert value: {}", value);
         if (value != null) {
             Map<String, Object> parameters = EventParametersGenerator.generateParamsByFraudModel(value);
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
+            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(writeJdbcTemplate.getDataSource())
                     .withSchemaName(ClickhouseSchemeNames.FRAUD)
                     .withTableName(ClickhouseSchemeNames.EVENTS_UNIQUE);
             simpleJdbcInsert.setColumnNames(Lists.newArrayList(parameters.keySet()));
@@ -54,7 +80,8 @@ public class FraudResultRepository implements Repository<Event>, PaymentReposito
     public void insertBatch(List<Event> events) {
         log.debug("EventRepository insertBatch events: {}", events);
         if (events != null && !events.isEmpty()) {
-            jdbcTemplate.batchUpdate(INSERT, new EventBatchPreparedStatementSetter(events));
+            clickhouseBatchInserter.insert(events, INSERT, new EventBatchPreparedStatementSetter(events),
+                    INSERT_ROW_BINARY, ROW_BINARY_WRITER);
         }
     }
 
@@ -63,6 +90,14 @@ public class FraudResultRepository implements Repository<Event>, PaymentReposito
         return aggregationGeneralRepository.countOperationByField(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, value, from, to);
     }
 
+    public void forEachShop(Long from, Long to, BiConsumer<String, String> shopConsumer) {
+        List<Object> params = List.of(Instant.ofEpochMilli(from).atZone(UTC).toLocalDate(),
+                Instant.ofEpochMilli(to).atZone(UTC).toLocalDate());
+        log.debug("FraudResultRepository forEachShop sql: {} params: {}", SELECT_DISTINCT_SHOPS, params);
+        jdbcTemplate.query(SELECT_DISTINCT_SHOPS, params.toArray(),
+                (RowCallbackHandler) rs -> shopConsumer.accept(rs.getString("partyId"), rs.getString("shopId")));
+    }
+
     @Override
     public Integer countOperationByFieldWithGroupBy(String fieldName, String value, Long from, Long to, List<FieldModel> fieldModels) {
         return aggregationGeneralRepository.countOperationByFieldWithGroupBy(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, value,
@@ -91,71 +126,80 @@ public class FraudResultRepository implements Repository<Event>, PaymentReposito
     @Override
     public Integer countOperationSuccessWithGroupBy(String fieldName, String value, Long from, Long to,
                                                     List<FieldModel> fieldModels) {
-        StringBuilder sql = new StringBuilder(String.format("select %1$s, count() as cnt " +
-                "from %2$s " +
-                "where timestamp >= ? " +
-                "and timestamp <= ? " +
-                "and eventTime >= ? " +
-                "and eventTime <= ? " +
-                "and %1$s = ? and resultStatus != ? ", fieldName, EventSource.FRAUD_EVENTS_UNIQUE.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.COUNT, null,
+                EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, StatusFilter.SUCCESS, fieldModels, value, from, to);
+        if (routed != null) {
+            lookupTableRouter.recordRollup(fieldName);
+            log.debug("FraudResultRepository countOperationSuccessWithGroupBy rollup sql: {} params: {}", routed.getSql(), routed.getParams());
+            return jdbcTemplate.query(routed.getSql(), routed.getParams(), new CountExtractor());
+        }
+        String source = lookupTableRouter.route(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, source, fieldName,
+                NOT_DECLINED_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, ResultStatus.DECLINE.name());
         log.debug("FraudResultRepository countOperationSuccessWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new CountExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
     @Override
     public Integer countOperationErrorWithGroupBy(String fieldName, String value, Long from, Long to,
                                                   List<FieldModel> fieldModels, String errorCode) {
         log.warn("Error code ignore on this source: {} errorCode: {}", EventSource.FRAUD_EVENTS_UNIQUE.getTable(), errorCode);
-        StringBuilder sql = new StringBuilder(String.format("select %1$s, count() as cnt " +
-                "from %2$s " +
-                "where timestamp >= ? " +
-                "and timestamp <= ? " +
-                "and eventTime >= ? " +
-                "and eventTime <= ? " +
-                "and %1$s = ? and resultStatus = ? ", fieldName, EventSource.FRAUD_EVENTS_UNIQUE.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.COUNT, null,
+                EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, StatusFilter.DECLINE, fieldModels, value, from, to);
+        if (routed != null) {
+            lookupTableRouter.recordRollup(fieldName);
+            log.debug("FraudResultRepository countOperationErrorWithGroupBy rollup sql: {} params: {}", routed.getSql(), routed.getParams());
+            return jdbcTemplate.query(routed.getSql(), routed.getParams(), new CountExtractor());
+        }
+        String source = lookupTableRouter.route(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, source, fieldName,
+                DECLINED_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, ResultStatus.DECLINE.name());
         log.debug("FraudResultRepository countOperationErrorWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new CountExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
     @Override
     public Long sumOperationSuccessWithGroupBy(String fieldName, String value, Long from, Long to,
                                                List<FieldModel> fieldModels) {
-        StringBuilder sql = new StringBuilder(String.format("select %1$s, sum(amount) as sum " +
-                "from %2$s " +
-                "where timestamp >= ? " +
-                "and timestamp <= ? " +
-                "and eventTime >= ? " +
-                "and eventTime <= ? " +
-                "and %1$s = ? and resultStatus != ? ", fieldName, EventSource.FRAUD_EVENTS_UNIQUE.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.SUM, null,
+                EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, StatusFilter.SUCCESS, fieldModels, value, from, to);
+        if (routed != null) {
+            lookupTableRouter.recordRollup(fieldName);
+            log.debug("FraudResultRepository sumOperationSuccessWithGroupBy rollup sql: {} params: {}", routed.getSql(), routed.getParams());
+            return jdbcTemplate.query(routed.getSql(), routed.getParams(), new SumExtractor());
+        }
+        String source = lookupTableRouter.route(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.SUM, source, fieldName,
+                NOT_DECLINED_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, ResultStatus.DECLINE.name());
         log.debug("FraudResultRepository sumOperationSuccessWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new SumExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new SumExtractor());
     }
 
     @Override
     public Long sumOperationErrorWithGroupBy(String fieldName, String value, Long from, Long to,
                                              List<FieldModel> fieldModels, String errorCode) {
         log.warn("Error code ignore on this source: {} errorCode: {}", EventSource.FRAUD_EVENTS_UNIQUE.getTable(), errorCode);
-        StringBuilder sql = new StringBuilder(String.format("select %1$s, sum(amount) as sum " +
-                "from %2$s " +
-                "where timestamp >= ? " +
-                "and timestamp <= ? " +
-                "and eventTime >= ? " +
-                "and eventTime <= ? " +
-                "and %1$s = ? and resultStatus = ? ", fieldName, EventSource.FRAUD_EVENTS_UNIQUE.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        RollupQueryRouter.RoutedQuery routed = rollupQueryRouter.route(AggregationFunction.SUM, null,
+                EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, StatusFilter.DECLINE, fieldModels, value, from, to);
+        if (routed != null) {
+            lookupTableRouter.recordRollup(fieldName);
+            log.debug("FraudResultRepository sumOperationErrorWithGroupBy rollup sql: {} params: {}", routed.getSql(), routed.getParams());
+            return jdbcTemplate.query(routed.getSql(), routed.getParams(), new SumExtractor());
+        }
+        String source = lookupTableRouter.route(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), fieldName, from);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.SUM, source, fieldName,
+                DECLINED_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, ResultStatus.DECLINE.name());
         log.debug("FraudResultRepository sumOperationErrorWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new SumExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new SumExtractor());
+    }
+
+    @Override
+    public List<Number> aggregateBatch(List<AggregateQuery> queries) {
+        return aggregationGeneralRepository.aggregateBatch(EventSource.FRAUD_EVENTS_UNIQUE.getTable(), queries);
     }
 
 }
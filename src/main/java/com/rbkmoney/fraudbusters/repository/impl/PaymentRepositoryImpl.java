@@ -13,6 +13,8 @@ import com.rbkmoney.fraudbusters.repository.extractor.SumExtractor;
 import com.rbkmoney.fraudbusters.repository.setter.BaseRawParametersGenerator;
 import com.rbkmoney.fraudbusters.repository.setter.PaymentBatchPreparedStatementSetter;
 import com.rbkmoney.fraudbusters.repository.setter.PaymentParametersGenerator;
+import com.rbkmoney.fraudbusters.repository.util.AggregationFunction;
+import com.rbkmoney.fraudbusters.repository.util.AggregationQueryCache;
 import com.rbkmoney.fraudbusters.repository.util.AggregationUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +37,7 @@ public class PaymentRepositoryImpl implements Repository<Payment>, PaymentReposi
 
     private final AggregationGeneralRepository aggregationGeneralRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate writeJdbcTemplate;
 
     private static final String INSERT = String.format(
             "INSERT INTO %1s (%2s) VALUES (%3s)",
@@ -42,12 +45,15 @@ public class PaymentRepositoryImpl implements Repository<Payment>, PaymentReposi
             BaseRawParametersGenerator.BASE_RAW_PARAMETERS,
             BaseRawParametersGenerator.BASE_RAW_PARAMETERS_MARK);
 
+    private static final String STATUS_CONDITION = " and status = ?";
+    private static final String STATUS_ERROR_CODE_CONDITION = " and status = ? and errorCode = ?";
+
     @Override
     public void insert(Payment payment) {
         log.debug("PaymentRepository insert payment: {}", payment);
         if (payment != null) {
             Map<String, Object> parameters = PaymentParametersGenerator.generateParamsByFraudModel(payment);
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
+            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(writeJdbcTemplate.getDataSource())
                     .withTableName(EventSource.ANALYTIC_EVENTS_SINK.getTable());
             simpleJdbcInsert.setColumnNames(Lists.newArrayList(parameters.keySet()));
             simpleJdbcInsert.execute(parameters);
@@ -58,7 +64,7 @@ public class PaymentRepositoryImpl implements Repository<Payment>, PaymentReposi
     public void insertBatch(List<Payment> batch) {
         log.debug("PaymentRepository insertBatch batch: {}", batch);
         if (batch != null && !batch.isEmpty()) {
-            jdbcTemplate.batchUpdate(INSERT, new PaymentBatchPreparedStatementSetter(batch));
+            writeJdbcTemplate.batchUpdate(INSERT, new PaymentBatchPreparedStatementSetter(batch));
         }
     }
 
@@ -96,74 +102,42 @@ public class PaymentRepositoryImpl implements Repository<Payment>, PaymentReposi
     @Override
     public Integer countOperationSuccessWithGroupBy(String fieldName, String value, Long from, Long to,
                                                     List<FieldModel> fieldModels) {
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, count() as cnt " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? ", fieldName, EventSource.ANALYTIC_EVENTS_SINK.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, EventSource.ANALYTIC_EVENTS_SINK.getTable(), fieldName,
+                STATUS_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, AnalyticStatus.captured.name());
         log.debug("AnalyticRepository countOperationSuccessWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new CountExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
     @Override
     public Integer countOperationErrorWithGroupBy(String fieldName, String value, Long from, Long to,
                                                   List<FieldModel> fieldModels, String errorCode) {
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, count() as cnt " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? and errorCode=? ", fieldName, EventSource.ANALYTIC_EVENTS_SINK.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.COUNT, EventSource.ANALYTIC_EVENTS_SINK.getTable(), fieldName,
+                STATUS_ERROR_CODE_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value,
                 AnalyticStatus.failed.name(), errorCode);
         log.debug("AnalyticRepository countOperationErrorWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new CountExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new CountExtractor());
     }
 
     @Override
     public Long sumOperationSuccessWithGroupBy(String fieldName, String value, Long from, Long to,
                                                List<FieldModel> fieldModels) {
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, sum(amount) as sum " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? ", fieldName, EventSource.ANALYTIC_EVENTS_SINK.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.SUM, EventSource.ANALYTIC_EVENTS_SINK.getTable(), fieldName,
+                STATUS_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value, AnalyticStatus.captured.name());
         log.debug("AnalyticRepository sumOperationSuccessWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new SumExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new SumExtractor());
     }
 
     @Override
     public Long sumOperationErrorWithGroupBy(String fieldName, String value, Long from, Long to,
                                              List<FieldModel> fieldModels, String errorCode) {
-        StringBuilder sql = new StringBuilder(String.format(
-                "select %1$s, sum(amount) as sum " +
-                        "from %2$s " +
-                        "where timestamp >= ? " +
-                        "and timestamp <= ? " +
-                        "and eventTime >= ? " +
-                        "and eventTime <= ? " +
-                        "and %1$s = ? and status = ? and errorCode=? ", fieldName, EventSource.ANALYTIC_EVENTS_SINK.getTable()));
-        StringBuilder sqlGroupBy = new StringBuilder(String.format("group by %1$s", fieldName));
-        StringBuilder resultSql = AggregationUtil.appendGroupingFields(fieldModels, sql, sqlGroupBy);
+        String sql = AggregationQueryCache.getSql(AggregationFunction.SUM, EventSource.ANALYTIC_EVENTS_SINK.getTable(), fieldName,
+                STATUS_ERROR_CODE_CONDITION, fieldModels);
         ArrayList<Object> params = AggregationUtil.generateParams(from, to, fieldModels, value,
                 AnalyticStatus.failed.name(), errorCode);
         log.debug("AnalyticRepository sumOperationErrorWithGroupBy sql: {} params: {}", sql, params);
-        return jdbcTemplate.query(resultSql.toString(), params.toArray(), new SumExtractor());
+        return jdbcTemplate.query(sql, params.toArray(), new SumExtractor());
     }
 }
@@ -24,7 +24,7 @@ import java.util.Map;
 public class RefundRepository implements Repository<Refund>, AggregationRepository {
 
     private final AggregationStatusGeneralRepositoryImpl aggregationStatusGeneralRepository;
-    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate writeJdbcTemplate;
 
     private static final String INSERT = String.format(
             "INSERT INTO %1S (%2S) VALUES (%3S)",
@@ -37,7 +37,7 @@ public class RefundRepository implements Repository<Refund>, AggregationReposito
         log.debug("RefundRepository insert payment: {}", refund);
         if (refund != null) {
             Map<String, Object> parameters = RefundParametersGenerator.generateParamsByFraudModel(refund);
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
+            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(writeJdbcTemplate.getDataSource())
                     .withTableName(EventSource.ANALYTIC_EVENTS_SINK_REFUND.getTable());
             simpleJdbcInsert.setColumnNames(Lists.newArrayList(parameters.keySet()));
             simpleJdbcInsert.execute(parameters);
@@ -4,12 +4,16 @@ import com.google.common.collect.Lists;
 import com.rbkmoney.fraudbusters.constant.ClickhouseSchemeNames;
 import com.rbkmoney.fraudbusters.constant.EventSource;
 import com.rbkmoney.fraudbusters.domain.EventP2P;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.repository.AggregationBatchRepository;
 import com.rbkmoney.fraudbusters.repository.AggregationGeneralRepository;
 import com.rbkmoney.fraudbusters.repository.AggregationRepository;
 import com.rbkmoney.fraudbusters.repository.Repository;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseBatchInserter;
 import com.rbkmoney.fraudbusters.repository.setter.EventP2PBatchPreparedStatementSetter;
 import com.rbkmoney.fraudbusters.repository.setter.EventP2PParametersGenerator;
+import com.rbkmoney.fraudbusters.repository.setter.EventP2PRowBinaryWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -22,22 +26,26 @@ import java.util.Map;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class EventP2PRepository implements Repository<EventP2P>, AggregationRepository {
+public class EventP2PRepository implements Repository<EventP2P>, AggregationRepository, AggregationBatchRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate writeJdbcTemplate;
+    private final ClickhouseBatchInserter clickhouseBatchInserter;
     private final AggregationGeneralRepository aggregationGeneralRepository;
 
-    private static final String INSERT = "INSERT INTO fraud.events_p_to_p " +
+    private static final String INSERT_COLUMNS = "INSERT INTO fraud.events_p_to_p " +
             "(timestamp, eventTime, eventTimeHour, identityId, transferId, ip, email, bin, fingerprint, amount, " +
             "currency, country, bankCountry, maskedPan, bankName, cardTokenFrom, cardTokenTo, resultStatus, checkedRule, " +
-            "checkedTemplate) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            "checkedTemplate)";
+    private static final String INSERT = INSERT_COLUMNS + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ROW_BINARY = INSERT_COLUMNS + ClickhouseBatchInserter.ROW_BINARY_FORMAT;
+    private static final EventP2PRowBinaryWriter ROW_BINARY_WRITER = new EventP2PRowBinaryWriter();
 
     @Override
     public void insert(EventP2P value) {
         log.debug("EventP2PRepository insert value: {}", value);
         if (value != null) {
             Map<String, Object> parameters = EventP2PParametersGenerator.generateParamsByFraudModel(value);
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
+            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(writeJdbcTemplate.getDataSource())
                     .withSchemaName(ClickhouseSchemeNames.FRAUD)
                     .withTableName(ClickhouseSchemeNames.EVENTS_P_TO_P);
             simpleJdbcInsert.setColumnNames(Lists.newArrayList(parameters.keySet()));
@@ -50,7 +58,8 @@ public class EventP2PRepository implements Repository<EventP2P>, AggregationRepo
     public void insertBatch(List<EventP2P> events) {
         log.debug("EventP2PRepository insertBatch events: {}", events);
         if (events != null && !events.isEmpty()) {
-            jdbcTemplate.batchUpdate(INSERT, new EventP2PBatchPreparedStatementSetter(events));
+            clickhouseBatchInserter.insert(events, INSERT, new EventP2PBatchPreparedStatementSetter(events),
+                    INSERT_ROW_BINARY, ROW_BINARY_WRITER);
         }
     }
 
@@ -78,4 +87,9 @@ public class EventP2PRepository implements Repository<EventP2P>, AggregationRepo
                 fieldNameBy, value, fieldNameCount, from, to, fieldModels);
     }
 
+    @Override
+    public List<Number> aggregateBatch(List<AggregateQuery> queries) {
+        return aggregationGeneralRepository.aggregateBatch(EventSource.FRAUD_EVENTS_P_TO_P.getTable(), queries);
+    }
+
 }
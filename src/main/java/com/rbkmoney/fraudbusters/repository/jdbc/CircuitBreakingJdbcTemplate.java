@@ -0,0 +1,79 @@
+package com.rbkmoney.fraudbusters.repository.jdbc;
+
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.*;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Read path template, queries are rejected without taking a connection while the circuit is open,
+ * so aggregators fail fast instead of waiting for the pool or the query deadline. Queries made inside an
+ * inspection are bounded by its remaining budget through the statement query timeout. Only failures that
+ * say ClickHouse is unreachable or overloaded count against the circuit; any other error means the server
+ * answered and counts as a success.
+ */
+public class CircuitBreakingJdbcTemplate extends JdbcTemplate {
+
+    private final ClickhouseCircuitBreaker circuitBreaker;
+
+    public CircuitBreakingJdbcTemplate(DataSource dataSource, ClickhouseCircuitBreaker circuitBreaker) {
+        super(dataSource);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
+        return guarded(() -> super.execute(action));
+    }
+
+    @Override
+    public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+        return guarded(() -> super.execute(action));
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) throws DataAccessException {
+        return guarded(() -> super.execute(psc, action));
+    }
+
+    @Override
+    protected void applyStatementSettings(Statement stmt) throws SQLException {
+        super.applyStatementSettings(stmt);
+        int queryTimeout = InspectionDeadline.queryTimeoutSeconds();
+        if (queryTimeout > 0 && (stmt.getQueryTimeout() == 0 || queryTimeout < stmt.getQueryTimeout())) {
+            stmt.setQueryTimeout(queryTimeout);
+        }
+    }
+
+    private <T> T guarded(Supplier<T> call) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new DataAccessResourceFailureException("ClickHouse circuit is open, query rejected");
+        }
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            if (isAvailabilityFailure(e)) {
+                circuitBreaker.onError();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    static boolean isAvailabilityFailure(RuntimeException e) {
+        return e instanceof DataAccessResourceFailureException
+                || e instanceof QueryTimeoutException
+                || e instanceof TransientDataAccessException;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.rbkmoney.fraudbusters.repository.jdbc;
+
+import com.rbkmoney.fraudbusters.constant.ClickhouseInsertFormat;
+import com.rbkmoney.fraudbusters.repository.setter.RowBinaryWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.clickhouse.ClickHouseConnection;
+import ru.yandex.clickhouse.ClickHouseStatement;
+
+import java.util.List;
+
+/**
+ * Sends a batch either as textual VALUES built by the driver or as RowBinary written straight
+ * from the domain objects into the request body. Request compression is set on the write data source.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ClickhouseBatchInserter {
+
+    public static final String ROW_BINARY_FORMAT = " FORMAT RowBinary";
+
+    private final JdbcTemplate writeJdbcTemplate;
+    private final ClickhouseInsertFormat format;
+
+    public <T> void insert(List<T> batch, String valuesSql, BatchPreparedStatementSetter setter,
+                           String rowBinarySql, RowBinaryWriter<T> rowBinaryWriter) {
+        if (format == ClickhouseInsertFormat.ROW_BINARY) {
+            insertRowBinary(rowBinarySql, batch, rowBinaryWriter);
+        } else {
+            writeJdbcTemplate.batchUpdate(valuesSql, setter);
+        }
+    }
+
+    public <T> void insertRowBinary(String sql, List<T> batch, RowBinaryWriter<T> rowBinaryWriter) {
+        log.debug("ClickhouseBatchInserter insertRowBinary sql: {} size: {}", sql, batch.size());
+        writeJdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (ClickHouseStatement statement = connection.unwrap(ClickHouseConnection.class).createStatement()) {
+                statement.sendRowBinaryStream(sql, stream -> {
+                    for (T value : batch) {
+                        rowBinaryWriter.write(stream, value);
+                    }
+                });
+            }
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.rbkmoney.fraudbusters.repository.jdbc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Failure rate breaker over the last {@code windowSize} calls. Once the rate reaches the threshold calls are
+ * rejected for {@code openDurationMillis}, then a single probe decides whether to close the circuit again.
+ */
+@Slf4j
+public class ClickhouseCircuitBreaker {
+
+    public static final String STATE = "clickhouse.circuit.state";
+    public static final String REJECTED = "clickhouse.circuit.rejected";
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureRateThreshold;
+    private final long openDurationMillis;
+    private final boolean[] window;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int calls;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    public ClickhouseCircuitBreaker(int failureRateThreshold, int windowSize, long openDurationMillis,
+                                    MeterRegistry meterRegistry) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        this.window = new boolean[windowSize];
+        this.rejected = meterRegistry.counter(REJECTED);
+        meterRegistry.gauge(STATE, this, breaker -> breaker.getState().ordinal());
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMillis) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probing) {
+            probing = true;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            transitionTo(State.CLOSED);
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onError() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (calls == window.length && failures * 100 >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        window[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        transitionTo(State.OPEN);
+    }
+
+    private void transitionTo(State next) {
+        log.warn("ClickhouseCircuitBreaker state: {} -> {} failures: {} calls: {}", state, next, failures, calls);
+        state = next;
+        if (next == State.CLOSED) {
+            calls = 0;
+            failures = 0;
+            position = 0;
+        }
+    }
+
+}
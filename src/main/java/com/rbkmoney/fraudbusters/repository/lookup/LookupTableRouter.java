@@ -0,0 +1,66 @@
+package com.rbkmoney.fraudbusters.repository.lookup;
+
+import com.rbkmoney.fraudbusters.constant.EventSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the copy of fraud.events_unique ordered by {@code (fieldName, eventTime)} for point lookups by one key
+ * field, so a query reads the granules of one value instead of every row of the time range. Windows starting
+ * before {@code sinceMillis}, when the lookup tables were created, stay on the raw table. Every decision is
+ * counted in {@code clickhouse.query.route} tagged by route and field.
+ */
+public class LookupTableRouter {
+
+    public static final String QUERY_ROUTE = "clickhouse.query.route";
+    public static final String ROUTE_RAW = "raw";
+    public static final String ROUTE_LOOKUP = "lookup";
+    public static final String ROUTE_ROLLUP = "rollup";
+
+    public static final Map<String, String> LOOKUP_TABLES = Map.of(
+            "cardToken", "fraud.events_unique_by_card_token",
+            "email", "fraud.events_unique_by_email",
+            "ip", "fraud.events_unique_by_ip",
+            "fingerprint", "fraud.events_unique_by_fingerprint",
+            "bin", "fraud.events_unique_by_bin");
+
+    private static final String MULTI_FIELD = "multi";
+
+    private final boolean enable;
+    private final long sinceMillis;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public LookupTableRouter(boolean enable, long sinceMillis, MeterRegistry meterRegistry) {
+        this.enable = enable;
+        this.sinceMillis = sinceMillis;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public String route(String table, String fieldName, Long from) {
+        String lookupTable = fieldName != null ? LOOKUP_TABLES.get(fieldName) : null;
+        if (!enable || lookupTable == null || from == null || from < sinceMillis
+                || !EventSource.FRAUD_EVENTS_UNIQUE.getTable().equals(table)) {
+            record(ROUTE_RAW, fieldName);
+            return table;
+        }
+        record(ROUTE_LOOKUP, fieldName);
+        return lookupTable;
+    }
+
+    public void recordRollup(String fieldName) {
+        record(ROUTE_ROLLUP, fieldName);
+    }
+
+    private void record(String route, String fieldName) {
+        String field = fieldName != null ? fieldName : MULTI_FIELD;
+        counters.computeIfAbsent(route + ":" + field,
+                key -> meterRegistry.counter(QUERY_ROUTE, "route", route, "field", field))
+                .increment();
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.rbkmoney.fraudbusters.repository.rollup;
+
+import com.rbkmoney.fraudbusters.constant.EventSource;
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import com.rbkmoney.fraudbusters.repository.util.AggregationFunction;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * Splits an aggregation window over fraud.events_unique into the whole hours inside it, answered from the
+ * hourly rollup, and the open edges, answered from the raw table, in one query. Windows with fewer whole
+ * hours than {@code minClosedHours}, other key or group by fields and hours before {@code sinceMillis},
+ * when the rollup was created, stay on the raw table.
+ */
+@RequiredArgsConstructor
+public class RollupQueryRouter {
+
+    public static final String ROLLUP_TABLE = "fraud.events_unique_hourly";
+
+    private static final long HOUR_MILLIS = ChronoUnit.HOURS.getDuration().toMillis();
+    private static final Set<String> KEY_FIELDS = Set.of("ip", "email", "bin", "fingerprint", "cardToken", "partyId", "shopId");
+    private static final Set<String> GROUP_BY_FIELDS = Set.of("partyId", "shopId");
+    private static final Map<String, String> UNIQ_COLUMNS = Map.of(
+            "ip", "uniqIp",
+            "email", "uniqEmail",
+            "bin", "uniqBin",
+            "fingerprint", "uniqFingerprint",
+            "cardToken", "uniqCardToken");
+
+    private final boolean enable;
+    private final long minClosedHours;
+    private final long sinceMillis;
+
+    private final Map<Key, String> cache = new ConcurrentHashMap<>();
+
+    @Data
+    public static class RoutedQuery {
+        private final String sql;
+        private final Object[] params;
+    }
+
+    @Data
+    private static class Key {
+        private final AggregationFunction function;
+        private final String onFieldName;
+        private final String fieldName;
+        private final StatusFilter statusFilter;
+        private final List<String> groupByFieldNames;
+    }
+
+    public RoutedQuery route(AggregationFunction function, String onFieldName, String table, String fieldName,
+                             StatusFilter statusFilter, List<FieldModel> fieldModels, String value, Long from, Long to) {
+        if (!enable || from == null || to == null || !EventSource.FRAUD_EVENTS_UNIQUE.getTable().equals(table)
+                || !KEY_FIELDS.contains(fieldName)
+                || (function == AggregationFunction.UNIQ && !UNIQ_COLUMNS.containsKey(onFieldName))) {
+            return null;
+        }
+        List<String> groupByFieldNames = new ArrayList<>();
+        if (fieldModels != null) {
+            for (FieldModel fieldModel : fieldModels) {
+                if (!GROUP_BY_FIELDS.contains(fieldModel.getName())) {
+                    return null;
+                }
+                groupByFieldNames.add(fieldModel.getName());
+            }
+        }
+        long rollupFrom = Math.max(ceilHour(from), ceilHour(sinceMillis));
+        long rollupTo = to - to % HOUR_MILLIS;
+        if (rollupTo - rollupFrom < Math.max(1, minClosedHours) * HOUR_MILLIS) {
+            return null;
+        }
+        String sql = cache.computeIfAbsent(new Key(function, onFieldName, fieldName, statusFilter, groupByFieldNames),
+                this::buildSql);
+        return new RoutedQuery(sql, params(statusFilter, fieldModels, fieldName, value, from, to, rollupFrom, rollupTo));
+    }
+
+    private String buildSql(Key key) {
+        String rollupAggregate;
+        String rawAggregate;
+        String outer;
+        switch (key.getFunction()) {
+            case SUM:
+                rollupAggregate = "sumMerge(sumAmount)";
+                rawAggregate = "sum(amount)";
+                outer = "sum(a) as sum";
+                break;
+            case UNIQ:
+                rollupAggregate = "uniqMergeState(" + UNIQ_COLUMNS.get(key.getOnFieldName()) + ")";
+                rawAggregate = "uniqState(" + key.getOnFieldName() + ")";
+                outer = "uniqMerge(a) as cnt";
+                break;
+            default:
+                rollupAggregate = "countMerge(cnt)";
+                rawAggregate = "count()";
+                outer = "sum(a) as cnt";
+        }
+        StringBuilder conditions = new StringBuilder();
+        if (key.getStatusFilter() == StatusFilter.SUCCESS) {
+            conditions.append(" and resultStatus != ?");
+        } else if (key.getStatusFilter() == StatusFilter.DECLINE) {
+            conditions.append(" and resultStatus = ?");
+        }
+        for (String groupByFieldName : key.getGroupByFieldNames()) {
+            conditions.append(" and ").append(groupByFieldName).append(" = ?");
+        }
+        return new StringBuilder(512)
+                .append("select ").append(outer).append(" from (")
+                .append("select ").append(rollupAggregate).append(" as a from ").append(ROLLUP_TABLE)
+                .append(" where field = ? and value = ? and timestamp >= ? and timestamp <= ?")
+                .append(" and eventTimeHour >= ? and eventTimeHour < ?").append(conditions)
+                .append(" union all ")
+                .append("select ").append(rawAggregate).append(" as a from ").append(EventSource.FRAUD_EVENTS_UNIQUE.getTable())
+                .append(" where timestamp >= ? and timestamp <= ?")
+                .append(" and ((eventTime >= ? and eventTime < ?) or (eventTime >= ? and eventTime <= ?)) and ")
+                .append(key.getFieldName()).append(" = ?").append(conditions)
+                .append(")")
+                .toString();
+    }
+
+    private Object[] params(StatusFilter statusFilter, List<FieldModel> fieldModels, String fieldName, String value,
+                            long from, long to, long rollupFrom, long rollupTo) {
+        Object dateFrom = Instant.ofEpochMilli(from).atZone(UTC).toLocalDate();
+        Object dateTo = Instant.ofEpochMilli(to).atZone(UTC).toLocalDate();
+        List<Object> conditionParams = new ArrayList<>();
+        if (statusFilter == StatusFilter.SUCCESS || statusFilter == StatusFilter.DECLINE) {
+            conditionParams.add(ResultStatus.DECLINE.name());
+        }
+        if (fieldModels != null) {
+            for (FieldModel fieldModel : fieldModels) {
+                conditionParams.add(fieldModel.getValue());
+            }
+        }
+        List<Object> params = new ArrayList<>(15 + 2 * conditionParams.size());
+        params.add(fieldName);
+        params.add(value);
+        params.add(dateFrom);
+        params.add(dateTo);
+        params.add(rollupFrom);
+        params.add(rollupTo);
+        params.addAll(conditionParams);
+        params.add(dateFrom);
+        params.add(dateTo);
+        params.add(Instant.ofEpochMilli(from).getEpochSecond());
+        params.add(Instant.ofEpochMilli(rollupFrom).getEpochSecond());
+        params.add(Instant.ofEpochMilli(rollupTo).getEpochSecond());
+        params.add(Instant.ofEpochMilli(to).getEpochSecond());
+        params.add(value);
+        params.addAll(conditionParams);
+        return params.toArray();
+    }
+
+    private static long ceilHour(long millis) {
+        long floor = millis - millis % HOUR_MILLIS;
+        return floor == millis ? floor : floor + HOUR_MILLIS;
+    }
+
+}
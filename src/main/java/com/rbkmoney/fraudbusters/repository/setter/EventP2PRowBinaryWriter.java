@@ -0,0 +1,41 @@
+package com.rbkmoney.fraudbusters.repository.setter;
+
+import com.rbkmoney.fraudbusters.domain.EventP2P;
+import ru.yandex.clickhouse.util.ClickHouseRowBinaryStream;
+
+import java.io.IOException;
+
+import static com.rbkmoney.fraudbusters.repository.setter.RowBinaryWriter.*;
+
+public class EventP2PRowBinaryWriter implements RowBinaryWriter<EventP2P> {
+
+    @Override
+    public void write(ClickHouseRowBinaryStream stream, EventP2P event) throws IOException {
+        writeDate(stream, event.getTimestamp());
+        writeUInt64(stream, event.getEventTime());
+        writeUInt64(stream, event.getEventTimeHour());
+
+        writeString(stream, event.getIdentityId());
+        writeString(stream, event.getTransferId());
+
+        writeString(stream, event.getIp());
+        writeString(stream, event.getEmail());
+        writeString(stream, event.getBin());
+        writeString(stream, event.getFingerprint());
+
+        writeUInt64(stream, event.getAmount());
+        writeString(stream, event.getCurrency());
+
+        writeString(stream, event.getCountry());
+        writeString(stream, event.getBankCountry());
+        writeString(stream, event.getMaskedPan());
+        writeString(stream, event.getBankName());
+        writeString(stream, event.getCardTokenFrom());
+        writeString(stream, event.getCardTokenTo());
+
+        writeString(stream, event.getResultStatus());
+        writeString(stream, event.getCheckedRule());
+        writeString(stream, event.getCheckedTemplate());
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.rbkmoney.fraudbusters.repository.setter;
+
+import com.rbkmoney.fraudbusters.domain.Event;
+import ru.yandex.clickhouse.util.ClickHouseRowBinaryStream;
+
+import java.io.IOException;
+
+import static com.rbkmoney.fraudbusters.repository.setter.RowBinaryWriter.*;
+
+public class EventRowBinaryWriter implements RowBinaryWriter<Event> {
+
+    @Override
+    public void write(ClickHouseRowBinaryStream stream, Event event) throws IOException {
+        writeDate(stream, event.getTimestamp());
+        writeUInt64(stream, event.getEventTimeHour());
+        writeUInt64(stream, event.getEventTime());
+
+        writeString(stream, event.getIp());
+        writeString(stream, event.getEmail());
+        writeString(stream, event.getBin());
+        writeString(stream, event.getFingerprint());
+        writeString(stream, event.getShopId());
+        writeString(stream, event.getPartyId());
+        writeString(stream, event.getResultStatus());
+        writeUInt64(stream, event.getAmount());
+        writeString(stream, event.getCountry());
+        writeString(stream, event.getCheckedRule());
+        writeString(stream, event.getBankCountry());
+        writeString(stream, event.getCurrency());
+        writeString(stream, event.getInvoiceId());
+        writeString(stream, event.getMaskedPan());
+        writeString(stream, event.getBankName());
+        writeString(stream, event.getCardToken());
+        writeString(stream, event.getPaymentId());
+        writeString(stream, event.getCheckedTemplate());
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.rbkmoney.fraudbusters.repository.setter;
+
+import ru.yandex.clickhouse.util.ClickHouseRowBinaryStream;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Writes one row in the column order of the insert statement, null values are written as column defaults.
+ */
+public interface RowBinaryWriter<T> {
+
+    void write(ClickHouseRowBinaryStream stream, T value) throws IOException;
+
+    static void writeString(ClickHouseRowBinaryStream stream, String value) throws IOException {
+        stream.writeString(value != null ? value : "");
+    }
+
+    static void writeUInt64(ClickHouseRowBinaryStream stream, Long value) throws IOException {
+        stream.writeUInt64(value != null ? value : 0L);
+    }
+
+    static void writeDate(ClickHouseRowBinaryStream stream, LocalDate value) throws IOException {
+        stream.writeUInt16(value != null ? (int) value.toEpochDay() : 0);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.rbkmoney.fraudbusters.repository.util;
+
+public enum AggregationFunction {
+
+    COUNT {
+        @Override
+        public String render(String onFieldName) {
+            return "count() as cnt";
+        }
+    },
+    SUM {
+        @Override
+        public String render(String onFieldName) {
+            return "sum(amount) as sum";
+        }
+    },
+    UNIQ {
+        @Override
+        public String render(String onFieldName) {
+            return "uniq(" + onFieldName + ") as cnt";
+        }
+    };
+
+    public abstract String render(String onFieldName);
+
+}
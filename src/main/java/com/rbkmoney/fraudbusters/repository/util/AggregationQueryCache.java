@@ -0,0 +1,67 @@
+package com.rbkmoney.fraudbusters.repository.util;
+
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the final SQL text of aggregation queries. The text only depends on the aggregate function, the table,
+ * the key field, the status condition and the names of the group by fields, while all values are bound
+ * as parameters, so the set of distinct queries is bounded by the fields used in templates.
+ */
+public class AggregationQueryCache {
+
+    private static final int MAX_SIZE = 4096;
+
+    private static final Map<Key, String> CACHE = new ConcurrentHashMap<>();
+
+    @Data
+    private static class Key {
+        private final AggregationFunction function;
+        private final String onFieldName;
+        private final String table;
+        private final String fieldName;
+        private final String condition;
+        private final List<String> groupByFieldNames;
+    }
+
+    public static String getSql(AggregationFunction function, String onFieldName, String table, String fieldName,
+                                String condition, List<FieldModel> fieldModels) {
+        Key key = new Key(function, onFieldName, table, fieldName, condition, groupByFieldNames(fieldModels));
+        String sql = CACHE.get(key);
+        if (sql != null) {
+            return sql;
+        }
+        sql = AggregationUtil.buildAggregationSql(function.render(onFieldName), table, fieldName, condition, key.getGroupByFieldNames());
+        if (CACHE.size() < MAX_SIZE) {
+            CACHE.putIfAbsent(key, sql);
+        }
+        return sql;
+    }
+
+    public static String getSql(AggregationFunction function, String table, String fieldName, String condition,
+                                List<FieldModel> fieldModels) {
+        return getSql(function, null, table, fieldName, condition, fieldModels);
+    }
+
+    static int size() {
+        return CACHE.size();
+    }
+
+    private static List<String> groupByFieldNames(List<FieldModel> fieldModels) {
+        if (fieldModels == null || fieldModels.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>(fieldModels.size());
+        for (FieldModel fieldModel : fieldModels) {
+            names.add(fieldModel.getName());
+        }
+        return names;
+    }
+
+}
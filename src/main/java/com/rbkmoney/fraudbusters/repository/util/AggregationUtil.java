@@ -1,28 +1,37 @@
 package com.rbkmoney.fraudbusters.repository.util;
 
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
-import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static java.time.ZoneOffset.UTC;
 
 public class AggregationUtil {
 
-    public static StringBuilder appendGroupingFields(List<FieldModel> fieldModels, StringBuilder sql, StringBuilder sqlGroupBy) {
-        if (fieldModels != null) {
-            for (FieldModel fieldModel : fieldModels) {
-                sql.append(" and ").append(fieldModel.getName()).append("=? ");
-                sqlGroupBy.append(", ").append(fieldModel.getName());
-            }
+    private static final int TIME_PARAMS_SIZE = 4;
+    private static final int MAX_VALUE_PARAMS_SIZE = 3;
+
+    public static String buildAggregationSql(String aggregate, String table, String fieldName, String condition,
+                                             List<String> groupByFieldNames) {
+        StringBuilder sql = new StringBuilder(256)
+                .append("select ").append(fieldName).append(", ").append(aggregate)
+                .append(" from ").append(table)
+                .append(" where timestamp >= ? and timestamp <= ? and eventTime >= ? and eventTime <= ? and ")
+                .append(fieldName).append(" = ?");
+        if (condition != null) {
+            sql.append(condition);
+        }
+        for (String groupByFieldName : groupByFieldNames) {
+            sql.append(" and ").append(groupByFieldName).append(" = ?");
+        }
+        sql.append(" group by ").append(fieldName);
+        for (String groupByFieldName : groupByFieldNames) {
+            sql.append(", ").append(groupByFieldName);
         }
-        return sql.append(sqlGroupBy.toString());
+        return sql.toString();
     }
 
     public static ArrayList<Object> generateParams(Long from, Long to, List<FieldModel> fieldModels, String value) {
@@ -38,7 +47,19 @@ public class AggregationUtil {
         LocalDate dateFrom = instantFrom.atZone(UTC).toLocalDate();
         Instant instantTo = Instant.ofEpochMilli(to);
         LocalDate dateTo = instantTo.atZone(UTC).toLocalDate();
-        return initParams(fieldModels, dateFrom, dateTo, instantFrom.getEpochSecond(), instantTo.getEpochSecond(), value, status, errorCode);
+        int groupBySize = fieldModels != null ? fieldModels.size() : 0;
+        ArrayList<Object> params = new ArrayList<>(TIME_PARAMS_SIZE + MAX_VALUE_PARAMS_SIZE + groupBySize);
+        params.add(dateFrom);
+        params.add(dateTo);
+        params.add(instantFrom.getEpochSecond());
+        params.add(instantTo.getEpochSecond());
+        addIfPresent(params, value);
+        addIfPresent(params, status);
+        addIfPresent(params, errorCode);
+        for (int i = 0; i < groupBySize; i++) {
+            params.add(fieldModels.get(i).getValue());
+        }
+        return params;
     }
 
     public static ArrayList<Object> generateParams(Long from, Long to, String value) {
@@ -49,19 +70,9 @@ public class AggregationUtil {
         return generateParams(from, to, null, value, status);
     }
 
-    @NotNull
-    private static ArrayList<Object> initParams(List<FieldModel> lastParams, Object... args) {
-        ArrayList<Object> objects = new ArrayList<>();
-        if (args != null) {
-            Arrays.stream(args)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toCollection(() -> objects));
-        }
-        if (lastParams != null) {
-            lastParams.stream()
-                    .map(FieldModel::getValue)
-                    .collect(Collectors.toCollection(() -> objects));
+    private static void addIfPresent(List<Object> params, Object value) {
+        if (value != null) {
+            params.add(value);
         }
-        return objects;
     }
 }
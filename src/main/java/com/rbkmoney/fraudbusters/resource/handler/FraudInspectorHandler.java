@@ -8,31 +8,46 @@ import com.rbkmoney.fraudbusters.converter.ContextToFraudRequestConverter;
 import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
 import com.rbkmoney.fraudbusters.domain.FraudRequest;
 import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadlinePolicy;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.service.publisher.ResultPublisher;
 import com.rbkmoney.fraudbusters.stream.TemplateVisitor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
-import org.springframework.kafka.core.KafkaTemplate;
 
 @Slf4j
 @RequiredArgsConstructor
 public class FraudInspectorHandler implements InspectorProxySrv.Iface {
 
-    private final String resultTopic;
+    private static final String PAYMENT_PIPELINE = "payment";
+
     private final CheckedResultToRiskScoreConverter checkedResultToRiskScoreConverter;
     private final ContextToFraudRequestConverter requestConverter;
     private final TemplateVisitor<PaymentModel, CheckedResultModel> templateVisitor;
-    private final KafkaTemplate<String, FraudResult> kafkaFraudResultTemplate;
+    private final ResultPublisher<FraudResult> fraudResultPublisher;
+    private final InspectionDeadlinePolicy inspectionDeadlinePolicy;
 
     @Override
     public RiskScore inspectPayment(Context context) throws TException {
+        InspectionBudget budget = inspectionDeadlinePolicy.newBudget();
+        InspectionBudget previous = InspectionDeadline.start(budget);
+        InspectionMemoContext.open();
         try {
             FraudRequest model = requestConverter.convert(context);
             if (model != null) {
                 log.info("Check fraudRequest: {}", model);
-                FraudResult fraudResult = new FraudResult(model, templateVisitor.visit(model.getFraudModel()));
-                kafkaFraudResultTemplate.send(resultTopic, fraudResult);
+                CheckedResultModel resultModel = templateVisitor.visit(model.getFraudModel());
+                if (budget != null && budget.isDegraded()) {
+                    log.warn("Inspection deadline spent, degraded calls: {} fraudRequest: {}", budget.getDegradedCalls(), model);
+                    resultModel.setDegraded(true);
+                    inspectionDeadlinePolicy.recordDegradedInspection(PAYMENT_PIPELINE);
+                }
+                FraudResult fraudResult = new FraudResult(model, resultModel);
+                fraudResultPublisher.publish(fraudResult);
                 log.info("Checked fraudResult: {}", fraudResult);
                 return checkedResultToRiskScoreConverter.convert(fraudResult.getResultModel());
             }
@@ -40,6 +55,9 @@ public class FraudInspectorHandler implements InspectorProxySrv.Iface {
         } catch (Exception e) {
             log.error("Error when inspectPayment() e: ", e);
             throw new TException("Error when inspectPayment() e: ", e);
+        } finally {
+            InspectionMemoContext.clear();
+            InspectionDeadline.stop(previous);
         }
     }
 
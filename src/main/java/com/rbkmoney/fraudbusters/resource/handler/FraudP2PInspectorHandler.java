@@ -8,12 +8,15 @@ import com.rbkmoney.fraudbusters.converter.CheckedResultToRiskScoreConverter;
 import com.rbkmoney.fraudbusters.converter.P2PContextToP2PModelConverter;
 import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
 import com.rbkmoney.fraudbusters.domain.ScoresResult;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadlinePolicy;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.service.publisher.ResultPublisher;
 import com.rbkmoney.fraudbusters.stream.TemplateVisitor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.thrift.TException;
-import org.springframework.kafka.core.KafkaTemplate;
 
 import java.util.HashMap;
 import java.util.List;
@@ -24,14 +27,18 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FraudP2PInspectorHandler implements InspectorProxySrv.Iface {
 
-    private final String resultTopic;
+    private static final String P2P_PIPELINE = "p2p";
+
     private final CheckedResultToRiskScoreConverter resultConverter;
     private final P2PContextToP2PModelConverter requestConverter;
     private final TemplateVisitor<P2PModel, CheckedResultModel> templateVisitor;
-    private final KafkaTemplate<String, ScoresResult<P2PModel>> kafkaFraudResultTemplate;
+    private final ResultPublisher<ScoresResult<P2PModel>> resultPublisher;
+    private final InspectionDeadlinePolicy inspectionDeadlinePolicy;
 
     @Override
     public InspectResult inspectTransfer(com.rbkmoney.damsel.p2p_insp.Context context, List<String> list) throws TException {
+        InspectionBudget budget = inspectionDeadlinePolicy.newBudget();
+        InspectionBudget previous = InspectionDeadline.start(budget);
         try {
             Map<String, RiskScore> scores = new HashMap<>();
 
@@ -40,13 +47,18 @@ public class FraudP2PInspectorHandler implements InspectorProxySrv.Iface {
                 log.info("Check p2p model: {}", model);
 
                 CheckedResultModel visit = templateVisitor.visit(model);
+                if (budget != null && budget.isDegraded()) {
+                    log.warn("Inspection deadline spent, degraded calls: {} p2p model: {}", budget.getDegradedCalls(), model);
+                    visit.setDegraded(true);
+                    inspectionDeadlinePolicy.recordDegradedInspection(P2P_PIPELINE);
+                }
 
                 HashMap<String, CheckedResultModel> scoresCheck = new HashMap<>();
                 scoresCheck.put(ScoresType.FRAUD, visit);
 
                 ScoresResult<P2PModel> scoresResult = new ScoresResult<>(model, scoresCheck);
 
-                kafkaFraudResultTemplate.send(resultTopic, scoresResult);
+                resultPublisher.publish(scoresResult);
                 log.info("Checked p2p scoresResult: {}", scoresResult);
 
                 scores = scoresResult.getScores().entrySet().stream()
@@ -60,6 +72,8 @@ public class FraudP2PInspectorHandler implements InspectorProxySrv.Iface {
         } catch (Exception e) {
             log.error("Error when inspectPayment() p2p e: ", e);
             throw new TException("Error when inspectPayment() p2p e: ", e);
+        } finally {
+            InspectionDeadline.stop(previous);
         }
     }
 }
@@ -2,6 +2,7 @@ package com.rbkmoney.fraudbusters.serde;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.serde.binary.ResultBinaryCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.serialization.Deserializer;
 
@@ -11,6 +12,7 @@ import java.util.Map;
 public class FraudResultDeserializer implements Deserializer<FraudResult> {
 
     private final ObjectMapper om = new ObjectMapper();
+    private final ResultBinaryCodec codec = new ResultBinaryCodec();
 
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
@@ -21,9 +23,11 @@ public class FraudResultDeserializer implements Deserializer<FraudResult> {
     public FraudResult deserialize(String topic, byte[] data) {
         FraudResult fraudResult = null;
         try {
-            fraudResult = om.readValue(data, FraudResult.class);
+            fraudResult = ResultBinaryCodec.isBinary(data)
+                    ? codec.decodeFraudResult(data)
+                    : om.readValue(data, FraudResult.class);
         } catch (Exception e) {
-            log.error("Error when deserialize FraudResult data: {} ", data, e);
+            log.error("Error when deserialize FraudResult topic: {} length: {}", topic, data != null ? data.length : 0, e);
         }
         return fraudResult;
     }
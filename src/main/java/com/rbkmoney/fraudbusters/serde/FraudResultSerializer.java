@@ -0,0 +1,28 @@
+package com.rbkmoney.fraudbusters.serde;
+
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.serde.binary.ResultBinaryCodec;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+public class FraudResultSerializer implements Serializer<FraudResult> {
+
+    private final ResultBinaryCodec codec = new ResultBinaryCodec();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+
+    }
+
+    @Override
+    public byte[] serialize(String topic, FraudResult data) {
+        return data != null ? codec.encodeFraudResult(data) : null;
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
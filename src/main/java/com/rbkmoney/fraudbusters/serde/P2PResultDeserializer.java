@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rbkmoney.fraudbusters.domain.ScoresResult;
 import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.serde.binary.ResultBinaryCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.serialization.Deserializer;
 
@@ -12,7 +13,11 @@ import java.util.Map;
 @Slf4j
 public class P2PResultDeserializer implements Deserializer<ScoresResult<P2PModel>> {
 
+    private static final TypeReference<ScoresResult<P2PModel>> TYPE_REFERENCE = new TypeReference<>() {
+    };
+
     private final ObjectMapper om = new ObjectMapper();
+    private final ResultBinaryCodec codec = new ResultBinaryCodec();
 
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
@@ -23,10 +28,11 @@ public class P2PResultDeserializer implements Deserializer<ScoresResult<P2PModel
     public ScoresResult<P2PModel> deserialize(String topic, byte[] data) {
         ScoresResult<P2PModel> result = null;
         try {
-            result = om.readValue(data, new TypeReference<ScoresResult<P2PModel>>() {
-            });
+            result = ResultBinaryCodec.isBinary(data)
+                    ? codec.decodeP2PResult(data)
+                    : om.readValue(data, TYPE_REFERENCE);
         } catch (Exception e) {
-            log.error("Error when deserialize ScoresResult data: {} ", data, e);
+            log.error("Error when deserialize ScoresResult topic: {} length: {}", topic, data != null ? data.length : 0, e);
         }
         return result;
     }
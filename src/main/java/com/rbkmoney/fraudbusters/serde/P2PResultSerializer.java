@@ -0,0 +1,29 @@
+package com.rbkmoney.fraudbusters.serde;
+
+import com.rbkmoney.fraudbusters.domain.ScoresResult;
+import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.serde.binary.ResultBinaryCodec;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+public class P2PResultSerializer implements Serializer<ScoresResult<P2PModel>> {
+
+    private final ResultBinaryCodec codec = new ResultBinaryCodec();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+
+    }
+
+    @Override
+    public byte[] serialize(String topic, ScoresResult<P2PModel> data) {
+        return data != null ? codec.encodeP2PResult(data) : null;
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
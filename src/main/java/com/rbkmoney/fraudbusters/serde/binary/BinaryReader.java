@@ -0,0 +1,75 @@
+package com.rbkmoney.fraudbusters.serde.binary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads values written by {@link BinaryWriter}.
+ */
+public class BinaryReader {
+
+    private final byte[] data;
+    private int position;
+
+    public BinaryReader(byte[] data, int position) {
+        this.data = data;
+        this.position = position;
+    }
+
+    public int readByte() {
+        if (position >= data.length) {
+            throw new IllegalStateException("Unexpected end of data at position: " + position);
+        }
+        return data[position++] & 0xFF;
+    }
+
+    public int readVarInt() {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at position: " + position);
+    }
+
+    public long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed varlong at position: " + position);
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        if (length > data.length - position) {
+            throw new IllegalStateException("String length: " + length + " exceeds data at position: " + position);
+        }
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public Long readLong() {
+        if (readByte() == 0) {
+            return null;
+        }
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public boolean readPresence() {
+        return readByte() != 0;
+    }
+
+}
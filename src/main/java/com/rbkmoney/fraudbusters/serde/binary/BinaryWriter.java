@@ -0,0 +1,66 @@
+package com.rbkmoney.fraudbusters.serde.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes varint encoded numbers and length prefixed UTF-8 strings. Nullable values are
+ * encoded with a shifted length or a presence flag, so a null costs a single byte.
+ */
+public class BinaryWriter {
+
+    private final ByteArrayOutputStream out;
+
+    public BinaryWriter(int initialSize) {
+        this.out = new ByteArrayOutputStream(initialSize);
+    }
+
+    public void writeByte(int value) {
+        out.write(value);
+    }
+
+    public void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public void writeLong(Long value) {
+        if (value == null) {
+            writeByte(0);
+            return;
+        }
+        writeByte(1);
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public boolean writePresence(Object value) {
+        writeByte(value != null ? 1 : 0);
+        return value != null;
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.rbkmoney.fraudbusters.serde.binary;
+
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.FraudRequest;
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.domain.Metadata;
+import com.rbkmoney.fraudbusters.domain.ScoresResult;
+import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.fraud.model.Payer;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import com.rbkmoney.fraudo.model.BaseModel;
+import com.rbkmoney.fraudo.model.ResultModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of result messages. Every payload starts with {@link #MAGIC} and a
+ * format version; the magic byte can never start a JSON document, so readers can tell binary
+ * payloads from legacy JSON ones by the first byte. Version 2 adds the degraded flag of checked
+ * results; version 1 payloads are still read.
+ */
+public class ResultBinaryCodec {
+
+    public static final int MAGIC = 0xFB;
+    public static final int VERSION = 2;
+    public static final int MIN_VERSION = 1;
+
+    private static final int INITIAL_SIZE = 256;
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && (data[0] & 0xFF) == MAGIC;
+    }
+
+    public byte[] encodeFraudResult(FraudResult fraudResult) {
+        BinaryWriter writer = header();
+        FraudRequest fraudRequest = fraudResult.getFraudRequest();
+        if (writer.writePresence(fraudRequest)) {
+            writePaymentModel(writer, fraudRequest.getFraudModel());
+            writeMetadata(writer, fraudRequest.getMetadata());
+        }
+        writeCheckedResult(writer, fraudResult.getResultModel());
+        return writer.toByteArray();
+    }
+
+    public FraudResult decodeFraudResult(byte[] data) {
+        int version = version(data);
+        BinaryReader reader = new BinaryReader(data, 2);
+        FraudResult fraudResult = new FraudResult();
+        if (reader.readPresence()) {
+            FraudRequest fraudRequest = new FraudRequest();
+            fraudRequest.setFraudModel(readPaymentModel(reader));
+            fraudRequest.setMetadata(readMetadata(reader));
+            fraudResult.setFraudRequest(fraudRequest);
+        }
+        fraudResult.setResultModel(readCheckedResult(reader, version));
+        return fraudResult;
+    }
+
+    public byte[] encodeP2PResult(ScoresResult<P2PModel> scoresResult) {
+        BinaryWriter writer = header();
+        writeP2PModel(writer, scoresResult.getRequest());
+        Map<String, CheckedResultModel> scores = scoresResult.getScores();
+        if (writer.writePresence(scores)) {
+            writer.writeVarInt(scores.size());
+            for (Map.Entry<String, CheckedResultModel> entry : scores.entrySet()) {
+                writer.writeString(entry.getKey());
+                writeCheckedResult(writer, entry.getValue());
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public ScoresResult<P2PModel> decodeP2PResult(byte[] data) {
+        int version = version(data);
+        BinaryReader reader = new BinaryReader(data, 2);
+        ScoresResult<P2PModel> scoresResult = new ScoresResult<>();
+        scoresResult.setRequest(readP2PModel(reader));
+        if (reader.readPresence()) {
+            int size = reader.readVarInt();
+            Map<String, CheckedResultModel> scores = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                scores.put(reader.readString(), readCheckedResult(reader, version));
+            }
+            scoresResult.setScores(scores);
+        }
+        return scoresResult;
+    }
+
+    private BinaryWriter header() {
+        BinaryWriter writer = new BinaryWriter(INITIAL_SIZE);
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        return writer;
+    }
+
+    private int version(byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Data is not in result binary format");
+        }
+        int version = data[1] & 0xFF;
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported result binary format version: " + version);
+        }
+        return version;
+    }
+
+    private void writeBaseModel(BinaryWriter writer, BaseModel model) {
+        writer.writeString(model.getIp());
+        writer.writeString(model.getEmail());
+        writer.writeString(model.getFingerprint());
+        writer.writeLong(model.getAmount());
+        writer.writeString(model.getCurrency());
+    }
+
+    private void readBaseModel(BinaryReader reader, BaseModel model) {
+        model.setIp(reader.readString());
+        model.setEmail(reader.readString());
+        model.setFingerprint(reader.readString());
+        model.setAmount(reader.readLong());
+        model.setCurrency(reader.readString());
+    }
+
+    private void writePaymentModel(BinaryWriter writer, PaymentModel model) {
+        if (writer.writePresence(model)) {
+            writeBaseModel(writer, model);
+            writer.writeString(model.getBin());
+            writer.writeString(model.getPan());
+            writer.writeString(model.getBinCountryCode());
+            writer.writeString(model.getCardToken());
+            writer.writeString(model.getShopId());
+            writer.writeString(model.getPartyId());
+        }
+    }
+
+    private PaymentModel readPaymentModel(BinaryReader reader) {
+        if (!reader.readPresence()) {
+            return null;
+        }
+        PaymentModel model = new PaymentModel();
+        readBaseModel(reader, model);
+        model.setBin(reader.readString());
+        model.setPan(reader.readString());
+        model.setBinCountryCode(reader.readString());
+        model.setCardToken(reader.readString());
+        model.setShopId(reader.readString());
+        model.setPartyId(reader.readString());
+        return model;
+    }
+
+    private void writeMetadata(BinaryWriter writer, Metadata metadata) {
+        if (writer.writePresence(metadata)) {
+            writer.writeLong(metadata.getTimestamp());
+            writer.writeString(metadata.getCurrency());
+            writer.writeString(metadata.getInvoiceId());
+            writer.writeString(metadata.getPaymentId());
+            writer.writeString(metadata.getMaskedPan());
+            writer.writeString(metadata.getBankName());
+        }
+    }
+
+    private Metadata readMetadata(BinaryReader reader) {
+        if (!reader.readPresence()) {
+            return null;
+        }
+        Metadata metadata = new Metadata();
+        metadata.setTimestamp(reader.readLong());
+        metadata.setCurrency(reader.readString());
+        metadata.setInvoiceId(reader.readString());
+        metadata.setPaymentId(reader.readString());
+        metadata.setMaskedPan(reader.readString());
+        metadata.setBankName(reader.readString());
+        return metadata;
+    }
+
+    private void writeP2PModel(BinaryWriter writer, P2PModel model) {
+        if (writer.writePresence(model)) {
+            writeBaseModel(writer, model);
+            writePayer(writer, model.getSender());
+            writePayer(writer, model.getReceiver());
+            writer.writeString(model.getIdentityId());
+            writer.writeString(model.getTransferId());
+            writer.writeLong(model.getTimestamp());
+        }
+    }
+
+    private P2PModel readP2PModel(BinaryReader reader) {
+        if (!reader.readPresence()) {
+            return null;
+        }
+        P2PModel model = new P2PModel();
+        readBaseModel(reader, model);
+        model.setSender(readPayer(reader));
+        model.setReceiver(readPayer(reader));
+        model.setIdentityId(reader.readString());
+        model.setTransferId(reader.readString());
+        model.setTimestamp(reader.readLong());
+        return model;
+    }
+
+    private void writePayer(BinaryWriter writer, Payer payer) {
+        if (writer.writePresence(payer)) {
+            writer.writeString(payer.getBin());
+            writer.writeString(payer.getPan());
+            writer.writeString(payer.getCardToken());
+            writer.writeString(payer.getBinCountryCode());
+            writer.writeString(payer.getBankName());
+        }
+    }
+
+    private Payer readPayer(BinaryReader reader) {
+        if (!reader.readPresence()) {
+            return null;
+        }
+        Payer payer = new Payer();
+        payer.setBin(reader.readString());
+        payer.setPan(reader.readString());
+        payer.setCardToken(reader.readString());
+        payer.setBinCountryCode(reader.readString());
+        payer.setBankName(reader.readString());
+        return payer;
+    }
+
+    private void writeCheckedResult(BinaryWriter writer, CheckedResultModel checkedResultModel) {
+        if (writer.writePresence(checkedResultModel)) {
+            writer.writeString(checkedResultModel.getCheckedTemplate());
+            ResultModel resultModel = checkedResultModel.getResultModel();
+            if (writer.writePresence(resultModel)) {
+                ResultStatus resultStatus = resultModel.getResultStatus();
+                writer.writeString(resultStatus != null ? resultStatus.name() : null);
+                writer.writeString(resultModel.getRuleChecked());
+                List<String> notifications = resultModel.getNotificationsRule();
+                if (writer.writePresence(notifications)) {
+                    writer.writeVarInt(notifications.size());
+                    for (String notification : notifications) {
+                        writer.writeString(notification);
+                    }
+                }
+            }
+            writer.writeByte(Boolean.TRUE.equals(checkedResultModel.getDegraded()) ? 1 : 0);
+        }
+    }
+
+    private CheckedResultModel readCheckedResult(BinaryReader reader, int version) {
+        if (!reader.readPresence()) {
+            return null;
+        }
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate(reader.readString());
+        if (reader.readPresence()) {
+            String resultStatus = reader.readString();
+            String ruleChecked = reader.readString();
+            List<String> notifications = null;
+            if (reader.readPresence()) {
+                int size = reader.readVarInt();
+                notifications = new ArrayList<>(Math.min(size, 16));
+                for (int i = 0; i < size; i++) {
+                    notifications.add(reader.readString());
+                }
+            }
+            checkedResultModel.setResultModel(new ResultModel(
+                    resultStatus != null ? ResultStatus.valueOf(resultStatus) : null, ruleChecked, notifications));
+        }
+        if (version > 1 && reader.readByte() == 1) {
+            checkedResultModel.setDegraded(true);
+        }
+        return checkedResultModel;
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.rbkmoney.fraudbusters.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rbkmoney.fraudbusters.config.properties.DefaultTemplateProperties;
+import com.rbkmoney.fraudbusters.domain.Event;
+import com.rbkmoney.fraudbusters.repository.impl.FraudResultRepository;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the set of shops that already have results, so new shops are detected without a
+ * ClickHouse scan per event. The set is warmed once from ClickHouse on startup and then
+ * filled from consumed batches; until the warm up finishes unseen shops are checked with
+ * {@link FraudManagementService#isNewShop}. The warm up runs on its own thread, so the scan does not hold up
+ * default reference creation, and a failed scan is retried with exponential backoff.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KnownShopService implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final FraudResultRepository fraudResultRepository;
+    private final FraudManagementService fraudManagementService;
+    private final DefaultTemplateProperties defaultTemplateProperties;
+    private final ExecutorService referenceExecutor;
+
+    private final Set<ShopKey> knownShops = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService warmUpExecutor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("known-shop-warm-up-%d").setDaemon(true).build());
+    private volatile boolean warmedUp;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (defaultTemplateProperties.isEnable()) {
+            scheduleWarmUp(0L);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmUpExecutor.shutdownNow();
+    }
+
+    private void scheduleWarmUp(long delayMillis) {
+        warmUpExecutor.schedule(() -> {
+            if (!warmUp()) {
+                long nextDelayMillis = Math.min(Math.max(delayMillis * 2, defaultTemplateProperties.getWarmUpRetryMillis()),
+                        defaultTemplateProperties.getWarmUpMaxRetryMillis());
+                log.warn("KnownShopService retry warm up in: {} ms", nextDelayMillis);
+                scheduleWarmUp(nextDelayMillis);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    boolean warmUp() {
+        try {
+            long startTime = System.currentTimeMillis();
+            long to = Instant.now().toEpochMilli();
+            long from = Instant.now().minus(defaultTemplateProperties.getCountToCheckDays(), ChronoUnit.DAYS).toEpochMilli();
+            fraudResultRepository.forEachShop(from, to, (partyId, shopId) -> knownShops.add(new ShopKey(partyId, shopId)));
+            warmedUp = true;
+            log.info("KnownShopService warm up size: {} time: {} ms", knownShops.size(), System.currentTimeMillis() - startTime);
+            return true;
+        } catch (Exception e) {
+            log.error("KnownShopService error when warm up e: ", e);
+            return false;
+        }
+    }
+
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    public void registerShops(List<Event> events) {
+        Set<ShopKey> batchShops = new LinkedHashSet<>();
+        for (Event event : events) {
+            batchShops.add(new ShopKey(event.getPartyId(), event.getShopId()));
+        }
+        for (ShopKey shop : batchShops) {
+            boolean warmed = warmedUp;
+            if (knownShops.add(shop)
+                    && (warmed || fraudManagementService.isNewShop(shop.getPartyId(), shop.getShopId()))) {
+                referenceExecutor.submit(() -> fraudManagementService.createDefaultReference(shop.getPartyId(), shop.getShopId()));
+            }
+        }
+    }
+
+    public int size() {
+        return knownShops.size();
+    }
+
+    @Data
+    private static class ShopKey {
+        private final String partyId;
+        private final String shopId;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.rbkmoney.fraudbusters.service.pipeline;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.rbkmoney.damsel.geo_ip.GeoIpServiceSrv;
+import com.rbkmoney.fraudbusters.constant.ClickhouseUtilsValue;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Resolves countries for all ips of a batch at once: each distinct ip is looked up only once,
+ * cached ips skip the remote call and the remaining lookups run concurrently. A lookup that fails, misses the
+ * timeout or is rejected by a saturated executor resolves to {@link ClickhouseUtilsValue#UNKNOWN} and is not cached.
+ */
+@Slf4j
+public class GeoIpBatchResolver {
+
+    private final GeoIpServiceSrv.Iface geoIpService;
+    private final ExecutorService executorService;
+    private final long timeoutMillis;
+    private final Cache<String, String> cache;
+
+    public GeoIpBatchResolver(GeoIpServiceSrv.Iface geoIpService, ExecutorService executorService,
+                              long timeoutMillis, long cacheSize, long cacheExpireMinutes) {
+        this.geoIpService = geoIpService;
+        this.executorService = executorService;
+        this.timeoutMillis = timeoutMillis;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheExpireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public Map<String, String> resolve(Collection<String> ips) throws InterruptedException {
+        Map<String, String> countries = new HashMap<>();
+        List<String> missed = new ArrayList<>();
+        for (String ip : new HashSet<>(ips)) {
+            if (ip == null) {
+                continue;
+            }
+            String country = cache.getIfPresent(ip);
+            if (country != null) {
+                countries.put(ip, country);
+            } else {
+                missed.add(ip);
+            }
+        }
+        if (missed.isEmpty()) {
+            return countries;
+        }
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<Future<String>> futures = new ArrayList<>(missed.size());
+        for (String ip : missed) {
+            futures.add(submit(ip));
+        }
+        for (int i = 0; i < missed.size(); i++) {
+            String ip = missed.get(i);
+            String country = getCountry(ip, futures.get(i), deadlineNanos);
+            if (country != null) {
+                cache.put(ip, country);
+                countries.put(ip, country);
+            } else {
+                countries.put(ip, ClickhouseUtilsValue.UNKNOWN);
+            }
+        }
+        return countries;
+    }
+
+    private Future<String> submit(String ip) {
+        try {
+            return executorService.submit(() -> geoIpService.getLocationIsoCode(ip));
+        } catch (RejectedExecutionException e) {
+            log.warn("GeoIpBatchResolver executor saturated, skip resolve ip: {}", ip);
+            return null;
+        }
+    }
+
+    private String getCountry(String ip, Future<String> future, long deadlineNanos) throws InterruptedException {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("GeoIpBatchResolver timeout when resolve ip: {}", ip);
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            log.error("Error when GeoIpBatchResolver resolve ip: {} e: ", ip, e.getCause());
+            return null;
+        }
+    }
+
+}
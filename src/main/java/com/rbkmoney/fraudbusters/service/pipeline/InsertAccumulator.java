@@ -0,0 +1,206 @@
+package com.rbkmoney.fraudbusters.service.pipeline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Merges the batches of all consumer threads into one insert block. A block is written once it has
+ * {@code maxRows} rows, once {@code maxWriters} callers wait on it or once it is {@code lingerMillis} old;
+ * blocks are written one at a time by a single thread. {@link #add(List)} returns only after the block
+ * holding the values is written, so the caller commits its offsets after the rows are in ClickHouse.
+ * {@link InsertAccumulatorRebalanceListener} keeps {@code maxWriters} equal to the number of listener
+ * consumers owning partitions, so a block is sealed as soon as every one of them is blocked on it, since
+ * no more rows can arrive until it is written.
+ */
+@Slf4j
+public class InsertAccumulator<T> implements AutoCloseable {
+
+    public static final String BLOCK_SIZE = "result.insert.block.size";
+    public static final String FLUSH_LATENCY = "result.insert.flush.latency";
+    public static final String PARTS = "result.insert.parts";
+
+    private final Consumer<List<T>> writer;
+    private final int maxRows;
+    private final long lingerNanos;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Block<T>> sealed = new ArrayDeque<>();
+
+    private final DistributionSummary blockSize;
+    private final Timer flushLatency;
+    private final Counter parts;
+
+    private Block<T> current;
+    private boolean closed;
+    private int maxWriters;
+
+    public InsertAccumulator(String name, Consumer<List<T>> writer, int maxRows, int maxWriters, long lingerMillis,
+                             ThreadFactory threadFactory, MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.maxRows = maxRows;
+        this.maxWriters = maxWriters;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.blockSize = DistributionSummary.builder(BLOCK_SIZE)
+                .tag("pipeline", name)
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder(FLUSH_LATENCY)
+                .tag("pipeline", name)
+                .register(meterRegistry);
+        this.parts = meterRegistry.counter(PARTS, "pipeline", name);
+        this.flusher = threadFactory.newThread(this::flushLoop);
+        this.flusher.start();
+    }
+
+    public void add(List<T> values) throws InterruptedException {
+        if (values.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Void> written;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("InsertAccumulator is closed");
+            }
+            if (current == null) {
+                current = new Block<>(System.nanoTime());
+                changed.signal();
+            }
+            current.values.addAll(values);
+            current.writers++;
+            written = current.written;
+            if (current.values.size() >= maxRows || current.writers >= maxWriters) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            written.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Insert block failed", e.getCause());
+        }
+    }
+
+    /**
+     * Changes the number of callers a block waits for, sealing the current block if it already has that many.
+     */
+    public void setMaxWriters(int maxWriters) {
+        lock.lock();
+        try {
+            this.maxWriters = maxWriters;
+            if (current != null && current.writers >= maxWriters) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            if (current != null) {
+                seal();
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+    }
+
+    private void seal() {
+        sealed.addLast(current);
+        current = null;
+        changed.signal();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Block<T> block;
+            try {
+                block = next();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (block == null) {
+                return;
+            }
+            write(block);
+        }
+    }
+
+    private Block<T> next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (sealed.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                if (current == null) {
+                    changed.await();
+                } else {
+                    long remaining = current.openedAt + lingerNanos - System.nanoTime();
+                    if (remaining <= 0) {
+                        seal();
+                    } else {
+                        changed.awaitNanos(remaining);
+                    }
+                }
+            }
+            return sealed.pollFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Block<T> block) {
+        try {
+            writer.accept(block.values);
+            blockSize.record(block.values.size());
+            parts.increment();
+            flushLatency.record(System.nanoTime() - block.openedAt, TimeUnit.NANOSECONDS);
+            block.written.complete(null);
+        } catch (Exception e) {
+            log.warn("InsertAccumulator write block size: {} failed e: ", block.values.size(), e);
+            block.written.completeExceptionally(e);
+        }
+    }
+
+    private static class Block<T> {
+
+        private final long openedAt;
+        private final List<T> values = new ArrayList<>();
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+        private int writers;
+
+        private Block(long openedAt) {
+            this.openedAt = openedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.rbkmoney.fraudbusters.service.pipeline;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sets {@link InsertAccumulator} max writers to the number of result listener consumers owning partitions:
+ * with fewer partitions than the configured concurrency the idle consumers never add rows, and waiting for
+ * them would hold every block until it lingers out.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class InsertAccumulatorRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final InsertAccumulator<?> insertAccumulator;
+    private final Map<Consumer<?, ?>, Integer> assignedPartitions = new HashMap<>();
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Set<TopicPartition> remaining = new HashSet<>(consumer.assignment());
+        remaining.removeAll(partitions);
+        update(consumer, remaining.size());
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        update(consumer, consumer.assignment().size());
+    }
+
+    private synchronized void update(Consumer<?, ?> consumer, int partitions) {
+        if (partitions > 0) {
+            assignedPartitions.put(consumer, partitions);
+        } else {
+            assignedPartitions.remove(consumer);
+        }
+        int maxWriters = Math.max(1, assignedPartitions.size());
+        insertAccumulator.setMaxWriters(maxWriters);
+        log.info("InsertAccumulatorRebalanceListener consumers with partitions: {} max writers: {}",
+                assignedPartitions.size(), maxWriters);
+    }
+
+}
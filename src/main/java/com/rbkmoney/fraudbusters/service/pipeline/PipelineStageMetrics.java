@@ -0,0 +1,78 @@
+package com.rbkmoney.fraudbusters.service.pipeline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage metrics of a result pipeline: stage duration, processed records and the lag between
+ * the oldest record of the batch and the moment the stage finished with it. Meters are registered once per stage.
+ */
+public class PipelineStageMetrics {
+
+    public static final String STAGE_TIMER = "result.pipeline.stage.timer";
+    public static final String STAGE_RECORDS = "result.pipeline.stage.records";
+    public static final String STAGE_LAG = "result.pipeline.stage.lag";
+
+    private final MeterRegistry meterRegistry;
+    private final String pipeline;
+    private final Map<String, StageMeters> stages = new ConcurrentHashMap<>();
+
+    public PipelineStageMetrics(MeterRegistry meterRegistry, String pipeline) {
+        this.meterRegistry = meterRegistry;
+        this.pipeline = pipeline;
+    }
+
+    public <T> T call(String stage, int records, Long oldestTimestamp, Supplier<T> action) {
+        long start = System.nanoTime();
+        T result = action.get();
+        finish(stage, records, oldestTimestamp, start);
+        return result;
+    }
+
+    public void record(String stage, int records, Long oldestTimestamp, Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        finish(stage, records, oldestTimestamp, start);
+    }
+
+    public void finish(String stage, int records, Long oldestTimestamp, long startNanos) {
+        StageMeters meters = stages.computeIfAbsent(stage, this::createMeters);
+        meters.getTimer().record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        meters.getRecords().increment(records);
+        if (oldestTimestamp != null) {
+            meters.getLag().record(Math.max(0, System.currentTimeMillis() - oldestTimestamp));
+        }
+    }
+
+    private StageMeters createMeters(String stage) {
+        return new StageMeters(
+                Timer.builder(STAGE_TIMER)
+                        .tag("pipeline", pipeline)
+                        .tag("stage", stage)
+                        .register(meterRegistry),
+                meterRegistry.counter(STAGE_RECORDS, "pipeline", pipeline, "stage", stage),
+                DistributionSummary.builder(STAGE_LAG)
+                        .baseUnit("milliseconds")
+                        .tag("pipeline", pipeline)
+                        .tag("stage", stage)
+                        .register(meterRegistry));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class StageMeters {
+        private final Timer timer;
+        private final Counter records;
+        private final DistributionSummary lag;
+    }
+
+}
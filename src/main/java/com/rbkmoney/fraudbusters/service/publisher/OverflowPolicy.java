@@ -0,0 +1,18 @@
+package com.rbkmoney.fraudbusters.service.publisher;
+
+public enum OverflowPolicy {
+
+    /**
+     * Wait up to the block timeout for free space, then drop the result.
+     */
+    BLOCK,
+    /**
+     * Drop the result immediately.
+     */
+    DROP,
+    /**
+     * Append the result to the local spill file, it is published again on the next start.
+     */
+    SPILL
+
+}
@@ -0,0 +1,260 @@
+package com.rbkmoney.fraudbusters.service.publisher;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes inspection results to Kafka from a dedicated thread, so the inspecting thread only puts
+ * the result into a bounded queue. When the queue is full the configured {@link OverflowPolicy} applies.
+ * Delivery failures are counted and, with a spill file, kept for the next start. Spilled results are handed
+ * to a second thread that appends them to the spill file, so neither the inspecting thread nor the producer
+ * callback thread does file I/O.
+ */
+@Slf4j
+public class ResultPublisher<T> {
+
+    public static final String PUBLISHED = "result.publisher.published";
+    public static final String FAILED = "result.publisher.failed";
+    public static final String DROPPED = "result.publisher.dropped";
+    public static final String SPILLED = "result.publisher.spilled";
+    public static final String QUEUE_SIZE = "result.publisher.queue.size";
+
+    private final String topic;
+    private final KafkaTemplate<String, T> kafkaTemplate;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final int drainBatchSize;
+    private final long shutdownTimeoutMillis;
+    private final ResultSpillFile<T> spillFile;
+    private final BlockingQueue<T> queue;
+    private final BlockingQueue<T> spillQueue;
+
+    private final Counter published;
+    private final Counter failed;
+    private final Counter dropped;
+    private final Counter spilled;
+
+    private volatile boolean running;
+    private volatile boolean spilling;
+    private Thread worker;
+    private Thread spillWorker;
+
+    public ResultPublisher(String topic, KafkaTemplate<String, T> kafkaTemplate, int queueCapacity,
+                           OverflowPolicy overflowPolicy, long blockTimeoutMillis, int drainBatchSize,
+                           long shutdownTimeoutMillis, ResultSpillFile<T> spillFile, MeterRegistry meterRegistry) {
+        this.topic = topic;
+        this.kafkaTemplate = kafkaTemplate;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.drainBatchSize = drainBatchSize;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.spillFile = spillFile;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.spillQueue = new ArrayBlockingQueue<>(queueCapacity);
+        Tags tags = Tags.of("topic", topic);
+        this.published = meterRegistry.counter(PUBLISHED, tags);
+        this.failed = meterRegistry.counter(FAILED, tags);
+        this.dropped = meterRegistry.counter(DROPPED, tags);
+        this.spilled = meterRegistry.counter(SPILLED, tags);
+        meterRegistry.gaugeCollectionSize(QUEUE_SIZE, tags, queue);
+    }
+
+    public void publish(T value) {
+        if (queue.offer(value)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    if (queue.offer(value, blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                drop(value);
+                break;
+            case SPILL:
+                spill(value);
+                break;
+            default:
+                drop(value);
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        replaySpilled();
+        if (spillFile != null) {
+            spilling = true;
+            spillWorker = new Thread(this::spillLoop, "result-spill-" + topic);
+            spillWorker.setDaemon(true);
+            spillWorker.start();
+        }
+        worker = new Thread(this::drainLoop, "result-publisher-" + topic);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<T> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(value -> {
+            if (spillFile != null) {
+                append(value);
+            } else {
+                drop(value);
+            }
+        });
+        kafkaTemplate.flush();
+        stopSpilling();
+    }
+
+    private void stopSpilling() {
+        if (spillWorker == null) {
+            return;
+        }
+        spilling = false;
+        try {
+            spillWorker.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<T> rest = new ArrayList<>();
+        spillQueue.drainTo(rest);
+        writeSpilled(rest);
+        try {
+            spillFile.close();
+        } catch (Exception e) {
+            log.error("ResultPublisher error when close spill file topic: {} e: ", topic, e);
+        }
+    }
+
+    private void drainLoop() {
+        List<T> batch = new ArrayList<>(drainBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                T first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, drainBatchSize - 1);
+                batch.forEach(this::send);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("ResultPublisher error when send batch to topic: {} e: ", topic, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void spillLoop() {
+        List<T> batch = new ArrayList<>(drainBatchSize);
+        while (spilling || !spillQueue.isEmpty()) {
+            try {
+                T first = spillQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                spillQueue.drainTo(batch, drainBatchSize - 1);
+                writeSpilled(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeSpilled(List<T> batch) {
+        batch.forEach(this::append);
+        try {
+            spillFile.flush();
+        } catch (Exception e) {
+            log.error("ResultPublisher error when flush spill file topic: {} e: ", topic, e);
+        }
+    }
+
+    private void append(T value) {
+        try {
+            spillFile.append(value);
+            spilled.increment();
+        } catch (Exception e) {
+            log.error("ResultPublisher error when spill result to topic: {} e: ", topic, e);
+            dropped.increment();
+        }
+    }
+
+    private void send(T value) {
+        try {
+            kafkaTemplate.send(topic, value).addCallback(
+                    result -> published.increment(),
+                    ex -> onFailure(value, ex));
+        } catch (Exception e) {
+            onFailure(value, e);
+        }
+    }
+
+    private void onFailure(T value, Throwable e) {
+        failed.increment();
+        log.warn("ResultPublisher failed to publish to topic: {} e: ", topic, e);
+        if (spillFile != null) {
+            spill(value);
+        }
+    }
+
+    private void spill(T value) {
+        if (spillFile == null || !spillQueue.offer(value)) {
+            drop(value);
+        }
+    }
+
+    private void drop(T value) {
+        dropped.increment();
+        log.warn("ResultPublisher result dropped topic: {}", topic);
+        log.debug("ResultPublisher dropped value: {}", value);
+    }
+
+    private void replaySpilled() {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            List<T> values = spillFile.takeAll();
+            if (!values.isEmpty()) {
+                log.info("ResultPublisher replay spilled results topic: {} size: {}", topic, values.size());
+                values.forEach(this::send);
+            }
+        } catch (Exception e) {
+            log.error("ResultPublisher error when replay spilled results topic: {} e: ", topic, e);
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.rbkmoney.fraudbusters.service.publisher;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps results that could not be published as JSON lines in a local file. The file stays open for appending
+ * until {@link #close()} or {@link #takeAll()}; appended lines reach the file on {@link #flush()}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ResultSpillFile<T> {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final JavaType type;
+
+    private BufferedWriter writer;
+
+    public synchronized void append(T value) throws IOException {
+        if (writer == null) {
+            Files.createDirectories(path.getParent());
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(objectMapper.writeValueAsString(value));
+        writer.newLine();
+    }
+
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                writer = null;
+            }
+        }
+    }
+
+    public synchronized List<T> takeAll() throws IOException {
+        close();
+        List<T> values = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return values;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                values.add(objectMapper.readValue(line, type));
+            } catch (IOException e) {
+                log.warn("ResultSpillFile skip unreadable line in: {} e: ", path, e);
+            }
+        }
+        Files.delete(path);
+        return values;
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import com.rbkmoney.fraudbusters.template.chain.TemplateChain;
+import lombok.Data;
+
+@Data
+public class ChainedModel<T> {
+
+    private final T model;
+    private final TemplateChain chain;
+
+}
@@ -6,7 +6,7 @@ import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
 import com.rbkmoney.fraudbusters.template.pool.Pool;
 import com.rbkmoney.fraudo.constant.ResultStatus;
 import com.rbkmoney.fraudo.model.ResultModel;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
@@ -15,24 +15,33 @@ import java.util.List;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class P2PTemplateVisitorImpl implements TemplateVisitor<P2PModel, CheckedResultModel> {
 
     private static final String RULE_NOT_CHECKED = "RULE_NOT_CHECKED";
 
-    private final RuleApplier<P2PModel> ruleP2PApplier;
-    private final Pool<List<String>> groupP2PPoolImpl;
-    private final Pool<String> referenceP2PPoolImpl;
-    private final Pool<String> groupReferenceP2PPoolImpl;
+    private static final String P2P_PIPELINE = "p2p";
+
+    private final TierPipeline<P2PModel> tierPipeline;
+
+    public P2PTemplateVisitorImpl(RuleApplier<P2PModel> ruleP2PApplier,
+                                  Pool<List<String>> groupP2PPoolImpl,
+                                  Pool<String> referenceP2PPoolImpl,
+                                  Pool<String> groupReferenceP2PPoolImpl,
+                                  MeterRegistry meterRegistry) {
+        this.tierPipeline = new TierPipeline<>(P2P_PIPELINE, meterRegistry, List.of(
+                new Tier<>("global", p2PModel ->
+                        ruleP2PApplier.apply(p2PModel, referenceP2PPoolImpl.get(TemplateLevel.GLOBAL.name()))),
+                new Tier<>("identity_group", p2PModel ->
+                        ruleP2PApplier.applyForAny(p2PModel, groupP2PPoolImpl.get(groupReferenceP2PPoolImpl.get(p2PModel.getIdentityId())))),
+                new Tier<>("identity", p2PModel ->
+                        ruleP2PApplier.apply(p2PModel, referenceP2PPoolImpl.get(p2PModel.getIdentityId())))
+        ));
+    }
 
     @Override
     public CheckedResultModel visit(P2PModel p2PModel) {
-        String identityId = p2PModel.getIdentityId();
-
-        return ruleP2PApplier.apply(p2PModel, referenceP2PPoolImpl.get(TemplateLevel.GLOBAL.name()))
-                .orElse(ruleP2PApplier.applyForAny(p2PModel, groupP2PPoolImpl.get(groupReferenceP2PPoolImpl.get(identityId)))
-                        .orElse(ruleP2PApplier.apply(p2PModel, referenceP2PPoolImpl.get(identityId))
-                                .orElse(createDefaultResult())));
+        return tierPipeline.apply(p2PModel)
+                .orElseGet(this::createDefaultResult);
     }
 
     @NotNull
@@ -0,0 +1,52 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import lombok.RequiredArgsConstructor;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Wraps every rule of a parsed template into an empty template root of the same grammar. Rules keep their
+ * {@code rule:<name>:} name, unnamed rules are named by their position. Names are cached per rule.
+ */
+@RequiredArgsConstructor
+public class ParseTreeRuleSplitter implements TemplateRuleSplitter {
+
+    private static final Pattern RULE_NAME = Pattern.compile("^rule:([A-Za-z0-9_]+):");
+
+    private final Supplier<? extends ParserRuleContext> templateFactory;
+
+    private final Map<ParserRuleContext, String> names = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Override
+    public List<TemplateRule> split(ParserRuleContext parseContext) {
+        List<TemplateRule> rules = new ArrayList<>();
+        if (parseContext.children == null) {
+            return rules;
+        }
+        for (ParseTree child : parseContext.children) {
+            if (child instanceof ParserRuleContext) {
+                ParserRuleContext rule = (ParserRuleContext) child;
+                int position = rules.size() + 1;
+                ParserRuleContext template = templateFactory.get();
+                template.addChild(rule);
+                rules.add(new TemplateRule(names.computeIfAbsent(rule, r -> name(r, position)), template));
+            }
+        }
+        return rules;
+    }
+
+    private String name(ParserRuleContext rule, int position) {
+        Matcher matcher = RULE_NAME.matcher(rule.getText());
+        return matcher.find() ? matcher.group(1) : "rule_" + position;
+    }
+
+}
@@ -1,6 +1,10 @@
 package com.rbkmoney.fraudbusters.stream;
 
 import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.profile.ProfileCounters;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfiler;
 import com.rbkmoney.fraudbusters.template.pool.Pool;
 import com.rbkmoney.fraudo.constant.ResultStatus;
 import com.rbkmoney.fraudo.model.BaseModel;
@@ -10,22 +14,46 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.antlr.v4.runtime.ParserRuleContext;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Applies a template rule by rule in template order until a rule decides, like the fraudo visitor does. Every
+ * visited rule is profiled on its own, so rules that never fire are measured too.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class RuleApplierImpl<T extends BaseModel> implements RuleApplier<T> {
 
+    private static final String PREFETCH = "prefetch";
+    private static final String ERROR_OUTCOME = "error";
+
     private final TemplateVisitor<T, ResultModel> templateVisitor;
 
     private final Pool<ParserRuleContext> templatePool;
 
+    private final TemplatePrefetcher<T> templatePrefetcher;
+
+    private final RuleProfiler ruleProfiler;
+
+    private final TemplateRuleSplitter templateRuleSplitter;
+
+    public RuleApplierImpl(TemplateVisitor<T, ResultModel> templateVisitor, Pool<ParserRuleContext> templatePool) {
+        this(templateVisitor, templatePool, RuleProfiler.NOOP, TemplateRuleSplitter.NONE);
+    }
+
+    public RuleApplierImpl(TemplateVisitor<T, ResultModel> templateVisitor, Pool<ParserRuleContext> templatePool,
+                           RuleProfiler ruleProfiler, TemplateRuleSplitter templateRuleSplitter) {
+        this(templateVisitor, templatePool, (parseContext, model) -> {
+        }, ruleProfiler, templateRuleSplitter);
+    }
+
     @Override
     public Optional<CheckedResultModel> apply(T model, String templateKey) {
         ParserRuleContext parseContext = templatePool.get(templateKey);
         if (parseContext != null) {
-            ResultModel resultModel = templateVisitor.visit(parseContext, model);
+            ResultModel resultModel = visitProfiled(parseContext, model, templateKey);
             if (!ResultStatus.NORMAL.equals(resultModel.getResultStatus())) {
                 log.info("applyRules resultModel: {}", resultModel);
                 CheckedResultModel checkedResultModel = new CheckedResultModel();
@@ -50,4 +78,55 @@ public class RuleApplierImpl<T extends BaseModel> implements RuleApplier<T> {
         return Optional.empty();
     }
 
+    private ResultModel visitProfiled(ParserRuleContext parseContext, T model, String templateKey) {
+        boolean opened = InspectionMemoContext.open();
+        try {
+            prefetchProfiled(parseContext, model, templateKey);
+            List<String> notifications = new ArrayList<>();
+            for (TemplateRule rule : templateRuleSplitter.split(parseContext)) {
+                ResultModel resultModel = visitRuleProfiled(rule, model, templateKey);
+                if (resultModel.getNotificationsRule() != null) {
+                    notifications.addAll(resultModel.getNotificationsRule());
+                }
+                if (!ResultStatus.NORMAL.equals(resultModel.getResultStatus())) {
+                    return new ResultModel(resultModel.getResultStatus(), resultModel.getRuleChecked(), notifications);
+                }
+            }
+            return new ResultModel(ResultStatus.NORMAL, null, notifications);
+        } finally {
+            if (opened) {
+                InspectionMemoContext.clear();
+            }
+        }
+    }
+
+    private void prefetchProfiled(ParserRuleContext parseContext, T model, String templateKey) {
+        ProfileCounters previous = RuleProfileContext.start();
+        long start = System.nanoTime();
+        String outcome = ERROR_OUTCOME;
+        try {
+            templatePrefetcher.prefetch(parseContext, model);
+            outcome = PREFETCH;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            ProfileCounters counters = RuleProfileContext.stop(previous);
+            ruleProfiler.record(templateKey, PREFETCH, outcome, elapsed, counters);
+        }
+    }
+
+    private ResultModel visitRuleProfiled(TemplateRule rule, T model, String templateKey) {
+        ProfileCounters previous = RuleProfileContext.start();
+        long start = System.nanoTime();
+        String outcome = ERROR_OUTCOME;
+        try {
+            ResultModel resultModel = templateVisitor.visit(rule.getTemplate(), model);
+            outcome = String.valueOf(resultModel.getResultStatus());
+            return resultModel;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            ProfileCounters counters = RuleProfileContext.stop(previous);
+            ruleProfiler.record(templateKey, rule.getName(), outcome, elapsed, counters);
+        }
+    }
+
 }
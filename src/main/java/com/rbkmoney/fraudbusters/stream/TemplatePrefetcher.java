@@ -0,0 +1,10 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+@FunctionalInterface
+public interface TemplatePrefetcher<T> {
+
+    void prefetch(ParserRuleContext parseContext, T model);
+
+}
@@ -0,0 +1,12 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import lombok.Data;
+import org.antlr.v4.runtime.ParserRuleContext;
+
+@Data
+public class TemplateRule {
+
+    private final String name;
+    private final ParserRuleContext template;
+
+}
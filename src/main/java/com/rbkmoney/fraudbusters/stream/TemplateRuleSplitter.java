@@ -0,0 +1,20 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.util.List;
+
+/**
+ * Splits a parsed template into single-rule templates in template order, so every rule can be visited and
+ * profiled on its own.
+ */
+@FunctionalInterface
+public interface TemplateRuleSplitter {
+
+    String WHOLE_TEMPLATE = "template";
+
+    TemplateRuleSplitter NONE = parseContext -> List.of(new TemplateRule(WHOLE_TEMPLATE, parseContext));
+
+    List<TemplateRule> split(ParserRuleContext parseContext);
+
+}
@@ -1,41 +1,69 @@
 package com.rbkmoney.fraudbusters.stream;
 
-import com.rbkmoney.fraudbusters.constant.TemplateLevel;
 import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.template.chain.ChainEntry;
+import com.rbkmoney.fraudbusters.template.chain.TemplateChain;
+import com.rbkmoney.fraudbusters.template.chain.TemplateChainIndex;
 import com.rbkmoney.fraudbusters.template.pool.Pool;
-import com.rbkmoney.fraudbusters.util.ReferenceKeyGenerator;
 import com.rbkmoney.fraudo.constant.ResultStatus;
 import com.rbkmoney.fraudo.model.ResultModel;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class TemplateVisitorImpl implements TemplateVisitor<PaymentModel, CheckedResultModel> {
 
     private static final String RULE_NOT_CHECKED = "RULE_NOT_CHECKED";
 
-    private final RuleApplier<PaymentModel> ruleApplier;
-    private final Pool<List<String>> groupPoolImpl;
-    private final Pool<String> referencePoolImpl;
-    private final Pool<String> groupReferencePoolImpl;
+    private static final String PAYMENT_PIPELINE = "payment";
+
+    private final TierPipeline<ChainedModel<PaymentModel>> tierPipeline;
+    private final TemplateChainIndex templateChainIndex;
+
+    public TemplateVisitorImpl(RuleApplier<PaymentModel> ruleApplier,
+                               Pool<List<String>> groupPoolImpl,
+                               Pool<String> referencePoolImpl,
+                               Pool<String> groupReferencePoolImpl,
+                               MeterRegistry meterRegistry) {
+        this.templateChainIndex = new TemplateChainIndex(referencePoolImpl, groupReferencePoolImpl, groupPoolImpl);
+        this.tierPipeline = new TierPipeline<>(PAYMENT_PIPELINE, meterRegistry, List.of(
+                new Tier<>("global", chained ->
+                        apply(ruleApplier, chained.getModel(), chained.getChain().getGlobal())),
+                new Tier<>("party_group", chained ->
+                        applyForAny(ruleApplier, chained.getModel(), chained.getChain().getParty())),
+                new Tier<>("shop_group", chained ->
+                        applyForAny(ruleApplier, chained.getModel(), chained.getChain().getShop())),
+                new Tier<>("party", chained ->
+                        apply(ruleApplier, chained.getModel(), chained.getChain().getParty())),
+                new Tier<>("shop", chained ->
+                        apply(ruleApplier, chained.getModel(), chained.getChain().getShop()))
+        ));
+    }
 
     @Override
     public CheckedResultModel visit(PaymentModel paymentModel) {
-        String partyId = paymentModel.getPartyId();
-        String partyShopKey = ReferenceKeyGenerator.generateTemplateKey(partyId, paymentModel.getShopId());
-        return ruleApplier.apply(paymentModel, referencePoolImpl.get(TemplateLevel.GLOBAL.name()))
-                .orElse(ruleApplier.applyForAny(paymentModel, groupPoolImpl.get(groupReferencePoolImpl.get(partyId)))
-                        .orElse(ruleApplier.applyForAny(paymentModel, groupPoolImpl.get(groupReferencePoolImpl.get(partyShopKey)))
-                                .orElse(ruleApplier.apply(paymentModel, referencePoolImpl.get(partyId))
-                                        .orElse(ruleApplier.apply(paymentModel, referencePoolImpl.get(partyShopKey))
-                                                .orElse(createDefaultResult())))));
+        TemplateChain chain = templateChainIndex.resolve(paymentModel.getPartyId(), paymentModel.getShopId());
+        return tierPipeline.apply(new ChainedModel<>(paymentModel, chain))
+                .orElseGet(this::createDefaultResult);
+    }
+
+    private static Optional<CheckedResultModel> apply(RuleApplier<PaymentModel> ruleApplier, PaymentModel paymentModel,
+                                                      ChainEntry entry) {
+        return entry.getTemplateId() != null ? ruleApplier.apply(paymentModel, entry.getTemplateId()) : Optional.empty();
+    }
+
+    private static Optional<CheckedResultModel> applyForAny(RuleApplier<PaymentModel> ruleApplier, PaymentModel paymentModel,
+                                                            ChainEntry entry) {
+        return entry.getGroupTemplateIds() != null
+                ? ruleApplier.applyForAny(paymentModel, entry.getGroupTemplateIds())
+                : Optional.empty();
     }
 
     @NotNull
@@ -0,0 +1,21 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+@Getter
+@RequiredArgsConstructor
+public class Tier<T> {
+
+    private final String name;
+    private final Function<T, Optional<CheckedResultModel>> evaluator;
+
+    public Optional<CheckedResultModel> evaluate(T model) {
+        return evaluator.apply(model);
+    }
+
+}
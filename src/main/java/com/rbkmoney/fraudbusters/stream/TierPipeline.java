@@ -0,0 +1,69 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ordered template tiers evaluated lazily: the first tier that returns a result wins,
+ * the remaining tiers are not evaluated at all.
+ */
+@Slf4j
+public class TierPipeline<T> {
+
+    public static final String TIER_HIT = "tier.hit";
+    public static final String TIER_MISS = "tier.miss";
+    public static final String TIER_SKIP = "tier.skip";
+    public static final String TIER_DEGRADED = "tier.degraded";
+
+    private static final String PIPELINE_TAG = "pipeline";
+    private static final String TIER_TAG = "tier";
+
+    private final List<Tier<T>> tiers;
+    private final Counter[] hitCounters;
+    private final Counter[] missCounters;
+    private final Counter[] skipCounters;
+    private final Counter[] degradedCounters;
+
+    public TierPipeline(String pipelineName, MeterRegistry registry, List<Tier<T>> tiers) {
+        this.tiers = List.copyOf(tiers);
+        this.hitCounters = new Counter[tiers.size()];
+        this.missCounters = new Counter[tiers.size()];
+        this.skipCounters = new Counter[tiers.size()];
+        this.degradedCounters = new Counter[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            String tierName = tiers.get(i).getName();
+            hitCounters[i] = registry.counter(TIER_HIT, PIPELINE_TAG, pipelineName, TIER_TAG, tierName);
+            missCounters[i] = registry.counter(TIER_MISS, PIPELINE_TAG, pipelineName, TIER_TAG, tierName);
+            skipCounters[i] = registry.counter(TIER_SKIP, PIPELINE_TAG, pipelineName, TIER_TAG, tierName);
+            degradedCounters[i] = registry.counter(TIER_DEGRADED, PIPELINE_TAG, pipelineName, TIER_TAG, tierName);
+        }
+    }
+
+    public Optional<CheckedResultModel> apply(T model) {
+        for (int i = 0; i < tiers.size(); i++) {
+            Tier<T> tier = tiers.get(i);
+            int degradedBefore = InspectionDeadline.degradedCalls();
+            Optional<CheckedResultModel> result = tier.evaluate(model);
+            if (InspectionDeadline.degradedCalls() > degradedBefore) {
+                degradedCounters[i].increment();
+            }
+            if (result.isPresent()) {
+                log.debug("TierPipeline tier: {} fired for model: {}", tier.getName(), model);
+                hitCounters[i].increment();
+                for (int j = i + 1; j < tiers.size(); j++) {
+                    skipCounters[j].increment();
+                }
+                return result;
+            }
+            missCounters[i].increment();
+        }
+        return Optional.empty();
+    }
+
+}
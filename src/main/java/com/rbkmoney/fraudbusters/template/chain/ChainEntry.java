@@ -0,0 +1,18 @@
+package com.rbkmoney.fraudbusters.template.chain;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Template and group templates referenced by one party, shop or global key.
+ */
+@Data
+public class ChainEntry {
+
+    public static final ChainEntry EMPTY = new ChainEntry(null, null);
+
+    private final String templateId;
+    private final List<String> groupTemplateIds;
+
+}
@@ -0,0 +1,12 @@
+package com.rbkmoney.fraudbusters.template.chain;
+
+import lombok.Data;
+
+@Data
+public class TemplateChain {
+
+    private final ChainEntry global;
+    private final ChainEntry party;
+    private final ChainEntry shop;
+
+}
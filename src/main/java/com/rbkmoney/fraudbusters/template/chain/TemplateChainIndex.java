@@ -0,0 +1,164 @@
+package com.rbkmoney.fraudbusters.template.chain;
+
+import com.rbkmoney.fraudbusters.constant.TemplateLevel;
+import com.rbkmoney.fraudbusters.template.pool.Pool;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the reference, group reference and group pools resolved per key.
+ * The view is updated by the pools' change listeners on the thread that applied the command: only the
+ * entries of the changed key (or of every key referencing a changed group) are recomputed, and the new
+ * view is published with a single volatile write, so readers never block and never see half a command.
+ * Shop keys are indexed by every possible party/shop split of the pool key, so a lookup by party and shop
+ * gives the same entry as the concatenated key.
+ */
+@Slf4j
+public class TemplateChainIndex {
+
+    private static final char SEPARATOR = '_';
+
+    private final Pool<String> referencePool;
+    private final Pool<String> groupReferencePool;
+    private final Pool<List<String>> groupPool;
+
+    private final Map<String, String> groupByKey = new HashMap<>();
+    private final Map<String, Set<String>> keysByGroup = new HashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    public TemplateChainIndex(Pool<String> referencePool, Pool<String> groupReferencePool,
+                              Pool<List<String>> groupPool) {
+        this.referencePool = referencePool;
+        this.groupReferencePool = groupReferencePool;
+        this.groupPool = groupPool;
+        synchronized (this) {
+            referencePool.addChangeListener(this::onReferenceChanged);
+            groupReferencePool.addChangeListener(this::onGroupReferenceChanged);
+            groupPool.addChangeListener(this::onGroupChanged);
+            Set<String> keys = new HashSet<>();
+            referencePool.forEach((key, templateId) -> keys.add(key));
+            groupReferencePool.forEach((key, groupId) -> {
+                keys.add(key);
+                trackGroup(key, groupId);
+            });
+            update(keys);
+        }
+    }
+
+    public TemplateChain resolve(String partyId, String shopId) {
+        Snapshot current = snapshot;
+        return new TemplateChain(current.entry(TemplateLevel.GLOBAL.name()), current.entry(partyId),
+                current.shop(partyId, shopId));
+    }
+
+    private synchronized void onReferenceChanged(String key) {
+        update(Set.of(key));
+    }
+
+    private synchronized void onGroupReferenceChanged(String key) {
+        trackGroup(key, groupReferencePool.get(key));
+        update(Set.of(key));
+    }
+
+    private synchronized void onGroupChanged(String groupId) {
+        Set<String> keys = keysByGroup.get(groupId);
+        if (keys != null) {
+            update(keys);
+        }
+    }
+
+    private void trackGroup(String key, String groupId) {
+        String previous = groupId != null ? groupByKey.put(key, groupId) : groupByKey.remove(key);
+        if (previous != null && !previous.equals(groupId)) {
+            Set<String> keys = keysByGroup.get(previous);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByGroup.remove(previous);
+            }
+        }
+        if (groupId != null) {
+            keysByGroup.computeIfAbsent(groupId, group -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void update(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        Map<String, ChainEntry> entries = new HashMap<>(current.entries);
+        Map<String, Map<String, ChainEntry>> shops = new HashMap<>(current.shops);
+        Set<String> changedParties = new HashSet<>();
+        for (String key : keys) {
+            ChainEntry entry = compute(key);
+            if (entry != null) {
+                entries.put(key, entry);
+            } else {
+                entries.remove(key);
+            }
+            for (int i = key.indexOf(SEPARATOR); i > 0 && i < key.length() - 1; i = key.indexOf(SEPARATOR, i + 1)) {
+                String party = key.substring(0, i);
+                if (changedParties.add(party)) {
+                    shops.put(party, new HashMap<>(shops.getOrDefault(party, Map.of())));
+                }
+                if (entry != null) {
+                    shops.get(party).put(key.substring(i + 1), entry);
+                } else {
+                    shops.get(party).remove(key.substring(i + 1));
+                }
+            }
+        }
+        for (String party : changedParties) {
+            if (shops.get(party).isEmpty()) {
+                shops.remove(party);
+            }
+        }
+        snapshot = new Snapshot(entries, shops);
+        log.debug("TemplateChainIndex updated keys: {} size: {}", keys.size(), entries.size());
+    }
+
+    private ChainEntry compute(String key) {
+        String templateId = referencePool.get(key);
+        String groupId = groupReferencePool.get(key);
+        List<String> groupTemplateIds = groupId != null ? groupPool.get(groupId) : null;
+        if (templateId == null && groupTemplateIds == null) {
+            return null;
+        }
+        return new ChainEntry(templateId, groupTemplateIds);
+    }
+
+    @RequiredArgsConstructor
+    private static class Snapshot {
+
+        private final Map<String, ChainEntry> entries;
+        private final Map<String, Map<String, ChainEntry>> shops;
+
+        private ChainEntry entry(String key) {
+            ChainEntry entry = key != null ? entries.get(key) : null;
+            return entry != null ? entry : ChainEntry.EMPTY;
+        }
+
+        private ChainEntry shop(String partyId, String shopId) {
+            if (StringUtils.isEmpty(partyId)) {
+                return entry(TemplateLevel.DEFAULT.name());
+            }
+            if (StringUtils.isEmpty(shopId)) {
+                return entry(partyId);
+            }
+            Map<String, ChainEntry> partyShops = shops.get(partyId);
+            ChainEntry entry = partyShops != null ? partyShops.get(shopId) : null;
+            return entry != null ? entry : ChainEntry.EMPTY;
+        }
+
+    }
+
+}
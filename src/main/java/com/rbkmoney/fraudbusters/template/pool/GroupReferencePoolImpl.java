@@ -2,17 +2,24 @@ package com.rbkmoney.fraudbusters.template.pool;
 
 import lombok.ToString;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @ToString
 public class GroupReferencePoolImpl implements Pool<String> {
 
     private final Map<String, String> references = new ConcurrentHashMap<>();
+    @ToString.Exclude
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void add(String key, String reference) {
         references.put(key, reference);
+        notifyChanged(key);
     }
 
     @Override
@@ -23,6 +30,7 @@ public class GroupReferencePoolImpl implements Pool<String> {
     @Override
     public void remove(String key) {
         references.remove(key);
+        notifyChanged(key);
     }
 
     @Override
@@ -30,4 +38,18 @@ public class GroupReferencePoolImpl implements Pool<String> {
         return references.size();
     }
 
+    @Override
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        references.forEach(action);
+    }
+
+    private void notifyChanged(String key) {
+        changeListeners.forEach(listener -> listener.accept(key));
+    }
+
 }
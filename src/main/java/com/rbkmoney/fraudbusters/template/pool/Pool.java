@@ -1,5 +1,8 @@
 package com.rbkmoney.fraudbusters.template.pool;
 
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
 public interface Pool<T> {
 
     void add(String key, T parseContext);
@@ -10,4 +13,12 @@ public interface Pool<T> {
 
     int size();
 
+    /**
+     * Registers a callback that receives the key of every add or remove, on the thread that changed the pool,
+     * after the change is applied.
+     */
+    void addChangeListener(Consumer<String> listener);
+
+    void forEach(BiConsumer<String, T> action);
+
 }
@@ -3,17 +3,24 @@ package com.rbkmoney.fraudbusters.template.pool;
 import lombok.ToString;
 import org.antlr.v4.runtime.ParserRuleContext;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @ToString
 public class TemplatePoolImpl implements Pool<ParserRuleContext> {
 
     private final Map<String, ParserRuleContext> templates = new ConcurrentHashMap<>();
+    @ToString.Exclude
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void add(String key, ParserRuleContext parseContext) {
         templates.put(key, parseContext);
+        notifyChanged(key);
     }
 
     @Override
@@ -24,6 +31,7 @@ public class TemplatePoolImpl implements Pool<ParserRuleContext> {
     @Override
     public void remove(String key) {
         templates.remove(key);
+        notifyChanged(key);
     }
 
     @Override
@@ -31,4 +39,18 @@ public class TemplatePoolImpl implements Pool<ParserRuleContext> {
         return templates.size();
     }
 
+    @Override
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, ParserRuleContext> action) {
+        templates.forEach(action);
+    }
+
+    private void notifyChanged(String key) {
+        changeListeners.forEach(listener -> listener.accept(key));
+    }
+
 }
@@ -0,0 +1,104 @@
+package com.rbkmoney.fraudbusters.template.snapshot;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latest serialized command per record key of every command topic partition with the next offset to read.
+ * Replaying it rebuilds the pools the same way as replaying the topics up to those offsets.
+ */
+public class PoolSnapshot {
+
+    private static final int MAGIC = 0x46425053;
+    private static final int VERSION = 2;
+
+    private final Map<String, TopicState> topics = new HashMap<>();
+
+    public void put(String topic, String key, long offset, byte[] command) {
+        TopicState state = topics.computeIfAbsent(topic, t -> new TopicState());
+        state.commands.remove(key);
+        state.commands.put(key, command);
+        state.nextOffset = Math.max(state.nextOffset, offset + 1);
+    }
+
+    public Long nextOffset(String topic) {
+        TopicState state = topics.get(topic);
+        return state != null ? state.nextOffset : null;
+    }
+
+    public Map<String, byte[]> commands(String topic) {
+        TopicState state = topics.get(topic);
+        return state != null ? new LinkedHashMap<>(state.commands) : new LinkedHashMap<>();
+    }
+
+    public void remove(String topic) {
+        topics.remove(topic);
+    }
+
+    public int size() {
+        return topics.values().stream()
+                .mapToInt(state -> state.commands.size())
+                .sum();
+    }
+
+    public PoolSnapshot copy() {
+        PoolSnapshot copy = new PoolSnapshot();
+        topics.forEach((topic, state) -> {
+            TopicState stateCopy = new TopicState();
+            stateCopy.nextOffset = state.nextOffset;
+            stateCopy.commands.putAll(state.commands);
+            copy.topics.put(topic, stateCopy);
+        });
+        return copy;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(topics.size());
+        for (Map.Entry<String, TopicState> topic : topics.entrySet()) {
+            out.writeUTF(topic.getKey());
+            out.writeLong(topic.getValue().nextOffset);
+            out.writeInt(topic.getValue().commands.size());
+            for (Map.Entry<String, byte[]> command : topic.getValue().commands.entrySet()) {
+                out.writeUTF(command.getKey());
+                out.writeInt(command.getValue().length);
+                out.write(command.getValue());
+            }
+        }
+    }
+
+    public static PoolSnapshot readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Unknown pool snapshot format");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported pool snapshot version: " + version);
+        }
+        PoolSnapshot snapshot = new PoolSnapshot();
+        int topicCount = in.readInt();
+        for (int i = 0; i < topicCount; i++) {
+            String topic = in.readUTF();
+            TopicState state = new TopicState();
+            state.nextOffset = in.readLong();
+            int commandCount = in.readInt();
+            for (int j = 0; j < commandCount; j++) {
+                String key = in.readUTF();
+                byte[] command = new byte[in.readInt()];
+                in.readFully(command);
+                state.commands.put(key, command);
+            }
+            snapshot.topics.put(topic, state);
+        }
+        return snapshot;
+    }
+
+    private static class TopicState {
+        private long nextOffset;
+        private final LinkedHashMap<String, byte[]> commands = new LinkedHashMap<>();
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.rbkmoney.fraudbusters.template.snapshot;
+
+import com.rbkmoney.damsel.fraudbusters.Command;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Marks the command of the pending record as applied when a command listener returns without an error.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class PoolSnapshotAspect {
+
+    private final PoolSnapshotService poolSnapshotService;
+
+    @AfterReturning("execution(* com.rbkmoney.fraudbusters.listener.CommandListener+.listen(..)) && args(command)")
+    public void applied(Command command) {
+        poolSnapshotService.applied(command);
+    }
+
+}
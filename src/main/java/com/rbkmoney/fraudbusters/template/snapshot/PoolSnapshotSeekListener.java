@@ -0,0 +1,31 @@
+package com.rbkmoney.fraudbusters.template.snapshot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.Collection;
+
+/**
+ * Starts command listeners from the snapshot offsets instead of the beginning of the topics.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PoolSnapshotSeekListener implements ConsumerAwareRebalanceListener {
+
+    private final PoolSnapshotService poolSnapshotService;
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            Long offset = poolSnapshotService.nextOffset(partition);
+            if (offset != null) {
+                log.info("PoolSnapshotSeekListener seek partition: {} to offset: {}", partition, offset);
+                consumer.seek(partition, offset);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.rbkmoney.fraudbusters.template.snapshot;
+
+import com.rbkmoney.damsel.fraudbusters.Command;
+import com.rbkmoney.fraudbusters.config.properties.PoolSnapshotProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TException;
+import org.apache.thrift.TSerializer;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Tracks every applied command record and periodically writes the pool snapshot to a local file,
+ * so that a restart replays the snapshot and only the tail of the command topics. A record received by a
+ * command listener container is held as pending by {@link #intercept} and recorded by {@link #applied} once
+ * the listener has applied it; a record the listener fails on is never recorded and is replayed from the topic.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PoolSnapshotService implements RecordInterceptor<String, Command> {
+
+    public static final String SNAPSHOT_COMMANDS = "pool.snapshot.commands";
+
+    private static final ThreadLocal<ConsumerRecord<String, Command>> PENDING = new ThreadLocal<>();
+
+    private final PoolSnapshotProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private PoolSnapshot snapshot = new PoolSnapshot();
+    private boolean restored;
+    private boolean dirty;
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge(SNAPSHOT_COMMANDS, this, PoolSnapshotService::size);
+        if (!properties.isEnable()) {
+            return;
+        }
+        Path path = Paths.get(properties.getPath());
+        if (!Files.exists(path)) {
+            log.info("PoolSnapshotService snapshot not found: {}", path);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            PoolSnapshot loaded = PoolSnapshot.readFrom(in);
+            synchronized (this) {
+                snapshot = loaded;
+                restored = true;
+            }
+            log.info("PoolSnapshotService loaded snapshot: {} commands: {}", path, loaded.size());
+        } catch (IOException e) {
+            log.warn("PoolSnapshotService skip unreadable snapshot: {} e: ", path, e);
+        }
+    }
+
+    @Override
+    public ConsumerRecord<String, Command> intercept(ConsumerRecord<String, Command> record) {
+        PENDING.set(record);
+        return record;
+    }
+
+    /**
+     * Records the pending record of the calling listener thread once its command has been applied.
+     */
+    public void applied(Command command) {
+        ConsumerRecord<String, Command> pending = PENDING.get();
+        if (pending != null && Objects.equals(pending.value(), command)) {
+            PENDING.remove();
+            record(pending);
+        }
+    }
+
+    public void record(ConsumerRecord<String, Command> record) {
+        if (!properties.isEnable() || record.value() == null) {
+            return;
+        }
+        if (record.key() == null) {
+            log.warn("PoolSnapshotService skip command without key from topic: {} offset: {}",
+                    record.topic(), record.offset());
+            return;
+        }
+        try {
+            byte[] command = new TSerializer().serialize(record.value());
+            synchronized (this) {
+                snapshot.put(snapshotKey(new TopicPartition(record.topic(), record.partition())), record.key(),
+                        record.offset(), command);
+                dirty = true;
+            }
+        } catch (TException e) {
+            log.warn("PoolSnapshotService can't serialize command from topic: {} offset: {} e: ",
+                    record.topic(), record.offset(), e);
+        }
+    }
+
+    public synchronized boolean isRestored() {
+        return restored;
+    }
+
+    public synchronized Long nextOffset(TopicPartition partition) {
+        return properties.isEnable() ? snapshot.nextOffset(snapshotKey(partition)) : null;
+    }
+
+    /**
+     * Commands by record key in the order they were applied.
+     */
+    public Map<String, Command> commands(TopicPartition partition) {
+        Map<String, byte[]> commands;
+        synchronized (this) {
+            commands = snapshot.commands(snapshotKey(partition));
+        }
+        Map<String, Command> result = new LinkedHashMap<>();
+        TDeserializer deserializer = new TDeserializer();
+        commands.forEach((key, bytes) -> {
+            try {
+                Command command = new Command();
+                deserializer.deserialize(command, bytes);
+                result.put(key, command);
+            } catch (TException e) {
+                log.warn("PoolSnapshotService skip unreadable command in partition: {} e: ", partition, e);
+            }
+        });
+        return result;
+    }
+
+    public synchronized void reset(TopicPartition partition) {
+        snapshot.remove(snapshotKey(partition));
+        dirty = true;
+    }
+
+    public synchronized int size() {
+        return snapshot.size();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${pool.snapshot.intervalMillis:60000}")
+    public void write() {
+        if (!properties.isEnable()) {
+            return;
+        }
+        PoolSnapshot copy;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            copy = snapshot.copy();
+            dirty = false;
+        }
+        Path path = Paths.get(properties.getPath()).toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                copy.writeTo(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("PoolSnapshotService write snapshot: {} commands: {}", path, copy.size());
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            log.warn("PoolSnapshotService can't write snapshot: {} e: ", path, e);
+        }
+    }
+
+    private String snapshotKey(TopicPartition partition) {
+        return partition.topic() + "-" + partition.partition();
+    }
+
+}
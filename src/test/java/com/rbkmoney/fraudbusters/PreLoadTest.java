@@ -12,6 +12,7 @@ import com.rbkmoney.fraudbusters.repository.impl.PaymentRepositoryImpl;
 import com.rbkmoney.fraudbusters.serde.CommandDeserializer;
 import com.rbkmoney.fraudbusters.util.BeanUtil;
 import com.rbkmoney.woody.thrift.impl.http.THClientBuilder;
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
@@ -33,7 +34,6 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
-import ru.yandex.clickhouse.ClickHouseDataSource;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -58,12 +58,18 @@ public class PreLoadTest extends KafkaAbstractTest {
 
     private InspectorProxySrv.Iface client;
 
-    @MockBean
-    ClickHouseDataSource clickHouseDataSource;
+    @MockBean(name = "clickHouseReadDataSource")
+    HikariDataSource clickHouseReadDataSource;
 
-    @MockBean
+    @MockBean(name = "clickHouseWriteDataSource")
+    HikariDataSource clickHouseWriteDataSource;
+
+    @MockBean(name = "jdbcTemplate")
     JdbcTemplate jdbcTemplate;
 
+    @MockBean(name = "writeJdbcTemplate")
+    JdbcTemplate writeJdbcTemplate;
+
     @MockBean
     FraudResultRepository paymentRepository;
 
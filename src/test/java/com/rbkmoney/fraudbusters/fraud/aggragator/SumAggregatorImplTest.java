@@ -1,10 +1,16 @@
 package com.rbkmoney.fraudbusters.fraud.aggragator;
 
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
 import com.rbkmoney.fraudbusters.fraud.payment.aggregator.SumAggregatorImpl;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.profile.ProfileCounters;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfileContext;
 import com.rbkmoney.fraudbusters.repository.impl.ChargebackRepository;
 import com.rbkmoney.fraudbusters.repository.impl.PaymentRepositoryImpl;
 import com.rbkmoney.fraudbusters.repository.impl.RefundRepository;
@@ -14,8 +20,16 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SumAggregatorImplTest {
@@ -89,4 +103,79 @@ public class SumAggregatorImplTest {
 
         Assert.assertEquals(Double.valueOf(1050100), some);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sumMemoized() {
+        PaymentModel paymentModel = new PaymentModel();
+        paymentModel.setAmount(1L);
+        TimeWindow timeWindow = TimeWindow.builder().startWindowTime(1444L).build();
+
+        InspectionMemoContext.open();
+        ProfileCounters previous = RuleProfileContext.start();
+        try {
+            sumAggregator.sum(PaymentCheckedField.BIN, paymentModel, timeWindow, null);
+            Double sum = sumAggregator.sum(PaymentCheckedField.BIN, paymentModel, timeWindow, null);
+
+            Assert.assertEquals(Double.valueOf(1050101), sum);
+            verify(paymentRepository, times(1)).sumOperationByFieldWithGroupBy(any(), any(), any(), any(), any());
+        } finally {
+            InspectionMemoContext.clear();
+            Assert.assertEquals(1, RuleProfileContext.stop(previous).getDbQueries());
+        }
+
+        sumAggregator.sum(PaymentCheckedField.BIN, paymentModel, timeWindow, null);
+        verify(paymentRepository, times(2)).sumOperationByFieldWithGroupBy(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void sumDegradedWhenDeadlineSpent() {
+        PaymentModel paymentModel = new PaymentModel();
+        paymentModel.setAmount(1L);
+        List<String> degraded = new ArrayList<>();
+        InspectionBudget budget = new InspectionBudget(System.nanoTime() - 1, 0, 0L, degraded::add);
+
+        InspectionBudget previous = InspectionDeadline.start(budget);
+        ProfileCounters previousCounters = RuleProfileContext.start();
+        try {
+            Double sum = sumAggregator.sum(PaymentCheckedField.BIN, paymentModel,
+                    TimeWindow.builder().startWindowTime(1444L).build(), null);
+
+            Assert.assertEquals(Double.valueOf(1), sum);
+            Assert.assertTrue(budget.isDegraded());
+            Assert.assertEquals(List.of(AggregateMemoKey.SUM), degraded);
+            verify(paymentRepository, never()).sumOperationByFieldWithGroupBy(any(), any(), any(), any(), any());
+        } finally {
+            InspectionDeadline.stop(previous);
+            ProfileCounters counters = RuleProfileContext.stop(previousCounters);
+            Assert.assertEquals(0, counters.getDbQueries());
+            Assert.assertEquals(1, counters.getDegradedCalls());
+        }
+    }
+
+    @Test
+    public void slowSumCutOffByQueryTimeout() {
+        PaymentModel paymentModel = new PaymentModel();
+        paymentModel.setAmount(1L);
+        when(paymentRepository.sumOperationByFieldWithGroupBy(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            throw new QueryTimeoutException("Timeout exceeded: elapsed 1 seconds");
+        });
+        List<String> degraded = new ArrayList<>();
+        InspectionBudget budget = new InspectionBudget(System.nanoTime() + TimeUnit.SECONDS.toNanos(1), 0, 0L,
+                degraded::add);
+
+        InspectionBudget previous = InspectionDeadline.start(budget);
+        try {
+            Double sum = sumAggregator.sum(PaymentCheckedField.BIN, paymentModel,
+                    TimeWindow.builder().startWindowTime(1444L).build(), null);
+
+            Assert.assertEquals(Double.valueOf(1), sum);
+            Assert.assertTrue(budget.isDegraded());
+            Assert.assertEquals(List.of(AggregateMemoKey.SUM), degraded);
+            verify(paymentRepository, times(1)).sumOperationByFieldWithGroupBy(any(), any(), any(), any(), any());
+        } finally {
+            InspectionDeadline.stop(previous);
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.memo.AggregateMemoKey;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import com.rbkmoney.fraudbusters.fraud.payment.CountryByIpResolver;
+import com.rbkmoney.fraudbusters.fraud.payment.PaymentContextParserImpl;
+import com.rbkmoney.fraudbusters.fraud.wblist.WbListIndex;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudo.resolver.FieldResolver;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ParallelPaymentPrefetcherTest {
+
+    private static final String EMAIL = "email";
+    private static final String EMAIL_VALUE = "test@mail.ru";
+    private static final String ERROR_CODE = "card_expired";
+
+    @Mock
+    private PaymentAggregateQueryResolver paymentAggregateQueryResolver;
+    @Mock
+    private FieldResolver<PaymentModel, PaymentCheckedField> paymentModelFieldResolver;
+    @Mock
+    private PaymentRepository paymentRepository;
+    @Mock
+    private WbListServiceSrv.Iface wbListServiceSrv;
+    @Mock
+    private WbListIndex wbListIndex;
+    @Mock
+    private CountryByIpResolver countryByIpResolver;
+
+    private final ParserRuleContext parseContext = new PaymentContextParserImpl()
+            .parse("rule: count(\"email\", 10) > 1 -> decline;");
+    private final PaymentModel paymentModel = new PaymentModel();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ExecutorService prefetchExecutor;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        InspectionMemoContext.open();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        InspectionMemoContext.clear();
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fanOutIncludesErrorStatus() {
+        prefetchExecutor = Executors.newFixedThreadPool(3);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        when(paymentRepository.countOperationByFieldWithGroupBy(anyString(), anyString(), anyLong(), anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    threads.add(Thread.currentThread());
+                    return 5;
+                });
+        when(paymentRepository.countOperationSuccessWithGroupBy(anyString(), anyString(), anyLong(), anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    threads.add(Thread.currentThread());
+                    return 3;
+                });
+        when(paymentRepository.countOperationErrorWithGroupBy(anyString(), anyString(), anyLong(), anyLong(), any(), eq(ERROR_CODE)))
+                .thenAnswer(invocation -> {
+                    threads.add(Thread.currentThread());
+                    return 2;
+                });
+        Map<AggregateMemoKey, AggregateQuery> queries = new LinkedHashMap<>();
+        queries.put(memoKey(AggregateMemoKey.COUNT), query(StatusFilter.ALL));
+        queries.put(memoKey(AggregateMemoKey.COUNT_SUCCESS), query(StatusFilter.SUCCESS));
+        queries.put(memoKey(AggregateMemoKey.COUNT_ERROR + ERROR_CODE), query(StatusFilter.DECLINE));
+        when(paymentAggregateQueryResolver.resolve(any(), any())).thenReturn(queries);
+
+        prefetcher(1000L).prefetch(parseContext, paymentModel);
+
+        queries.keySet().forEach(key -> Assert.assertTrue(InspectionMemoContext.contains(key)));
+        Assert.assertFalse(threads.contains(Thread.currentThread()));
+        verify(paymentRepository, times(1)).countOperationErrorWithGroupBy(eq(EMAIL), eq(EMAIL_VALUE), anyLong(), anyLong(),
+                any(), eq(ERROR_CODE));
+    }
+
+    @Test
+    public void rejectedTasksAreLeftToRules() throws InterruptedException {
+        prefetchExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch busy = new CountDownLatch(1);
+        prefetchExecutor.submit(() -> {
+            busy.countDown();
+            release.await();
+            return null;
+        });
+        busy.await();
+        Map<AggregateMemoKey, AggregateQuery> queries = new LinkedHashMap<>();
+        queries.put(memoKey(AggregateMemoKey.COUNT), query(StatusFilter.ALL));
+        queries.put(memoKey(AggregateMemoKey.COUNT_SUCCESS), query(StatusFilter.SUCCESS));
+        when(paymentAggregateQueryResolver.resolve(any(), any())).thenReturn(queries);
+
+        prefetcher(1000L).prefetch(parseContext, paymentModel);
+
+        queries.keySet().forEach(key -> Assert.assertFalse(InspectionMemoContext.contains(key)));
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    public void singleTaskBoundedByDeadline() {
+        prefetchExecutor = Executors.newSingleThreadExecutor();
+        when(paymentRepository.countOperationByFieldWithGroupBy(anyString(), anyString(), anyLong(), anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return 5;
+                });
+        AggregateMemoKey memoKey = memoKey(AggregateMemoKey.COUNT);
+        when(paymentAggregateQueryResolver.resolve(any(), any())).thenReturn(Map.of(memoKey, query(StatusFilter.ALL)));
+
+        long start = System.nanoTime();
+        prefetcher(50L).prefetch(parseContext, paymentModel);
+
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000L);
+        Assert.assertFalse(InspectionMemoContext.contains(memoKey));
+    }
+
+    private ParallelPaymentPrefetcher prefetcher(long deadlineMillis) {
+        return new ParallelPaymentPrefetcher(paymentAggregateQueryResolver, new TemplateLookupCollector(),
+                paymentModelFieldResolver, paymentRepository, null, wbListServiceSrv, wbListIndex, countryByIpResolver,
+                prefetchExecutor, deadlineMillis);
+    }
+
+    private AggregateMemoKey memoKey(String function) {
+        return new AggregateMemoKey(function, AggregateMemoKey.PAYMENT_SOURCE, EMAIL, EMAIL_VALUE, 10L, 0L, List.of());
+    }
+
+    private AggregateQuery query(StatusFilter statusFilter) {
+        long now = System.currentTimeMillis();
+        return AggregateQuery.builder()
+                .type(AggregateQuery.Type.COUNT)
+                .statusFilter(statusFilter)
+                .fieldName(EMAIL)
+                .value(EMAIL_VALUE)
+                .errorCode(statusFilter == StatusFilter.DECLINE ? ERROR_CODE : null)
+                .from(now - 600_000L)
+                .to(now)
+                .groupByFields(List.of())
+                .build();
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.payment.PaymentContextParserImpl;
+import com.rbkmoney.fraudo.FraudoPaymentParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TemplateAggregateCollectorTest {
+
+    private static final String TEMPLATE = "rule:cards_email_count_3:unique(\"email\",\"card_token\",1440)>3->decline;" +
+            "rule:count5:count(\"card_token\",1440,\"party_id\")>4 AND sum(\"email\", 10, 5) >= 18000 ->decline;" +
+            "rule:error:countError(\"card_token\", 60, \"error_code\") > 2 ->notify;";
+
+    private final TemplateAggregateCollector templateAggregateCollector = new TemplateAggregateCollector();
+
+    @Test
+    public void collect() {
+        FraudoPaymentParser.ParseContext parseContext = new PaymentContextParserImpl().parse(TEMPLATE);
+
+        List<AggregateCall> calls = templateAggregateCollector.collect(parseContext);
+
+        Assert.assertEquals(4, calls.size());
+
+        AggregateCall unique = calls.get(0);
+        Assert.assertEquals(AggregateCallType.UNIQUE, unique.getType());
+        Assert.assertEquals(PaymentCheckedField.EMAIL, unique.getField());
+        Assert.assertEquals(PaymentCheckedField.CARD_TOKEN, unique.getOnField());
+        Assert.assertEquals(Long.valueOf(1440), unique.getStartWindowTime());
+
+        AggregateCall count = calls.get(1);
+        Assert.assertEquals(AggregateCallType.COUNT, count.getType());
+        Assert.assertEquals(List.of(PaymentCheckedField.PARTY_ID), count.getGroupByFields());
+        Assert.assertNull(count.getEndWindowTime());
+
+        AggregateCall sum = calls.get(2);
+        Assert.assertEquals(AggregateCallType.SUM, sum.getType());
+        Assert.assertEquals(Long.valueOf(10), sum.getStartWindowTime());
+        Assert.assertEquals(Long.valueOf(5), sum.getEndWindowTime());
+
+        AggregateCall countError = calls.get(3);
+        Assert.assertEquals(AggregateCallType.COUNT_ERROR, countError.getType());
+        Assert.assertEquals("error_code", countError.getErrorCode());
+
+        Assert.assertSame(calls, templateAggregateCollector.collect(parseContext));
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.rbkmoney.fraudbusters.fraud.batch;
+
+import com.rbkmoney.fraudbusters.fraud.payment.PaymentContextParserImpl;
+import com.rbkmoney.fraudo.FraudoPaymentParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TemplateLookupCollectorTest {
+
+    private static final String TEMPLATE = "rule:white:inWhiteList(\"email\", \"fingerprint\")->accept;" +
+            "rule:black:inBlackList(\"card_token\")->decline;" +
+            "rule:country:countryBy(\"ip\") = \"RUS\" AND count(\"email\", 10) > 1 ->notify;";
+
+    private final TemplateLookupCollector templateLookupCollector = new TemplateLookupCollector();
+
+    @Test
+    public void collect() {
+        FraudoPaymentParser.ParseContext parseContext = new PaymentContextParserImpl().parse(TEMPLATE);
+
+        List<LookupCall> calls = templateLookupCollector.collect(parseContext);
+
+        Assert.assertEquals(3, calls.size());
+        Assert.assertEquals(new LookupCall(LookupCallType.IN_WHITE_LIST, List.of("email", "fingerprint")), calls.get(0));
+        Assert.assertEquals(new LookupCall(LookupCallType.IN_BLACK_LIST, List.of("card_token")), calls.get(1));
+        Assert.assertEquals(new LookupCall(LookupCallType.COUNTRY_BY, List.of("ip")), calls.get(2));
+    }
+
+}
@@ -5,24 +5,36 @@ import com.rbkmoney.damsel.wb_list.Result;
 import com.rbkmoney.damsel.wb_list.RowInfo;
 import com.rbkmoney.damsel.wb_list.WbListServiceSrv;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
 import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentInListFinderImpl;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.wblist.RowInfoCache;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudbusters.repository.impl.FraudResultRepository;
 import com.rbkmoney.fraudbusters.repository.impl.PaymentRepositoryImpl;
 import com.rbkmoney.fraudo.finder.InListFinder;
 import com.rbkmoney.fraudo.model.Pair;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.thrift.TException;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.time.Instant;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class InGreyListFinderImplTest {
@@ -37,11 +49,23 @@ public class InGreyListFinderImplTest {
     private WbListServiceSrv.Iface wbListServiceSrv;
     @Mock
     private PaymentRepositoryImpl analyticRepository;
+    @Mock
+    private FraudResultRepository fraudResultRepository;
+    @Captor
+    private ArgumentCaptor<List<AggregateQuery>> queries;
+
+    private SimpleMeterRegistry meterRegistry;
 
     @Before
     public void init() {
         MockitoAnnotations.initMocks(this);
-        inGreyListFinder = new PaymentInListFinderImpl(wbListServiceSrv, new DBPaymentFieldResolver(), analyticRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        inGreyListFinder = createFinder(analyticRepository);
+    }
+
+    private PaymentInListFinderImpl createFinder(PaymentRepository paymentRepository) {
+        return new PaymentInListFinderImpl(wbListServiceSrv, new DBPaymentFieldResolver(), paymentRepository, null,
+                new RowInfoCache(wbListServiceSrv, meterRegistry, 0, 0, 0), meterRegistry);
     }
 
     @Test
@@ -90,4 +114,31 @@ public class InGreyListFinderImplTest {
 
         assertTrue(inList);
     }
+
+    @Test
+    public void findInListBatchesHits() throws TException {
+        Instant now = Instant.now();
+        Result result = new Result().setRowInfo(RowInfo
+                .count_info(new CountInfo()
+                        .setCount(5L)
+                        .setTimeToLive(now.plusSeconds(10L).toString())
+                        .setStartCountTime(now.toString())));
+        when(wbListServiceSrv.getRowInfo(any())).thenReturn(result);
+        when(fraudResultRepository.aggregateBatch(any())).thenReturn(List.of(6, 4));
+        PaymentModel paymentModel = new PaymentModel();
+        paymentModel.setPartyId(PARTY_ID);
+        paymentModel.setShopId(SHOP_ID);
+
+        Boolean inList = createFinder(fraudResultRepository).findInGreyList(List.of(
+                new Pair<>(PaymentCheckedField.CARD_TOKEN, VALUE),
+                new Pair<>(PaymentCheckedField.EMAIL, "test@test.ru")), paymentModel);
+
+        assertTrue(inList);
+        verify(fraudResultRepository, times(1)).aggregateBatch(queries.capture());
+        assertEquals(2, queries.getValue().size());
+        assertEquals(VALUE, queries.getValue().get(0).getValue());
+        assertEquals(StatusFilter.ALL, queries.getValue().get(1).getStatusFilter());
+        verify(fraudResultRepository, never()).countOperationByField(any(), any(), any(), any());
+        assertEquals(1, meterRegistry.get(RowInfoCache.COUNT_TIMER).tag("mode", "batch").timer().count());
+    }
 }
\ No newline at end of file
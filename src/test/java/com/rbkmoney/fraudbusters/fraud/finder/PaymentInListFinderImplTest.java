@@ -5,9 +5,11 @@ import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
 import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentInListFinderImpl;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.wblist.RowInfoCache;
 import com.rbkmoney.fraudbusters.repository.impl.PaymentRepositoryImpl;
 import com.rbkmoney.fraudo.finder.InListFinder;
 import com.rbkmoney.fraudo.model.Pair;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.thrift.TException;
 import org.junit.Assert;
 import org.junit.Before;
@@ -37,7 +39,9 @@ public class PaymentInListFinderImplTest {
     @Before
     public void init() {
         MockitoAnnotations.initMocks(this);
-        listFinder = new PaymentInListFinderImpl(wbListServiceSrv, dbPaymentFieldResolver, analyticRepository);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        listFinder = new PaymentInListFinderImpl(wbListServiceSrv, dbPaymentFieldResolver, analyticRepository, null,
+                new RowInfoCache(wbListServiceSrv, meterRegistry, 0, 0, 0), meterRegistry);
     }
 
     @Test
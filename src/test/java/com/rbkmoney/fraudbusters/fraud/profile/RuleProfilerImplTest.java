@@ -0,0 +1,59 @@
+package com.rbkmoney.fraudbusters.fraud.profile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class RuleProfilerImplTest {
+
+    private static final String TEMPLATE = "template";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RuleProfilerImpl ruleProfiler = new RuleProfilerImpl(meterRegistry);
+
+    @Test
+    public void top() {
+        ruleProfiler.record(TEMPLATE, "cheap", "NORMAL", TimeUnit.MILLISECONDS.toNanos(1), counters(0, 1));
+        ruleProfiler.record(TEMPLATE, "slow", "DECLINE", TimeUnit.MILLISECONDS.toNanos(20), counters(3, 0));
+        ruleProfiler.record(TEMPLATE, "slow", "NORMAL", TimeUnit.MILLISECONDS.toNanos(10), counters(3, 0));
+
+        List<RuleProfile> top = ruleProfiler.top(1);
+
+        Assert.assertEquals(1, top.size());
+        RuleProfile slow = top.get(0);
+        Assert.assertEquals("slow", slow.getRule());
+        Assert.assertEquals(2, slow.getCount());
+        Assert.assertEquals(30.0, slow.getTotalMillis(), 0.001);
+        Assert.assertEquals(20.0, slow.getMaxMillis(), 0.001);
+        Assert.assertEquals(6, slow.getDbQueries());
+        Assert.assertEquals(Long.valueOf(1), slow.getOutcomes().get("DECLINE"));
+        Assert.assertEquals(2, meterRegistry.find(RuleProfilerImpl.TIMER).tag("rule", "slow").timers().size());
+
+        ruleProfiler.reset();
+        Assert.assertTrue(ruleProfiler.top(10).isEmpty());
+    }
+
+    @Test
+    public void reusesMetersPerOutcome() {
+        ProfileCounters degraded = counters(1, 0);
+        degraded.setDegradedCalls(1);
+        ruleProfiler.record(TEMPLATE, "rule", "NORMAL", TimeUnit.MILLISECONDS.toNanos(1), counters(1, 0));
+        ruleProfiler.record(TEMPLATE, "rule", "NORMAL", TimeUnit.MILLISECONDS.toNanos(2), degraded);
+
+        Assert.assertEquals(1, meterRegistry.find(RuleProfilerImpl.TIMER).tag("rule", "rule").timers().size());
+        Assert.assertEquals(2, meterRegistry.get(RuleProfilerImpl.TIMER).tag("rule", "rule").timer().count());
+        Assert.assertEquals(2.0, meterRegistry.get(RuleProfilerImpl.DB_QUERIES).tag("rule", "rule").summary().totalAmount(), 0.001);
+        Assert.assertEquals(1.0, meterRegistry.get(RuleProfilerImpl.DEGRADED).tag("rule", "rule").counter().count(), 0.001);
+    }
+
+    private ProfileCounters counters(int dbQueries, int listCalls) {
+        ProfileCounters counters = new ProfileCounters();
+        counters.setDbQueries(dbQueries);
+        counters.setListCalls(listCalls);
+        return counters;
+    }
+
+}
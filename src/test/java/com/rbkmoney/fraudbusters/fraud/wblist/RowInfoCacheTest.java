@@ -0,0 +1,75 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.rbkmoney.damsel.wb_list.*;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentRowFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.thrift.TException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RowInfoCacheTest {
+
+    @Mock
+    private WbListServiceSrv.Iface wbListServiceSrv;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RowInfoCache rowInfoCache;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        rowInfoCache = new RowInfoCache(wbListServiceSrv, meterRegistry, 100L, 60000L, 60000L);
+    }
+
+    @Test
+    public void cachesCountInfoAndMisses() throws TException {
+        Row countRow = row("token_1");
+        Row emptyRow = row("token_2");
+        when(wbListServiceSrv.getRowInfo(countRow)).thenReturn(countResult(Instant.now().plusSeconds(60L)));
+        when(wbListServiceSrv.getRowInfo(emptyRow)).thenReturn(new Result().setRowInfo(new RowInfo()));
+
+        Assert.assertEquals(5L, rowInfoCache.getCountInfo(countRow).getCount());
+        Assert.assertEquals(5L, rowInfoCache.getCountInfo(countRow).getCount());
+        Assert.assertNull(rowInfoCache.getCountInfo(emptyRow));
+        Assert.assertNull(rowInfoCache.getCountInfo(emptyRow));
+
+        verify(wbListServiceSrv, times(2)).getRowInfo(any());
+        Assert.assertEquals(2.0, meterRegistry.counter(RowInfoCache.CACHE_COUNTER, "result", "hit").count(), 0.0);
+        Assert.assertEquals(2.0, meterRegistry.counter(RowInfoCache.CACHE_COUNTER, "result", "miss").count(), 0.0);
+    }
+
+    @Test
+    public void expiredCountInfoIsNotCached() throws TException {
+        Row row = row("token_3");
+        when(wbListServiceSrv.getRowInfo(row)).thenReturn(countResult(Instant.now().minusSeconds(1L)));
+
+        rowInfoCache.getCountInfo(row);
+        rowInfoCache.getCountInfo(row);
+
+        verify(wbListServiceSrv, times(2)).getRowInfo(row);
+    }
+
+    private Result countResult(Instant timeToLive) {
+        return new Result().setRowInfo(RowInfo.count_info(new CountInfo()
+                .setCount(5L)
+                .setStartCountTime(LocalDateTime.now(ZoneOffset.UTC).minusMinutes(1L).toString())
+                .setTimeToLive(LocalDateTime.ofInstant(timeToLive, ZoneOffset.UTC).toString())));
+    }
+
+    private Row row(String value) {
+        return PaymentRowFactory.createRow(ListType.grey, "party", "shop", PaymentCheckedField.CARD_TOKEN, value);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.rbkmoney.fraudbusters.fraud.wblist;
+
+import com.rbkmoney.damsel.wb_list.*;
+import com.rbkmoney.fraudbusters.config.properties.WbListReplicaProperties;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.payment.finder.PaymentRowFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class WbListIndexTest {
+
+    private static final String PARTY_ID = "party";
+    private static final String SHOP_ID = "shop";
+    private static final String EMAIL = "test@mail.ru";
+
+    private WbListReplicaProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private WbListIndex wbListIndex;
+
+    @Before
+    public void init() {
+        properties = new WbListReplicaProperties();
+        properties.setEnable(true);
+        properties.setMaxLagMillis(10000L);
+        meterRegistry = new SimpleMeterRegistry();
+        wbListIndex = new WbListIndex(properties, meterRegistry);
+        wbListIndex.onSourceComplete();
+    }
+
+    @Test
+    public void notServingUntilCaughtUp() {
+        wbListIndex.apply(event(EventType.CREATED, row(PARTY_ID, SHOP_ID)));
+        Assert.assertEquals(Optional.empty(), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+
+        wbListIndex.onIdle();
+        Assert.assertEquals(Optional.of(true), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+    }
+
+    @Test
+    public void notServingUntilSourceComplete() {
+        wbListIndex = new WbListIndex(properties, new SimpleMeterRegistry());
+        wbListIndex.onIdle();
+        Assert.assertEquals(Optional.empty(), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+
+        wbListIndex.onSourceComplete();
+        wbListIndex.onIdle();
+        Assert.assertEquals(Optional.of(false), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+    }
+
+    @Test
+    public void scopesAndDelete() {
+        wbListIndex.onIdle();
+        wbListIndex.apply(event(EventType.CREATED, row(PARTY_ID, null)));
+
+        Assert.assertEquals(Optional.of(true), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+        Assert.assertEquals(Optional.of(false), wbListIndex.isAnyExist(List.of(row("other", SHOP_ID))));
+
+        wbListIndex.apply(event(EventType.CREATED, row(null, null)));
+        Assert.assertEquals(Optional.of(true), wbListIndex.isAnyExist(List.of(row("other", SHOP_ID))));
+
+        wbListIndex.apply(event(EventType.DELETED, row(null, null)));
+        wbListIndex.apply(event(EventType.DELETED, row(PARTY_ID, null)));
+        Assert.assertEquals(Optional.of(false), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+        Assert.assertEquals(0, wbListIndex.size());
+    }
+
+    @Test
+    public void strictModeFallsBackOnLag() {
+        wbListIndex.onIdle();
+        wbListIndex.onBatch(System.currentTimeMillis() - 60000L);
+        Assert.assertEquals(Optional.empty(), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+
+        Assert.assertTrue(meterRegistry.get(WbListIndex.LAG).gauge().value() >= 60000L);
+
+        properties.setStrict(false);
+        Assert.assertEquals(Optional.of(false), wbListIndex.isAnyExist(List.of(row(PARTY_ID, SHOP_ID))));
+    }
+
+    private Event event(EventType eventType, Row row) {
+        return new Event()
+                .setEventType(eventType)
+                .setRow(row);
+    }
+
+    private Row row(String partyId, String shopId) {
+        return PaymentRowFactory.createRow(ListType.black, partyId, shopId, PaymentCheckedField.EMAIL, EMAIL);
+    }
+
+}
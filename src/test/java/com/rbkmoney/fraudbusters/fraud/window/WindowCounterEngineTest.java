@@ -0,0 +1,93 @@
+package com.rbkmoney.fraudbusters.fraud.window;
+
+import com.rbkmoney.fraudbusters.config.properties.WindowCounterProperties;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+public class WindowCounterEngineTest {
+
+    private static final String EMAIL = "email";
+    private static final String CARD_TOKEN = "cardToken";
+    private static final String EMAIL_VALUE = "test@mail.ru";
+
+    private WindowCounterEngine windowCounterEngine;
+
+    @Before
+    public void init() {
+        WindowCounterProperties properties = new WindowCounterProperties();
+        properties.setEnable(true);
+        properties.setHorizonMinutes(60);
+        properties.setBucketSeconds(10);
+        windowCounterEngine = new WindowCounterEngine(properties);
+    }
+
+    @Test
+    public void coldStartFallback() {
+        long now = System.currentTimeMillis();
+        Assert.assertFalse(windowCounterEngine.count(EMAIL, EMAIL_VALUE, now - 60_000, now, StatusFilter.ALL).isPresent());
+
+        windowCounterEngine.startFeeding();
+        windowCounterEngine.catchUpTo(Map.of(0, 2L, 1, 1L));
+        windowCounterEngine.add(now - 30 * 60_000, 100L, false, Map.of(EMAIL, EMAIL_VALUE));
+        windowCounterEngine.onConsumed(0, 0L);
+        windowCounterEngine.onConsumed(1, 0L);
+        Assert.assertFalse(windowCounterEngine.count(EMAIL, EMAIL_VALUE, now - 60_000, now, StatusFilter.ALL).isPresent());
+
+        windowCounterEngine.add(now - 60_000, 100L, false, Map.of(EMAIL, EMAIL_VALUE));
+        windowCounterEngine.onConsumed(0, 1L);
+        Assert.assertEquals(Optional.of(2), windowCounterEngine.count(EMAIL, EMAIL_VALUE, now - 60 * 60_000, now, StatusFilter.ALL));
+    }
+
+    @Test
+    public void notMirroredFieldFallback() {
+        long now = System.currentTimeMillis();
+        windowCounterEngine.startFeeding();
+        windowCounterEngine.catchUpTo(Map.of());
+        windowCounterEngine.add(now, 100L, false, Map.of(EMAIL, EMAIL_VALUE));
+
+        Assert.assertFalse(windowCounterEngine.count("country", "RUS", now - 60_000, now, StatusFilter.ALL).isPresent());
+        Assert.assertFalse(windowCounterEngine.sum("currency", "RUB", now - 60_000, now, StatusFilter.ALL).isPresent());
+        Assert.assertFalse(windowCounterEngine.uniq(EMAIL, EMAIL_VALUE, "country", now - 60_000, now).isPresent());
+        Assert.assertEquals(Optional.of(1), windowCounterEngine.uniq(EMAIL, EMAIL_VALUE, EMAIL, now - 60_000, now));
+    }
+
+    @Test
+    public void aggregates() {
+        long now = System.currentTimeMillis();
+        windowCounterEngine.startFeeding();
+        windowCounterEngine.catchUpTo(Map.of());
+        windowCounterEngine.add(now - 20 * 60_000, 100L, false, Map.of(EMAIL, EMAIL_VALUE, CARD_TOKEN, "token_1"));
+        windowCounterEngine.add(now - 60_000, 200L, true, Map.of(EMAIL, EMAIL_VALUE, CARD_TOKEN, "token_2"));
+        windowCounterEngine.add(now, 300L, false, Map.of(EMAIL, EMAIL_VALUE, CARD_TOKEN, "token_2"));
+
+        long from = now - 30 * 60_000;
+        Assert.assertEquals(Optional.of(3), windowCounterEngine.count(EMAIL, EMAIL_VALUE, from, now, StatusFilter.ALL));
+        Assert.assertEquals(Optional.of(2), windowCounterEngine.count(EMAIL, EMAIL_VALUE, from, now, StatusFilter.SUCCESS));
+        Assert.assertEquals(Optional.of(1), windowCounterEngine.count(EMAIL, EMAIL_VALUE, from, now, StatusFilter.DECLINE));
+        Assert.assertEquals(Optional.of(600L), windowCounterEngine.sum(EMAIL, EMAIL_VALUE, from, now, StatusFilter.ALL));
+        Assert.assertEquals(Optional.of(2), windowCounterEngine.uniq(EMAIL, EMAIL_VALUE, CARD_TOKEN, from, now));
+        Assert.assertEquals(Optional.of(2), windowCounterEngine.count(EMAIL, EMAIL_VALUE, now - 5 * 60_000, now, StatusFilter.ALL));
+        Assert.assertEquals(Optional.of(0), windowCounterEngine.count(EMAIL, "unknown", from, now, StatusFilter.ALL));
+
+        Assert.assertFalse(windowCounterEngine.count(EMAIL, EMAIL_VALUE, now - 120 * 60_000, now, StatusFilter.ALL).isPresent());
+    }
+
+    @Test
+    public void uniqSketchEstimate() {
+        UniqSketch sketch = new UniqSketch();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add("value_" + i);
+        }
+        UniqSketch merged = new UniqSketch();
+        merged.add("value_1");
+        merged.merge(sketch);
+
+        Assert.assertEquals(10_000, merged.estimate(), 1_000);
+    }
+
+}
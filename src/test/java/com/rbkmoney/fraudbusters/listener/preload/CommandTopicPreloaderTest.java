@@ -0,0 +1,89 @@
+package com.rbkmoney.fraudbusters.listener.preload;
+
+import com.rbkmoney.damsel.fraudbusters.Command;
+import com.rbkmoney.damsel.fraudbusters.CommandBody;
+import com.rbkmoney.damsel.fraudbusters.CommandType;
+import com.rbkmoney.damsel.fraudbusters.Template;
+import com.rbkmoney.fraudbusters.config.properties.PreloadProperties;
+import com.rbkmoney.fraudbusters.exception.StartException;
+import com.rbkmoney.fraudbusters.template.snapshot.PoolSnapshotService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class CommandTopicPreloaderTest {
+
+    @Mock
+    private PoolSnapshotService poolSnapshotService;
+
+    private ExecutorService executorService;
+    private CommandTopicPreloader commandTopicPreloader;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        executorService = Executors.newFixedThreadPool(4);
+        PreloadProperties preloadProperties = new PreloadProperties();
+        preloadProperties.setThreads(4);
+        commandTopicPreloader = new CommandTopicPreloader(poolSnapshotService,
+                new PreloadTracker(new SimpleMeterRegistry()), preloadProperties, executorService);
+    }
+
+    @After
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void applyKeepsOrderOfKey() {
+        List<Map.Entry<String, Command>> commands = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String key = "template_" + i % 10;
+            commands.add(new AbstractMap.SimpleImmutableEntry<>(key, command(key, String.valueOf(i))));
+        }
+        Map<String, List<Integer>> applied = new ConcurrentHashMap<>();
+
+        commandTopicPreloader.apply(commands, command -> {
+            Template template = command.getCommandBody().getTemplate();
+            applied.computeIfAbsent(template.getId(), id -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.valueOf(new String(template.getTemplate())));
+        });
+
+        Assert.assertEquals(10, applied.size());
+        applied.forEach((key, values) -> {
+            Assert.assertEquals(10, values.size());
+            List<Integer> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            Assert.assertEquals(sorted, values);
+        });
+    }
+
+    @Test(expected = StartException.class)
+    public void applyFailsOnListenerError() {
+        List<Map.Entry<String, Command>> commands = List.of(
+                new AbstractMap.SimpleImmutableEntry<>("first", command("first", "1")),
+                new AbstractMap.SimpleImmutableEntry<>("second", command("second", "2")));
+
+        commandTopicPreloader.apply(commands, command -> {
+            throw new IllegalStateException("broken template");
+        });
+    }
+
+    private Command command(String id, String template) {
+        return new Command()
+                .setCommandType(CommandType.CREATE)
+                .setCommandBody(CommandBody.template(new Template()
+                        .setId(id)
+                        .setTemplate(template.getBytes())));
+    }
+
+}
@@ -2,23 +2,34 @@ package com.rbkmoney.fraudbusters.repository;
 
 import com.rbkmoney.damsel.geo_ip.GeoIpServiceSrv;
 import com.rbkmoney.fraudbusters.config.ClickhouseConfig;
+import com.rbkmoney.fraudbusters.config.properties.WindowCounterProperties;
 import com.rbkmoney.fraudbusters.constant.EventField;
 import com.rbkmoney.fraudbusters.converter.FraudResultToEventConverter;
 import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.Event;
 import com.rbkmoney.fraudbusters.domain.FraudRequest;
 import com.rbkmoney.fraudbusters.domain.FraudResult;
 import com.rbkmoney.fraudbusters.domain.Metadata;
 import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.model.AggregateQuery;
 import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.model.StatusFilter;
 import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.fraud.window.WindowCounterEngine;
+import com.rbkmoney.fraudbusters.fraud.window.WindowedPaymentRepository;
 import com.rbkmoney.fraudbusters.repository.impl.AggregationGeneralRepositoryImpl;
 import com.rbkmoney.fraudbusters.repository.impl.FraudResultRepository;
+import com.rbkmoney.fraudbusters.repository.jdbc.ClickhouseBatchInserter;
+import com.rbkmoney.fraudbusters.repository.lookup.LookupTableRouter;
+import com.rbkmoney.fraudbusters.repository.setter.EventRowBinaryWriter;
 import com.rbkmoney.fraudbusters.util.BeanUtil;
 import com.rbkmoney.fraudbusters.util.ChInitializer;
 import com.rbkmoney.fraudbusters.util.TimestampUtil;
 import com.rbkmoney.fraudo.constant.ResultStatus;
 import com.rbkmoney.fraudo.model.ResultModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
@@ -40,7 +51,11 @@ import org.testcontainers.containers.ClickHouseContainer;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static com.rbkmoney.fraudbusters.util.ChInitializer.execAllInFile;
@@ -50,11 +65,19 @@ import static org.junit.Assert.assertEquals;
 @RunWith(SpringRunner.class)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
 @ContextConfiguration(classes = {FraudResultToEventConverter.class, ClickhouseConfig.class,
-        DBPaymentFieldResolver.class, AggregationGeneralRepositoryImpl.class, FraudResultRepository.class},
+        DBPaymentFieldResolver.class, AggregationGeneralRepositoryImpl.class, FraudResultRepository.class,
+        SimpleMeterRegistry.class},
         initializers = FraudResultRepositoryTest.Initializer.class)
 public class FraudResultRepositoryTest {
 
     private static final String SELECT_COUNT_AS_CNT_FROM_FRAUD_EVENTS_UNIQUE = "SELECT count() as cnt from fraud.events_unique";
+    private static final String ROLLUP_EMAIL = "rollup@mail.ru";
+    private static final String ROLLUP_PARTY_ID = "rollup_party";
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final String INSERT_ROW_BINARY = "INSERT INTO fraud.events_unique " +
+            " (timestamp, eventTimeHour, eventTime, ip, email, bin, fingerprint, shopId, partyId, resultStatus, amount, " +
+            "country, checkedRule, bankCountry, currency, invoiceId, maskedPan, bankName, cardToken, paymentId, checkedTemplate)" +
+            ClickhouseBatchInserter.ROW_BINARY_FORMAT;
 
     @ClassRule
     public static ClickHouseContainer clickHouseContainer = new ClickHouseContainer("yandex/clickhouse-server:19.17");
@@ -65,6 +88,12 @@ public class FraudResultRepositoryTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ClickhouseBatchInserter clickhouseBatchInserter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     FraudResultToEventConverter fraudResultToEventConverter;
 
@@ -82,7 +111,10 @@ public class FraudResultRepositoryTest {
             TestPropertyValues
                     .of("clickhouse.db.url=" + clickHouseContainer.getJdbcUrl(),
                             "clickhouse.db.user=" + clickHouseContainer.getUsername(),
-                            "clickhouse.db.password=" + clickHouseContainer.getPassword())
+                            "clickhouse.db.password=" + clickHouseContainer.getPassword(),
+                            "clickhouse.db.rollup.enable=true",
+                            "clickhouse.db.rollup.min.closed.hours=1",
+                            "clickhouse.db.lookup.enable=true")
                     .applyTo(configurableApplicationContext.getEnvironment());
 
             initDb();
@@ -92,6 +124,8 @@ public class FraudResultRepositoryTest {
     private static void initDb() throws SQLException {
         try (Connection connection = ChInitializer.getSystemConn(clickHouseContainer)) {
             execAllInFile(connection, "sql/db_init.sql");
+            execAllInFile(connection, "sql/V3__create_events_unique_hourly.sql");
+            execAllInFile(connection, "sql/V4__create_events_unique_lookup.sql");
             execAllInFile(connection, "sql/TEST_analytics_data.sql");
         }
     }
@@ -126,6 +160,217 @@ public class FraudResultRepositoryTest {
         assertEquals(2, count.intValue());
     }
 
+    @Test
+    public void insertBatchRowBinaryMatchesValues() {
+        List<Event> events = fraudResultToEventConverter.convertBatch(createBatch());
+        fraudResultRepository.insertBatch(events);
+        clickhouseBatchInserter.insertRowBinary(INSERT_ROW_BINARY, events, new EventRowBinaryWriter());
+
+        Integer count = jdbcTemplate.queryForObject(SELECT_COUNT_AS_CNT_FROM_FRAUD_EVENTS_UNIQUE,
+                (resultSet, i) -> resultSet.getInt("cnt"));
+        Integer distinct = jdbcTemplate.queryForObject("SELECT count() as cnt from (SELECT DISTINCT * from fraud.events_unique)",
+                (resultSet, i) -> resultSet.getInt("cnt"));
+
+        assertEquals(4, count.intValue());
+        assertEquals(2, distinct.intValue());
+    }
+
+    @Test
+    public void rollupWindowCountsClosedHoursAndEdges() {
+        Instant now = Instant.now();
+        long currentHour = now.truncatedTo(ChronoUnit.HOURS).toEpochMilli();
+        List<Event> events = new ArrayList<>();
+        for (int hour = 1; hour <= 5; hour++) {
+            long eventTime = currentHour - hour * HOUR_MILLIS + 600_000L;
+            events.add(createEvent(eventTime, "card_" + hour, ResultStatus.ACCEPT));
+            events.add(createEvent(eventTime, "card_" + hour, ResultStatus.DECLINE));
+        }
+        events.add(createEvent(now.toEpochMilli(), "card_now", ResultStatus.ACCEPT));
+        fraudResultRepository.insertBatch(events);
+
+        long from = currentHour - 5 * HOUR_MILLIS - 1_800_000L;
+        long to = now.toEpochMilli();
+        List<FieldModel> party = List.of(new FieldModel(EventField.partyId.name(), ROLLUP_PARTY_ID));
+
+        assertEquals(11, fraudResultRepository.countOperationByField(EventField.email.name(), ROLLUP_EMAIL, from, to).intValue());
+        assertEquals(6, fraudResultRepository.countOperationSuccessWithGroupBy(EventField.email.name(), ROLLUP_EMAIL,
+                from, to, party).intValue());
+        assertEquals(5, fraudResultRepository.countOperationErrorWithGroupBy(EventField.email.name(), ROLLUP_EMAIL,
+                from, to, party, null).intValue());
+        assertEquals(1100L, fraudResultRepository.sumOperationByFieldWithGroupBy(EventField.email.name(), ROLLUP_EMAIL,
+                from, to, List.of()).longValue());
+        assertEquals(6, fraudResultRepository.uniqCountOperation(EventField.email.name(), ROLLUP_EMAIL,
+                EventField.cardToken.name(), from, to).intValue());
+        assertEquals(3, fraudResultRepository.countOperationByField(EventField.email.name(), ROLLUP_EMAIL,
+                currentHour - HOUR_MILLIS, to).intValue());
+    }
+
+    @Test
+    public void batchMatchesUnbatchedWithRouting() {
+        Instant now = Instant.now();
+        long currentHour = now.truncatedTo(ChronoUnit.HOURS).toEpochMilli();
+        List<Event> events = new ArrayList<>();
+        for (int hour = 1; hour <= 5; hour++) {
+            long eventTime = currentHour - hour * HOUR_MILLIS + 600_000L;
+            events.add(createEvent(eventTime, "card_" + hour, ResultStatus.ACCEPT));
+            events.add(createEvent(eventTime, "card_" + hour, ResultStatus.DECLINE));
+        }
+        events.add(createEvent(now.toEpochMilli(), "card_1", ResultStatus.ACCEPT));
+        fraudResultRepository.insertBatch(events);
+
+        String email = EventField.email.name();
+        String cardToken = EventField.cardToken.name();
+        long to = now.toEpochMilli();
+        long longFrom = currentHour - 5 * HOUR_MILLIS - 1_800_000L;
+        long shortFrom = to - 1_800_000L;
+        List<FieldModel> party = List.of(new FieldModel(EventField.partyId.name(), ROLLUP_PARTY_ID));
+        List<AggregateQuery> queries = List.of(
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.ALL, longFrom, to).build(),
+                batchQuery(AggregateQuery.Type.SUM, StatusFilter.SUCCESS, longFrom, to).groupByFields(party).build(),
+                batchQuery(AggregateQuery.Type.UNIQ, StatusFilter.ALL, longFrom, to).onFieldName(cardToken).build(),
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.ALL, shortFrom, to).build(),
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.DECLINE, shortFrom, to).build(),
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.ALL, longFrom, to)
+                        .fieldName(cardToken).value("card_1").build(),
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.ALL, shortFrom, to)
+                        .fieldName(EventField.country.name()).value("RUS").build());
+
+        double rollups = routeCount(LookupTableRouter.ROUTE_ROLLUP, email);
+        List<Number> batched = fraudResultRepository.aggregateBatch(queries);
+        assertEquals(rollups + 3, routeCount(LookupTableRouter.ROUTE_ROLLUP, email), 0);
+
+        assertEquals(fraudResultRepository.countOperationByField(email, ROLLUP_EMAIL, longFrom, to).longValue(),
+                batched.get(0).longValue());
+        assertEquals(fraudResultRepository.sumOperationSuccessWithGroupBy(email, ROLLUP_EMAIL, longFrom, to, party).longValue(),
+                batched.get(1).longValue());
+        assertEquals(fraudResultRepository.uniqCountOperation(email, ROLLUP_EMAIL, cardToken, longFrom, to).longValue(),
+                batched.get(2).longValue());
+        assertEquals(fraudResultRepository.countOperationByField(email, ROLLUP_EMAIL, shortFrom, to).longValue(),
+                batched.get(3).longValue());
+        assertEquals(fraudResultRepository.countOperationErrorWithGroupBy(email, ROLLUP_EMAIL, shortFrom, to, List.of(), null).longValue(),
+                batched.get(4).longValue());
+        assertEquals(fraudResultRepository.countOperationByField(cardToken, "card_1", longFrom, to).longValue(),
+                batched.get(5).longValue());
+        assertEquals(fraudResultRepository.countOperationByField(EventField.country.name(), "RUS", shortFrom, to).longValue(),
+                batched.get(6).longValue());
+    }
+
+    @Test
+    public void lookupTableAnswersPointQueriesByKeyField() {
+        long now = Instant.now().toEpochMilli();
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(createEvent(now - i * 1000L, "card_" + i % 2, ResultStatus.ACCEPT));
+        }
+        fraudResultRepository.insertBatch(events);
+        double before = routeCount(LookupTableRouter.ROUTE_LOOKUP, EventField.cardToken.name());
+
+        Integer copied = jdbcTemplate.queryForObject("SELECT count() as cnt from fraud.events_unique_by_card_token",
+                (resultSet, i) -> resultSet.getInt("cnt"));
+        assertEquals(10, copied.intValue());
+        assertEquals(5, fraudResultRepository.countOperationByField(EventField.cardToken.name(), "card_1",
+                now - 60_000L, now).intValue());
+        assertEquals(1, fraudResultRepository.uniqCountOperation(EventField.cardToken.name(), "card_1",
+                EventField.email.name(), now - 60_000L, now).intValue());
+        assertEquals(before + 2, routeCount(LookupTableRouter.ROUTE_LOOKUP, EventField.cardToken.name()), 0);
+    }
+
+    @Test
+    public void windowCountersMatchClickhouse() {
+        long now = Instant.now().toEpochMilli();
+        ResultStatus[] statuses = {ResultStatus.ACCEPT, ResultStatus.DECLINE, ResultStatus.NOTIFY, ResultStatus.DECLINE};
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Event event = createEvent(now - (12 - i) * 20_000L, "card_" + i % 5, statuses[i % statuses.length]);
+            event.setAmount(100L * (i + 1));
+            events.add(event);
+        }
+        fraudResultRepository.insertBatch(events);
+
+        WindowCounterProperties properties = new WindowCounterProperties();
+        properties.setEnable(true);
+        WindowCounterEngine windowCounterEngine = new WindowCounterEngine(properties);
+        windowCounterEngine.startFeeding();
+        windowCounterEngine.catchUpTo(Map.of());
+        for (Event event : events) {
+            windowCounterEngine.add(event.getEventTime() * 1000, event.getAmount(),
+                    ResultStatus.DECLINE.name().equals(event.getResultStatus()),
+                    Map.of(EventField.email.name(), event.getEmail(), EventField.cardToken.name(), event.getCardToken()));
+        }
+        WindowedPaymentRepository windowed = new WindowedPaymentRepository(fraudResultRepository, windowCounterEngine,
+                meterRegistry);
+        double hits = meterRegistry.counter("window.counter.hit").count();
+
+        String email = EventField.email.name();
+        String cardToken = EventField.cardToken.name();
+        long from = now - 10 * 60_000L;
+        assertEquals(fraudResultRepository.countOperationByField(email, ROLLUP_EMAIL, from, now),
+                windowed.countOperationByField(email, ROLLUP_EMAIL, from, now));
+        assertEquals(fraudResultRepository.sumOperationByFieldWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of()),
+                windowed.sumOperationByFieldWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of()));
+        assertEquals(fraudResultRepository.countOperationSuccessWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of()),
+                windowed.countOperationSuccessWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of()));
+        assertEquals(fraudResultRepository.sumOperationSuccessWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of()),
+                windowed.sumOperationSuccessWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of()));
+        assertEquals(fraudResultRepository.countOperationErrorWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of(), "card_expired"),
+                windowed.countOperationErrorWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of(), "card_expired"));
+        assertEquals(fraudResultRepository.sumOperationErrorWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of(), "card_expired"),
+                windowed.sumOperationErrorWithGroupBy(email, ROLLUP_EMAIL, from, now, List.of(), "card_expired"));
+        assertEquals(fraudResultRepository.uniqCountOperation(email, ROLLUP_EMAIL, cardToken, from, now),
+                windowed.uniqCountOperation(email, ROLLUP_EMAIL, cardToken, from, now));
+        assertEquals(fraudResultRepository.countOperationByField(cardToken, "card_1", from, now),
+                windowed.countOperationByField(cardToken, "card_1", from, now));
+        assertEquals(hits + 8, meterRegistry.counter("window.counter.hit").count(), 0);
+
+        List<AggregateQuery> queries = List.of(
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.ALL, from, now).build(),
+                batchQuery(AggregateQuery.Type.SUM, StatusFilter.SUCCESS, from, now).build(),
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.DECLINE, from, now).build(),
+                batchQuery(AggregateQuery.Type.UNIQ, StatusFilter.ALL, from, now).onFieldName(cardToken).build(),
+                batchQuery(AggregateQuery.Type.COUNT, StatusFilter.ALL, from, now)
+                        .groupByFields(List.of(new FieldModel(EventField.partyId.name(), ROLLUP_PARTY_ID)))
+                        .build());
+        double fallbacks = meterRegistry.counter("window.counter.fallback").count();
+        List<Number> expected = fraudResultRepository.aggregateBatch(queries);
+        List<Number> actual = windowed.aggregateBatch(queries);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).longValue(), actual.get(i).longValue());
+        }
+        assertEquals(hits + 12, meterRegistry.counter("window.counter.hit").count(), 0);
+        assertEquals(fallbacks + 1, meterRegistry.counter("window.counter.fallback").count(), 0);
+    }
+
+    private AggregateQuery.AggregateQueryBuilder batchQuery(AggregateQuery.Type type, StatusFilter statusFilter,
+                                                            long from, long to) {
+        return AggregateQuery.builder()
+                .type(type)
+                .statusFilter(statusFilter)
+                .fieldName(EventField.email.name())
+                .value(ROLLUP_EMAIL)
+                .from(from)
+                .to(to);
+    }
+
+    private double routeCount(String route, String field) {
+        return meterRegistry.counter(LookupTableRouter.QUERY_ROUTE, "route", route, "field", field).count();
+    }
+
+    private Event createEvent(long eventTime, String cardToken, ResultStatus resultStatus) {
+        Instant instant = Instant.ofEpochMilli(eventTime);
+        Event event = new Event();
+        event.setTimestamp(instant.atZone(ZoneOffset.UTC).toLocalDate());
+        event.setEventTimeHour(instant.truncatedTo(ChronoUnit.HOURS).toEpochMilli());
+        event.setEventTime(instant.getEpochSecond());
+        event.setEmail(ROLLUP_EMAIL);
+        event.setPartyId(ROLLUP_PARTY_ID);
+        event.setShopId("shop");
+        event.setCardToken(cardToken);
+        event.setResultStatus(resultStatus.name());
+        event.setAmount(100L);
+        return event;
+    }
+
     @NotNull
     private List<FraudResult> createBatch() {
         FraudResult value = createFraudResult(ResultStatus.ACCEPT, BeanUtil.createPaymentModel());
@@ -0,0 +1,144 @@
+package com.rbkmoney.fraudbusters.repository.jdbc;
+
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+public class CircuitBreakingJdbcTemplateTest {
+
+    private static final int WINDOW_SIZE = 4;
+    private static final String SQL = "SELECT 1";
+
+    @Mock
+    private DataSource dataSource;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @Before
+    public void init() throws SQLException {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+    }
+
+    @Test
+    public void opensAfterFailureRateAndRejectsWithoutConnection() throws SQLException {
+        ClickhouseCircuitBreaker circuitBreaker = new ClickhouseCircuitBreaker(50, WINDOW_SIZE, 60_000, meterRegistry);
+        CircuitBreakingJdbcTemplate jdbcTemplate = new CircuitBreakingJdbcTemplate(dataSource, circuitBreaker);
+
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            Assert.assertEquals(ClickhouseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+            try {
+                jdbcTemplate.queryForObject(SQL, Integer.class);
+                Assert.fail();
+            } catch (DataAccessResourceFailureException e) {
+                Assert.assertNotNull(e.getCause());
+            }
+        }
+        Assert.assertEquals(ClickhouseCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        try {
+            jdbcTemplate.queryForObject(SQL, Integer.class);
+            Assert.fail();
+        } catch (DataAccessResourceFailureException e) {
+            Assert.assertNull(e.getCause());
+        }
+        verify(dataSource, times(WINDOW_SIZE)).getConnection();
+        Assert.assertEquals(1.0, meterRegistry.counter(ClickhouseCircuitBreaker.REJECTED).count(), 0);
+        Assert.assertEquals(ClickhouseCircuitBreaker.State.OPEN.ordinal(),
+                meterRegistry.get(ClickhouseCircuitBreaker.STATE).gauge().value(), 0);
+    }
+
+    @Test
+    public void boundsQueryByInspectionBudget() throws SQLException {
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(SQL)).thenThrow(new SQLTimeoutException("Timeout exceeded"));
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource budgetDataSource = mock(DataSource.class);
+        when(budgetDataSource.getConnection()).thenReturn(connection);
+        CircuitBreakingJdbcTemplate jdbcTemplate = new CircuitBreakingJdbcTemplate(budgetDataSource,
+                new ClickhouseCircuitBreaker(50, WINDOW_SIZE, 60_000, meterRegistry));
+
+        InspectionBudget previous = InspectionDeadline.start(new InspectionBudget(
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300), 0, 0L, function -> {
+        }));
+        try {
+            jdbcTemplate.queryForObject(SQL, Integer.class);
+            Assert.fail();
+        } catch (QueryTimeoutException e) {
+            verify(statement).setQueryTimeout(1);
+        } finally {
+            InspectionDeadline.stop(previous);
+        }
+
+        reset(statement);
+        when(statement.executeQuery(SQL)).thenThrow(new SQLTimeoutException("Timeout exceeded"));
+        try {
+            jdbcTemplate.queryForObject(SQL, Integer.class);
+            Assert.fail();
+        } catch (QueryTimeoutException e) {
+            verify(statement, never()).setQueryTimeout(anyInt());
+        }
+    }
+
+    @Test
+    public void queryErrorsDoNotOpenCircuit() throws SQLException {
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(SQL)).thenThrow(new SQLException("Syntax error", "42000", 62));
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource queryDataSource = mock(DataSource.class);
+        when(queryDataSource.getConnection()).thenReturn(connection);
+        ClickhouseCircuitBreaker circuitBreaker = new ClickhouseCircuitBreaker(50, WINDOW_SIZE, 60_000, meterRegistry);
+        CircuitBreakingJdbcTemplate jdbcTemplate = new CircuitBreakingJdbcTemplate(queryDataSource, circuitBreaker);
+
+        for (int i = 0; i < WINDOW_SIZE * 2; i++) {
+            try {
+                jdbcTemplate.queryForObject(SQL, Integer.class);
+                Assert.fail();
+            } catch (DataAccessException e) {
+                Assert.assertFalse(CircuitBreakingJdbcTemplate.isAvailabilityFailure(e));
+            }
+        }
+
+        Assert.assertEquals(ClickhouseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        verify(queryDataSource, times(WINDOW_SIZE * 2)).getConnection();
+    }
+
+    @Test
+    public void halfOpenProbeClosesCircuit() throws InterruptedException {
+        ClickhouseCircuitBreaker circuitBreaker = new ClickhouseCircuitBreaker(50, WINDOW_SIZE, 10, meterRegistry);
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            Assert.assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onError();
+        }
+        Assert.assertFalse(circuitBreaker.tryAcquire());
+
+        Thread.sleep(20);
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+        Assert.assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+
+        Assert.assertEquals(ClickhouseCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assert.assertTrue(circuitBreaker.tryAcquire());
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.rbkmoney.fraudbusters.repository.util;
+
+import com.rbkmoney.fraudbusters.fraud.model.FieldModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class AggregationQueryCacheTest {
+
+    private static final String TABLE = "fraud.events_unique";
+
+    @Test
+    public void getSql() {
+        List<FieldModel> fieldModels = List.of(new FieldModel("shopId", "shop_1"), new FieldModel("partyId", "party_1"));
+
+        String sql = AggregationQueryCache.getSql(AggregationFunction.UNIQ, "cardToken", TABLE, "email",
+                " and resultStatus != ?", fieldModels);
+
+        Assert.assertEquals("select email, uniq(cardToken) as cnt from fraud.events_unique " +
+                "where timestamp >= ? and timestamp <= ? and eventTime >= ? and eventTime <= ? and email = ? " +
+                "and resultStatus != ? and shopId = ? and partyId = ? group by email, shopId, partyId", sql);
+        Assert.assertSame(sql, AggregationQueryCache.getSql(AggregationFunction.UNIQ, "cardToken", TABLE, "email",
+                " and resultStatus != ?", List.of(new FieldModel("shopId", "shop_2"), new FieldModel("partyId", "party_2"))));
+        Assert.assertNotEquals(sql, AggregationQueryCache.getSql(AggregationFunction.UNIQ, "cardToken", TABLE, "email",
+                " and resultStatus = ?", fieldModels));
+    }
+
+    @Test
+    public void generateParams() {
+        List<Object> params = AggregationUtil.generateParams(0L, 86_400_000L,
+                List.of(new FieldModel("shopId", "shop_1")), "value", "DECLINE", null);
+
+        Assert.assertEquals(List.of(LocalDate.of(1970, 1, 1), LocalDate.of(1970, 1, 2), 0L, 86_400L,
+                "value", "DECLINE", "shop_1"), params);
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.rbkmoney.fraudbusters.resource.handler;
+
+import com.rbkmoney.damsel.domain.RiskScore;
+import com.rbkmoney.damsel.proxy_inspector.Context;
+import com.rbkmoney.fraudbusters.config.properties.InspectionDeadlineProperties;
+import com.rbkmoney.fraudbusters.converter.CheckedResultToRiskScoreConverter;
+import com.rbkmoney.fraudbusters.converter.ContextToFraudRequestConverter;
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.FraudRequest;
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.constant.PaymentCheckedField;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadlinePolicy;
+import com.rbkmoney.fraudbusters.fraud.memo.InspectionMemoContext;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.payment.aggregator.CountAggregatorImpl;
+import com.rbkmoney.fraudbusters.fraud.payment.resolver.DBPaymentFieldResolver;
+import com.rbkmoney.fraudbusters.repository.PaymentRepository;
+import com.rbkmoney.fraudbusters.repository.impl.ChargebackRepository;
+import com.rbkmoney.fraudbusters.repository.impl.RefundRepository;
+import com.rbkmoney.fraudbusters.service.publisher.ResultPublisher;
+import com.rbkmoney.fraudbusters.stream.Tier;
+import com.rbkmoney.fraudbusters.stream.TierPipeline;
+import com.rbkmoney.fraudbusters.util.BeanUtil;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import com.rbkmoney.fraudo.model.ResultModel;
+import com.rbkmoney.fraudo.model.TimeWindow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.thrift.TException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FraudInspectorHandlerTest {
+
+    private static final String TIER = "global";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ContextToFraudRequestConverter requestConverter = mock(ContextToFraudRequestConverter.class);
+    @SuppressWarnings("unchecked")
+    private final ResultPublisher<FraudResult> fraudResultPublisher = mock(ResultPublisher.class);
+
+    @Test
+    void publishesDegradedResultWhenDeadlineSpent() throws TException {
+        InspectionDeadlineProperties properties = new InspectionDeadlineProperties();
+        properties.setEnable(true);
+        properties.setBudgetMillis(0);
+        TierPipeline<PaymentModel> tierPipeline = new TierPipeline<>("payment", meterRegistry,
+                List.of(new Tier<>(TIER, this::declineOnCount)));
+        FraudInspectorHandler fraudInspectorHandler = new FraudInspectorHandler(new CheckedResultToRiskScoreConverter(),
+                requestConverter, model -> tierPipeline.apply(model).orElseThrow(), fraudResultPublisher,
+                new InspectionDeadlinePolicy(properties, meterRegistry));
+        Context context = BeanUtil.createContext();
+        FraudRequest fraudRequest = new FraudRequest();
+        fraudRequest.setFraudModel(BeanUtil.createPaymentModel());
+        when(requestConverter.convert(context)).thenReturn(fraudRequest);
+
+        RiskScore riskScore = fraudInspectorHandler.inspectPayment(context);
+
+        assertEquals(RiskScore.low, riskScore);
+        ArgumentCaptor<FraudResult> published = ArgumentCaptor.forClass(FraudResult.class);
+        verify(fraudResultPublisher).publish(published.capture());
+        assertTrue(published.getValue().getResultModel().getDegraded());
+        assertEquals(1.0, meterRegistry.counter(TierPipeline.TIER_DEGRADED, "pipeline", "payment", "tier", TIER).count(), 0);
+        assertEquals(1.0, meterRegistry.counter(InspectionDeadlinePolicy.DEGRADED_INSPECTIONS, "pipeline", "payment").count(), 0);
+    }
+
+    @Test
+    void memoizesRepeatedAggregateWithinInspection() throws TException {
+        PaymentRepository paymentRepository = mock(PaymentRepository.class);
+        when(paymentRepository.countOperationByFieldWithGroupBy(any(), any(), any(), any(), any())).thenReturn(3);
+        CountAggregatorImpl countAggregator = new CountAggregatorImpl(new DBPaymentFieldResolver(), paymentRepository,
+                mock(RefundRepository.class), mock(ChargebackRepository.class));
+        TimeWindow timeWindow = TimeWindow.builder().startWindowTime(1440L).build();
+        FraudInspectorHandler fraudInspectorHandler = new FraudInspectorHandler(new CheckedResultToRiskScoreConverter(),
+                requestConverter, model -> {
+                    assertTrue(InspectionMemoContext.isOpen());
+                    Integer first = countAggregator.count(PaymentCheckedField.EMAIL, model, timeWindow, null);
+                    Integer second = countAggregator.count(PaymentCheckedField.EMAIL, model, timeWindow, null);
+                    assertEquals(first, second);
+                    return acceptResult();
+                }, fraudResultPublisher, new InspectionDeadlinePolicy(new InspectionDeadlineProperties(), meterRegistry));
+        Context context = BeanUtil.createContext();
+        FraudRequest fraudRequest = new FraudRequest();
+        fraudRequest.setFraudModel(BeanUtil.createPaymentModel());
+        when(requestConverter.convert(context)).thenReturn(fraudRequest);
+
+        fraudInspectorHandler.inspectPayment(context);
+
+        verify(paymentRepository, times(1)).countOperationByFieldWithGroupBy(any(), any(), any(), any(), any());
+        assertFalse(InspectionMemoContext.isOpen());
+
+        fraudInspectorHandler.inspectPayment(context);
+
+        verify(paymentRepository, times(2)).countOperationByFieldWithGroupBy(any(), any(), any(), any(), any());
+        assertFalse(InspectionMemoContext.isOpen());
+    }
+
+    private CheckedResultModel acceptResult() {
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate(TIER);
+        checkedResultModel.setResultModel(new ResultModel(ResultStatus.ACCEPT, "count", null));
+        return checkedResultModel;
+    }
+
+    private Optional<CheckedResultModel> declineOnCount(PaymentModel model) {
+        Integer count;
+        try {
+            count = InspectionDeadline.call("count", InspectionBudget::getNeutralCount, () -> 10);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate(TIER);
+        checkedResultModel.setResultModel(new ResultModel(count > 4 ? ResultStatus.DECLINE : ResultStatus.ACCEPT,
+                "count", null));
+        return Optional.of(checkedResultModel);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.rbkmoney.fraudbusters.resource.handler;
+
+import com.rbkmoney.damsel.domain.RiskScore;
+import com.rbkmoney.damsel.p2p_insp.Context;
+import com.rbkmoney.damsel.p2p_insp.InspectResult;
+import com.rbkmoney.fraudbusters.config.properties.InspectionDeadlineProperties;
+import com.rbkmoney.fraudbusters.constant.ScoresType;
+import com.rbkmoney.fraudbusters.converter.CheckedResultToRiskScoreConverter;
+import com.rbkmoney.fraudbusters.converter.P2PContextToP2PModelConverter;
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.ScoresResult;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionBudget;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadline;
+import com.rbkmoney.fraudbusters.fraud.deadline.InspectionDeadlinePolicy;
+import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.service.publisher.ResultPublisher;
+import com.rbkmoney.fraudbusters.stream.Tier;
+import com.rbkmoney.fraudbusters.stream.TierPipeline;
+import com.rbkmoney.fraudbusters.util.BeanUtil;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import com.rbkmoney.fraudo.model.ResultModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.thrift.TException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+class FraudP2PInspectorHandlerTest {
+
+    private static final String TIER = "global";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final P2PContextToP2PModelConverter requestConverter = mock(P2PContextToP2PModelConverter.class);
+    @SuppressWarnings("unchecked")
+    private final ResultPublisher<ScoresResult<P2PModel>> resultPublisher = mock(ResultPublisher.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishesDegradedResultWhenDeadlineSpent() throws TException {
+        InspectionDeadlineProperties properties = new InspectionDeadlineProperties();
+        properties.setEnable(true);
+        properties.setBudgetMillis(0);
+        TierPipeline<P2PModel> tierPipeline = new TierPipeline<>("p2p", meterRegistry,
+                List.of(new Tier<>(TIER, this::declineOnSum)));
+        FraudP2PInspectorHandler fraudP2PInspectorHandler = new FraudP2PInspectorHandler(
+                new CheckedResultToRiskScoreConverter(), requestConverter, model -> tierPipeline.apply(model).orElseThrow(),
+                resultPublisher, new InspectionDeadlinePolicy(properties, meterRegistry));
+        Context context = BeanUtil.createP2PContext(BeanUtil.IDENTITY_ID, BeanUtil.TRANSFER_ID);
+        when(requestConverter.convert(context)).thenReturn(BeanUtil.createP2PModel());
+
+        InspectResult inspectResult = fraudP2PInspectorHandler.inspectTransfer(context, List.of(ScoresType.FRAUD));
+
+        assertEquals(RiskScore.low, inspectResult.getScores().get(ScoresType.FRAUD));
+        ArgumentCaptor<ScoresResult<P2PModel>> published = ArgumentCaptor.forClass(ScoresResult.class);
+        verify(resultPublisher).publish(published.capture());
+        assertTrue(published.getValue().getScores().get(ScoresType.FRAUD).getDegraded());
+        assertEquals(1.0, meterRegistry.counter(TierPipeline.TIER_DEGRADED, "pipeline", "p2p", "tier", TIER).count(), 0);
+        assertEquals(1.0, meterRegistry.counter(InspectionDeadlinePolicy.DEGRADED_INSPECTIONS, "pipeline", "p2p").count(), 0);
+    }
+
+    private Optional<CheckedResultModel> declineOnSum(P2PModel model) {
+        Long sum;
+        try {
+            sum = InspectionDeadline.call("sum", InspectionBudget::getNeutralSum, () -> 100_000L);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate(TIER);
+        checkedResultModel.setResultModel(new ResultModel(sum >= 18000 ? ResultStatus.DECLINE : ResultStatus.ACCEPT,
+                "sum", null));
+        return Optional.of(checkedResultModel);
+    }
+
+}
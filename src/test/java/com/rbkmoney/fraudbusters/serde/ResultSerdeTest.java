@@ -0,0 +1,136 @@
+package com.rbkmoney.fraudbusters.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.domain.FraudRequest;
+import com.rbkmoney.fraudbusters.domain.FraudResult;
+import com.rbkmoney.fraudbusters.domain.Metadata;
+import com.rbkmoney.fraudbusters.domain.ScoresResult;
+import com.rbkmoney.fraudbusters.fraud.model.P2PModel;
+import com.rbkmoney.fraudbusters.serde.binary.ResultBinaryCodec;
+import com.rbkmoney.fraudbusters.util.BeanUtil;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import com.rbkmoney.fraudo.model.ResultModel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ResultSerdeTest {
+
+    private static final String TOPIC = "result";
+
+    private final FraudResultSerializer fraudResultSerializer = new FraudResultSerializer();
+    private final FraudResultDeserializer fraudResultDeserializer = new FraudResultDeserializer();
+    private final P2PResultSerializer p2PResultSerializer = new P2PResultSerializer();
+    private final P2PResultDeserializer p2PResultDeserializer = new P2PResultDeserializer();
+
+    @Test
+    public void fraudResultRoundTrip() {
+        FraudResult fraudResult = createFraudResult();
+
+        byte[] data = fraudResultSerializer.serialize(TOPIC, fraudResult);
+        assertTrue(ResultBinaryCodec.isBinary(data));
+
+        FraudResult result = fraudResultDeserializer.deserialize(TOPIC, data);
+        assertEquals(fraudResult.getFraudRequest(), result.getFraudRequest());
+        assertCheckedResult(fraudResult.getResultModel(), result.getResultModel());
+    }
+
+    @Test
+    public void fraudResultLegacyJson() throws Exception {
+        FraudResult fraudResult = createFraudResult();
+        byte[] json = new ObjectMapper().writeValueAsBytes(fraudResult);
+
+        FraudResult result = fraudResultDeserializer.deserialize(TOPIC, json);
+        assertEquals(fraudResult.getFraudRequest(), result.getFraudRequest());
+        assertCheckedResult(fraudResult.getResultModel(), result.getResultModel());
+    }
+
+    @Test
+    public void fraudResultBinaryIsSmallerThanJson() throws Exception {
+        FraudResult fraudResult = createFraudResult();
+
+        byte[] json = new ObjectMapper().writeValueAsBytes(fraudResult);
+        byte[] binary = fraudResultSerializer.serialize(TOPIC, fraudResult);
+        assertTrue(binary.length < json.length);
+    }
+
+    @Test
+    public void p2pResultRoundTrip() throws Exception {
+        ScoresResult<P2PModel> scoresResult = new ScoresResult<>(BeanUtil.createP2PModel(),
+                Map.of("template", createCheckedResult(ResultStatus.DECLINE), "other", new CheckedResultModel()));
+
+        ScoresResult<P2PModel> binaryResult = p2PResultDeserializer.deserialize(TOPIC,
+                p2PResultSerializer.serialize(TOPIC, scoresResult));
+        ScoresResult<P2PModel> jsonResult = p2PResultDeserializer.deserialize(TOPIC,
+                new ObjectMapper().writeValueAsBytes(scoresResult));
+
+        for (ScoresResult<P2PModel> result : List.of(binaryResult, jsonResult)) {
+            assertEquals(scoresResult.getRequest(), result.getRequest());
+            assertEquals(2, result.getScores().size());
+            assertCheckedResult(scoresResult.getScores().get("template"), result.getScores().get("template"));
+            assertNull(result.getScores().get("other").getResultModel());
+        }
+    }
+
+    @Test
+    public void degradedResultRoundTrip() {
+        FraudResult fraudResult = createFraudResult();
+        fraudResult.getResultModel().setDegraded(true);
+
+        FraudResult result = fraudResultDeserializer.deserialize(TOPIC, fraudResultSerializer.serialize(TOPIC, fraudResult));
+        assertCheckedResult(fraudResult.getResultModel(), result.getResultModel());
+        assertTrue(result.getResultModel().getDegraded());
+    }
+
+    @Test
+    public void fraudResultVersionOne() {
+        byte[] data = fraudResultSerializer.serialize(TOPIC, createFraudResult());
+        byte[] versionOne = Arrays.copyOf(data, data.length - 1);
+        versionOne[1] = (byte) ResultBinaryCodec.MIN_VERSION;
+
+        FraudResult result = fraudResultDeserializer.deserialize(TOPIC, versionOne);
+        assertCheckedResult(createFraudResult().getResultModel(), result.getResultModel());
+        assertNull(result.getResultModel().getDegraded());
+    }
+
+    @Test
+    public void unsupportedVersion() {
+        byte[] data = fraudResultSerializer.serialize(TOPIC, createFraudResult());
+        data[1] = (byte) (ResultBinaryCodec.VERSION + 1);
+
+        assertNull(fraudResultDeserializer.deserialize(TOPIC, data));
+    }
+
+    private void assertCheckedResult(CheckedResultModel expected, CheckedResultModel actual) {
+        assertEquals(expected.getCheckedTemplate(), actual.getCheckedTemplate());
+        assertEquals(expected.getResultModel().getResultStatus(), actual.getResultModel().getResultStatus());
+        assertEquals(expected.getResultModel().getRuleChecked(), actual.getResultModel().getRuleChecked());
+        assertEquals(expected.getResultModel().getNotificationsRule(), actual.getResultModel().getNotificationsRule());
+    }
+
+    private FraudResult createFraudResult() {
+        FraudRequest fraudRequest = new FraudRequest();
+        fraudRequest.setFraudModel(BeanUtil.createPaymentModel());
+        Metadata metadata = new Metadata();
+        metadata.setTimestamp(1588761208000L);
+        metadata.setCurrency(BeanUtil.RUB);
+        metadata.setInvoiceId("invoiceId");
+        metadata.setPaymentId(BeanUtil.PAYMENT_ID);
+        metadata.setMaskedPan("4242******4242");
+        fraudRequest.setMetadata(metadata);
+        return new FraudResult(fraudRequest, createCheckedResult(ResultStatus.ACCEPT));
+    }
+
+    private CheckedResultModel createCheckedResult(ResultStatus resultStatus) {
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate("RULE");
+        checkedResultModel.setResultModel(new ResultModel(resultStatus, "test", List.of("notify_ip", "notify_email")));
+        return checkedResultModel;
+    }
+
+}
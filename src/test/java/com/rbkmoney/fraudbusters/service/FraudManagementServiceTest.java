@@ -6,6 +6,8 @@ import com.rbkmoney.fraudbusters.config.RestTemplateConfig;
 import com.rbkmoney.fraudbusters.config.properties.DefaultTemplateProperties;
 import com.rbkmoney.fraudbusters.repository.impl.AggregationGeneralRepositoryImpl;
 import com.rbkmoney.fraudbusters.repository.impl.FraudResultRepository;
+import com.rbkmoney.fraudbusters.repository.lookup.LookupTableRouter;
+import com.rbkmoney.fraudbusters.repository.rollup.RollupQueryRouter;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -46,6 +48,12 @@ public class FraudManagementServiceTest {
     @MockBean
     private JdbcTemplate jdbcTemplate;
 
+    @MockBean
+    private RollupQueryRouter rollupQueryRouter;
+
+    @MockBean
+    private LookupTableRouter lookupTableRouter;
+
     @Autowired
     private FraudManagementService fraudManagementService;
 
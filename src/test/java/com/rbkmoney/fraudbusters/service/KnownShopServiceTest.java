@@ -0,0 +1,102 @@
+package com.rbkmoney.fraudbusters.service;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.rbkmoney.fraudbusters.config.properties.DefaultTemplateProperties;
+import com.rbkmoney.fraudbusters.domain.Event;
+import com.rbkmoney.fraudbusters.repository.impl.FraudResultRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class KnownShopServiceTest {
+
+    @Mock
+    private FraudResultRepository fraudResultRepository;
+    @Mock
+    private FraudManagementService fraudManagementService;
+
+    private KnownShopService knownShopService;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        DefaultTemplateProperties properties = new DefaultTemplateProperties();
+        properties.setEnable(true);
+        properties.setCountToCheckDays(1000);
+        properties.setWarmUpRetryMillis(1L);
+        properties.setWarmUpMaxRetryMillis(10L);
+        knownShopService = new KnownShopService(fraudResultRepository, fraudManagementService, properties,
+                MoreExecutors.newDirectExecutorService());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registerShopsAfterWarmUp() {
+        doAnswer(invocation -> {
+            ((BiConsumer<String, String>) invocation.getArgument(2)).accept("party", "known");
+            return null;
+        }).when(fraudResultRepository).forEachShop(anyLong(), anyLong(), any());
+        knownShopService.warmUp();
+
+        knownShopService.registerShops(List.of(event("party", "known"), event("party", "new"), event("party", "new")));
+        knownShopService.registerShops(List.of(event("party", "new")));
+
+        Assert.assertEquals(2, knownShopService.size());
+        verify(fraudManagementService, never()).isNewShop(anyString(), anyString());
+        verify(fraudManagementService, times(1)).createDefaultReference("party", "new");
+        verify(fraudManagementService, never()).createDefaultReference("party", "known");
+    }
+
+    @After
+    public void shutdown() {
+        knownShopService.shutdown();
+    }
+
+    @Test
+    public void retryFailedWarmUp() throws Exception {
+        doThrow(new RuntimeException("clickhouse is down"))
+                .doThrow(new RuntimeException("clickhouse is down"))
+                .doNothing()
+                .when(fraudResultRepository).forEachShop(anyLong(), anyLong(), any());
+
+        knownShopService.onApplicationEvent(null);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!knownShopService.isWarmedUp() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(knownShopService.isWarmedUp());
+        verify(fraudResultRepository, times(3)).forEachShop(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void registerShopsBeforeWarmUp() {
+        when(fraudManagementService.isNewShop("party", "old")).thenReturn(false);
+        when(fraudManagementService.isNewShop("party", "new")).thenReturn(true);
+
+        knownShopService.registerShops(List.of(event("party", "old"), event("party", "new")));
+        knownShopService.registerShops(List.of(event("party", "old"), event("party", "new")));
+
+        verify(fraudManagementService, times(1)).isNewShop("party", "old");
+        verify(fraudManagementService, times(1)).isNewShop("party", "new");
+        verify(fraudManagementService, times(1)).createDefaultReference("party", "new");
+        verify(fraudManagementService, never()).createDefaultReference("party", "old");
+    }
+
+    private Event event(String partyId, String shopId) {
+        Event event = new Event();
+        event.setPartyId(partyId);
+        event.setShopId(shopId);
+        return event;
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.rbkmoney.fraudbusters.service.pipeline;
+
+import com.rbkmoney.damsel.geo_ip.GeoIpServiceSrv;
+import com.rbkmoney.fraudbusters.constant.ClickhouseUtilsValue;
+import org.apache.thrift.TException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+public class GeoIpBatchResolverTest {
+
+    @Mock
+    private GeoIpServiceSrv.Iface geoIpService;
+
+    private ExecutorService executorService;
+    private GeoIpBatchResolver geoIpBatchResolver;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        executorService = Executors.newFixedThreadPool(2);
+        geoIpBatchResolver = new GeoIpBatchResolver(geoIpService, executorService, 1000L, 100L, 1L);
+    }
+
+    @After
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void resolveDistinctIpsOnce() throws Exception {
+        when(geoIpService.getLocationIsoCode("1.1.1.1")).thenReturn("RUS");
+        when(geoIpService.getLocationIsoCode("2.2.2.2")).thenReturn("USA");
+
+        Map<String, String> countries = geoIpBatchResolver.resolve(List.of("1.1.1.1", "2.2.2.2", "1.1.1.1"));
+
+        Assert.assertEquals(Map.of("1.1.1.1", "RUS", "2.2.2.2", "USA"), countries);
+        verify(geoIpService, times(1)).getLocationIsoCode("1.1.1.1");
+        verify(geoIpService, times(1)).getLocationIsoCode("2.2.2.2");
+
+        geoIpBatchResolver.resolve(List.of("1.1.1.1"));
+        verify(geoIpService, times(1)).getLocationIsoCode("1.1.1.1");
+    }
+
+    @Test
+    public void failedLookupIsUnknownAndNotCached() throws Exception {
+        when(geoIpService.getLocationIsoCode("3.3.3.3")).thenThrow(new TException("unavailable")).thenReturn("RUS");
+
+        Assert.assertEquals(ClickhouseUtilsValue.UNKNOWN, geoIpBatchResolver.resolve(List.of("3.3.3.3")).get("3.3.3.3"));
+        Assert.assertEquals("RUS", geoIpBatchResolver.resolve(List.of("3.3.3.3")).get("3.3.3.3"));
+    }
+
+    @Test
+    public void rejectedLookupIsUnknown() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(geoIpService.getLocationIsoCode("4.4.4.4")).thenReturn("RUS");
+        ExecutorService saturated = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        saturated.submit(() -> {
+            release.await();
+            return null;
+        });
+        try {
+            GeoIpBatchResolver resolver = new GeoIpBatchResolver(geoIpService, saturated, 100L, 100L, 1L);
+
+            Assert.assertEquals(ClickhouseUtilsValue.UNKNOWN, resolver.resolve(List.of("4.4.4.4")).get("4.4.4.4"));
+            verify(geoIpService, never()).getLocationIsoCode("4.4.4.4");
+        } finally {
+            release.countDown();
+            saturated.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.rbkmoney.fraudbusters.service.pipeline;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class InsertAccumulatorTest {
+
+    private static final int LISTENERS = 21;
+    private static final int POLL_RECORDS = 100;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executorService = Executors.newFixedThreadPool(LISTENERS);
+
+    private InsertAccumulator<Integer> insertAccumulator;
+
+    @After
+    public void shutdown() throws InterruptedException {
+        executorService.shutdownNow();
+        if (insertAccumulator != null) {
+            insertAccumulator.close();
+        }
+    }
+
+    @Test
+    public void mergesBatchesOfAllThreadsIntoOneBlock() throws Exception {
+        List<List<Integer>> blocks = Collections.synchronizedList(new ArrayList<>());
+        insertAccumulator = create(blocks::add, 8, 60_000);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int value = i;
+            futures.add(executorService.submit(() -> {
+                insertAccumulator.add(List.of(value, value));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(8, blocks.get(0).size());
+        Assert.assertEquals(1.0, meterRegistry.counter(InsertAccumulator.PARTS, "pipeline", "test").count(), 0);
+    }
+
+    @Test
+    public void concurrentListenersFillBlockBySize() throws Exception {
+        List<List<Integer>> blocks = Collections.synchronizedList(new ArrayList<>());
+        insertAccumulator = new InsertAccumulator<>("test", blocks::add, LISTENERS * POLL_RECORDS, Integer.MAX_VALUE,
+                60_000, Thread::new, meterRegistry);
+
+        List<Integer> poll = Collections.nCopies(POLL_RECORDS, 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < LISTENERS; i++) {
+            futures.add(executorService.submit(() -> {
+                insertAccumulator.add(poll);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(LISTENERS * POLL_RECORDS, blocks.get(0).size());
+    }
+
+    @Test
+    public void flushesWhenAllListenersWait() throws Exception {
+        List<List<Integer>> blocks = Collections.synchronizedList(new ArrayList<>());
+        insertAccumulator = new InsertAccumulator<>("test", blocks::add, LISTENERS * POLL_RECORDS, LISTENERS,
+                60_000, Thread::new, meterRegistry);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < LISTENERS; i++) {
+            futures.add(executorService.submit(() -> {
+                insertAccumulator.add(List.of(1, 2, 3));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(LISTENERS * 3, blocks.get(0).size());
+    }
+
+    @Test
+    public void flushesWhenConsumersOwningPartitionsWait() throws Exception {
+        List<List<Integer>> blocks = Collections.synchronizedList(new ArrayList<>());
+        insertAccumulator = create(blocks::add, LISTENERS * POLL_RECORDS, 60_000);
+        InsertAccumulatorRebalanceListener rebalanceListener = new InsertAccumulatorRebalanceListener(insertAccumulator);
+        int partitions = 3;
+        for (int i = 0; i < LISTENERS; i++) {
+            Set<TopicPartition> assignment = i < partitions ? Set.of(new TopicPartition("result", i)) : Set.of();
+            org.apache.kafka.clients.consumer.Consumer<?, ?> consumer =
+                    Mockito.mock(org.apache.kafka.clients.consumer.Consumer.class);
+            Mockito.doReturn(assignment).when(consumer).assignment();
+            rebalanceListener.onPartitionsAssigned(consumer, assignment);
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            futures.add(executorService.submit(() -> {
+                insertAccumulator.add(List.of(1, 2, 3));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(partitions * 3, blocks.get(0).size());
+    }
+
+    @Test
+    public void flushesByTime() throws Exception {
+        List<List<Integer>> blocks = Collections.synchronizedList(new ArrayList<>());
+        insertAccumulator = create(blocks::add, 1000, 50);
+
+        insertAccumulator.add(List.of(1, 2, 3));
+
+        Assert.assertEquals(List.of(List.of(1, 2, 3)), blocks);
+    }
+
+    @Test
+    public void failsAllWritersOfBlock() throws Exception {
+        insertAccumulator = create(values -> {
+            throw new IllegalStateException("too many parts");
+        }, 4, 60_000);
+
+        Future<?> first = executorService.submit(() -> {
+            insertAccumulator.add(List.of(1, 2));
+            return null;
+        });
+        try {
+            insertAccumulator.add(List.of(3, 4));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("too many parts", e.getMessage());
+        }
+        try {
+            first.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private InsertAccumulator<Integer> create(Consumer<List<Integer>> writer, int maxRows, long lingerMillis) {
+        return new InsertAccumulator<>("test", writer, maxRows, Integer.MAX_VALUE, lingerMillis, Thread::new,
+                meterRegistry);
+    }
+
+}
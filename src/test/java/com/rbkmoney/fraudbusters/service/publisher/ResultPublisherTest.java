@@ -0,0 +1,91 @@
+package com.rbkmoney.fraudbusters.service.publisher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ResultPublisherTest {
+
+    private static final String TOPIC = "result";
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void publish() {
+        SettableListenableFuture<SendResult<String, String>> success = new SettableListenableFuture<>();
+        success.set(null);
+        SettableListenableFuture<SendResult<String, String>> failure = new SettableListenableFuture<>();
+        failure.setException(new RuntimeException("broker is down"));
+        when(kafkaTemplate.send(TOPIC, "ok")).thenReturn(success);
+        when(kafkaTemplate.send(TOPIC, "fail")).thenReturn(failure);
+
+        ResultPublisher<String> resultPublisher = new ResultPublisher<>(TOPIC, kafkaTemplate, 10, OverflowPolicy.DROP,
+                0, 10, 1000, null, meterRegistry);
+        resultPublisher.publish("ok");
+        resultPublisher.publish("fail");
+        resultPublisher.start();
+        resultPublisher.stop();
+
+        verify(kafkaTemplate, times(2)).send(eq(TOPIC), anyString());
+        Assert.assertEquals(1.0, meterRegistry.counter(ResultPublisher.PUBLISHED, "topic", TOPIC).count(), 0);
+        Assert.assertEquals(1.0, meterRegistry.counter(ResultPublisher.FAILED, "topic", TOPIC).count(), 0);
+    }
+
+    @Test
+    public void spillFailedResults() throws Exception {
+        SettableListenableFuture<SendResult<String, String>> failure = new SettableListenableFuture<>();
+        failure.setException(new RuntimeException("broker is down"));
+        when(kafkaTemplate.send(eq(TOPIC), anyString())).thenReturn(failure);
+        ObjectMapper objectMapper = new ObjectMapper();
+        ResultSpillFile<String> spillFile = new ResultSpillFile<>(folder.getRoot().toPath().resolve(TOPIC),
+                objectMapper, objectMapper.constructType(String.class));
+
+        ResultPublisher<String> resultPublisher = new ResultPublisher<>(TOPIC, kafkaTemplate, 10, OverflowPolicy.SPILL,
+                0, 10, 1000, spillFile, meterRegistry);
+        resultPublisher.start();
+        resultPublisher.publish("first");
+        resultPublisher.publish("second");
+        resultPublisher.stop();
+
+        Assert.assertEquals(2.0, meterRegistry.counter(ResultPublisher.SPILLED, "topic", TOPIC).count(), 0);
+        Assert.assertEquals(List.of("first", "second"), spillFile.takeAll());
+    }
+
+    @Test
+    public void dropWhenQueueIsFull() {
+        ResultPublisher<String> resultPublisher = new ResultPublisher<>(TOPIC, kafkaTemplate, 1, OverflowPolicy.DROP,
+                0, 10, 1000, null, meterRegistry);
+        resultPublisher.publish("first");
+        resultPublisher.publish("second");
+
+        Assert.assertEquals(1.0, meterRegistry.counter(ResultPublisher.DROPPED, "topic", TOPIC).count(), 0);
+        verify(kafkaTemplate, never()).send(anyString(), anyString());
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.rbkmoney.fraudbusters.stream;
+
+import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
+import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
+import com.rbkmoney.fraudbusters.fraud.payment.PaymentContextParserImpl;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfile;
+import com.rbkmoney.fraudbusters.fraud.profile.RuleProfilerImpl;
+import com.rbkmoney.fraudbusters.template.pool.Pool;
+import com.rbkmoney.fraudbusters.template.pool.TemplatePoolImpl;
+import com.rbkmoney.fraudo.FraudoPaymentParser;
+import com.rbkmoney.fraudo.constant.ResultStatus;
+import com.rbkmoney.fraudo.model.ResultModel;
+import com.rbkmoney.fraudo.visitor.TemplateVisitor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+public class RuleApplierImplTest {
+
+    private static final String TEMPLATE = "template";
+    private static final String RULE_PREFIX = "rule:";
+
+    private final RuleProfilerImpl ruleProfiler = new RuleProfilerImpl(new SimpleMeterRegistry());
+
+    private RuleApplierImpl<PaymentModel> ruleApplier;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() {
+        Pool<ParserRuleContext> templatePool = new TemplatePoolImpl();
+        templatePool.add(TEMPLATE, new PaymentContextParserImpl().parse(
+                "rule:first: 1 = 2 -> decline;\n" +
+                        "rule:notified: 2 = 2 -> notify;\n" +
+                        "rule: 3 = 3 -> decline;\n" +
+                        "rule:last: 4 = 4 -> accept;"));
+        TemplateVisitor<PaymentModel, ResultModel> templateVisitor = Mockito.mock(TemplateVisitor.class);
+        Mockito.when(templateVisitor.visit(Mockito.any(), Mockito.any())).thenAnswer(invocation ->
+                visitSingleRule(invocation.getArgument(0)));
+        ruleApplier = new RuleApplierImpl<>(templateVisitor, templatePool, ruleProfiler,
+                new ParseTreeRuleSplitter(() -> new FraudoPaymentParser.ParseContext(null, -1)));
+    }
+
+    @Test
+    public void profilesEveryVisitedRule() {
+        Optional<CheckedResultModel> result = ruleApplier.apply(new PaymentModel(), TEMPLATE);
+
+        Assert.assertTrue(result.isPresent());
+        ResultModel resultModel = result.get().getResultModel();
+        Assert.assertEquals(ResultStatus.DECLINE, resultModel.getResultStatus());
+        Assert.assertEquals("rule_3", resultModel.getRuleChecked());
+        Assert.assertEquals(List.of("notified"), resultModel.getNotificationsRule());
+
+        Map<String, RuleProfile> profiles = ruleProfiler.top(10).stream()
+                .collect(Collectors.toMap(RuleProfile::getRule, profile -> profile));
+        Assert.assertEquals(Long.valueOf(1), profiles.get("first").getOutcomes().get(ResultStatus.NORMAL.name()));
+        Assert.assertEquals(Long.valueOf(1), profiles.get("notified").getOutcomes().get(ResultStatus.NORMAL.name()));
+        Assert.assertEquals(Long.valueOf(1), profiles.get("rule_3").getOutcomes().get(ResultStatus.DECLINE.name()));
+        Assert.assertFalse(profiles.containsKey("last"));
+    }
+
+    /**
+     * Stands in for the fraudo visitor: a single-rule template fires when its rule compares equal numbers,
+     * notify rules are collected like the visitor does.
+     */
+    private ResultModel visitSingleRule(FraudoPaymentParser.ParseContext parseContext) {
+        List<FraudoPaymentParser.Fraud_ruleContext> rules = parseContext.fraud_rule();
+        Assert.assertEquals(1, rules.size());
+        String text = rules.get(0).getText().replace(";", "");
+        String[] sides = text.substring(text.lastIndexOf(':') + 1, text.indexOf("->")).split("=");
+        if (!sides[0].equals(sides[1])) {
+            return new ResultModel(ResultStatus.NORMAL, null, List.of());
+        }
+        int nameEnd = text.indexOf(':', RULE_PREFIX.length());
+        String name = nameEnd > 0 ? text.substring(RULE_PREFIX.length(), nameEnd) : "rule_3";
+        ResultStatus status = ResultStatus.valueOf(text.substring(text.indexOf("->") + 2).toUpperCase());
+        return status == ResultStatus.NOTIFY
+                ? new ResultModel(ResultStatus.NORMAL, null, List.of(name))
+                : new ResultModel(status, name, List.of());
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.rbkmoney.fraudbusters.stream;
 
+import com.rbkmoney.fraudbusters.constant.TemplateLevel;
 import com.rbkmoney.fraudbusters.domain.CheckedResultModel;
 import com.rbkmoney.fraudbusters.fraud.model.PaymentModel;
 import com.rbkmoney.fraudbusters.template.pool.GroupPoolImpl;
@@ -7,6 +8,8 @@ import com.rbkmoney.fraudbusters.template.pool.GroupReferencePoolImpl;
 import com.rbkmoney.fraudbusters.template.pool.Pool;
 import com.rbkmoney.fraudbusters.util.ReferenceKeyGenerator;
 import com.rbkmoney.fraudo.constant.ResultStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -31,6 +34,8 @@ public class TemplateVisitorImplTest {
     private Pool<String> referencePoolImpl;
     private Pool<String> groupReferencePoolImpl;
 
+    private MeterRegistry meterRegistry;
+
     TemplateVisitorImpl templateVisitor;
 
     @Before
@@ -40,8 +45,9 @@ public class TemplateVisitorImplTest {
         groupPoolImpl = new GroupPoolImpl();
         referencePoolImpl = new GroupReferencePoolImpl();
         groupReferencePoolImpl = new GroupReferencePoolImpl();
+        meterRegistry = new SimpleMeterRegistry();
 
-        templateVisitor = new TemplateVisitorImpl(ruleApplier, groupPoolImpl, referencePoolImpl, groupReferencePoolImpl);
+        templateVisitor = new TemplateVisitorImpl(ruleApplier, groupPoolImpl, referencePoolImpl, groupReferencePoolImpl, meterRegistry);
     }
 
     @Test
@@ -81,4 +87,23 @@ public class TemplateVisitorImplTest {
         visit = templateVisitor.visit(paymentModel);
         Assert.assertEquals(TRUE_TEMPL, visit.getCheckedTemplate());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void visitShortCircuit() {
+        PaymentModel paymentModel = new PaymentModel();
+        paymentModel.setPartyId(PARTY_ID);
+
+        referencePoolImpl.add(TemplateLevel.GLOBAL.name(), TEMPLATE_1);
+        CheckedResultModel checkedResultModel = new CheckedResultModel();
+        checkedResultModel.setCheckedTemplate(TRUE_TEMPL);
+        Mockito.when(ruleApplier.apply(paymentModel, TEMPLATE_1)).thenReturn(Optional.of(checkedResultModel));
+
+        CheckedResultModel visit = templateVisitor.visit(paymentModel);
+
+        Assert.assertEquals(TRUE_TEMPL, visit.getCheckedTemplate());
+        Mockito.verify(ruleApplier, Mockito.times(1)).apply(Mockito.any(), Mockito.any());
+        Mockito.verify(ruleApplier, Mockito.never()).applyForAny(Mockito.any(), Mockito.any());
+        Assert.assertEquals(1.0, meterRegistry.counter(TierPipeline.TIER_HIT, "pipeline", "payment", "tier", "global").count(), 0);
+        Assert.assertEquals(1.0, meterRegistry.counter(TierPipeline.TIER_SKIP, "pipeline", "payment", "tier", "shop").count(), 0);
+    }
+}
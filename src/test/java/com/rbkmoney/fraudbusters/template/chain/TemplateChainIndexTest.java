@@ -0,0 +1,99 @@
+package com.rbkmoney.fraudbusters.template.chain;
+
+import com.rbkmoney.fraudbusters.constant.TemplateLevel;
+import com.rbkmoney.fraudbusters.template.pool.GroupPoolImpl;
+import com.rbkmoney.fraudbusters.template.pool.GroupReferencePoolImpl;
+import com.rbkmoney.fraudbusters.template.pool.Pool;
+import com.rbkmoney.fraudbusters.template.pool.ReferencePoolImpl;
+import com.rbkmoney.fraudbusters.util.ReferenceKeyGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TemplateChainIndexTest {
+
+    private static final String PARTY_ID = "party_id";
+    private static final String SHOP_ID = "shop_id";
+
+    private Pool<String> referencePool;
+    private Pool<String> groupReferencePool;
+    private Pool<List<String>> groupPool;
+
+    private TemplateChainIndex templateChainIndex;
+
+    @Before
+    public void init() {
+        referencePool = new ReferencePoolImpl();
+        groupReferencePool = new GroupReferencePoolImpl();
+        groupPool = new GroupPoolImpl();
+        templateChainIndex = new TemplateChainIndex(referencePool, groupReferencePool, groupPool);
+    }
+
+    @Test
+    public void resolveMatchesConcatenatedKeys() {
+        referencePool.add(TemplateLevel.GLOBAL.name(), "global_template");
+        referencePool.add(PARTY_ID, "party_template");
+        referencePool.add(ReferenceKeyGenerator.generateTemplateKey(PARTY_ID, SHOP_ID), "shop_template");
+        groupPool.add("group", List.of("group_template_1", "group_template_2"));
+        groupReferencePool.add(PARTY_ID, "group");
+
+        TemplateChain chain = templateChainIndex.resolve(PARTY_ID, SHOP_ID);
+
+        Assert.assertEquals("global_template", chain.getGlobal().getTemplateId());
+        Assert.assertEquals("party_template", chain.getParty().getTemplateId());
+        Assert.assertEquals(List.of("group_template_1", "group_template_2"), chain.getParty().getGroupTemplateIds());
+        Assert.assertEquals("shop_template", chain.getShop().getTemplateId());
+        Assert.assertNull(chain.getShop().getGroupTemplateIds());
+
+        Assert.assertEquals("shop_template", templateChainIndex.resolve("party", "id_shop_id").getShop().getTemplateId());
+        Assert.assertEquals("party_template", templateChainIndex.resolve(PARTY_ID, null).getShop().getTemplateId());
+        Assert.assertEquals(ChainEntry.EMPTY, templateChainIndex.resolve(PARTY_ID, "unknown").getShop());
+    }
+
+    @Test
+    public void resolveSeesPoolChanges() {
+        groupReferencePool.add(PARTY_ID, "group");
+        Assert.assertEquals(ChainEntry.EMPTY, templateChainIndex.resolve(PARTY_ID, SHOP_ID).getParty());
+
+        groupPool.add("group", List.of("group_template"));
+        Assert.assertEquals(List.of("group_template"), templateChainIndex.resolve(PARTY_ID, SHOP_ID).getParty().getGroupTemplateIds());
+
+        groupPool.remove("group");
+        Assert.assertEquals(ChainEntry.EMPTY, templateChainIndex.resolve(PARTY_ID, SHOP_ID).getParty());
+    }
+
+    @Test
+    public void indexesPoolsFilledBeforeCreation() {
+        Pool<String> filledReferencePool = new ReferencePoolImpl();
+        Pool<String> filledGroupReferencePool = new GroupReferencePoolImpl();
+        Pool<List<String>> filledGroupPool = new GroupPoolImpl();
+        filledReferencePool.add(ReferenceKeyGenerator.generateTemplateKey(PARTY_ID, SHOP_ID), "shop_template");
+        filledGroupPool.add("group", List.of("group_template"));
+        filledGroupReferencePool.add(PARTY_ID, "group");
+        filledGroupReferencePool.add(ReferenceKeyGenerator.generateTemplateKey(PARTY_ID, SHOP_ID), "group");
+
+        TemplateChainIndex index = new TemplateChainIndex(filledReferencePool, filledGroupReferencePool, filledGroupPool);
+
+        TemplateChain chain = index.resolve(PARTY_ID, SHOP_ID);
+        Assert.assertEquals(List.of("group_template"), chain.getParty().getGroupTemplateIds());
+        Assert.assertEquals("shop_template", chain.getShop().getTemplateId());
+        Assert.assertEquals(List.of("group_template"), chain.getShop().getGroupTemplateIds());
+
+        filledGroupPool.add("group", List.of("group_template_v2"));
+        chain = index.resolve(PARTY_ID, SHOP_ID);
+        Assert.assertEquals(List.of("group_template_v2"), chain.getParty().getGroupTemplateIds());
+        Assert.assertEquals(List.of("group_template_v2"), chain.getShop().getGroupTemplateIds());
+
+        filledGroupReferencePool.add(PARTY_ID, "other_group");
+        filledGroupPool.remove("group");
+        chain = index.resolve(PARTY_ID, SHOP_ID);
+        Assert.assertEquals(ChainEntry.EMPTY, chain.getParty());
+        Assert.assertEquals(new ChainEntry("shop_template", null), chain.getShop());
+
+        filledReferencePool.remove(ReferenceKeyGenerator.generateTemplateKey(PARTY_ID, SHOP_ID));
+        Assert.assertEquals(ChainEntry.EMPTY, index.resolve(PARTY_ID, SHOP_ID).getShop());
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.rbkmoney.fraudbusters.template.snapshot;
+
+import com.rbkmoney.damsel.fraudbusters.Command;
+import com.rbkmoney.damsel.fraudbusters.CommandBody;
+import com.rbkmoney.damsel.fraudbusters.CommandType;
+import com.rbkmoney.damsel.fraudbusters.Template;
+import com.rbkmoney.fraudbusters.config.properties.PoolSnapshotProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PoolSnapshotServiceTest {
+
+    private static final String TOPIC = "template";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PoolSnapshotProperties properties;
+
+    @Before
+    public void init() {
+        properties = new PoolSnapshotProperties();
+        properties.setEnable(true);
+        properties.setPath(folder.getRoot().toPath().resolve("pools.bin").toString());
+    }
+
+    @Test
+    public void writeAndRestoreLatestCommandPerKey() {
+        PoolSnapshotService service = new PoolSnapshotService(properties, new SimpleMeterRegistry());
+        service.init();
+        Assert.assertFalse(service.isRestored());
+        Assert.assertNull(service.nextOffset(PARTITION));
+
+        service.record(new ConsumerRecord<>(TOPIC, 0, 0L, "first", command("first", "rule: 1 > 0 -> accept;")));
+        service.record(new ConsumerRecord<>(TOPIC, 0, 1L, "second", command("second", "rule: 1 > 0 -> decline;")));
+        service.record(new ConsumerRecord<>(TOPIC, 0, 2L, "first", command("first", "rule: 2 > 0 -> accept;")));
+        service.write();
+
+        PoolSnapshotService restored = new PoolSnapshotService(properties, new SimpleMeterRegistry());
+        restored.init();
+
+        Assert.assertTrue(restored.isRestored());
+        Assert.assertEquals(Long.valueOf(3L), restored.nextOffset(PARTITION));
+        Assert.assertNull(restored.nextOffset(new TopicPartition(TOPIC, 1)));
+        List<Command> commands = new ArrayList<>(restored.commands(PARTITION).values());
+        Assert.assertEquals(2, commands.size());
+        Assert.assertEquals("second", commands.get(0).getCommandBody().getTemplate().getId());
+        Assert.assertEquals("rule: 2 > 0 -> accept;",
+                new String(commands.get(1).getCommandBody().getTemplate().getTemplate()));
+    }
+
+    @Test
+    public void recordOnlyAppliedCommands() {
+        PoolSnapshotService service = new PoolSnapshotService(properties, new SimpleMeterRegistry());
+        service.init();
+
+        ConsumerRecord<String, Command> failed = new ConsumerRecord<>(TOPIC, 0, 0L, "first",
+                command("first", "rule: 1 > 0 -> accept;"));
+        service.intercept(failed);
+        Assert.assertNull(service.nextOffset(PARTITION));
+
+        ConsumerRecord<String, Command> applied = new ConsumerRecord<>(TOPIC, 0, 1L, "second",
+                command("second", "rule: 1 > 0 -> decline;"));
+        service.intercept(applied);
+        service.applied(failed.value());
+        Assert.assertNull(service.nextOffset(PARTITION));
+        service.applied(applied.value());
+        Assert.assertEquals(Long.valueOf(2L), service.nextOffset(PARTITION));
+
+        service.record(new ConsumerRecord<>(TOPIC, 0, 2L, null, command("third", "rule: 1 > 0 -> accept;")));
+        Assert.assertEquals(Long.valueOf(2L), service.nextOffset(PARTITION));
+        Assert.assertEquals(List.of("second"), new ArrayList<>(service.commands(PARTITION).keySet()));
+    }
+
+    @Test
+    public void disabledSnapshotIsIgnored() {
+        properties.setEnable(false);
+        PoolSnapshotService service = new PoolSnapshotService(properties, new SimpleMeterRegistry());
+        service.init();
+
+        service.record(new ConsumerRecord<>(TOPIC, 0, 0L, "first", command("first", "rule: 1 > 0 -> accept;")));
+        service.write();
+
+        Assert.assertNull(service.nextOffset(PARTITION));
+        Assert.assertFalse(folder.getRoot().toPath().resolve("pools.bin").toFile().exists());
+    }
+
+    private Command command(String id, String template) {
+        return new Command()
+                .setCommandType(CommandType.CREATE)
+                .setCommandBody(CommandBody.template(new Template()
+                        .setId(id)
+                        .setTemplate(template.getBytes())));
+    }
+
+}
@@ -13,6 +13,8 @@ public class ChInitializer {
         try (Connection connection = getSystemConn(clickHouseContainer)) {
             execAllInFile(connection, "sql/db_init.sql");
             execAllInFile(connection, "sql/V2__create_events_p2p.sql");
+            execAllInFile(connection, "sql/V3__create_events_unique_hourly.sql");
+            execAllInFile(connection, "sql/V4__create_events_unique_lookup.sql");
             execAllInFile(connection, "sql/TEST_analytics_data.sql");
         }
     }
@@ -0,0 +1,158 @@
+DROP TABLE IF EXISTS fraud.events_unique_hourly_ip_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly_email_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly_bin_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly_fingerprint_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly_card_token_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly_party_id_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly_shop_id_mv;
+DROP TABLE IF EXISTS fraud.events_unique_hourly;
+
+create table fraud.events_unique_hourly (
+  timestamp Date,
+  eventTimeHour UInt64,
+
+  field String,
+  value String,
+
+  partyId String,
+  shopId String,
+  resultStatus String,
+
+  cnt AggregateFunction(count),
+  sumAmount AggregateFunction(sum, UInt64),
+  uniqIp AggregateFunction(uniq, String),
+  uniqEmail AggregateFunction(uniq, String),
+  uniqBin AggregateFunction(uniq, String),
+  uniqFingerprint AggregateFunction(uniq, String),
+  uniqCardToken AggregateFunction(uniq, String)
+) ENGINE = AggregatingMergeTree()
+PARTITION BY toYYYYMM (timestamp)
+ORDER BY (field, value, eventTimeHour, partyId, shopId, resultStatus)
+TTL timestamp + INTERVAL 3 MONTH;
+
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_ip_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'ip' AS field,
+  ip AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_email_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'email' AS field,
+  email AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_bin_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'bin' AS field,
+  bin AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_fingerprint_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'fingerprint' AS field,
+  fingerprint AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_card_token_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'cardToken' AS field,
+  cardToken AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_party_id_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'partyId' AS field,
+  partyId AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
+CREATE MATERIALIZED VIEW fraud.events_unique_hourly_shop_id_mv TO fraud.events_unique_hourly AS
+SELECT
+  timestamp,
+  eventTimeHour,
+  'shopId' AS field,
+  shopId AS value,
+  partyId,
+  shopId,
+  resultStatus,
+  countState() AS cnt,
+  sumState(amount) AS sumAmount,
+  uniqState(ip) AS uniqIp,
+  uniqState(email) AS uniqEmail,
+  uniqState(bin) AS uniqBin,
+  uniqState(fingerprint) AS uniqFingerprint,
+  uniqState(cardToken) AS uniqCardToken
+FROM fraud.events_unique
+GROUP BY timestamp, eventTimeHour, value, partyId, shopId, resultStatus;
\ No newline at end of file
@@ -0,0 +1,55 @@
+DROP TABLE IF EXISTS fraud.events_unique_by_card_token_mv;
+DROP TABLE IF EXISTS fraud.events_unique_by_email_mv;
+DROP TABLE IF EXISTS fraud.events_unique_by_ip_mv;
+DROP TABLE IF EXISTS fraud.events_unique_by_fingerprint_mv;
+DROP TABLE IF EXISTS fraud.events_unique_by_bin_mv;
+DROP TABLE IF EXISTS fraud.events_unique_by_card_token;
+DROP TABLE IF EXISTS fraud.events_unique_by_email;
+DROP TABLE IF EXISTS fraud.events_unique_by_ip;
+DROP TABLE IF EXISTS fraud.events_unique_by_fingerprint;
+DROP TABLE IF EXISTS fraud.events_unique_by_bin;
+
+create table fraud.events_unique_by_card_token AS fraud.events_unique
+ENGINE = MergeTree()
+PARTITION BY toYYYYMM (timestamp)
+ORDER BY (cardToken, eventTime)
+TTL timestamp + INTERVAL 3 MONTH;
+
+CREATE MATERIALIZED VIEW fraud.events_unique_by_card_token_mv TO fraud.events_unique_by_card_token AS
+SELECT * FROM fraud.events_unique;
+
+create table fraud.events_unique_by_email AS fraud.events_unique
+ENGINE = MergeTree()
+PARTITION BY toYYYYMM (timestamp)
+ORDER BY (email, eventTime)
+TTL timestamp + INTERVAL 3 MONTH;
+
+CREATE MATERIALIZED VIEW fraud.events_unique_by_email_mv TO fraud.events_unique_by_email AS
+SELECT * FROM fraud.events_unique;
+
+create table fraud.events_unique_by_ip AS fraud.events_unique
+ENGINE = MergeTree()
+PARTITION BY toYYYYMM (timestamp)
+ORDER BY (ip, eventTime)
+TTL timestamp + INTERVAL 3 MONTH;
+
+CREATE MATERIALIZED VIEW fraud.events_unique_by_ip_mv TO fraud.events_unique_by_ip AS
+SELECT * FROM fraud.events_unique;
+
+create table fraud.events_unique_by_fingerprint AS fraud.events_unique
+ENGINE = MergeTree()
+PARTITION BY toYYYYMM (timestamp)
+ORDER BY (fingerprint, eventTime)
+TTL timestamp + INTERVAL 3 MONTH;
+
+CREATE MATERIALIZED VIEW fraud.events_unique_by_fingerprint_mv TO fraud.events_unique_by_fingerprint AS
+SELECT * FROM fraud.events_unique;
+
+create table fraud.events_unique_by_bin AS fraud.events_unique
+ENGINE = MergeTree()
+PARTITION BY toYYYYMM (timestamp)
+ORDER BY (bin, eventTime)
+TTL timestamp + INTERVAL 3 MONTH;
+
+CREATE MATERIALIZED VIEW fraud.events_unique_by_bin_mv TO fraud.events_unique_by_bin AS
+SELECT * FROM fraud.events_unique;
\ No newline at end of file